@@ -12,4 +12,14 @@ import java.lang.annotation.*;
 @Inherited
 public @interface EncryptedField {
 
+    /**
+     * 盲索引字段的属性名，为空表示不维护盲索引
+     * <p>
+     * 盲索引字段保存明文规范化后的 HMAC 值（确定性），新增、修改数据时自动维护；
+     * 通过 QueryWrapper、LambdaQueryWrapper 对加密字段进行 eq、in 查询时，条件自动改写为对盲索引字段的查询，
+     * 加密字段本身可以使用带随机偏移向量的加密模式。盲索引字段需要是实体类的数据库字段，并建立索引。
+     * </p>
+     */
+    String blindIndex() default "";
+
 }
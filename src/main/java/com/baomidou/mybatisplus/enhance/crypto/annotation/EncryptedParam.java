@@ -0,0 +1,25 @@
+package com.baomidou.mybatisplus.enhance.crypto.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 需要加密的 Mapper 方法参数用这个注解，支持 String、数值等简单类型的参数，以及元素为简单类型的集合、数组参数（按元素逐个加密），例如：
+ * <pre>
+ * Person findByMobile(@EncryptedParam @Param("mobile") String mobile);
+ * List&lt;Person&gt; findByEmails(@EncryptedParam @Param("emails") List&lt;String&gt; emails);
+ * </pre>
+ * Mapper 对应的实体类被 @EncryptedTable 注解时，@Param 名称与 @EncryptedField 字段属性名相同的参数无需注解，同样会被加密；
+ * 该字段维护盲索引时替换为盲索引值
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.PARAMETER)
+@Inherited
+public @interface EncryptedParam {
+
+    /**
+     * 是否将参数值替换为盲索引值（而不是密文），用于对 @EncryptedField(blindIndex) 盲索引字段的查询
+     */
+    boolean blindIndex() default false;
+
+}
@@ -0,0 +1,18 @@
+package com.baomidou.mybatisplus.enhance.crypto.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 忽略签名注解，用于由调用方自行签名、验签的方法，拦截器不对其签名和验签
+ * <p>
+ * 仅用于重新签名、显式验签使用的原始数据读写方法（例如 EnhanceMapper 的 selectIgnoreDecryptBatchIds、updateSignatureById）；
+ * 只被 @IgnoreEncrypted 注解的方法仍然签名和验签。
+ * </p>
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD})
+@Inherited
+public @interface IgnoreSignature {
+
+}
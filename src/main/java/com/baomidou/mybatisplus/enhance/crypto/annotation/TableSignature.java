@@ -1,5 +1,7 @@
 package com.baomidou.mybatisplus.enhance.crypto.annotation;
 
+import com.baomidou.mybatisplus.enhance.crypto.enums.SignatureFormat;
+
 import java.lang.annotation.*;
 
 /**
@@ -17,4 +19,20 @@ public @interface TableSignature {
      */
     boolean unionAll() default false;
 
+    /**
+     * 新签名使用的签名格式，已存储的签名按签名值的前缀识别格式进行验签，切换格式后历史签名仍然可以验证通过，重新签名后升级为新格式
+     */
+    SignatureFormat format() default SignatureFormat.V1;
+
+    /**
+     * 验签时允许的最低签名格式，低于该格式的已存储签名验签不通过；全部数据重新签名为新格式后提高该值，禁止使用历史格式的签名。
+     * 不能高于 {@link #format()}
+     */
+    SignatureFormat minimumFormat() default SignatureFormat.V1;
+
+    /**
+     * 表完整性摘要的主键范围分桶大小，大于 0 时通过 IEnhanceService 写入签名数据的同时增量维护表完整性摘要，要求主键为整数类型
+     */
+    long integrityBucketSize() default 0;
+
 }
@@ -0,0 +1,144 @@
+package com.baomidou.mybatisplus.enhance.crypto.codec;
+
+import cn.hutool.core.convert.BasicType;
+import com.baomidou.mybatisplus.core.toolkit.ExceptionUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * 字段值编解码器，负责字段值与待加密明文字节之间的转换
+ * <p>
+ * 紧凑格式：【0x01 格式标记】【1 字节类型标记】【值的字符串形式，UTF-8】，支持 String、数值、Boolean、Character、UUID、枚举
+ * 和常用 java.time 类型，编解码不经过 Jackson；其他类型仍使用 Jackson 序列化为 JSON（历史格式）。
+ * JSON 文本不会以 0x01 开头，因此解码时可以通过首字节区分两种格式，历史密文始终可以解密。
+ * </p>
+ */
+public class FieldValueCodec {
+
+    /**
+     * 紧凑格式标记
+     */
+    public static final byte COMPACT_MARKER = 0x01;
+    /**
+     * 枚举的类型标记，值为枚举常量名，编码时不记录枚举类型
+     */
+    private static final char ENUM_TAG = 'E';
+
+    private static final Map<Class<?>, Character> TYPE_TAGS = new HashMap<>();
+    private static final Map<Character, Class<?>> TAG_TYPES = new HashMap<>();
+    private static final Map<Class<?>, Function<String, Object>> PARSERS = new HashMap<>();
+
+    static {
+        register('S', String.class, value -> value);
+        register('I', Integer.class, Integer::valueOf);
+        register('J', Long.class, Long::valueOf);
+        register('H', Short.class, Short::valueOf);
+        register('B', Byte.class, Byte::valueOf);
+        register('D', Double.class, Double::valueOf);
+        register('F', Float.class, Float::valueOf);
+        register('Z', Boolean.class, Boolean::valueOf);
+        register('C', Character.class, value -> value.charAt(0));
+        register('N', BigDecimal.class, BigDecimal::new);
+        register('G', BigInteger.class, BigInteger::new);
+        register('U', UUID.class, UUID::fromString);
+        register('d', LocalDate.class, LocalDate::parse);
+        register('t', LocalTime.class, LocalTime::parse);
+        register('T', LocalDateTime.class, LocalDateTime::parse);
+        register('i', Instant.class, Instant::parse);
+        register('o', OffsetDateTime.class, OffsetDateTime::parse);
+        register('z', ZonedDateTime.class, ZonedDateTime::parse);
+    }
+
+    private static void register(char tag, Class<?> type, Function<String, Object> parser) {
+        TYPE_TAGS.put(type, tag);
+        TAG_TYPES.put(tag, type);
+        PARSERS.put(type, parser);
+    }
+
+    private final ObjectMapper objectMapper;
+
+    public FieldValueCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 明文字节是否为紧凑格式
+     * @param plain 解密后的明文字节
+     */
+    public static boolean isCompact(byte[] plain) {
+        return Objects.nonNull(plain) && plain.length >= 2 && plain[0] == COMPACT_MARKER;
+    }
+
+    /**
+     * 以紧凑格式编码字段值，不支持的类型使用 Jackson 序列化为 JSON
+     * @param value 字段值，不能为空
+     * @return 待加密的明文字节
+     */
+    public byte[] encode(Object value) throws Exception {
+        Class<?> type = value.getClass();
+        Character tag = TYPE_TAGS.get(type);
+        String text;
+        if (Objects.nonNull(tag)) {
+            text = value.toString();
+        } else if (value instanceof Enum) {
+            tag = ENUM_TAG;
+            text = ((Enum<?>) value).name();
+        } else {
+            return objectMapper.writeValueAsBytes(value);
+        }
+        byte[] payload = text.getBytes(StandardCharsets.UTF_8);
+        byte[] plain = new byte[payload.length + 2];
+        plain[0] = COMPACT_MARKER;
+        plain[1] = (byte) tag.charValue();
+        System.arraycopy(payload, 0, plain, 2, payload.length);
+        return plain;
+    }
+
+    /**
+     * 解码明文字节，同时支持紧凑格式和 JSON 格式
+     * @param plain 解密后的明文字节
+     * @param rtType 目标类型
+     * @return 字段值
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T decode(byte[] plain, Class<T> rtType) throws Exception {
+        if (!isCompact(plain)) {
+            return objectMapper.readValue(plain, rtType);
+        }
+        char tag = (char) plain[1];
+        String text = new String(plain, 2, plain.length - 2, StandardCharsets.UTF_8);
+        return (T) parse(tag, text, BasicType.wrap(rtType));
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object parse(char tag, String text, Class<?> rtType) {
+        // 目标类型可以直接解析时按目标类型解析，例如 Long 编码的值解码到 String 字段
+        Function<String, Object> parser = PARSERS.get(rtType);
+        if (Objects.nonNull(parser)) {
+            return parser.apply(text);
+        }
+        if (rtType.isEnum()) {
+            return Enum.valueOf((Class<? extends Enum>) rtType, text);
+        }
+        // 枚举编码时不记录枚举类型，目标类型为 Object、Serializable 等父类型时解码为枚举常量名
+        if (tag == ENUM_TAG && rtType.isAssignableFrom(String.class)) {
+            return text;
+        }
+        // 目标类型为 Object、Serializable 等父类型时按编码时的类型解析
+        Class<?> encodedType = TAG_TYPES.get(tag);
+        if (Objects.nonNull(encodedType) && rtType.isAssignableFrom(encodedType)) {
+            return PARSERS.get(encodedType).apply(text);
+        }
+        throw ExceptionUtils.mpe("Unable to decode value of type tag '%s' to %s", tag, rtType.getName());
+    }
+
+}
@@ -0,0 +1,76 @@
+package com.baomidou.mybatisplus.enhance.crypto.codec;
+
+import cn.hutool.crypto.digest.mac.MacEngine;
+import com.baomidou.mybatisplus.enhance.crypto.enums.SignatureFormat;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 行数据签名的二进制规范格式（{@link SignatureFormat#V2}）编码器
+ * <p>
+ * 格式：【1 字节版本号】，之后按签名字段顺序写入每个字段：【4 字节大端长度，null 为 -1】【字段值 Objects.toString 后的 UTF-8 字节】。
+ * 长度前缀保证任意字段值都不会产生歧义，null 与空字符串也能区分；编码结果直接写入 Mac，不生成中间字符串。
+ * </p>
+ */
+public class SignatureCanonicalCodec {
+
+    private static final int NULL_LENGTH = -1;
+
+    /**
+     * 将字段值按规范格式写入 Mac
+     * @param engine Mac 引擎，调用方负责 doFinal
+     * @param values 按签名顺序排列的字段值
+     */
+    public static void update(MacEngine engine, List<?> values) {
+        write(engine::update, values);
+    }
+
+    /**
+     * 将字段值按规范格式编码为字节，用于不支持直接写入 Mac 的签名实现
+     * @param values 按签名顺序排列的字段值
+     * @return 规范格式字节
+     */
+    public static byte[] encode(List<?> values) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        write(out::write, values);
+        return out.toByteArray();
+    }
+
+    private static void write(ByteSink sink, List<?> values) {
+        byte[] header = new byte[]{(byte) SignatureFormat.V2.getVersion()};
+        sink.write(header, 0, header.length);
+        byte[] length = new byte[4];
+        for (Object value : values) {
+            if (Objects.isNull(value)) {
+                writeInt(length, NULL_LENGTH);
+                sink.write(length, 0, length.length);
+                continue;
+            }
+            byte[] bytes = Objects.toString(value).getBytes(StandardCharsets.UTF_8);
+            writeInt(length, bytes.length);
+            sink.write(length, 0, length.length);
+            sink.write(bytes, 0, bytes.length);
+        }
+    }
+
+    private static void writeInt(byte[] buffer, int value) {
+        buffer[0] = (byte) (value >>> 24);
+        buffer[1] = (byte) (value >>> 16);
+        buffer[2] = (byte) (value >>> 8);
+        buffer[3] = (byte) value;
+    }
+
+    /**
+     * 规范格式字节的写入目标：Mac 引擎或字节缓冲区
+     */
+    @FunctionalInterface
+    private interface ByteSink {
+
+        void write(byte[] in, int off, int len);
+
+    }
+
+}
@@ -0,0 +1,52 @@
+package com.baomidou.mybatisplus.enhance.crypto.enums;
+
+import java.util.Objects;
+
+/**
+ * 行数据签名格式
+ */
+public enum SignatureFormat {
+
+    /**
+     * 历史格式：字段值以 Objects.toString 转换后用 "|" 拼接为字符串，经 Jackson 序列化后计算 HMAC，签名值没有前缀。
+     * 字段值中包含 "|" 时存在歧义，且无法区分 null 和空字符串
+     */
+    V1(1, ""),
+    /**
+     * 二进制规范格式：【1 字节版本号】【每个字段：4 字节长度（null 为 -1）+ UTF-8 字节】，直接写入 Mac 计算 HMAC，
+     * 签名值以 "v2$" 为前缀
+     */
+    V2(2, "v2$");
+
+    private final int version;
+    private final String prefix;
+
+    SignatureFormat(int version, String prefix) {
+        this.version = version;
+        this.prefix = prefix;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * 根据已存储的签名值的前缀判断签名格式，没有前缀的签名值为历史格式；是否接受该格式由 @TableSignature 的 minimumFormat 决定
+     * @param signatureValue 已存储的签名值
+     * @return 签名格式
+     */
+    public static SignatureFormat of(Object signatureValue) {
+        String value = Objects.toString(signatureValue, "");
+        for (SignatureFormat format : values()) {
+            if (!format.prefix.isEmpty() && value.startsWith(format.prefix)) {
+                return format;
+            }
+        }
+        return V1;
+    }
+
+}
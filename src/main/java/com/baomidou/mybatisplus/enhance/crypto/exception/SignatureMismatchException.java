@@ -0,0 +1,19 @@
+package com.baomidou.mybatisplus.enhance.crypto.exception;
+
+import com.baomidou.mybatisplus.core.exceptions.MybatisPlusException;
+
+/**
+ * 单行数据签名验证不通过异常：签名不匹配或原来签名不存在
+ * <p>批量验签、抽样验签只收集该异常，读取签名失败、加密处理器未配置等其他异常直接抛出，不当作验签失败处理</p>
+ */
+public class SignatureMismatchException extends MybatisPlusException {
+
+    public SignatureMismatchException(String message) {
+        super(message);
+    }
+
+    public SignatureMismatchException(String message, Object... params) {
+        super(String.format(message, params));
+    }
+
+}
@@ -0,0 +1,37 @@
+package com.baomidou.mybatisplus.enhance.crypto.exception;
+
+import com.baomidou.mybatisplus.core.exceptions.MybatisPlusException;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 签名验证异常，汇总一次查询中全部验签失败的数据
+ * <p>只有一行数据验签失败时，异常信息与该行的验签异常信息一致</p>
+ */
+public class SignatureVerificationException extends MybatisPlusException {
+
+    /**
+     * 验签失败的数据，按在查询结果中的下标排序
+     */
+    @Getter
+    private final List<SignatureVerificationFailure> failures;
+
+    public SignatureVerificationException(List<SignatureVerificationFailure> failures) {
+        super(buildMessage(failures), failures.get(0).getCause());
+        this.failures = Collections.unmodifiableList(failures);
+        for (int i = 1; i < failures.size(); i++) {
+            addSuppressed(failures.get(i).getCause());
+        }
+    }
+
+    private static String buildMessage(List<SignatureVerificationFailure> failures) {
+        String message = failures.get(0).getCause().getMessage();
+        if (failures.size() == 1) {
+            return message;
+        }
+        return String.format("共【%d】行数据签名验证不通过，第一行（下标 %d）：%s", failures.size(), failures.get(0).getRowIndex(), message);
+    }
+
+}
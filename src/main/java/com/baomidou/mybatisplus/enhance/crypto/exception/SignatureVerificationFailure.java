@@ -0,0 +1,30 @@
+package com.baomidou.mybatisplus.enhance.crypto.exception;
+
+import lombok.Getter;
+
+/**
+ * 单行数据的签名验证失败信息
+ */
+@Getter
+public class SignatureVerificationFailure {
+
+    /**
+     * 数据在查询结果中的下标
+     */
+    private final int rowIndex;
+    /**
+     * 验签失败的数据对象
+     */
+    private final Object rawObject;
+    /**
+     * 验签失败的原因
+     */
+    private final RuntimeException cause;
+
+    public SignatureVerificationFailure(int rowIndex, Object rawObject, RuntimeException cause) {
+        this.rowIndex = rowIndex;
+        this.rawObject = rawObject;
+        this.cause = cause;
+    }
+
+}
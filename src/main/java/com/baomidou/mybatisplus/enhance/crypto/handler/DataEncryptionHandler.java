@@ -1,6 +1,10 @@
 package com.baomidou.mybatisplus.enhance.crypto.handler;
 
 import com.baomidou.mybatisplus.core.conditions.AbstractWrapper;
+import com.baomidou.mybatisplus.core.toolkit.ExceptionUtils;
+
+import java.util.Collections;
+import java.util.List;
 
 public interface DataEncryptionHandler {
 
@@ -13,7 +17,7 @@ public interface DataEncryptionHandler {
     <T> boolean doEntityEncrypt(T entity);
 
     /**
-     * 通过UpdateWrapper、LambdaUpdateWrapper修改数据库时
+     * 通过UpdateWrapper、LambdaUpdateWrapper修改数据库时；同一个 Wrapper 多次执行时只加密一次
      *
      * @param entityClass   实体类
      * @param updateWrapper 更新条件
@@ -28,4 +32,31 @@ public interface DataEncryptionHandler {
      */
     <T> void doRawObjectDecrypt(Object rawObject, Class<T> entityClass);
 
+    /**
+     * 对查询条件中加密字段的取值进行加密
+     * @param value 明文值
+     * @return 加密后的值
+     */
+    default String doValueEncrypt(Object value) {
+        throw ExceptionUtils.mpe("%s does not support condition value encryption", getClass().getName());
+    }
+
+    /**
+     * 对查询条件中加密字段的取值进行加密，返回数据库中可能存储的全部密文（例如密钥轮换期间新旧密钥的密文）
+     * @param value 明文值
+     * @return 候选密文，第一个为当前密钥加密后的值
+     */
+    default List<String> doValueEncryptCandidates(Object value) {
+        return Collections.singletonList(doValueEncrypt(value));
+    }
+
+    /**
+     * 计算加密字段明文对应的盲索引值
+     * @param value 明文值
+     * @return 盲索引值
+     */
+    default String doBlindIndex(Object value) {
+        throw ExceptionUtils.mpe("%s does not support blind index", getClass().getName());
+    }
+
 }
@@ -1,6 +1,11 @@
 package com.baomidou.mybatisplus.enhance.crypto.handler;
 
 import com.baomidou.mybatisplus.core.conditions.AbstractWrapper;
+import com.baomidou.mybatisplus.core.toolkit.ExceptionUtils;
+import com.baomidou.mybatisplus.enhance.crypto.exception.SignatureMismatchException;
+
+import java.util.ArrayList;
+import java.util.List;
 
 public interface DataSignatureHandler {
 
@@ -25,7 +30,48 @@ public interface DataSignatureHandler {
      * 对单个对象进行验签
      * @param rawObject 单个对象
      * @param <T> 对象类型
+     * @throws SignatureMismatchException 签名不匹配或原来签名不存在
      */
     <T> void doSignatureVerification(Object rawObject, Class<T> entityClass);
 
+    /**
+     * 获取签名读写提供者，用于读取已存储的签名（例如维护和审计表完整性摘要）
+     * @return 签名读写提供者
+     */
+    default DataSignatureReadWriteProvider getSignatureReadWriteProvider() {
+        throw ExceptionUtils.mpe("%s does not expose a DataSignatureReadWriteProvider", getClass().getName());
+    }
+
+    /**
+     * 批量对实体对象进行签名，默认逐个调用 {@link #doEntitySignature(Object)}
+     * @param entities 实体对象列表
+     * @return 签名完成后是否继续执行数据更新操作
+     */
+    default boolean doBatchEntitySignature(List<?> entities) {
+        boolean doUpdate = false;
+        for (Object entity : entities) {
+            doUpdate |= doEntitySignature(entity);
+        }
+        return doUpdate;
+    }
+
+    /**
+     * 批量对同一实体类的数据进行验签，验签失败不中断，默认逐个调用 {@link #doSignatureVerification(Object, Class)}
+     * @param rawObjects 数据对象列表
+     * @param entityClass 实体类
+     * @return 每行数据的验签异常，验签通过的数据为 null，与 rawObjects 下标一一对应；只收集 {@link SignatureMismatchException}，其他异常直接抛出
+     */
+    default <T> List<RuntimeException> doBatchSignatureVerification(List<?> rawObjects, Class<T> entityClass) {
+        List<RuntimeException> errors = new ArrayList<>(rawObjects.size());
+        for (Object rawObject : rawObjects) {
+            try {
+                doSignatureVerification(rawObject, entityClass);
+                errors.add(null);
+            } catch (SignatureMismatchException e) {
+                errors.add(e);
+            }
+        }
+        return errors;
+    }
+
 }
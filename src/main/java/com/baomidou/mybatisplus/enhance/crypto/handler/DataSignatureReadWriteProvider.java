@@ -3,6 +3,8 @@ package com.baomidou.mybatisplus.enhance.crypto.handler;
 import com.baomidou.mybatisplus.core.conditions.AbstractWrapper;
 import com.baomidou.mybatisplus.core.metadata.TableInfo;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -20,12 +22,43 @@ public interface DataSignatureReadWriteProvider {
 
     /**
      * 将签名值写出
-     * @param rawObject 数据对象
+     * @param rawObject 数据对象；通过 UpdateWrapper 修改时为 SET 子句的【属性名 → 赋值表达式】Map，例如：name → #{ew.paramNameValuePairs.MPGENVAL1}
      * @param tableInfo 对象表信息
+     * @param updateWrapper 通过 UpdateWrapper 修改时的更新条件，其他情况为 null
      * @param signValue 签名值
      * @param <T> 对象类型
      * @return 签名写出后是否继续执行数据更新操作
      */
     boolean writeSignature(Object rawObject, TableInfo tableInfo, AbstractWrapper<?,?,?> updateWrapper, String signValue);
 
+    /**
+     * 批量读取签名值，默认逐行调用 {@link #readSignature(Object, TableInfo)}；签名存储在外部时应覆盖该方法，以一次查询读取全部签名
+     * @param rawObjects 数据对象列表
+     * @param tableInfo 对象表信息
+     * @return 签名值列表，与 rawObjects 下标一一对应
+     */
+    default List<Optional<Object>> readSignatures(List<?> rawObjects, TableInfo tableInfo) {
+        List<Optional<Object>> signatures = new ArrayList<>(rawObjects.size());
+        for (Object rawObject : rawObjects) {
+            signatures.add(readSignature(rawObject, tableInfo));
+        }
+        return signatures;
+    }
+
+    /**
+     * 批量将签名值写出，默认逐行调用 {@link #writeSignature(Object, TableInfo, AbstractWrapper, String)}；
+     * 签名存储在外部时应覆盖该方法，以一次批处理写出全部签名
+     * @param rawObjects 数据对象列表
+     * @param tableInfo 对象表信息
+     * @param signValues 签名值列表，与 rawObjects 下标一一对应
+     * @return 签名写出后是否继续执行数据更新操作
+     */
+    default boolean writeSignatures(List<?> rawObjects, TableInfo tableInfo, List<String> signValues) {
+        boolean doUpdate = false;
+        for (int i = 0; i < rawObjects.size(); i++) {
+            doUpdate |= writeSignature(rawObjects.get(i), tableInfo, null, signValues.get(i));
+        }
+        return doUpdate;
+    }
+
 }
@@ -1,38 +1,40 @@
 package com.baomidou.mybatisplus.enhance.crypto.handler;
 
 import cn.hutool.core.map.MapUtil;
-import cn.hutool.core.util.ReflectUtil;
 import com.baomidou.mybatisplus.core.conditions.AbstractWrapper;
-import com.baomidou.mybatisplus.core.metadata.TableFieldInfo;
-import com.baomidou.mybatisplus.core.toolkit.AnnotationUtils;
-import com.baomidou.mybatisplus.core.toolkit.CollectionUtils;
-import com.baomidou.mybatisplus.core.toolkit.Constants;
+import com.baomidou.mybatisplus.core.conditions.update.Update;
 import com.baomidou.mybatisplus.core.toolkit.ExceptionUtils;
-import com.baomidou.mybatisplus.enhance.crypto.annotation.EncryptedField;
-import com.baomidou.mybatisplus.enhance.crypto.annotation.EncryptedTable;
+import com.baomidou.mybatisplus.enhance.util.EncryptedFieldPlan;
+import com.baomidou.mybatisplus.enhance.util.SqlSetIndex;
 import com.baomidou.mybatisplus.enhance.util.TableFieldHelper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.Getter;
-import org.apache.commons.lang3.StringUtils;
 import org.apache.ibatis.type.SimpleTypeRegistry;
 
-import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.regex.Matcher;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 public class DefaultDataEncryptionHandler implements DataEncryptionHandler {
     /**
      * 变量占位符正则
      */
-    public static final Pattern PARAM_PAIRS_RE = Pattern.compile("#\\{ew\\.paramNameValuePairs\\.(" + Constants.WRAPPER_PARAM + "\\d+)\\}");
+    public static final Pattern PARAM_PAIRS_RE = SqlSetIndex.PARAM_PLACEHOLDER_RE;
     /**
      * 加解密处理器，加解密的情况都在该处理器中自行判断
      */
     @Getter
     private final EncryptedFieldHandler encryptedFieldHandler;
+    /**
+     * 已加密的 Wrapper 参数变量，按 Wrapper 实例缓存（弱引用）：参数变量名 → 加密后的值；
+     * 同一个 Wrapper 再次执行时，参数变量值仍是加密后的值则跳过，避免重复加密和重复追加盲索引字段
+     */
+    private static final Cache<AbstractWrapper<?, ?, ?>, Map<String, Object>> ENCRYPTED_WRAPPER_PARAMS = Caffeine.newBuilder()
+            .weakKeys()
+            .build();
 
     public DefaultDataEncryptionHandler(EncryptedFieldHandler encryptedFieldHandler) {
         this.encryptedFieldHandler = encryptedFieldHandler;
@@ -53,33 +55,26 @@ public class DefaultDataEncryptionHandler implements DataEncryptionHandler {
         // 1、判断加解密处理器不为空，为空则抛出异常
         ExceptionUtils.throwMpe(null == encryptedFieldHandler, "Please implement EncryptedFieldHandler processing logic");
 
-        // 2、判断自定义Entity的类是否被@EncryptedTable所注解
-        EncryptedTable encryptedTable = AnnotationUtils.findFirstAnnotation(EncryptedTable.class, entity.getClass());
-        if(Objects.isNull(encryptedTable)){
-            return Boolean.FALSE;
-        }
-
-        // 3、获取该类的所有标记为加密字段的属性列表
-        List<TableFieldInfo> encryptedFieldInfos = TableFieldHelper.getEncryptedFieldInfos(entity.getClass());
-        if (CollectionUtils.isEmpty(encryptedFieldInfos)) {
+        // 2、获取该类的加解密计划，未被@EncryptedTable所注解或没有加密字段则直接返回
+        EncryptedFieldPlan plan = TableFieldHelper.getEncryptedFieldPlan(entity.getClass());
+        if (!plan.isEncryptable()) {
             return Boolean.FALSE;
         }
 
-        // 4、遍历字段，对字段进行加密处理
-        for (TableFieldInfo fieldInfo : encryptedFieldInfos) {
-            // 4.1、获取字段上的@EncryptedField注解，如果没有则跳过
-            EncryptedField encryptedField = AnnotationUtils.findFirstAnnotation(EncryptedField.class, fieldInfo.getField());
-            if (Objects.isNull(encryptedField)) {
-                continue;
-            }
-            // 4.2、获取加密字段的原始值
-            Object rawValue = ReflectUtil.getFieldValue(entity, fieldInfo.getField());
-            // 4.4、如果原始值不为空，则对原始值进行加密处理
+        // 3、遍历加密字段，对字段进行加密处理
+        for (EncryptedFieldPlan.EncryptedFieldItem field : plan.getFields()) {
+            // 3.1、获取加密字段的原始值
+            Object rawValue = field.getAccessor().get(entity);
+            // 3.2、如果原始值不为空，则对原始值进行加密处理
             if (Objects.nonNull(rawValue)) {
-                // 4.4.1、对原始值进行加密处理
+                // 3.2.1、维护盲索引字段，盲索引按明文计算
+                if (field.hasBlindIndex()) {
+                    field.getBlindIndexAccessor().set(entity, doBlindIndex(rawValue));
+                }
+                // 3.2.2、对原始值进行加密处理
                 String newValue = getEncryptedFieldHandler().encrypt(rawValue);
-                // 4.4.2、将加密后的值通过反射设置到字段上
-                ReflectUtil.setFieldValue(entity, fieldInfo.getField(), newValue);
+                // 3.2.3、将加密后的值设置到字段上
+                field.getAccessor().set(entity, newValue);
             }
         }
         return Boolean.FALSE;
@@ -91,52 +86,56 @@ public class DefaultDataEncryptionHandler implements DataEncryptionHandler {
         // 1、判断加解密处理器不为空，为空则抛出异常
         ExceptionUtils.throwMpe(null == encryptedFieldHandler, "Please implement EncryptedFieldHandler processing logic");
 
-        // 2、判断自定义Entity的类是否被@EncryptedTable所注解
-        EncryptedTable encryptedTable = AnnotationUtils.findFirstAnnotation(EncryptedTable.class, entityClass);
-        if(Objects.isNull(encryptedTable)){
+        // 2、获取该类的加解密计划，未被@EncryptedTable所注解或没有加密字段则直接返回
+        EncryptedFieldPlan plan = TableFieldHelper.getEncryptedFieldPlan(entityClass);
+        if (!plan.isEncryptable()) {
             return Boolean.FALSE;
         }
 
-        // 3、获取该类的所有标记为加密字段的属性列表
-        List<TableFieldInfo> encryptedFieldInfos = TableFieldHelper.getEncryptedFieldInfos(entityClass);
-        if (CollectionUtils.isEmpty(encryptedFieldInfos)) {
-            return Boolean.FALSE;
-        }
+        // 3、获取 SQL 更新字段的索引，例如：name=#{ew.paramNameValuePairs.MPGENVAL1} 索引为 name → MPGENVAL1
+        SqlSetIndex setIndex = SqlSetIndex.of(updateWrapper);
 
-        // 4、获取 SQL 更新字段内容，例如：name='1', age=2
-        String sqlSet = updateWrapper.getSqlSet();
-        // 4.1、解析SQL更新字段内容，例如：name='1', age=2，解析为Map 对象
-        String[] sqlSetArr = StringUtils.split(sqlSet, Constants.COMMA);
-        Map<String, String> propMap = Arrays.stream(sqlSetArr).map(el -> el.split(Constants.EQUALS)).collect(Collectors.toMap(el -> el[0], el -> el[1]));
-
-        // 5、遍历字段，对字段进行加密处理
-        for (TableFieldInfo fieldInfo : encryptedFieldInfos) {
-            // 5.1、获取字段上的@EncryptedField注解，如果没有则跳过
-            EncryptedField encryptedField = AnnotationUtils.findFirstAnnotation(EncryptedField.class, fieldInfo.getField());
-            if (Objects.isNull(encryptedField)) {
-                continue;
-            }
-            // 5.2、获取字段的原始值
-            String el = MapUtil.getStr(propMap, fieldInfo.getProperty());
-            // 5.3、进行参数正则匹配，如果匹配成功，则对参数进行加密处理
-            Matcher matcher = PARAM_PAIRS_RE.matcher(el);
-            if (matcher.matches()) {
-                // 5.3.1、获取参数变量名
-                String valueKey = matcher.group(1);
-                // 5.3.2、获取参数变量值
-                Object rawValue = updateWrapper.getParamNameValuePairs().get(valueKey);
-                // 5.3.4、如果参数变量值不为空，则对参数变量值进行加密处理
-                if (Objects.nonNull(rawValue)) {
-                    // 5.3.4.1、对原始值进行加密处理
-                    String newValue = getEncryptedFieldHandler().encrypt(rawValue);
-                    // 5.3.4.2、替换参数变量值为加密后的值
-                    updateWrapper.getParamNameValuePairs().put(valueKey, newValue);
+        // 4、获取该 Wrapper 已加密的参数变量，同一个 Wrapper 多次执行时只加密一次
+        Map<String, Object> encryptedParams = ENCRYPTED_WRAPPER_PARAMS.get(updateWrapper, key -> new ConcurrentHashMap<>());
+
+        // 5、遍历加密字段，对字段进行加密处理
+        for (EncryptedFieldPlan.EncryptedFieldItem field : plan.getFields()) {
+            // 5.1、获取字段赋值的参数变量值，字段不在 SET 子句中则跳过
+            String paramKey = setIndex.getParamKey(field.getFieldInfo());
+            Object rawValue = setIndex.getValue(field.getFieldInfo());
+            // 5.2、如果参数变量值不为空，且不是本处理器加密后的值，则对参数变量值进行加密处理
+            if (Objects.nonNull(rawValue) && encryptedParams.get(paramKey) != rawValue) {
+                // 5.2.1、对原始值进行加密处理，并替换参数变量值为加密后的值
+                String newValue = getEncryptedFieldHandler().encrypt(rawValue);
+                setIndex.setValue(field.getFieldInfo(), newValue);
+                encryptedParams.put(paramKey, newValue);
+                // 5.2.2、同时更新盲索引字段
+                if (field.hasBlindIndex() && updateWrapper instanceof Update) {
+                    ((Update<?, ?>) updateWrapper).setSql(field.getBlindIndexColumn() + " = {0}", doBlindIndex(rawValue));
                 }
             }
         }
         return Boolean.FALSE;
     }
 
+    @Override
+    public String doValueEncrypt(Object value) {
+        ExceptionUtils.throwMpe(null == encryptedFieldHandler, "Please implement EncryptedFieldHandler processing logic");
+        return getEncryptedFieldHandler().encrypt(value);
+    }
+
+    @Override
+    public List<String> doValueEncryptCandidates(Object value) {
+        ExceptionUtils.throwMpe(null == encryptedFieldHandler, "Please implement EncryptedFieldHandler processing logic");
+        return getEncryptedFieldHandler().encryptCandidates(value);
+    }
+
+    @Override
+    public String doBlindIndex(Object value) {
+        ExceptionUtils.throwMpe(null == encryptedFieldHandler, "Please implement EncryptedFieldHandler processing logic");
+        return getEncryptedFieldHandler().blindIndex(value);
+    }
+
     @Override
     public <T> void doRawObjectDecrypt(Object rawObject, Class<T> entityClass) {
 
@@ -148,47 +147,31 @@ public class DefaultDataEncryptionHandler implements DataEncryptionHandler {
         // 1、判断加解密处理器不为空，为空则抛出异常
         ExceptionUtils.throwMpe(null == encryptedFieldHandler, "Please implement EncryptedFieldHandler processing logic");
 
-        // 2、判断自定义Entity的类是否被@EncryptedTable所注解
-        EncryptedTable encryptedTable = AnnotationUtils.findFirstAnnotation(EncryptedTable.class, entityClass);
-        if(Objects.isNull(encryptedTable)){
+        // 2、获取该类的加解密计划，未被@EncryptedTable所注解或没有加密字段则直接返回
+        EncryptedFieldPlan plan = TableFieldHelper.getEncryptedFieldPlan(entityClass);
+        if (!plan.isEncryptable()) {
             return;
         }
 
-        // 3、获取该类的所有标记为加密字段的属性列表
-        List<TableFieldInfo> encryptedFieldInfos = TableFieldHelper.getEncryptedFieldInfos(entityClass);
-        if (CollectionUtils.isEmpty(encryptedFieldInfos)) {
+        // 3、Map类型的结果按属性名读写
+        if (rawObject instanceof Map) {
+            Map<String, Object> rawMap = (Map<String, Object>) rawObject;
+            for (EncryptedFieldPlan.EncryptedFieldItem field : plan.getFields()) {
+                String rawValue = MapUtil.getStr(rawMap, field.getProperty());
+                if (Objects.nonNull(rawValue)) {
+                    rawMap.put(field.getProperty(), getEncryptedFieldHandler().decrypt(rawValue, String.class));
+                }
+            }
             return;
         }
 
-        // 4、遍历字段，对字段进行解密处理
-        for (TableFieldInfo fieldInfo : encryptedFieldInfos) {
-
-            // 4.1、获取字段上的@EncryptedField注解，如果没有则跳过
-            EncryptedField encryptedField = AnnotationUtils.findFirstAnnotation(EncryptedField.class, fieldInfo.getField());
-            if (Objects.isNull(encryptedField)) {
-                continue;
-            }
-
-            // 4.2、获取签名字段的原始值
-            Object rawValue;
-            if(rawObject instanceof Map){
-                Map<?,?> rawMap = (Map<?,?>) rawObject;
-                rawValue = MapUtil.getStr(rawMap, fieldInfo.getProperty());
-            } else {
-                rawValue = ReflectUtil.getFieldValue(rawObject, fieldInfo.getField());
-            }
-
-            // 4.3、如果原始值不为空，则对原始值进行解密处理
+        // 4、遍历加密字段，对字段进行解密处理
+        for (EncryptedFieldPlan.EncryptedFieldItem field : plan.getFields()) {
+            // 4.1、获取加密字段的原始值
+            Object rawValue = field.getAccessor().get(rawObject);
+            // 4.2、如果原始值不为空，则对原始值进行解密处理，并将解密后的值设置到字段上
             if (Objects.nonNull(rawValue)) {
-                // 4.3.1、对原始值进行解密处理
-                Object newValue = getEncryptedFieldHandler().decrypt(Objects.toString(rawValue), rawValue.getClass());
-                // 4.3.2、将解密后的值通过反射设置到字段上
-                if(rawObject instanceof Map){
-                    Map<String, Object> rawMap = (Map<String, Object>) rawObject;
-                    rawMap.put(fieldInfo.getProperty(), newValue);
-                } else {
-                    ReflectUtil.setFieldValue(rawObject, fieldInfo.getField(), newValue);
-                }
+                field.getAccessor().set(rawObject, getEncryptedFieldHandler().decrypt(Objects.toString(rawValue), field.getTargetType()));
             }
         }
     }
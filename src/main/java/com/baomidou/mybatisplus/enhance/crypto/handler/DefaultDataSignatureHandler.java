@@ -1,26 +1,21 @@
 package com.baomidou.mybatisplus.enhance.crypto.handler;
 
 import cn.hutool.core.map.MapUtil;
-import cn.hutool.core.util.ReflectUtil;
 import com.baomidou.mybatisplus.core.conditions.AbstractWrapper;
-import com.baomidou.mybatisplus.core.metadata.TableFieldInfo;
 import com.baomidou.mybatisplus.core.metadata.TableInfo;
-import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
-import com.baomidou.mybatisplus.core.toolkit.AnnotationUtils;
 import com.baomidou.mybatisplus.core.toolkit.CollectionUtils;
 import com.baomidou.mybatisplus.core.toolkit.Constants;
 import com.baomidou.mybatisplus.core.toolkit.ExceptionUtils;
-import com.baomidou.mybatisplus.enhance.crypto.annotation.TableSignature;
-import com.baomidou.mybatisplus.enhance.crypto.annotation.TableSignatureField;
+import com.baomidou.mybatisplus.enhance.crypto.enums.SignatureFormat;
+import com.baomidou.mybatisplus.enhance.crypto.exception.SignatureMismatchException;
+import com.baomidou.mybatisplus.enhance.util.SignaturePlan;
+import com.baomidou.mybatisplus.enhance.util.SqlSetIndex;
 import com.baomidou.mybatisplus.enhance.util.TableFieldHelper;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.StringUtils;
 
 import java.util.*;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 @Slf4j
 public class DefaultDataSignatureHandler implements DataSignatureHandler {
@@ -28,7 +23,7 @@ public class DefaultDataSignatureHandler implements DataSignatureHandler {
     /**
      * 变量占位符正则
      */
-    public static final Pattern PARAM_PAIRS_RE = Pattern.compile("#\\{ew\\.paramNameValuePairs\\.(" + Constants.WRAPPER_PARAM + "\\d+)\\}");
+    public static final Pattern PARAM_PAIRS_RE = SqlSetIndex.PARAM_PLACEHOLDER_RE;
     /**
      * 加解密处理器，加解密的情况都在该处理器中自行判断
      */
@@ -58,41 +53,22 @@ public class DefaultDataSignatureHandler implements DataSignatureHandler {
         // 1、判断加解密处理器不为空，为空则抛出异常
         ExceptionUtils.throwMpe(null == encryptedFieldHandler, "Please implement EncryptedFieldHandler processing logic");
 
-        // 3、判断自定义Entity类是否被@TableSignature所注解
-        TableSignature tableSignature = AnnotationUtils.findFirstAnnotation(TableSignature.class, parameter.getClass());
-        if(Objects.isNull(tableSignature)){
+        // 2、获取自定义Entity类的签名计划，实体类未被@TableSignature注解或没有参与签名的字段时不需要签名
+        SignaturePlan plan = TableFieldHelper.getSignaturePlan(parameter.getClass());
+        if (!plan.isSignable()) {
             return Boolean.FALSE;
         }
 
-        // 4、获取自定义Entity类联合签名的字段信息列表（排序后）
-        TableInfo tableInfo = TableInfoHelper.getTableInfo(parameter.getClass());
-        List<TableFieldInfo> signatureFieldInfos = TableFieldHelper.getSortedSignatureFieldInfos(tableInfo);
-        if (CollectionUtils.isEmpty(signatureFieldInfos)) {
-            return Boolean.FALSE;
-        }
-
-        // 5、遍历字段，对字段进行签名处理
-        StringJoiner hmacJoiner = new StringJoiner(Constants.PIPE);
-        for (TableFieldInfo fieldInfo : signatureFieldInfos) {
-            // 5.1、获取字段上的@TableSignatureField注解
-            TableSignatureField signatureField = AnnotationUtils.findFirstAnnotation(TableSignatureField.class, fieldInfo.getField());
-            // 5.2、如果Entity类被@TableSignature注解，并且 unionAll = true；或者字段被@TableSignatureField注解，并且 stored = false，则进行签名处理
-            if (tableSignature.unionAll() || (Objects.nonNull(signatureField) && !signatureField.stored())) {
-                // 5.2.1、获取签名字段的原始值
-                Object fieldValue = ReflectUtil.getFieldValue(parameter, fieldInfo.getField());
-                // 5.2.2、如果签名字段需要进行HMAC签名，则将原始值加入到HMAC签名列表中
-                hmacJoiner.add(Objects.toString(fieldValue, Constants.EMPTY));
-            }
+        // 3、按签名顺序获取签名字段的原始值
+        List<Object> hmacValues = new ArrayList<>(plan.getFields().length);
+        for (SignaturePlan.SignatureFieldItem field : plan.getFields()) {
+            hmacValues.add(field.getAccessor().get(parameter));
         }
 
-        // 6、如果实体类需要进行单表数据存储完整性验证，则对数据表进行签名处理
-        if (hmacJoiner.length() > 0){
-            // 6.1、对数据进行签名处理
-            String hmacValue = getEncryptedFieldHandler().hmac(hmacJoiner.toString());
-            // 6.2、调用签名读写提供者，将签名值写入到实体类中或外部存储
-            return getSignatureReadWriteProvider().writeSignature(parameter, tableInfo, null, hmacValue);
-        }
-        return Boolean.FALSE;
+        // 4、按 @TableSignature 指定的签名格式对数据进行签名处理
+        String hmacValue = this.hmac(plan.getFormat(), hmacValues);
+        // 5、调用签名读写提供者，将签名值写入到实体类中或外部存储
+        return getSignatureReadWriteProvider().writeSignature(parameter, plan.getTableInfo(), null, hmacValue);
     }
 
     /**
@@ -108,53 +84,29 @@ public class DefaultDataSignatureHandler implements DataSignatureHandler {
         // 1、判断加解密处理器不为空，为空则抛出异常
         ExceptionUtils.throwMpe(null == encryptedFieldHandler, "Please implement EncryptedFieldHandler processing logic");
 
-        // 2、判断自定义Entity的类是否被@EncryptedTable所注解
-        TableSignature tableSignature = AnnotationUtils.findFirstAnnotation(TableSignature.class, entityClass);
-        if(Objects.isNull(tableSignature)){
+        // 2、获取自定义Entity类的签名计划，实体类未被@TableSignature注解或没有参与签名的字段时不需要签名
+        SignaturePlan plan = TableFieldHelper.getSignaturePlan(entityClass);
+        if (!plan.isSignable()) {
             return Boolean.FALSE;
         }
 
-        // 3、获取自定义Entity类联合签名的字段信息列表（排序后）
-        TableInfo tableInfo = TableInfoHelper.getTableInfo(entityClass);
-        List<TableFieldInfo> signatureFieldInfos = TableFieldHelper.getSortedSignatureFieldInfos(tableInfo);
-        if (CollectionUtils.isEmpty(signatureFieldInfos)) {
-            return Boolean.FALSE;
-        }
+        // 3、获取 SQL 更新字段的索引，例如：name=#{ew.paramNameValuePairs.MPGENVAL1} 索引为 name → MPGENVAL1
+        SqlSetIndex setIndex = SqlSetIndex.of(updateWrapper);
 
-        // 4、获取 SQL 更新字段内容，例如：name='1', age=2
-        String sqlSet = updateWrapper.getSqlSet();
-        // 4.1、解析SQL更新字段内容，例如：name='1', age=2，解析为Map 对象
-        String[] sqlSetArr = StringUtils.split(sqlSet, Constants.COMMA);
-        Map<String, String> propMap = Arrays.stream(sqlSetArr).map(el -> el.split(Constants.EQUALS)).collect(Collectors.toMap(el -> el[0], el -> el[1]));
-
-        // 5、遍历字段，对字段进行签名和签名处理
-        StringJoiner hmacJoiner = new StringJoiner(Constants.PIPE);
-        for (TableFieldInfo fieldInfo : signatureFieldInfos) {
-            // 5.1、获取字段上的@TableSignatureField注解
-            TableSignatureField signatureField = AnnotationUtils.findFirstAnnotation(TableSignatureField.class, fieldInfo.getField());
-            // 5.2、如果Entity类被@TableSignature注解，并且 unionAll = true；或者字段被@TableSignatureField注解，并且 stored = false，则进行签名处理
-            if (tableSignature.unionAll() || (Objects.nonNull(signatureField) && !signatureField.stored())) {
-                // 5.2.1、获取字段的原始值
-                String el = MapUtil.getStr(propMap, fieldInfo.getProperty());
-                // 5.2.2、进行参数正则匹配，如果匹配成功，则对参数进行签名处理
-                Matcher matcher = PARAM_PAIRS_RE.matcher(el);
-                if (matcher.matches()) {
-                    // 5.2.2.1、获取参数变量名
-                    String valueKey = matcher.group(1);
-                    // 5.2.2.2、获取参数变量值
-                    Object fieldValue = updateWrapper.getParamNameValuePairs().get(valueKey);
-                    // 5.2.2.3、如果签名字段需要进行HMAC签名，则将原始值加入到HMAC签名列表中
-                    hmacJoiner.add(Objects.toString(fieldValue, Constants.EMPTY));
-                }
+        // 4、按签名顺序遍历字段，字段以参数变量赋值时，将参数变量值加入到HMAC签名列表中
+        List<Object> hmacValues = new ArrayList<>(plan.getFields().length);
+        for (SignaturePlan.SignatureFieldItem field : plan.getFields()) {
+            if (setIndex.containsParam(field.getFieldInfo())) {
+                hmacValues.add(setIndex.getValue(field.getFieldInfo()));
             }
         }
 
-        // 6、如果实体类需要进行单表数据存储完整性验证，则对数据表进行签名处理
-        if (hmacJoiner.length() > 0){
-            // 6.1、对数据进行签名处理
-            String hmacValue = getEncryptedFieldHandler().hmac(hmacJoiner.toString());
-            // 6.2、调用签名读写提供者，将签名值写入到实体类中或外部存储
-            return getSignatureReadWriteProvider().writeSignature(propMap, tableInfo, updateWrapper, hmacValue);
+        // 5、如果实体类需要进行单表数据存储完整性验证，则对数据表进行签名处理
+        if (!hmacValues.isEmpty()){
+            // 5.1、按 @TableSignature 指定的签名格式对数据进行签名处理
+            String hmacValue = this.hmac(plan.getFormat(), hmacValues);
+            // 5.2、调用签名读写提供者，将签名值写入到实体类中或外部存储
+            return getSignatureReadWriteProvider().writeSignature(setIndex.getPropertySegments(plan.getTableInfo()), plan.getTableInfo(), updateWrapper, hmacValue);
         }
         return Boolean.FALSE;
     }
@@ -171,65 +123,170 @@ public class DefaultDataSignatureHandler implements DataSignatureHandler {
         // 1、判断加解密处理器不为空，为空则抛出异常
         ExceptionUtils.throwMpe(null == encryptedFieldHandler, "Please implement EncryptedFieldHandler processing logic");
 
-        // 3、判断自定义Entity的类是否被@TableSignature所注解
-        TableSignature tableSignature = AnnotationUtils.findFirstAnnotation(TableSignature.class, entityClass);
-        if(Objects.isNull(tableSignature)){
+        // 2、获取自定义Entity类的签名计划，实体类未被@TableSignature注解或没有参与签名的字段时不需要验签
+        SignaturePlan plan = TableFieldHelper.getSignaturePlan(entityClass);
+        if (!plan.isSignable()) {
             return;
         }
 
-        // 4、获取自定义Entity类联合签名的字段信息列表（排序后）
-        TableInfo tableInfo = TableInfoHelper.getTableInfo(entityClass);
-        List<TableFieldInfo> signatureFieldInfos = TableFieldHelper.getSortedSignatureFieldInfos(tableInfo);
-        if (CollectionUtils.isEmpty(signatureFieldInfos)) {
-            return;
+        // 3、按签名顺序获取签名字段的原始值
+        List<Object> hmacValues = getHmacValues(plan, rawObject);
+
+        // 4、对签名字段值进行签名处理，获取签名值，并进行签名验证
+        this.doSignatureVerification(plan, hmacValues, rawObject);
+
+    }
+
+    /**
+     * 批量对实体对象进行签名，同一实体类的签名通过签名读写提供者一次写出
+     * @param entities 实体对象列表
+     * @return 签名完成后是否继续执行数据更新操作
+     */
+    @Override
+    public boolean doBatchEntitySignature(List<?> entities) {
+
+        // 1、判断加解密处理器不为空，为空则抛出异常
+        ExceptionUtils.throwMpe(null == encryptedFieldHandler, "Please implement EncryptedFieldHandler processing logic");
+
+        // 2、按实体类分组，分组内保持原有顺序
+        Map<Class<?>, List<Object>> groups = new LinkedHashMap<>();
+        for (Object entity : entities) {
+            if (Objects.nonNull(entity)) {
+                groups.computeIfAbsent(entity.getClass(), key -> new ArrayList<>()).add(entity);
+            }
         }
 
-        // 5、遍历字段，对字段进行签名处理
-        StringJoiner hmacJoiner = new StringJoiner(Constants.PIPE);
-        for (TableFieldInfo fieldInfo : signatureFieldInfos) {
-            // 5.1、获取字段上的@TableSignatureField注解
-            TableSignatureField signatureField = AnnotationUtils.findFirstAnnotation(TableSignatureField.class, fieldInfo.getField());
-            // 5.2、如果Entity类被@TableSignature注解，并且 unionAll = true；或者字段被@TableSignatureField注解，并且 stored = false，则进行验签处理
-            if (tableSignature.unionAll() || (Objects.nonNull(signatureField) && !signatureField.stored())) {
-                // 5.2.1、获取签名字段的原始值
-                Object fieldValue;
-                if(rawObject instanceof Map){
-                    Map<?,?> rawMap = (Map<?,?>) rawObject;
-                    fieldValue = MapUtil.getStr(rawMap, fieldInfo.getProperty());
-                } else {
-                    fieldValue = ReflectUtil.getFieldValue(rawObject, fieldInfo.getField());
+        // 3、逐组计算签名，并一次写出
+        boolean doUpdate = false;
+        for (Map.Entry<Class<?>, List<Object>> group : groups.entrySet()) {
+            SignaturePlan plan = TableFieldHelper.getSignaturePlan(group.getKey());
+            if (!plan.isSignable()) {
+                continue;
+            }
+            List<String> signValues = new ArrayList<>(group.getValue().size());
+            for (Object entity : group.getValue()) {
+                List<Object> hmacValues = new ArrayList<>(plan.getFields().length);
+                for (SignaturePlan.SignatureFieldItem field : plan.getFields()) {
+                    hmacValues.add(field.getAccessor().get(entity));
                 }
-                // 5.2.2、将原始值加入到联合签名字符串中
-                hmacJoiner.add(Objects.toString(fieldValue, Constants.EMPTY));
+                signValues.add(this.hmac(plan.getFormat(), hmacValues));
             }
+            doUpdate |= getSignatureReadWriteProvider().writeSignatures(group.getValue(), plan.getTableInfo(), signValues);
         }
+        return doUpdate;
+    }
 
-        // 6、对联合签名字符串进行签名处理，获取签名值，并进行签名验证
-        this.doSignatureVerification(tableInfo, signatureFieldInfos, hmacJoiner, rawObject);
+    /**
+     * 批量对同一实体类的数据进行验签，已存储的签名通过签名读写提供者一次读取
+     * @param rawObjects 数据对象列表
+     * @param entityClass 实体类
+     * @return 每行数据的验签异常，验签通过的数据为 null，与 rawObjects 下标一一对应
+     */
+    @Override
+    public <T> List<RuntimeException> doBatchSignatureVerification(List<?> rawObjects, Class<T> entityClass) {
 
+        // 1、判断加解密处理器不为空，为空则抛出异常
+        ExceptionUtils.throwMpe(null == encryptedFieldHandler, "Please implement EncryptedFieldHandler processing logic");
+
+        // 2、获取自定义Entity类的签名计划，实体类未被@TableSignature注解或没有参与签名的字段时不需要验签
+        List<RuntimeException> errors = new ArrayList<>(Collections.nCopies(rawObjects.size(), null));
+        SignaturePlan plan = TableFieldHelper.getSignaturePlan(entityClass);
+        if (!plan.isSignable()) {
+            return errors;
+        }
+
+        // 3、一次读取全部已存储的签名
+        List<Optional<Object>> signatureValues = getSignatureReadWriteProvider().readSignatures(rawObjects, plan.getTableInfo());
+
+        // 4、逐行验签，验签失败时记录到对应下标
+        for (int i = 0; i < rawObjects.size(); i++) {
+            Object rawObject = rawObjects.get(i);
+            if (Objects.isNull(rawObject)) {
+                continue;
+            }
+            try {
+                this.doSignatureVerification(plan, getHmacValues(plan, rawObject), rawObject, signatureValues.get(i));
+            } catch (SignatureMismatchException e) {
+                errors.set(i, e);
+            }
+        }
+        return errors;
     }
 
-   protected <T> void doSignatureVerification(TableInfo tableInfo, List<TableFieldInfo> signatureFieldInfos, StringJoiner hmacJoiner, Object rawObject){
+    /**
+     * 按签名顺序获取验签数据的签名字段值
+     */
+    private List<Object> getHmacValues(SignaturePlan plan, Object rawObject) {
+        List<Object> hmacValues = new ArrayList<>(plan.getFields().length);
+        if (rawObject instanceof Map) {
+            Map<?,?> rawMap = (Map<?,?>) rawObject;
+            for (SignaturePlan.SignatureFieldItem field : plan.getFields()) {
+                hmacValues.add(MapUtil.getStr(rawMap, field.getProperty()));
+            }
+        } else {
+            for (SignaturePlan.SignatureFieldItem field : plan.getFields()) {
+                hmacValues.add(field.getAccessor().get(rawObject));
+            }
+        }
+        return hmacValues;
+    }
+
+    /**
+     * 按指定的签名格式计算签名值
+     * @param format 签名格式
+     * @param hmacValues 按签名顺序排列的字段值
+     * @return 带签名格式前缀的签名值
+     */
+    protected String hmac(SignatureFormat format, List<Object> hmacValues) {
+        if (format == SignatureFormat.V2) {
+            return format.getPrefix() + getEncryptedFieldHandler().hmacCanonical(hmacValues);
+        }
+        // 历史格式：字段值以 "|" 拼接后签名，null 视为空字符串
+        StringJoiner hmacJoiner = new StringJoiner(Constants.PIPE);
+        for (Object hmacValue : hmacValues) {
+            hmacJoiner.add(Objects.toString(hmacValue, Constants.EMPTY));
+        }
+        return getEncryptedFieldHandler().hmac(hmacJoiner.toString());
+    }
+
+    protected void doSignatureVerification(SignaturePlan plan, List<Object> hmacValues, Object rawObject){
         // 1、如果实体类需要进行单表数据存储完整性验证，则对数据表进行签名处理
-        if (Objects.isNull(rawObject) || CollectionUtils.isEmpty(signatureFieldInfos) || Objects.isNull(hmacJoiner) || hmacJoiner.length() == 0) {
+        if (Objects.isNull(rawObject) || CollectionUtils.isEmpty(hmacValues)) {
             return;
         }
-        // 6.1、获取之前存储的签名
-        Optional<Object> signatureValue = getSignatureReadWriteProvider().readSignature(rawObject, tableInfo);
-        // 6.2、如果签名结果存在，则进行签名验证
-        if(signatureValue.isPresent()){
-            // 6.2.3、对联合签名字符串进行签名处理，获取签名值
-            String hmacValue = getEncryptedFieldHandler().hmac(hmacJoiner.toString());
-            // 6.2.4、对比签名值，如果不一致，则抛出异常
-            ExceptionUtils.throwMpe(!Objects.equals(hmacValue, signatureValue.get()),
-                    "表【%s】的数据列【%s】,数据签名不匹配，数据存储完整性验证不通过，请检查数据完整性",
-                    tableInfo.getTableName(),
-                    signatureFieldInfos.stream().map(TableFieldInfo::getColumn).reduce((a, b) -> a + Constants.COMMA + b).orElse(Constants.EMPTY));
-        } else {
-            // 6.3、如果签名结果不存在，则抛出异常
-            throw ExceptionUtils.mpe("表【%s】的数据列【%s】,原来签名不存在，数据存储完整性验证不通过，请先进行数据签名",
-                    tableInfo.getTableName(),
-                    signatureFieldInfos.stream().map(TableFieldInfo::getColumn).reduce((a, b) -> a + Constants.COMMA + b).orElse(Constants.EMPTY));
+        // 2、获取之前存储的签名，并进行签名验证
+        this.doSignatureVerification(plan, hmacValues, rawObject, getSignatureReadWriteProvider().readSignature(rawObject, plan.getTableInfo()));
+    }
+
+    /**
+     * 使用已读取的签名进行签名验证
+     * @param plan 签名计划
+     * @param hmacValues 按签名顺序排列的字段值
+     * @param rawObject 单个对象或Map
+     * @param signatureValue 之前存储的签名
+     */
+    protected void doSignatureVerification(SignaturePlan plan, List<Object> hmacValues, Object rawObject, Optional<Object> signatureValue){
+        if (CollectionUtils.isEmpty(hmacValues)) {
+            return;
+        }
+        TableInfo tableInfo = plan.getTableInfo();
+        // 3、签名不存在时验签不通过：签名存储在外部（例如 JdbcDataSignatureReadWriteProvider）时，签名表中缺少该行的签名或查询结果不包含主键同样视为验签不通过
+        if (!signatureValue.isPresent()) {
+            throw new SignatureMismatchException("表【%s】的数据列【%s】,原来签名不存在，数据存储完整性验证不通过，请先进行数据签名",
+                    tableInfo.getTableName(), plan.getColumns());
+        }
+        // 4、已存储签名的格式低于允许的最低格式时验签不通过
+        SignatureFormat format = SignatureFormat.of(signatureValue.get());
+        if (format.getVersion() < plan.getMinimumFormat().getVersion()) {
+            throw new SignatureMismatchException("表【%s】的数据列【%s】,签名格式【%s】低于允许的最低格式【%s】，数据存储完整性验证不通过，请重新签名",
+                    tableInfo.getTableName(), plan.getColumns(), format, plan.getMinimumFormat());
+        }
+        // 5、按已存储签名的格式对签名字段值进行签名处理，获取签名值，不低于最低格式的历史格式签名仍然可以验证通过
+        String hmacValue = this.hmac(format, hmacValues);
+        // 6、对比签名值，如果不一致，则抛出异常
+        if (!Objects.equals(hmacValue, signatureValue.get())) {
+            throw new SignatureMismatchException("表【%s】的数据列【%s】,数据签名不匹配，数据存储完整性验证不通过，请检查数据完整性",
+                    tableInfo.getTableName(), plan.getColumns());
         }
     }
 
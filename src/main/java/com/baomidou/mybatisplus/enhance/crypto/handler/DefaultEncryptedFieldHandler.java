@@ -5,17 +5,35 @@ import cn.hutool.crypto.Mode;
 import cn.hutool.crypto.Padding;
 import cn.hutool.crypto.digest.HMac;
 import cn.hutool.crypto.digest.HmacAlgorithm;
+import cn.hutool.crypto.digest.mac.MacEngine;
 import cn.hutool.crypto.symmetric.SymmetricCrypto;
 import com.baomidou.mybatisplus.core.toolkit.ExceptionUtils;
+import com.baomidou.mybatisplus.enhance.crypto.codec.FieldValueCodec;
+import com.baomidou.mybatisplus.enhance.crypto.codec.SignatureCanonicalCodec;
+import com.baomidou.mybatisplus.enhance.crypto.enums.SignatureFormat;
 import com.baomidou.mybatisplus.enhance.crypto.enums.SymmetricAlgorithmType;
+import com.baomidou.mybatisplus.enhance.util.CryptoPool;
+import com.baomidou.mybatisplus.enhance.util.CryptoSpec;
 import com.baomidou.mybatisplus.enhance.util.SymmetricCryptoUtil;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Objects;
 
+/**
+ * 默认的字段加解密处理器
+ * <p>
+ * 签名密钥按签名格式区分：
+ * 1、{@link #hmac(Object)} 用于历史格式（{@link SignatureFormat#V1}）的签名，沿用历史版本的密钥派生方式：
+ *    对密钥再次 Base64 解码，且只取第一个 "_" 之前的部分，密钥强度可能被削弱，保留只是为了已存储的历史签名仍可验证
+ * 2、{@link #hmacCanonical(List)}、{@link #blindIndex(Object)} 用于规范格式（{@link SignatureFormat#V2}）的签名、表完整性摘要和盲索引，
+ *    使用与加解密相同的完整密钥
+ * 全部数据重新签名为 V2 后，将 @TableSignature 的 minimumFormat 提高到 V2，即可不再接受按历史密钥计算的签名
+ * </p>
+ */
 @Slf4j
 public class DefaultEncryptedFieldHandler implements EncryptedFieldHandler {
 
@@ -23,11 +41,28 @@ public class DefaultEncryptedFieldHandler implements EncryptedFieldHandler {
     private ObjectMapper objectMapper;
     private final SymmetricAlgorithmType algorithmType;
     private final HmacAlgorithm hmacAlgorithm;
-    private final Mode mode;
-    private final Padding padding;
-    private final String key;
-    private final String iv;
     private final boolean plainIsEncode;
+    /**
+     * 字段值编解码器
+     */
+    private final FieldValueCodec fieldValueCodec;
+    /**
+     * 是否以紧凑格式加密简单类型的字段值；解密时始终同时支持紧凑格式和 JSON 格式
+     */
+    @Getter
+    private final boolean compactCodec;
+    /**
+     * 加解密器对象池，构造时解析
+     */
+    private final CryptoPool<SymmetricCrypto> cryptoPool;
+    /**
+     * 历史格式签名器对象池，使用历史版本派生的密钥，构造时解析
+     */
+    private final CryptoPool<HMac> legacyHmacPool;
+    /**
+     * 规范格式签名器对象池，使用完整的密钥，构造时解析
+     */
+    private final CryptoPool<HMac> hmacPool;
 
     public DefaultEncryptedFieldHandler(ObjectMapper objectMapper, SymmetricAlgorithmType algorithmType, HmacAlgorithm hmacAlgorithm, Mode mode, Padding padding, String key) {
         this(objectMapper, algorithmType, hmacAlgorithm, mode, padding, key, null, true);
@@ -38,32 +73,38 @@ public class DefaultEncryptedFieldHandler implements EncryptedFieldHandler {
     }
 
     public DefaultEncryptedFieldHandler(ObjectMapper objectMapper, SymmetricAlgorithmType algorithmType, HmacAlgorithm hmacAlgorithm, Mode mode, Padding padding, String key, String iv, boolean plainIsEncode) {
+        this(objectMapper, algorithmType, hmacAlgorithm, mode, padding, key, iv, plainIsEncode, false);
+    }
+
+    /**
+     * @param compactCodec 是否以紧凑格式加密 String、数值、枚举、java.time 等简单类型的字段值，跳过 Jackson 序列化。
+     *                     同一明文在两种格式下的密文不同，已有数据为 JSON 格式且存在按密文等值查询时，需要先迁移数据再开启
+     */
+    public DefaultEncryptedFieldHandler(ObjectMapper objectMapper, SymmetricAlgorithmType algorithmType, HmacAlgorithm hmacAlgorithm, Mode mode, Padding padding, String key, String iv, boolean plainIsEncode, boolean compactCodec) {
         this.objectMapper = objectMapper;
         this.algorithmType = algorithmType;
         this.hmacAlgorithm = hmacAlgorithm;
-        this.mode = mode;
-        this.padding = padding;
-        this.key = Base64.decodeStr(key);
-        this.iv = Objects.isNull(iv) ? null : Base64.decodeStr(iv);
         this.plainIsEncode = plainIsEncode;
+        this.fieldValueCodec = new FieldValueCodec(objectMapper);
+        this.compactCodec = compactCodec;
+        // 密钥和偏移向量为 Base64 编码；历史格式的签名密钥沿用历史版本的再次 Base64 解码，保证已存储的签名仍然有效
+        String plainKey = Base64.decodeStr(key);
+        String plainIv = Objects.isNull(iv) ? null : Base64.decodeStr(iv);
+        this.cryptoPool = SymmetricCryptoUtil.getSymmetricCryptoPool(CryptoSpec.of(algorithmType.getName(), mode, padding, plainKey, plainIv));
+        this.legacyHmacPool = SymmetricCryptoUtil.getHmacPool(SymmetricCryptoUtil.getLegacyHmacSpec(hmacAlgorithm, Base64.decodeStr(plainKey)));
+        this.hmacPool = SymmetricCryptoUtil.getHmacPool(SymmetricCryptoUtil.getHmacSpec(hmacAlgorithm, plainKey));
     }
 
     @Override
     public <T> String encrypt(T value) {
         try {
-            // 1、序列化Value
-            String valueAsString = getObjectMapper().writeValueAsString(value);
-            log.debug("Plain Value To {} Encrypt: {}", algorithmType.getName(), valueAsString);
-            // 2、获取加密器
-            SymmetricCrypto crypto = algorithmType.getSymmetricCrypto(mode, padding, key, iv);
-            // 3、加密Value，如果 plainIsEncode =true 则对加密结果进行Base64
-            if(plainIsEncode){
-                valueAsString = crypto.encryptBase64(valueAsString);
-            } else {
-                valueAsString = crypto.encryptHex(valueAsString);
-            }
-            log.debug("{} Encrypt Value : {}", algorithmType.getName(), valueAsString);
-            return valueAsString;
+            log.debug("Plain Value To {} Encrypt: {}", algorithmType.getName(), value);
+            // 1、序列化Value，开启紧凑格式时简单类型直接编码为字节
+            byte[] plain = compactCodec ? fieldValueCodec.encode(value) : getObjectMapper().writeValueAsBytes(value);
+            // 2、从对象池借出加密器，加密Value，如果 plainIsEncode =true 则对加密结果进行Base64
+            String encryptValue = cryptoPool.execute(crypto -> plainIsEncode ? crypto.encryptBase64(plain) : crypto.encryptHex(plain));
+            log.debug("{} Encrypt Value : {}", algorithmType.getName(), encryptValue);
+            return encryptValue;
         } catch (Exception ex) {
             log.error("{} Encrypt Error : {}", algorithmType.getName(), ex.getMessage());
             throw ExceptionUtils.mpe("{} Encrypt Error", ex, algorithmType.getName());
@@ -74,29 +115,30 @@ public class DefaultEncryptedFieldHandler implements EncryptedFieldHandler {
     public <T> T decrypt(String value, Class<T> rtType) {
         try {
             log.debug("Plain Value to {} Decrypt : {}", algorithmType.getName(), value);
-            // 2、获取解密器
-            SymmetricCrypto crypto = SymmetricCryptoUtil.getSymmetricCrypto(algorithmType.getName(), mode, padding, key, iv);
-            // 3、解密请求体
-            String decryptStr = crypto.decryptStr(value);
-            log.debug("{} Decrypt Value : {}", algorithmType.getName(), decryptStr);
-            return getObjectMapper().readValue(decryptStr, rtType);
+            // 2、从对象池借出解密器，解密请求体
+            byte[] plain = cryptoPool.execute(crypto -> crypto.decrypt(value));
+            // 3、反序列化，根据首字节区分紧凑格式和 JSON 格式
+            T decryptValue = fieldValueCodec.decode(plain, rtType);
+            log.debug("{} Decrypt Value : {}", algorithmType.getName(), decryptValue);
+            return decryptValue;
         } catch (Exception ex) {
             log.error("{} Decrypt Error : {}", algorithmType.getName(), ex.getMessage());
             throw ExceptionUtils.mpe("{} Decrypt Error", ex, algorithmType.getName());
         }
     }
 
+    /**
+     * 历史格式签名，使用历史版本派生的密钥
+     */
     @Override
     public <T> String hmac(T value) {
         try {
             log.debug("Plain Value to {} HMAC : {}", hmacAlgorithm.name(), value);
-            HMac hMac = SymmetricCryptoUtil.getHmac(hmacAlgorithm, Base64.decodeStr(key));
-            String hmacValue;
-            if(plainIsEncode){
-                hmacValue = hMac.digestBase64(getObjectMapper().writeValueAsString(value), StandardCharsets.UTF_8, Boolean.TRUE);
-            } else {
-                hmacValue = new String(hMac.digest(getObjectMapper().writeValueAsString(value)), StandardCharsets.UTF_8);
-            }
+            String valueAsString = getObjectMapper().writeValueAsString(value);
+            // 从对象池借出签名器，HMac 不是线程安全的，不能在线程间共享
+            String hmacValue = legacyHmacPool.execute(hMac -> plainIsEncode
+                    ? hMac.digestBase64(valueAsString, StandardCharsets.UTF_8, Boolean.TRUE)
+                    : new String(hMac.digest(valueAsString), StandardCharsets.UTF_8));
             log.debug("HMAC Digest Value : {}", hmacValue);
             return hmacValue;
         } catch (Exception ex) {
@@ -105,4 +147,28 @@ public class DefaultEncryptedFieldHandler implements EncryptedFieldHandler {
         }
     }
 
+    /**
+     * 规范格式签名，使用完整的密钥
+     */
+    @Override
+    public String hmacCanonical(List<?> values) {
+        try {
+            // 从对象池借出签名器，规范格式直接写入 Mac，不生成中间字符串
+            byte[] digest = hmacPool.execute(hMac -> {
+                MacEngine engine = hMac.getEngine();
+                engine.reset();
+                SignatureCanonicalCodec.update(engine, values);
+                try {
+                    return engine.doFinal();
+                } finally {
+                    engine.reset();
+                }
+            });
+            return plainIsEncode ? Base64.encodeUrlSafe(digest) : new String(digest, StandardCharsets.UTF_8);
+        } catch (Exception ex) {
+            log.error("HMAC Digest Error : {}", ex.getMessage());
+            throw ExceptionUtils.mpe("HMAC Digest Error", ex);
+        }
+    }
+
 }
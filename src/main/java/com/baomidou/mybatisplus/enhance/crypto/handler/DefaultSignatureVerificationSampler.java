@@ -0,0 +1,155 @@
+package com.baomidou.mybatisplus.enhance.crypto.handler;
+
+import cn.hutool.core.util.ReflectUtil;
+import com.baomidou.mybatisplus.enhance.util.FieldAccessor;
+import lombok.Getter;
+
+import java.lang.reflect.Field;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 默认的签名验证抽样策略
+ * <p>
+ * 1、单行查询结果（例如 selectById、getOne）全部验签；通过 ResultHandler 或游标逐行处理的数据不属于单行查询
+ * 2、修改时间字段在最近 recentWindowMillis 毫秒内的数据全部验签；修改时间字段支持 Date、Instant、LocalDateTime、
+ * OffsetDateTime、ZonedDateTime 和毫秒时间戳，实体类不存在该字段或字段值为空时按抽样比例处理
+ * 3、其余数据按抽样比例随机验签：先按 MappedStatement Id 查找，再按 Mapper 命名空间查找，都未配置时使用默认比例
+ * </p>
+ */
+public class DefaultSignatureVerificationSampler implements SignatureVerificationSampler {
+
+    /**
+     * 默认抽样比例，取值 0 ~ 1
+     */
+    @Getter
+    private final double defaultRate;
+    /**
+     * MappedStatement Id 或 Mapper 命名空间对应的抽样比例，取值 0 ~ 1
+     */
+    @Getter
+    private final Map<String, Double> statementRates;
+    /**
+     * 单行查询结果是否全部验签
+     */
+    @Getter
+    private final boolean alwaysVerifySingleRow;
+    /**
+     * 修改时间字段名，为空时不按修改时间验签
+     */
+    @Getter
+    private final String modifiedTimeProperty;
+    /**
+     * 修改时间在该时间窗口（毫秒）内的数据全部验签，小于等于 0 时不按修改时间验签
+     */
+    @Getter
+    private final long recentWindowMillis;
+    /**
+     * 实体类的修改时间字段读写器缓存
+     */
+    private final Map<Class<?>, Optional<FieldAccessor>> modifiedTimeAccessors = new ConcurrentHashMap<>();
+
+    public DefaultSignatureVerificationSampler(double defaultRate) {
+        this(defaultRate, Collections.emptyMap(), true, null, 0);
+    }
+
+    /**
+     * @param defaultRate 默认抽样比例，取值 0 ~ 1
+     * @param statementRates MappedStatement Id 或 Mapper 命名空间对应的抽样比例，取值 0 ~ 1
+     * @param alwaysVerifySingleRow 单行查询结果是否全部验签
+     * @param modifiedTimeProperty 修改时间字段名，为空时不按修改时间验签
+     * @param recentWindowMillis 修改时间在该时间窗口（毫秒）内的数据全部验签，小于等于 0 时不按修改时间验签
+     */
+    public DefaultSignatureVerificationSampler(double defaultRate, Map<String, Double> statementRates, boolean alwaysVerifySingleRow,
+                                               String modifiedTimeProperty, long recentWindowMillis) {
+        this.defaultRate = defaultRate;
+        this.statementRates = Objects.isNull(statementRates) ? Collections.emptyMap() : new HashMap<>(statementRates);
+        this.alwaysVerifySingleRow = alwaysVerifySingleRow;
+        this.modifiedTimeProperty = modifiedTimeProperty;
+        this.recentWindowMillis = recentWindowMillis;
+    }
+
+    @Override
+    public BitSet sample(String mappedStatementId, Class<?> entityClass, List<Object> rtList, boolean singleRowLookup) {
+        BitSet selected = new BitSet(rtList.size());
+        // 1、单行查询结果全部验签
+        if (alwaysVerifySingleRow && singleRowLookup) {
+            selected.set(0);
+            return selected;
+        }
+        double rate = getRate(mappedStatementId);
+        if (rate >= 1) {
+            selected.set(0, rtList.size());
+            return selected;
+        }
+        boolean recentEnabled = Objects.nonNull(modifiedTimeProperty) && recentWindowMillis > 0;
+        long recentSince = System.currentTimeMillis() - recentWindowMillis;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < rtList.size(); i++) {
+            Object rawObject = rtList.get(i);
+            // 2、最近修改的数据全部验签，其余数据按比例抽样
+            if ((recentEnabled && isModifiedSince(rawObject, recentSince)) || (rate > 0 && random.nextDouble() < rate)) {
+                selected.set(i);
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * 获取抽样比例：先按 MappedStatement Id 查找，再按 Mapper 命名空间查找，都未配置时使用默认比例
+     */
+    protected double getRate(String mappedStatementId) {
+        if (statementRates.isEmpty() || Objects.isNull(mappedStatementId)) {
+            return defaultRate;
+        }
+        Double rate = statementRates.get(mappedStatementId);
+        if (Objects.isNull(rate)) {
+            int index = mappedStatementId.lastIndexOf('.');
+            rate = index > 0 ? statementRates.get(mappedStatementId.substring(0, index)) : null;
+        }
+        return Objects.isNull(rate) ? defaultRate : rate;
+    }
+
+    /**
+     * 数据的修改时间是否不早于指定时间
+     */
+    protected boolean isModifiedSince(Object rawObject, long since) {
+        if (Objects.isNull(rawObject)) {
+            return false;
+        }
+        Optional<FieldAccessor> accessor = modifiedTimeAccessors.computeIfAbsent(rawObject.getClass(), clazz -> {
+            Field field = ReflectUtil.getField(clazz, modifiedTimeProperty);
+            return Objects.isNull(field) ? Optional.empty() : Optional.of(FieldAccessor.of(field));
+        });
+        if (!accessor.isPresent()) {
+            return false;
+        }
+        Long modifiedTime = toEpochMilli(accessor.get().get(rawObject));
+        return Objects.nonNull(modifiedTime) && modifiedTime >= since;
+    }
+
+    private static Long toEpochMilli(Object value) {
+        if (value instanceof Date) {
+            return ((Date) value).getTime();
+        }
+        if (value instanceof Instant) {
+            return ((Instant) value).toEpochMilli();
+        }
+        if (value instanceof LocalDateTime) {
+            return ((LocalDateTime) value).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        }
+        if (value instanceof OffsetDateTime) {
+            return ((OffsetDateTime) value).toInstant().toEpochMilli();
+        }
+        if (value instanceof ZonedDateTime) {
+            return ((ZonedDateTime) value).toInstant().toEpochMilli();
+        }
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        return null;
+    }
+
+}
@@ -1,5 +1,14 @@
 package com.baomidou.mybatisplus.enhance.crypto.handler;
 
+import cn.hutool.core.util.HexUtil;
+import com.baomidou.mybatisplus.enhance.crypto.codec.SignatureCanonicalCodec;
+import com.baomidou.mybatisplus.enhance.crypto.enums.SignatureFormat;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
 public interface EncryptedFieldHandler {
 
     /**
@@ -11,6 +20,16 @@ public interface EncryptedFieldHandler {
      */
     <T> String encrypt(T value);
 
+    /**
+     * 查询条件加密，返回同一明文在数据库中可能存储的全部密文，用于按密文等值查询
+     * <p>默认只返回 {@link #encrypt(Object)} 的结果；支持多个密钥版本的实现类（例如密钥环）返回每个仍可解密的密钥对应的密文，要求加密结果是确定性的</p>
+     * @param value 明文值
+     * @return 候选密文，第一个为当前密钥加密后的值
+     */
+    default List<String> encryptCandidates(Object value) {
+        return Collections.singletonList(encrypt(value));
+    }
+
     /**
      * 字段解密
      * @param value 待解密字段的值
@@ -20,11 +39,33 @@ public interface EncryptedFieldHandler {
     <T> T decrypt(String value, Class<T> rtType);
 
     /**
-     * hmac 签名
+     * hmac 签名，用于历史格式（{@link SignatureFormat#V1}）的签名
      * @param value 待签名的值
      * @return 签名后的字符串
      * @param <T> 字段类型
      */
     <T> String hmac(T value);
 
+    /**
+     * 以二进制规范格式（{@link SignatureFormat#V2}）对行数据的签名字段值进行 hmac 签名，也用于计算表完整性摘要的叶子摘要
+     * <p>默认将规范格式字节编码为十六进制字符串后调用 {@link #hmac(Object)}，实现类可以覆盖为将规范格式字节直接写入 Mac</p>
+     * @param values 按签名顺序排列的字段值
+     * @return 签名后的字符串，不包含签名格式前缀
+     */
+    default String hmacCanonical(List<?> values) {
+        return hmac(HexUtil.encodeHexStr(SignatureCanonicalCodec.encode(values)));
+    }
+
+    /**
+     * 盲索引，对规范化（转为字符串并去除首尾空白）后的明文按规范格式进行 hmac 签名，相同明文始终得到相同的结果
+     * @param value 明文值
+     * @return 盲索引值，明文为空时返回空
+     */
+    default String blindIndex(Object value) {
+        if (Objects.isNull(value)) {
+            return null;
+        }
+        return hmacCanonical(Collections.singletonList(StringUtils.trim(Objects.toString(value))));
+    }
+
 }
@@ -0,0 +1,214 @@
+package com.baomidou.mybatisplus.enhance.crypto.handler;
+
+import com.baomidou.mybatisplus.core.conditions.AbstractWrapper;
+import com.baomidou.mybatisplus.core.metadata.TableInfo;
+import com.baomidou.mybatisplus.core.toolkit.ExceptionUtils;
+import com.baomidou.mybatisplus.core.toolkit.StringUtils;
+import com.baomidou.mybatisplus.enhance.util.TableFieldHelper;
+import lombok.Getter;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * 基于独立签名表的数据签名读写提供者，签名不存储在数据行中，按（表名，主键值）存储在签名表中：
+ * <pre>
+ * CREATE TABLE t_data_signature (
+ *     table_name VARCHAR(64)  NOT NULL,
+ *     row_key    VARCHAR(64)  NOT NULL,
+ *     signature  VARCHAR(256) NOT NULL,
+ *     PRIMARY KEY (table_name, row_key)
+ * );
+ * </pre>
+ * <p>
+ * 1、批量读取签名时，每 {@link #IN_BATCH_SIZE} 行执行一次 IN 查询，查询一页数据只需一次查询
+ * 2、批量写出签名时以一次 JDBC 批处理写出；未指定 upsertSql 时先按主键删除已有签名再批量插入，没有绑定事务时删除和插入在一个本地事务中执行，
+ * 指定 upsertSql 时只执行一次批处理，例如 MySQL：INSERT INTO t_data_signature (table_name, row_key, signature) VALUES (?, ?, ?)
+ * ON DUPLICATE KEY UPDATE signature = VALUES(signature)，参数顺序固定为表名、主键值、签名值
+ * 3、主键值未知的数据（例如自增主键插入前）不写出签名，由插入后的重新签名写出；通过 UpdateWrapper 修改签名字段时无法确定数据行，抛出异常
+ * 4、签名表中缺少数据行的签名（或查询结果不包含主键）时验签不通过
+ * </p>
+ * <p>在 Spring 事务中使用时，dataSource 需要使用 TransactionAwareDataSourceProxy 包装，使签名读写与业务数据在同一事务中执行</p>
+ */
+public class JdbcDataSignatureReadWriteProvider implements DataSignatureReadWriteProvider {
+
+    /**
+     * 默认的签名表名
+     */
+    public static final String DEFAULT_SIGNATURE_TABLE = "t_data_signature";
+    /**
+     * 每次 IN 查询的最大主键数量
+     */
+    public static final int IN_BATCH_SIZE = 500;
+
+    private final DataSource dataSource;
+    @Getter
+    private final String signatureTable;
+    @Getter
+    private final String upsertSql;
+
+    public JdbcDataSignatureReadWriteProvider(DataSource dataSource) {
+        this(dataSource, DEFAULT_SIGNATURE_TABLE, null);
+    }
+
+    public JdbcDataSignatureReadWriteProvider(DataSource dataSource, String signatureTable) {
+        this(dataSource, signatureTable, null);
+    }
+
+    /**
+     * @param dataSource 签名表所在的数据源
+     * @param signatureTable 签名表名
+     * @param upsertSql 写入或更新签名的 SQL，参数顺序为表名、主键值、签名值；为空时先删除再插入
+     */
+    public JdbcDataSignatureReadWriteProvider(DataSource dataSource, String signatureTable, String upsertSql) {
+        this.dataSource = dataSource;
+        this.signatureTable = signatureTable;
+        this.upsertSql = upsertSql;
+    }
+
+    @Override
+    public Optional<Object> readSignature(Object rawObject, TableInfo tableInfo) {
+        return readSignatures(Collections.singletonList(rawObject), tableInfo).get(0);
+    }
+
+    @Override
+    public List<Optional<Object>> readSignatures(List<?> rawObjects, TableInfo tableInfo) {
+        // 1、获取每行数据的主键值
+        List<String> rowKeys = getRowKeys(rawObjects, tableInfo);
+        Set<String> distinctKeys = new LinkedHashSet<>(rowKeys);
+        distinctKeys.remove(null);
+        // 2、按主键分批 IN 查询签名
+        Map<String, String> signatures = new HashMap<>(distinctKeys.size() * 2);
+        if (!distinctKeys.isEmpty()) {
+            List<String> keys = new ArrayList<>(distinctKeys);
+            try (Connection connection = dataSource.getConnection()) {
+                for (int from = 0; from < keys.size(); from += IN_BATCH_SIZE) {
+                    List<String> batch = keys.subList(from, Math.min(from + IN_BATCH_SIZE, keys.size()));
+                    String sql = "SELECT row_key, signature FROM " + signatureTable + " WHERE table_name = ? AND row_key IN ("
+                            + String.join(",", Collections.nCopies(batch.size(), "?")) + ")";
+                    try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                        statement.setString(1, tableInfo.getTableName());
+                        for (int i = 0; i < batch.size(); i++) {
+                            statement.setString(i + 2, batch.get(i));
+                        }
+                        try (ResultSet resultSet = statement.executeQuery()) {
+                            while (resultSet.next()) {
+                                signatures.put(resultSet.getString(1), resultSet.getString(2));
+                            }
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                throw ExceptionUtils.mpe("Read signatures of table %s error", e, tableInfo.getTableName());
+            }
+        }
+        // 3、按数据顺序返回签名值
+        List<Optional<Object>> result = new ArrayList<>(rowKeys.size());
+        for (String rowKey : rowKeys) {
+            result.add(Optional.ofNullable(Objects.isNull(rowKey) ? null : signatures.get(rowKey)));
+        }
+        return result;
+    }
+
+    /**
+     * 签名写入签名表，不需要继续执行数据更新操作
+     * <p>通过 UpdateWrapper 修改签名字段时抛出异常：签名表按主键存储签名，UpdateWrapper 修改的数据行未知，且 SET 子句不包含未修改的签名字段，
+     * 无法计算修改后的签名，继续执行会使签名表中的签名失效；应使用 updateSignedById，或修改后调用 doSignatureByBatchIds 重新签名</p>
+     */
+    @Override
+    public boolean writeSignature(Object rawObject, TableInfo tableInfo, AbstractWrapper<?, ?, ?> updateWrapper, String signValue) {
+        if (Objects.nonNull(updateWrapper)) {
+            throw ExceptionUtils.mpe("Table %s is updated by UpdateWrapper, signature can not be written to %s without primary key, "
+                    + "please use updateSignedById or re-sign by ids after the update", tableInfo.getTableName(), signatureTable);
+        }
+        return writeSignatures(Collections.singletonList(rawObject), tableInfo, Collections.singletonList(signValue));
+    }
+
+    @Override
+    public boolean writeSignatures(List<?> rawObjects, TableInfo tableInfo, List<String> signValues) {
+        // 1、获取每行数据的主键值，主键值未知的数据不写出签名
+        List<String> rowKeys = getRowKeys(rawObjects, tableInfo);
+        Map<String, String> signatures = new LinkedHashMap<>(rowKeys.size() * 2);
+        for (int i = 0; i < rowKeys.size(); i++) {
+            if (Objects.nonNull(rowKeys.get(i)) && Objects.nonNull(signValues.get(i))) {
+                signatures.put(rowKeys.get(i), signValues.get(i));
+            }
+        }
+        if (signatures.isEmpty()) {
+            return Boolean.FALSE;
+        }
+        // 2、批量写出签名；连接为自动提交（没有绑定事务）时在本地事务中执行，删除和插入要么全部完成，要么全部回滚
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            if (autoCommit) {
+                connection.setAutoCommit(false);
+            }
+            try {
+                if (StringUtils.isNotBlank(upsertSql)) {
+                    executeBatch(connection, upsertSql, tableInfo.getTableName(), signatures);
+                } else {
+                    deleteSignatures(connection, tableInfo.getTableName(), new ArrayList<>(signatures.keySet()));
+                    executeBatch(connection, "INSERT INTO " + signatureTable + " (table_name, row_key, signature) VALUES (?, ?, ?)",
+                            tableInfo.getTableName(), signatures);
+                }
+                if (autoCommit) {
+                    connection.commit();
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (autoCommit) {
+                    connection.rollback();
+                }
+                throw e;
+            } finally {
+                if (autoCommit) {
+                    connection.setAutoCommit(true);
+                }
+            }
+        } catch (SQLException e) {
+            throw ExceptionUtils.mpe("Write signatures of table %s error", e, tableInfo.getTableName());
+        }
+        // 3、签名不存储在数据行中，不需要继续执行数据更新操作
+        return Boolean.FALSE;
+    }
+
+    private void deleteSignatures(Connection connection, String tableName, List<String> keys) throws SQLException {
+        for (int from = 0; from < keys.size(); from += IN_BATCH_SIZE) {
+            List<String> batch = keys.subList(from, Math.min(from + IN_BATCH_SIZE, keys.size()));
+            String sql = "DELETE FROM " + signatureTable + " WHERE table_name = ? AND row_key IN ("
+                    + String.join(",", Collections.nCopies(batch.size(), "?")) + ")";
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setString(1, tableName);
+                for (int i = 0; i < batch.size(); i++) {
+                    statement.setString(i + 2, batch.get(i));
+                }
+                statement.executeUpdate();
+            }
+        }
+    }
+
+    private void executeBatch(Connection connection, String sql, String tableName, Map<String, String> signatures) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (Map.Entry<String, String> entry : signatures.entrySet()) {
+                statement.setString(1, tableName);
+                statement.setString(2, entry.getKey());
+                statement.setString(3, entry.getValue());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    private List<String> getRowKeys(List<?> rawObjects, TableInfo tableInfo) {
+        List<String> rowKeys = new ArrayList<>(rawObjects.size());
+        for (Object rawObject : rawObjects) {
+            Object keyValue = Objects.isNull(rawObject) ? null : TableFieldHelper.getKeyValue(rawObject, tableInfo);
+            rowKeys.add(Objects.isNull(keyValue) ? null : keyValue.toString());
+        }
+        return rowKeys;
+    }
+
+}
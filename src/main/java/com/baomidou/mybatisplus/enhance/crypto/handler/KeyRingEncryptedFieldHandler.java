@@ -0,0 +1,166 @@
+package com.baomidou.mybatisplus.enhance.crypto.handler;
+
+import com.baomidou.mybatisplus.core.toolkit.ExceptionUtils;
+import lombok.Getter;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 多密钥版本的字段加解密 Handler（密钥环）
+ * <p>
+ * 1、加密时使用当前密钥，密文以 "k{密钥版本}$" 为前缀，例如 k2$3q2+7w==
+ * 2、解密时根据密文前缀选择对应版本的密钥，任何仍在密钥环中的密钥都可以解密；没有前缀的历史密文使用 legacyKeyId 对应的密钥解密
+ * 3、签名和盲索引始终使用 hmacKeyId 对应的密钥，不随加密密钥轮换，已存储的签名和盲索引在轮换期间保持有效
+ * 4、轮换密钥时先将新密钥加入密钥环并设为当前密钥，再通过 KeyRotationJob 将已有数据重新加密，完成后才能从密钥环中移除旧密钥
+ * </p>
+ * <p>注意：同一明文在不同密钥下的密文不同，Wrapper 中加密字段的 eq、ne、in 条件会改写为匹配密钥环中每个密钥的密文（要求加密结果是确定性的）；
+ * 实体参数条件和 @EncryptedParam 参数只能匹配当前密钥的密文，轮换期间需要等值查询的字段应使用盲索引</p>
+ */
+public class KeyRingEncryptedFieldHandler implements EncryptedFieldHandler {
+
+    /**
+     * 密文中密钥版本的前缀
+     */
+    public static final String KEY_PREFIX = "k";
+    /**
+     * 密文中密钥版本与密文的分隔符，Base64 和 Hex 编码的密文不包含该字符
+     */
+    public static final char KEY_SEPARATOR = '$';
+
+    /**
+     * 当前密钥版本，加密时使用
+     */
+    @Getter
+    private final String currentKeyId;
+    /**
+     * 解密没有密钥版本前缀的历史密文使用的密钥版本，为空时不支持历史密文
+     */
+    @Getter
+    private final String legacyKeyId;
+    /**
+     * 签名和盲索引使用的密钥版本
+     */
+    @Getter
+    private final String hmacKeyId;
+    /**
+     * 密钥版本与对应的字段加解密 Handler
+     */
+    private final Map<String, EncryptedFieldHandler> handlers;
+    private final EncryptedFieldHandler currentHandler;
+    private final EncryptedFieldHandler hmacHandler;
+
+    public KeyRingEncryptedFieldHandler(String currentKeyId, Map<String, EncryptedFieldHandler> handlers) {
+        this(currentKeyId, handlers, null, currentKeyId);
+    }
+
+    /**
+     * @param currentKeyId 当前密钥版本，加密时使用
+     * @param handlers 密钥版本与对应的字段加解密 Handler（例如 DefaultEncryptedFieldHandler），密钥版本只能包含字母和数字
+     * @param legacyKeyId 解密没有密钥版本前缀的历史密文使用的密钥版本，为空时不支持历史密文
+     * @param hmacKeyId 签名和盲索引使用的密钥版本，启用密钥环之前已有签名或盲索引时应为历史密钥版本
+     */
+    public KeyRingEncryptedFieldHandler(String currentKeyId, Map<String, EncryptedFieldHandler> handlers, String legacyKeyId, String hmacKeyId) {
+        for (String keyId : handlers.keySet()) {
+            ExceptionUtils.throwMpe(!StringUtils.isAlphanumeric(keyId), "Key id [%s] must be alphanumeric", keyId);
+        }
+        ExceptionUtils.throwMpe(!handlers.containsKey(currentKeyId), "Current key [%s] is not in the key ring", currentKeyId);
+        ExceptionUtils.throwMpe(!handlers.containsKey(hmacKeyId), "HMAC key [%s] is not in the key ring", hmacKeyId);
+        ExceptionUtils.throwMpe(Objects.nonNull(legacyKeyId) && !handlers.containsKey(legacyKeyId), "Legacy key [%s] is not in the key ring", legacyKeyId);
+        this.currentKeyId = currentKeyId;
+        this.legacyKeyId = legacyKeyId;
+        this.hmacKeyId = hmacKeyId;
+        this.handlers = Collections.unmodifiableMap(new LinkedHashMap<>(handlers));
+        this.currentHandler = handlers.get(currentKeyId);
+        this.hmacHandler = handlers.get(hmacKeyId);
+    }
+
+    @Override
+    public <T> String encrypt(T value) {
+        return KEY_PREFIX + currentKeyId + KEY_SEPARATOR + currentHandler.encrypt(value);
+    }
+
+    /**
+     * 返回当前密钥的密文，以及密钥环中其他密钥（含没有前缀的历史密钥）的密文，密钥轮换期间按密文等值查询可以匹配尚未重新加密的数据
+     */
+    @Override
+    public List<String> encryptCandidates(Object value) {
+        List<String> candidates = new ArrayList<>(handlers.size() + 1);
+        candidates.add(encrypt(value));
+        for (Map.Entry<String, EncryptedFieldHandler> entry : handlers.entrySet()) {
+            if (!entry.getKey().equals(currentKeyId)) {
+                candidates.add(KEY_PREFIX + entry.getKey() + KEY_SEPARATOR + entry.getValue().encrypt(value));
+            }
+        }
+        if (Objects.nonNull(legacyKeyId)) {
+            candidates.add(handlers.get(legacyKeyId).encrypt(value));
+        }
+        return candidates;
+    }
+
+    @Override
+    public <T> T decrypt(String value, Class<T> rtType) {
+        int index = getSeparatorIndex(value);
+        if (index < 0) {
+            ExceptionUtils.throwMpe(Objects.isNull(legacyKeyId), "Cipher text without key id is not supported, legacy key is not configured");
+            return handlers.get(legacyKeyId).decrypt(value, rtType);
+        }
+        String keyId = value.substring(KEY_PREFIX.length(), index);
+        EncryptedFieldHandler handler = handlers.get(keyId);
+        ExceptionUtils.throwMpe(Objects.isNull(handler), "Key [%s] is not in the key ring", keyId);
+        return handler.decrypt(value.substring(index + 1), rtType);
+    }
+
+    @Override
+    public <T> String hmac(T value) {
+        return hmacHandler.hmac(value);
+    }
+
+    @Override
+    public String hmacCanonical(List<?> values) {
+        return hmacHandler.hmacCanonical(values);
+    }
+
+    @Override
+    public String blindIndex(Object value) {
+        return hmacHandler.blindIndex(value);
+    }
+
+    /**
+     * 获取密文的密钥版本
+     * @param value 密文
+     * @return 密钥版本，没有前缀的历史密文返回 legacyKeyId
+     */
+    public String getKeyId(String value) {
+        int index = getSeparatorIndex(value);
+        return index < 0 ? legacyKeyId : value.substring(KEY_PREFIX.length(), index);
+    }
+
+    /**
+     * 密文是否已使用当前密钥加密
+     * @param value 密文
+     */
+    public boolean isCurrent(String value) {
+        return currentKeyId.equals(getKeyId(value));
+    }
+
+    /**
+     * 密钥环中的全部密钥版本
+     */
+    public List<String> getKeyIds() {
+        return Collections.unmodifiableList(new ArrayList<>(handlers.keySet()));
+    }
+
+    private static int getSeparatorIndex(String value) {
+        if (Objects.isNull(value) || !value.startsWith(KEY_PREFIX)) {
+            return -1;
+        }
+        return value.indexOf(KEY_SEPARATOR, KEY_PREFIX.length() + 1);
+    }
+
+}
@@ -0,0 +1,22 @@
+package com.baomidou.mybatisplus.enhance.crypto.handler;
+
+import com.baomidou.mybatisplus.enhance.crypto.exception.SignatureVerificationFailure;
+
+import java.util.List;
+
+/**
+ * 签名验证失败回调
+ * <p>查询结果全部验签完成后，以一次回调报告全部验签失败的数据，回调正常返回时查询结果照常返回给调用方；
+ * 回调中抛出的异常会中断本次查询</p>
+ */
+@FunctionalInterface
+public interface SignatureVerificationFailureHandler {
+
+    /**
+     * 处理验签失败的数据
+     * @param entityClass 查询结果所属的实体类，无法确定时为空
+     * @param failures 验签失败的数据，按在查询结果中的下标排序，不为空
+     */
+    void onFailures(Class<?> entityClass, List<SignatureVerificationFailure> failures);
+
+}
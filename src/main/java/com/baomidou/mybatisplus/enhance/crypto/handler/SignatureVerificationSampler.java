@@ -0,0 +1,23 @@
+package com.baomidou.mybatisplus.enhance.crypto.handler;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * 签名验证抽样策略
+ * <p>查询结果返回前选择需要验签的数据，未被选中的数据不验签直接返回；用于高频查询以部分验签代替全部验签，降低验签开销</p>
+ */
+@FunctionalInterface
+public interface SignatureVerificationSampler {
+
+    /**
+     * 选择需要验签的数据
+     * @param mappedStatementId MappedStatement Id
+     * @param entityClass 查询结果所属的实体类，无法确定时为空
+     * @param rtList 查询结果，不为空；通过 ResultHandler 或游标逐行处理时每次只包含一行数据
+     * @param singleRowLookup 是否为单行查询，即非逐行处理且查询结果只有一行数据
+     * @return 需要验签的数据在查询结果中的下标
+     */
+    BitSet sample(String mappedStatementId, Class<?> entityClass, List<Object> rtList, boolean singleRowLookup);
+
+}
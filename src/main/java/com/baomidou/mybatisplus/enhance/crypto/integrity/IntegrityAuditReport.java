@@ -0,0 +1,63 @@
+package com.baomidou.mybatisplus.enhance.crypto.integrity;
+
+import com.baomidou.mybatisplus.enhance.crypto.exception.SignatureVerificationFailure;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 表完整性审计结果
+ */
+@Getter
+public class IntegrityAuditReport {
+
+    /**
+     * 数据表名
+     */
+    private final String tableName;
+    /**
+     * 已存储的分桶摘要
+     */
+    private final List<IntegrityBucket> storedBuckets;
+    /**
+     * 根据数据重新计算的分桶摘要
+     */
+    private final List<IntegrityBucket> actualBuckets;
+    /**
+     * 已存储的分桶摘要的 Merkle 树根
+     */
+    private final String storedRoot;
+    /**
+     * 根据数据重新计算的分桶摘要的 Merkle 树根
+     */
+    private final String actualRoot;
+    /**
+     * 摘要或行数不一致的分桶编号
+     */
+    private final List<Long> mismatchedBuckets;
+    /**
+     * 不一致的分桶中验签失败的数据，rowIndex 为数据在所在分桶中的下标
+     */
+    private final List<SignatureVerificationFailure> failures;
+
+    public IntegrityAuditReport(String tableName, List<IntegrityBucket> storedBuckets, List<IntegrityBucket> actualBuckets,
+                                List<Long> mismatchedBuckets, List<SignatureVerificationFailure> failures) {
+        this.tableName = tableName;
+        this.storedBuckets = Collections.unmodifiableList(storedBuckets);
+        this.actualBuckets = Collections.unmodifiableList(actualBuckets);
+        this.storedRoot = TableIntegritySummary.root(storedBuckets);
+        this.actualRoot = TableIntegritySummary.root(actualBuckets);
+        this.mismatchedBuckets = Collections.unmodifiableList(mismatchedBuckets);
+        this.failures = Collections.unmodifiableList(failures);
+    }
+
+    /**
+     * 数据与已存储的摘要是否一致
+     */
+    public boolean isConsistent() {
+        return Objects.equals(storedRoot, actualRoot) && mismatchedBuckets.isEmpty();
+    }
+
+}
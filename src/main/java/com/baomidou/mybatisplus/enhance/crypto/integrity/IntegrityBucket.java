@@ -0,0 +1,104 @@
+package com.baomidou.mybatisplus.enhance.crypto.integrity;
+
+import cn.hutool.core.util.HexUtil;
+import lombok.Getter;
+
+import java.security.MessageDigest;
+import java.util.Objects;
+
+/**
+ * 表完整性摘要的一个分桶，覆盖主键范围 [bucketId * bucketSize, (bucketId + 1) * bucketSize)
+ * <p>
+ * 摘要值为桶内每行数据叶子摘要的异或，行数为桶内数据行数；异或满足交换律且自身可逆，
+ * 因此写入、修改、删除一行数据时只需异或掉旧的叶子摘要、异或上新的叶子摘要，不需要读取桶内其他数据。
+ * </p>
+ */
+@Getter
+public class IntegrityBucket {
+
+    /**
+     * 摘要长度（SHA-256）
+     */
+    public static final int DIGEST_LENGTH = 32;
+
+    /**
+     * 分桶编号
+     */
+    private final long bucketId;
+    /**
+     * 桶内叶子摘要的异或
+     */
+    private final byte[] digest;
+    /**
+     * 桶内数据行数
+     */
+    private final long rowCount;
+
+    public IntegrityBucket(long bucketId, byte[] digest, long rowCount) {
+        this.bucketId = bucketId;
+        this.digest = Objects.isNull(digest) ? new byte[DIGEST_LENGTH] : digest.clone();
+        this.rowCount = rowCount;
+    }
+
+    /**
+     * 空桶
+     */
+    public static IntegrityBucket empty(long bucketId) {
+        return new IntegrityBucket(bucketId, null, 0);
+    }
+
+    /**
+     * 合并增量，摘要按位异或，行数相加
+     * @param delta 增量
+     * @return 合并后的分桶
+     */
+    public IntegrityBucket merge(IntegrityBucket delta) {
+        byte[] merged = digest.clone();
+        for (int i = 0; i < merged.length; i++) {
+            merged[i] ^= delta.digest[i];
+        }
+        return new IntegrityBucket(bucketId, merged, rowCount + delta.rowCount);
+    }
+
+    /**
+     * 摘要值副本
+     */
+    public byte[] getDigest() {
+        return digest.clone();
+    }
+
+    /**
+     * 十六进制摘要值
+     */
+    public String getDigestHex() {
+        return HexUtil.encodeHexStr(digest);
+    }
+
+    /**
+     * 是否为空桶：没有数据行且摘要全为 0
+     */
+    public boolean isEmpty() {
+        if (rowCount != 0) {
+            return false;
+        }
+        for (byte b : digest) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 与另一个分桶的摘要和行数是否一致
+     */
+    public boolean matches(IntegrityBucket other) {
+        return Objects.nonNull(other) && rowCount == other.rowCount && MessageDigest.isEqual(digest, other.digest);
+    }
+
+    @Override
+    public String toString() {
+        return "IntegrityBucket{bucketId=" + bucketId + ", digest=" + getDigestHex() + ", rowCount=" + rowCount + "}";
+    }
+
+}
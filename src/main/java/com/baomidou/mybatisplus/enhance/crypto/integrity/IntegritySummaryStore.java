@@ -0,0 +1,32 @@
+package com.baomidou.mybatisplus.enhance.crypto.integrity;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 表完整性摘要存储
+ */
+public interface IntegritySummaryStore {
+
+    /**
+     * 读取数据表的全部分桶
+     * @param tableName 数据表名
+     * @return 分桶列表，按分桶编号升序排列
+     */
+    List<IntegrityBucket> getBuckets(String tableName);
+
+    /**
+     * 将增量合并到已存储的分桶中：摘要按位异或，行数相加，分桶不存在时新建
+     * @param tableName 数据表名
+     * @param deltas 分桶增量
+     */
+    void merge(String tableName, Collection<IntegrityBucket> deltas);
+
+    /**
+     * 压缩已存储的分桶，例如将追加写入的增量合并为每个分桶一行；合并时直接更新分桶的实现不需要压缩
+     * @param tableName 数据表名
+     */
+    default void compact(String tableName) {
+    }
+
+}
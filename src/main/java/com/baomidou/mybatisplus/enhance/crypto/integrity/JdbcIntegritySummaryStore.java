@@ -0,0 +1,171 @@
+package com.baomidou.mybatisplus.enhance.crypto.integrity;
+
+import cn.hutool.core.util.HexUtil;
+import cn.hutool.core.util.IdUtil;
+import com.baomidou.mybatisplus.core.toolkit.ExceptionUtils;
+import lombok.Getter;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * 基于数据表的表完整性摘要存储，分桶摘要以增量行的形式追加写入：
+ * <pre>
+ * CREATE TABLE t_integrity_bucket (
+ *     table_name VARCHAR(64) NOT NULL,
+ *     bucket_id  BIGINT      NOT NULL,
+ *     delta_id   VARCHAR(32) NOT NULL,
+ *     digest     VARCHAR(64) NOT NULL,
+ *     row_count  BIGINT      NOT NULL,
+ *     PRIMARY KEY (table_name, bucket_id, delta_id)
+ * );
+ * </pre>
+ * <p>
+ * 1、合并增量时每个分桶只插入一行增量（随机 delta_id），不读取、不锁定已有的分桶，并发写入同一分桶的事务互不等待，也不会因首次插入同一分桶而主键冲突
+ * 2、读取分桶时在内存中合并同一分桶的全部增量：摘要按位异或，行数相加，与合并顺序无关
+ * 3、增量行随写入次数增长，需要定期调用 {@link #compact(String)} 将每个分桶的增量合并为一行；重建摘要后自动压缩
+ * 4、在 Spring 事务中使用时，dataSource 需要使用 TransactionAwareDataSourceProxy 包装，使摘要与业务数据在同一事务中提交或回滚
+ * </p>
+ */
+public class JdbcIntegritySummaryStore implements IntegritySummaryStore {
+
+    /**
+     * 默认的摘要表名
+     */
+    public static final String DEFAULT_SUMMARY_TABLE = "t_integrity_bucket";
+
+    private final DataSource dataSource;
+    @Getter
+    private final String summaryTable;
+
+    public JdbcIntegritySummaryStore(DataSource dataSource) {
+        this(dataSource, DEFAULT_SUMMARY_TABLE);
+    }
+
+    /**
+     * @param dataSource 摘要表所在的数据源
+     * @param summaryTable 摘要表名
+     */
+    public JdbcIntegritySummaryStore(DataSource dataSource, String summaryTable) {
+        this.dataSource = dataSource;
+        this.summaryTable = summaryTable;
+    }
+
+    @Override
+    public List<IntegrityBucket> getBuckets(String tableName) {
+        try (Connection connection = dataSource.getConnection()) {
+            return new ArrayList<>(readDeltas(connection, tableName, false, null).values());
+        } catch (SQLException e) {
+            throw ExceptionUtils.mpe("Read integrity buckets of table %s error", e, tableName);
+        }
+    }
+
+    @Override
+    public void merge(String tableName, Collection<IntegrityBucket> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            insertDeltas(connection, tableName, deltas);
+        } catch (SQLException e) {
+            throw ExceptionUtils.mpe("Merge integrity buckets of table %s error", e, tableName);
+        }
+    }
+
+    /**
+     * 将每个分桶的增量行合并为一行：锁定并读取数据表的全部增量行，删除已读取的增量行后插入合并结果
+     * <p>只删除已读取的增量行，压缩期间并发追加的增量行保留；连接为自动提交（没有绑定事务）时在本地事务中执行</p>
+     * @param tableName 数据表名
+     */
+    @Override
+    public void compact(String tableName) {
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            if (autoCommit) {
+                connection.setAutoCommit(false);
+            }
+            try {
+                // 1、锁定并读取全部增量行，按分桶合并
+                Map<Long, List<String>> deltaIds = new HashMap<>();
+                Map<Long, IntegrityBucket> buckets = readDeltas(connection, tableName, true, deltaIds);
+                // 2、删除已读取的增量行，插入合并结果，空桶不再保留
+                String deleteSql = "DELETE FROM " + summaryTable + " WHERE table_name = ? AND bucket_id = ? AND delta_id = ?";
+                try (PreparedStatement delete = connection.prepareStatement(deleteSql)) {
+                    for (Map.Entry<Long, List<String>> entry : deltaIds.entrySet()) {
+                        for (String deltaId : entry.getValue()) {
+                            delete.setString(1, tableName);
+                            delete.setLong(2, entry.getKey());
+                            delete.setString(3, deltaId);
+                            delete.addBatch();
+                        }
+                    }
+                    delete.executeBatch();
+                }
+                buckets.values().removeIf(IntegrityBucket::isEmpty);
+                insertDeltas(connection, tableName, buckets.values());
+                if (autoCommit) {
+                    connection.commit();
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (autoCommit) {
+                    connection.rollback();
+                }
+                throw e;
+            } finally {
+                if (autoCommit) {
+                    connection.setAutoCommit(true);
+                }
+            }
+        } catch (SQLException e) {
+            throw ExceptionUtils.mpe("Compact integrity buckets of table %s error", e, tableName);
+        }
+    }
+
+    /**
+     * 读取数据表的全部增量行，按分桶编号升序合并
+     * @param forUpdate 是否锁定读取的增量行
+     * @param deltaIds 不为空时记录每个分桶已读取的增量行
+     */
+    private Map<Long, IntegrityBucket> readDeltas(Connection connection, String tableName, boolean forUpdate,
+                                                  Map<Long, List<String>> deltaIds) throws SQLException {
+        String sql = "SELECT bucket_id, delta_id, digest, row_count FROM " + summaryTable + " WHERE table_name = ?" + (forUpdate ? " FOR UPDATE" : "");
+        Map<Long, IntegrityBucket> buckets = new TreeMap<>();
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, tableName);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    long bucketId = resultSet.getLong(1);
+                    if (Objects.nonNull(deltaIds)) {
+                        deltaIds.computeIfAbsent(bucketId, key -> new ArrayList<>()).add(resultSet.getString(2));
+                    }
+                    IntegrityBucket delta = new IntegrityBucket(bucketId, HexUtil.decodeHex(resultSet.getString(3)), resultSet.getLong(4));
+                    buckets.merge(bucketId, delta, IntegrityBucket::merge);
+                }
+            }
+        }
+        return buckets;
+    }
+
+    private void insertDeltas(Connection connection, String tableName, Collection<IntegrityBucket> deltas) throws SQLException {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        String insertSql = "INSERT INTO " + summaryTable + " (table_name, bucket_id, delta_id, digest, row_count) VALUES (?, ?, ?, ?, ?)";
+        try (PreparedStatement insert = connection.prepareStatement(insertSql)) {
+            for (IntegrityBucket delta : deltas) {
+                insert.setString(1, tableName);
+                insert.setLong(2, delta.getBucketId());
+                insert.setString(3, IdUtil.fastSimpleUUID());
+                insert.setString(4, delta.getDigestHex());
+                insert.setLong(5, delta.getRowCount());
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+    }
+
+}
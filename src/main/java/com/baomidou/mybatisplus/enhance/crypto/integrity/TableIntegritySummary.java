@@ -0,0 +1,192 @@
+package com.baomidou.mybatisplus.enhance.crypto.integrity;
+
+import cn.hutool.core.util.HexUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.baomidou.mybatisplus.core.metadata.TableInfo;
+import com.baomidou.mybatisplus.core.toolkit.ExceptionUtils;
+import com.baomidou.mybatisplus.enhance.crypto.codec.SignatureCanonicalCodec;
+import com.baomidou.mybatisplus.enhance.crypto.handler.EncryptedFieldHandler;
+import com.baomidou.mybatisplus.enhance.util.TableFieldHelper;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * 表完整性摘要（按主键范围分桶的 Merkle 摘要）
+ * <p>
+ * 1、叶子摘要：SHA-256(HMAC(表名, 主键值, 签名值))，以规范格式通过 EncryptedFieldHandler#hmacCanonical 使用签名密钥计算，没有密钥无法伪造摘要
+ * 2、分桶摘要：主键范围 [bucketId * bucketSize, (bucketId + 1) * bucketSize) 内全部叶子摘要的异或及行数，
+ * 写入签名数据时按新旧签名值增量维护，不需要读取桶内其他数据
+ * 3、表摘要根：按分桶编号排序的分桶摘要构建的 Merkle 树根，比较两份摘要时先比较根，不一致时再逐桶比较，只对不一致的分桶逐行验签
+ * </p>
+ */
+public class TableIntegritySummary {
+
+    /**
+     * 摘要存储
+     */
+    @Getter
+    private final IntegritySummaryStore store;
+    /**
+     * 加解密处理器，用于计算叶子摘要的 HMAC
+     */
+    @Getter
+    private final EncryptedFieldHandler encryptedFieldHandler;
+
+    public TableIntegritySummary(IntegritySummaryStore store, EncryptedFieldHandler encryptedFieldHandler) {
+        this.store = store;
+        this.encryptedFieldHandler = encryptedFieldHandler;
+    }
+
+    /**
+     * 获取数据行的主键值字符串，主键值为空时返回空
+     * @param rawObject 实体对象或Map
+     * @param tableInfo 表信息
+     */
+    public static String getRowKey(Object rawObject, TableInfo tableInfo) {
+        Object keyValue = Objects.isNull(rawObject) ? null : TableFieldHelper.getKeyValue(rawObject, tableInfo);
+        return Objects.isNull(keyValue) ? null : keyValue.toString();
+    }
+
+    /**
+     * 获取主键值所在的分桶编号，要求主键为整数类型；写入和审计都使用该公式，负数主键向下取整
+     * @param rowKey 主键值字符串
+     * @param bucketSize 分桶大小
+     */
+    public static long getBucketId(String rowKey, long bucketSize) {
+        try {
+            return Math.floorDiv(Long.parseLong(rowKey), bucketSize);
+        } catch (NumberFormatException e) {
+            throw ExceptionUtils.mpe("Integrity summary requires an integer primary key, but got '%s'", e, rowKey);
+        }
+    }
+
+    /**
+     * 计算单行数据的叶子摘要
+     * @param tableName 数据表名
+     * @param rowKey 主键值字符串
+     * @param signature 已存储的签名值
+     */
+    public byte[] leaf(String tableName, String rowKey, Object signature) {
+        String hmac = encryptedFieldHandler.hmacCanonical(Arrays.asList(tableName, rowKey, signature));
+        return DigestUtil.sha256(hmac.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 根据数据行的签名值计算分桶摘要，没有签名的数据行不计入摘要
+     * @param tableName 数据表名
+     * @param bucketSize 分桶大小
+     * @param signatures 主键值字符串与签名值
+     * @return 分桶编号与分桶摘要
+     */
+    public Map<Long, IntegrityBucket> compute(String tableName, long bucketSize, Map<String, Optional<Object>> signatures) {
+        Map<Long, IntegrityBucket> buckets = new TreeMap<>();
+        for (Map.Entry<String, Optional<Object>> entry : signatures.entrySet()) {
+            if (entry.getValue().isPresent()) {
+                accumulate(buckets, tableName, bucketSize, entry.getKey(), entry.getValue().get(), 1);
+            }
+        }
+        return buckets;
+    }
+
+    /**
+     * 按写入前后的签名值增量更新已存储的分桶摘要
+     * @param tableName 数据表名
+     * @param bucketSize 分桶大小
+     * @param before 写入前的主键值字符串与签名值，不存在的数据行视为没有签名
+     * @param after 写入后的主键值字符串与签名值，不存在的数据行视为没有签名
+     */
+    public void update(String tableName, long bucketSize, Map<String, Optional<Object>> before, Map<String, Optional<Object>> after) {
+        // 1、计算每个分桶的增量：异或掉旧的叶子摘要，异或上新的叶子摘要
+        Set<String> rowKeys = new LinkedHashSet<>(before.keySet());
+        rowKeys.addAll(after.keySet());
+        Map<Long, IntegrityBucket> deltas = new TreeMap<>();
+        for (String rowKey : rowKeys) {
+            Optional<Object> oldSignature = before.getOrDefault(rowKey, Optional.empty());
+            Optional<Object> newSignature = after.getOrDefault(rowKey, Optional.empty());
+            if (Objects.equals(oldSignature, newSignature)) {
+                continue;
+            }
+            oldSignature.ifPresent(signature -> accumulate(deltas, tableName, bucketSize, rowKey, signature, -1));
+            newSignature.ifPresent(signature -> accumulate(deltas, tableName, bucketSize, rowKey, signature, 1));
+        }
+        // 2、合并到已存储的分桶摘要
+        deltas.values().removeIf(IntegrityBucket::isEmpty);
+        store.merge(tableName, deltas.values());
+    }
+
+    private void accumulate(Map<Long, IntegrityBucket> buckets, String tableName, long bucketSize, String rowKey, Object signature, int count) {
+        long bucketId = getBucketId(rowKey, bucketSize);
+        IntegrityBucket delta = new IntegrityBucket(bucketId, leaf(tableName, rowKey, signature), count);
+        buckets.merge(bucketId, delta, IntegrityBucket::merge);
+    }
+
+    /**
+     * 计算分桶摘要的 Merkle 树根，空桶不参与计算
+     * @param buckets 分桶摘要
+     * @return 十六进制的树根
+     */
+    public static String root(Collection<IntegrityBucket> buckets) {
+        // 1、按分桶编号排序，计算每个分桶的节点摘要
+        List<IntegrityBucket> sorted = new ArrayList<>(buckets);
+        sorted.removeIf(IntegrityBucket::isEmpty);
+        sorted.sort(Comparator.comparingLong(IntegrityBucket::getBucketId));
+        List<byte[]> level = new ArrayList<>(sorted.size());
+        for (IntegrityBucket bucket : sorted) {
+            level.add(DigestUtil.sha256(SignatureCanonicalCodec.encode(
+                    Arrays.asList(bucket.getBucketId(), bucket.getDigestHex(), bucket.getRowCount()))));
+        }
+        if (level.isEmpty()) {
+            return HexUtil.encodeHexStr(DigestUtil.sha256(new byte[0]));
+        }
+        // 2、逐层两两合并，奇数个节点时最后一个节点直接进入上一层
+        while (level.size() > 1) {
+            List<byte[]> parent = new ArrayList<>((level.size() + 1) / 2);
+            for (int i = 0; i < level.size(); i += 2) {
+                if (i + 1 < level.size()) {
+                    byte[] node = new byte[level.get(i).length + level.get(i + 1).length];
+                    System.arraycopy(level.get(i), 0, node, 0, level.get(i).length);
+                    System.arraycopy(level.get(i + 1), 0, node, level.get(i).length, level.get(i + 1).length);
+                    parent.add(DigestUtil.sha256(node));
+                } else {
+                    parent.add(level.get(i));
+                }
+            }
+            level = parent;
+        }
+        return HexUtil.encodeHexStr(level.get(0));
+    }
+
+    /**
+     * 比较两份分桶摘要，返回摘要或行数不一致的分桶编号，空桶与不存在的分桶视为一致
+     * @param expected 预期的分桶摘要，例如已存储的摘要或审计方保存的快照
+     * @param actual 实际的分桶摘要
+     * @return 不一致的分桶编号，升序排列
+     */
+    public static List<Long> diff(Collection<IntegrityBucket> expected, Collection<IntegrityBucket> actual) {
+        Map<Long, IntegrityBucket> expectedMap = toMap(expected);
+        Map<Long, IntegrityBucket> actualMap = toMap(actual);
+        SortedSet<Long> bucketIds = new TreeSet<>(expectedMap.keySet());
+        bucketIds.addAll(actualMap.keySet());
+        List<Long> mismatched = new ArrayList<>();
+        for (Long bucketId : bucketIds) {
+            IntegrityBucket expectedBucket = expectedMap.getOrDefault(bucketId, IntegrityBucket.empty(bucketId));
+            if (!expectedBucket.matches(actualMap.getOrDefault(bucketId, IntegrityBucket.empty(bucketId)))) {
+                mismatched.add(bucketId);
+            }
+        }
+        return mismatched;
+    }
+
+    private static Map<Long, IntegrityBucket> toMap(Collection<IntegrityBucket> buckets) {
+        Map<Long, IntegrityBucket> map = new HashMap<>(buckets.size() * 2);
+        for (IntegrityBucket bucket : buckets) {
+            if (!bucket.isEmpty()) {
+                map.put(bucket.getBucketId(), bucket);
+            }
+        }
+        return map;
+    }
+
+}
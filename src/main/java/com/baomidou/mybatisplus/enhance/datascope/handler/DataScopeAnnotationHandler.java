@@ -2,14 +2,13 @@ package com.baomidou.mybatisplus.enhance.datascope.handler;
 
 import com.baomidou.mybatisplus.core.toolkit.ObjectUtils;
 import com.baomidou.mybatisplus.enhance.datascope.annotation.DataScopePlus;
+import com.baomidou.mybatisplus.enhance.util.MapperMethodRegistry;
 import com.baomidou.mybatisplus.extension.plugins.handler.MultiDataPermissionHandler;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import net.sf.jsqlparser.expression.Expression;
 import net.sf.jsqlparser.schema.Table;
 
-import java.lang.reflect.Method;
-
 /**
  * 数据权限拼装逻辑处理
  */
@@ -35,36 +34,21 @@ public class DataScopeAnnotationHandler implements MultiDataPermissionHandler {
      */
     @Override
     public Expression getSqlSegment(Table table, Expression where, String mappedStatementId) {
-        try {
-            Class<?> mapperClazz = Class.forName(mappedStatementId.substring(0, mappedStatementId.lastIndexOf(".")));
-            String methodName = mappedStatementId.substring(mappedStatementId.lastIndexOf(".") + 1);
-            /*
-             * DataScope注解优先级：【类上 > 方法上】
-             */
-            // 获取 DataScope注解
-            DataScopePlus dataScopeAnnotationClazz = mapperClazz.getAnnotation(DataScopePlus.class);
-            if (ObjectUtils.isNotEmpty(dataScopeAnnotationClazz) && dataScopeAnnotationClazz.enabled()) {
-                return getDataScopeExpressionProvider().getDataScopeSqlSegment(table, where, mappedStatementId, dataScopeAnnotationClazz);
-            }
-            // 获取自身类中的所有方法，不包括继承。与访问权限无关
-            Method[] methods = mapperClazz.getDeclaredMethods();
-            for (Method method : methods) {
-                DataScopePlus dataScopeAnnotationMethod = method.getAnnotation(DataScopePlus.class);
-                if (ObjectUtils.isEmpty(dataScopeAnnotationMethod) || !dataScopeAnnotationMethod.enabled()) {
-                    continue;
-                }
-                if (method.getName().equals(methodName) || (method.getName() + "_COUNT").equals(methodName) || (method.getName() + "_count").equals(methodName)) {
-                    return getDataScopeExpressionProvider().getDataScopeSqlSegment(table, where, mappedStatementId, dataScopeAnnotationClazz);
-                }
-            }
-        } catch (ClassNotFoundException e) {
-            e.printStackTrace();
+        MapperMethodRegistry.MapperMethod mapperMethod = MapperMethodRegistry.get(mappedStatementId);
+        /*
+         * DataScope注解优先级：【类上 > 方法上】
+         */
+        // 获取 DataScope注解
+        DataScopePlus dataScopeAnnotationClazz = mapperMethod.getClassAnnotation(DataScopePlus.class);
+        if (ObjectUtils.isNotEmpty(dataScopeAnnotationClazz) && dataScopeAnnotationClazz.enabled()) {
+            return getDataScopeExpressionProvider().getDataScopeSqlSegment(table, where, mappedStatementId, dataScopeAnnotationClazz);
+        }
+        // 分页 count 语句由注册表映射回原方法
+        DataScopePlus dataScopeAnnotationMethod = mapperMethod.getMethodAnnotation(DataScopePlus.class);
+        if (ObjectUtils.isNotEmpty(dataScopeAnnotationMethod) && dataScopeAnnotationMethod.enabled()) {
+            return getDataScopeExpressionProvider().getDataScopeSqlSegment(table, where, mappedStatementId, dataScopeAnnotationMethod);
         }
         return null;
     }
 
-
-
-
-
 }
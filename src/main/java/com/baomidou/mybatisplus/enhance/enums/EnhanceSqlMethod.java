@@ -9,7 +9,15 @@ public enum EnhanceSqlMethod {
     SELECT_IGNORE_DECRYPT_BATCH_BY_IDS("selectIgnoreDecryptBatchIds", "根据ID集合，批量查询数据", "<script>SELECT %s FROM %s WHERE %s IN (%s) %s </script>"),
     SELECT_IGNORE_DECRYPT_LIST("selectIgnoreDecryptList", "查询满足条件所有数据", "<script>%s SELECT %s FROM %s %s %s %s\n</script>"),
     SELECT_IGNORE_DECRYPT_MAPS("selectIgnoreDecryptMaps", "查询满足条件所有数据", "<script>%s SELECT %s FROM %s %s %s %s\n</script>"),
-    SELECT_IGNORE_DECRYPT_OBJS("selectIgnoreDecryptObjs", "查询满足条件所有数据", "<script>%s SELECT %s FROM %s %s %s %s\n</script>")
+    SELECT_IGNORE_DECRYPT_OBJS("selectIgnoreDecryptObjs", "查询满足条件所有数据", "<script>%s SELECT %s FROM %s %s %s %s\n</script>"),
+    SELECT_CURSOR("selectCursor", "游标查询满足条件所有数据", "<script>%s SELECT %s FROM %s %s %s %s\n</script>"),
+
+    /**
+     * 修改
+     */
+    UPDATE_SIGNATURE_BY_ID("updateSignatureById", "根据ID 修改签名字段", "<script>\nUPDATE %s SET %s=%s WHERE %s=%s %s\n</script>"),
+    UPDATE_SIGNATURE_BATCH_BY_IDS("updateSignatureBatchByIds", "根据ID集合，批量修改签名字段", "<script>\nUPDATE %s SET %s=CASE %s %s END WHERE %s IN (%s) %s\n</script>"),
+    UPDATE_IGNORE_ENCRYPT("updateIgnoreEncrypt", "根据 whereEntity 条件，更新记录，不加密、不签名", "<script>\nUPDATE %s %s %s %s\n</script>")
 
     ;
 
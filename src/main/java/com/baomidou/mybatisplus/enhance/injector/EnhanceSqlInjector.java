@@ -13,17 +13,39 @@ import java.util.List;
  */
 public class EnhanceSqlInjector extends DefaultSqlInjector {
 
+    /**
+     * 游标查询（selectCursor）的 fetchSize 提示，为空时使用 Configuration 的 defaultFetchSize
+     */
+    private final Integer cursorFetchSize;
+
+    public EnhanceSqlInjector() {
+        this(null);
+    }
+
+    /**
+     * @param cursorFetchSize 游标查询（selectCursor）的 fetchSize 提示，MySQL 逐行读取需要设置为 Integer.MIN_VALUE
+     */
+    public EnhanceSqlInjector(Integer cursorFetchSize) {
+        this.cursorFetchSize = cursorFetchSize;
+    }
+
     @Override
     public List<AbstractMethod> getMethodList(Configuration configuration, Class<?> mapperClass, TableInfo tableInfo) {
         List<AbstractMethod> methodList = super.getMethodList(configuration, mapperClass, tableInfo);
         methodList.add(new SelectIgnoreDecryptMaps());
         methodList.add(new SelectIgnoreDecryptObjs());
         methodList.add(new SelectIgnoreDecryptList());
+        methodList.add(new SelectCursor(cursorFetchSize));
+        methodList.add(new UpdateIgnoreEncrypt());
         if (tableInfo.havePK()) {
             // 根据ID 查询一条数据, 不解密
             methodList.add(new SelectIgnoreDecryptById());
             // 根据ID集合，批量查询数据，不解密
             methodList.add(new SelectIgnoreDecryptBatchIds());
+            // 根据ID 只修改签名字段，没有 @TableSignatureField(stored = true) 字段时不注入
+            methodList.add(new UpdateSignatureById());
+            // 根据ID集合，批量只修改签名字段，没有 @TableSignatureField(stored = true) 字段时不注入
+            methodList.add(new UpdateSignatureBatchByIds());
         } else {
             logger.warn(String.format("%s ,Not found @TableId annotation, Cannot use Mybatis-Plus 'xxById' Method.",
                     tableInfo.getEntityType()));
@@ -0,0 +1,64 @@
+package com.baomidou.mybatisplus.enhance.injector.methods;
+
+import com.baomidou.mybatisplus.core.injector.AbstractMethod;
+import com.baomidou.mybatisplus.core.metadata.TableInfo;
+import com.baomidou.mybatisplus.core.toolkit.StringPool;
+import com.baomidou.mybatisplus.enhance.enums.EnhanceSqlMethod;
+import org.apache.ibatis.executor.keygen.NoKeyGenerator;
+import org.apache.ibatis.mapping.*;
+
+/**
+ * 游标查询满足条件所有数据，结果通过 MyBatis Cursor 逐行读取
+ * <p>
+ * 语句使用 FORWARD_ONLY 结果集并携带 fetchSize 提示，避免驱动一次性读取全部结果；
+ * MySQL 需要 fetchSize 为 Integer.MIN_VALUE 才会逐行读取，其他数据库一般使用正数（例如 1000）。
+ * </p>
+ */
+public class SelectCursor extends AbstractMethod {
+
+    /**
+     * fetchSize 提示，为空时使用 Configuration 的 defaultFetchSize
+     */
+    private final Integer fetchSize;
+
+    public SelectCursor() {
+        this(null);
+    }
+
+    /**
+     * @param fetchSize fetchSize 提示，为空时使用 Configuration 的 defaultFetchSize
+     */
+    public SelectCursor(Integer fetchSize) {
+        this(EnhanceSqlMethod.SELECT_CURSOR.getMethod(), fetchSize);
+    }
+
+    /**
+     * @param name 方法名
+     * @param fetchSize fetchSize 提示，为空时使用 Configuration 的 defaultFetchSize
+     */
+    public SelectCursor(String name, Integer fetchSize) {
+        super(name);
+        this.fetchSize = fetchSize;
+    }
+
+    @Override
+    public MappedStatement injectMappedStatement(Class<?> mapperClass, Class<?> modelClass, TableInfo tableInfo) {
+        EnhanceSqlMethod sqlMethod = EnhanceSqlMethod.SELECT_CURSOR;
+        String sql = String.format(sqlMethod.getSql(), sqlFirst(), sqlSelectColumns(tableInfo, true), tableInfo.getTableName(),
+                sqlWhereEntityWrapper(true, tableInfo), sqlOrderBy(tableInfo), sqlComment());
+        SqlSource sqlSource = super.createSqlSource(configuration, sql, modelClass);
+        String statementName = mapperClass.getName() + StringPool.DOT + methodName;
+        if (configuration.hasStatement(statementName, false)) {
+            logger.warn(String.format("[%s] Has been loaded by XML or SqlProvider or Mybatis's Annotation, so ignoring this injection for [%s]", statementName, getClass()));
+            return null;
+        }
+        // 与 addSelectMappedStatementForTable 一致，存在自定义 resultMap 时使用 resultMap，否则使用实体类型
+        String resultMap = tableInfo.getResultMap();
+        Class<?> resultType = null == resultMap ? tableInfo.getEntityType() : null;
+        return builderAssistant.addMappedStatement(methodName, sqlSource, StatementType.PREPARED, SqlCommandType.SELECT,
+                fetchSize, null, null, null, resultMap, resultType, ResultSetType.FORWARD_ONLY,
+                false, false, false, NoKeyGenerator.INSTANCE, null, null,
+                configuration.getDatabaseId(), languageDriver, null);
+    }
+
+}
@@ -12,6 +12,17 @@ import org.apache.ibatis.mapping.SqlSource;
  */
 public class SelectIgnoreDecryptBatchIds extends SelectByIds {
 
+    public SelectIgnoreDecryptBatchIds() {
+        this(EnhanceSqlMethod.SELECT_IGNORE_DECRYPT_BATCH_BY_IDS.getMethod());
+    }
+
+    /**
+     * @param name 方法名
+     */
+    public SelectIgnoreDecryptBatchIds(String name) {
+        super(name);
+    }
+
     @Override
     public MappedStatement injectMappedStatement(Class<?> mapperClass, Class<?> modelClass, TableInfo tableInfo) {
         EnhanceSqlMethod sqlMethod = EnhanceSqlMethod.SELECT_IGNORE_DECRYPT_BATCH_BY_IDS;
@@ -0,0 +1,35 @@
+package com.baomidou.mybatisplus.enhance.injector.methods;
+
+import com.baomidou.mybatisplus.core.injector.methods.Update;
+import com.baomidou.mybatisplus.core.metadata.TableInfo;
+import com.baomidou.mybatisplus.enhance.enums.EnhanceSqlMethod;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlSource;
+
+/**
+ * 根据 whereEntity 条件，更新记录，不加密、不签名
+ */
+public class UpdateIgnoreEncrypt extends Update {
+
+    public UpdateIgnoreEncrypt() {
+        this(EnhanceSqlMethod.UPDATE_IGNORE_ENCRYPT.getMethod());
+    }
+
+    /**
+     * @param name 方法名
+     */
+    public UpdateIgnoreEncrypt(String name) {
+        super(name);
+    }
+
+    @Override
+    public MappedStatement injectMappedStatement(Class<?> mapperClass, Class<?> modelClass, TableInfo tableInfo) {
+        EnhanceSqlMethod sqlMethod = EnhanceSqlMethod.UPDATE_IGNORE_ENCRYPT;
+        String sql = String.format(sqlMethod.getSql(), tableInfo.getTableName(),
+                sqlSet(true, true, tableInfo, true, ENTITY, ENTITY_DOT),
+                sqlWhereEntityWrapper(true, tableInfo), sqlComment());
+        SqlSource sqlSource = super.createSqlSource(configuration, sql, modelClass);
+        return this.addUpdateMappedStatement(mapperClass, modelClass, methodName, sqlSource);
+    }
+
+}
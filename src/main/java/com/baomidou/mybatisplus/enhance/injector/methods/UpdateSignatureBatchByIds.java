@@ -0,0 +1,50 @@
+package com.baomidou.mybatisplus.enhance.injector.methods;
+
+import com.baomidou.mybatisplus.core.injector.AbstractMethod;
+import com.baomidou.mybatisplus.core.metadata.TableFieldInfo;
+import com.baomidou.mybatisplus.core.metadata.TableInfo;
+import com.baomidou.mybatisplus.core.toolkit.sql.SqlScriptUtils;
+import com.baomidou.mybatisplus.enhance.enums.EnhanceSqlMethod;
+import com.baomidou.mybatisplus.enhance.util.TableFieldHelper;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlSource;
+
+import java.util.Optional;
+
+/**
+ * 根据 ID 集合，以一条 UPDATE 语句批量修改 @TableSignatureField(stored = true) 签名字段，例如：
+ * <pre>
+ * UPDATE user SET hmac = CASE id WHEN ? THEN ? WHEN ? THEN ? END WHERE id IN (?, ?)
+ * </pre>
+ */
+public class UpdateSignatureBatchByIds extends AbstractMethod {
+
+    public UpdateSignatureBatchByIds() {
+        this(EnhanceSqlMethod.UPDATE_SIGNATURE_BATCH_BY_IDS.getMethod());
+    }
+
+    /**
+     * @param name 方法名
+     */
+    public UpdateSignatureBatchByIds(String name) {
+        super(name);
+    }
+
+    @Override
+    public MappedStatement injectMappedStatement(Class<?> mapperClass, Class<?> modelClass, TableInfo tableInfo) {
+        Optional<TableFieldInfo> storeFieldInfo = TableFieldHelper.getTableSignatureStoreFieldInfo(tableInfo);
+        if (!storeFieldInfo.isPresent()) {
+            return null;
+        }
+        EnhanceSqlMethod sqlMethod = EnhanceSqlMethod.UPDATE_SIGNATURE_BATCH_BY_IDS;
+        String keyParam = SqlScriptUtils.safeParam("item." + tableInfo.getKeyProperty());
+        String whenThen = SqlScriptUtils.convertForeach("WHEN " + keyParam + " THEN " + SqlScriptUtils.safeParam("item." + storeFieldInfo.get().getEl()),
+                COLL, null, "item", SPACE);
+        String keys = SqlScriptUtils.convertForeach(keyParam, COLL, null, "item", COMMA);
+        String sql = String.format(sqlMethod.getSql(), tableInfo.getTableName(), storeFieldInfo.get().getColumn(),
+                tableInfo.getKeyColumn(), whenThen, tableInfo.getKeyColumn(), keys, tableInfo.getLogicDeleteSql(true, true));
+        SqlSource sqlSource = super.createSqlSource(configuration, sql, modelClass);
+        return addUpdateMappedStatement(mapperClass, modelClass, methodName, sqlSource);
+    }
+
+}
@@ -0,0 +1,45 @@
+package com.baomidou.mybatisplus.enhance.injector.methods;
+
+import com.baomidou.mybatisplus.core.injector.AbstractMethod;
+import com.baomidou.mybatisplus.core.metadata.TableFieldInfo;
+import com.baomidou.mybatisplus.core.metadata.TableInfo;
+import com.baomidou.mybatisplus.core.toolkit.sql.SqlScriptUtils;
+import com.baomidou.mybatisplus.enhance.enums.EnhanceSqlMethod;
+import com.baomidou.mybatisplus.enhance.util.TableFieldHelper;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlSource;
+
+import java.util.Optional;
+
+/**
+ * 根据 ID 只修改 @TableSignatureField(stored = true) 签名字段，不重写整行数据
+ */
+public class UpdateSignatureById extends AbstractMethod {
+
+    public UpdateSignatureById() {
+        this(EnhanceSqlMethod.UPDATE_SIGNATURE_BY_ID.getMethod());
+    }
+
+    /**
+     * @param name 方法名
+     */
+    public UpdateSignatureById(String name) {
+        super(name);
+    }
+
+    @Override
+    public MappedStatement injectMappedStatement(Class<?> mapperClass, Class<?> modelClass, TableInfo tableInfo) {
+        Optional<TableFieldInfo> storeFieldInfo = TableFieldHelper.getTableSignatureStoreFieldInfo(tableInfo);
+        if (!storeFieldInfo.isPresent()) {
+            return null;
+        }
+        EnhanceSqlMethod sqlMethod = EnhanceSqlMethod.UPDATE_SIGNATURE_BY_ID;
+        String sql = String.format(sqlMethod.getSql(), tableInfo.getTableName(),
+                storeFieldInfo.get().getColumn(), SqlScriptUtils.safeParam(ENTITY_DOT + storeFieldInfo.get().getEl()),
+                tableInfo.getKeyColumn(), SqlScriptUtils.safeParam(ENTITY_DOT + tableInfo.getKeyProperty()),
+                tableInfo.getLogicDeleteSql(true, true));
+        SqlSource sqlSource = super.createSqlSource(configuration, sql, modelClass);
+        return addUpdateMappedStatement(mapperClass, modelClass, methodName, sqlSource);
+    }
+
+}
@@ -0,0 +1,109 @@
+package com.baomidou.mybatisplus.enhance.interceptor;
+
+import org.apache.ibatis.cursor.Cursor;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.function.Consumer;
+
+/**
+ * 逐行处理查询结果的 Cursor
+ * <p>
+ * 包装 {@link org.apache.ibatis.executor.Executor#queryCursor} 返回的 Cursor，每一行在迭代时执行解密、脱敏、验签等查询后置处理，
+ * 内存占用与结果总行数无关。处理失败时异常从 {@link Iterator#next()} 抛出，调用方可以在任意行提前终止并关闭 Cursor。
+ * </p>
+ * @param <T> 结果类型
+ */
+public class EnhanceCursor<T> implements Cursor<T> {
+
+    private static final Cursor<Object> EMPTY = new Cursor<Object>() {
+
+        @Override
+        public boolean isOpen() {
+            return false;
+        }
+
+        @Override
+        public boolean isConsumed() {
+            return true;
+        }
+
+        @Override
+        public int getCurrentIndex() {
+            return -1;
+        }
+
+        @Override
+        public void close() {
+            // do nothing
+        }
+
+        @Override
+        public Iterator<Object> iterator() {
+            return Collections.emptyIterator();
+        }
+
+    };
+
+    private final Cursor<T> delegate;
+    private final Consumer<Object> rowProcessor;
+
+    /**
+     * @param delegate MyBatis 返回的 Cursor
+     * @param rowProcessor 单行查询后置处理
+     */
+    public EnhanceCursor(Cursor<T> delegate, Consumer<Object> rowProcessor) {
+        this.delegate = delegate;
+        this.rowProcessor = rowProcessor;
+    }
+
+    /**
+     * 空的 Cursor，拦截器在查询前判断不需要执行查询时返回
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Cursor<T> empty() {
+        return (Cursor<T>) EMPTY;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return delegate.isOpen();
+    }
+
+    @Override
+    public boolean isConsumed() {
+        return delegate.isConsumed();
+    }
+
+    @Override
+    public int getCurrentIndex() {
+        return delegate.getCurrentIndex();
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        Iterator<T> iterator = delegate.iterator();
+        return new Iterator<T>() {
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public T next() {
+                T row = iterator.next();
+                rowProcessor.accept(row);
+                return row;
+            }
+
+        };
+    }
+
+}
@@ -0,0 +1,260 @@
+package com.baomidou.mybatisplus.enhance.interceptor;
+
+import com.baomidou.mybatisplus.core.conditions.AbstractWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.Update;
+import com.baomidou.mybatisplus.core.metadata.TableInfo;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.baomidou.mybatisplus.core.toolkit.Constants;
+import com.baomidou.mybatisplus.enhance.crypto.annotation.IgnoreEncrypted;
+import com.baomidou.mybatisplus.enhance.crypto.annotation.IgnoreSignature;
+import com.baomidou.mybatisplus.enhance.util.EnhanceConstants;
+import com.baomidou.mybatisplus.enhance.util.MapperMethodRegistry;
+import com.baomidou.mybatisplus.enhance.util.SqlSetIndex;
+import com.baomidou.mybatisplus.enhance.util.TableFieldHelper;
+import lombok.Getter;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.type.SimpleTypeRegistry;
+
+import java.util.*;
+
+/**
+ * 单次 Executor 调用的上下文
+ * <p>
+ * 由 {@link MybatisPlusEnhanceInterceptor} 在每次 query、update 调用时创建一次，传递给调用链上的每个 EnhanceInnerInterceptor。
+ * 参数提取、实体类和 TableInfo 查找、Wrapper SET 子句索引等在首次使用时计算并保存，加密、签名、脱敏、解密等拦截器共享结果，不再各自重复计算。
+ * 上下文只在当前调用线程内使用，不是线程安全的。
+ * </p>
+ */
+public class EnhanceInvocationContext {
+
+    /**
+     * Executor(可能是代理对象)
+     */
+    @Getter
+    private final Executor executor;
+    /**
+     * MappedStatement
+     */
+    @Getter
+    private final MappedStatement mappedStatement;
+    /**
+     * 参数对象
+     */
+    @Getter
+    private final Object parameter;
+    /**
+     * 分页参数，更新操作为空
+     */
+    @Getter
+    private final RowBounds rowBounds;
+    /**
+     * 结果处理器，更新操作为空
+     */
+    @Getter
+    private final ResultHandler<?> resultHandler;
+    /**
+     * BoundSql，更新操作为空
+     */
+    @Getter
+    private final BoundSql boundSql;
+    /**
+     * MappedStatement 执行计划，未通过 {@link MybatisPlusEnhanceInterceptor} 调用时为空
+     */
+    @Getter
+    private final MappedStatementPlan plan;
+    /**
+     * 是否为游标查询
+     */
+    @Getter
+    private final boolean cursor;
+
+    private Class<?> entityClass;
+    private boolean entityClassResolved;
+    private List<Object> entityParameters;
+    private Object updateEntity;
+    private boolean updateEntityResolved;
+    private SqlSetIndex sqlSetIndex;
+    private Map<Class<?>, TableInfo> tableInfos;
+
+    private EnhanceInvocationContext(Executor executor, MappedStatement ms, Object parameter, RowBounds rowBounds,
+                                     ResultHandler<?> resultHandler, BoundSql boundSql, MappedStatementPlan plan, boolean cursor) {
+        this.executor = executor;
+        this.mappedStatement = ms;
+        this.parameter = parameter;
+        this.rowBounds = rowBounds;
+        this.resultHandler = resultHandler;
+        this.boundSql = boundSql;
+        this.plan = plan;
+        this.cursor = cursor;
+    }
+
+    /**
+     * 查询调用的上下文
+     */
+    public static EnhanceInvocationContext ofQuery(Executor executor, MappedStatement ms, Object parameter, RowBounds rowBounds,
+                                                   ResultHandler<?> resultHandler, BoundSql boundSql, MappedStatementPlan plan) {
+        return new EnhanceInvocationContext(executor, ms, parameter, rowBounds, resultHandler, boundSql, plan, false);
+    }
+
+    /**
+     * 游标查询调用的上下文
+     */
+    public static EnhanceInvocationContext ofCursor(Executor executor, MappedStatement ms, Object parameter, RowBounds rowBounds,
+                                                    BoundSql boundSql, MappedStatementPlan plan) {
+        return new EnhanceInvocationContext(executor, ms, parameter, rowBounds, null, boundSql, plan, true);
+    }
+
+    /**
+     * 更新调用的上下文
+     */
+    public static EnhanceInvocationContext ofUpdate(Executor executor, MappedStatement ms, Object parameter, MappedStatementPlan plan) {
+        return new EnhanceInvocationContext(executor, ms, parameter, null, null, null, plan, false);
+    }
+
+    /**
+     * 查询结果是否通过 ResultHandler 或游标逐行处理，逐行处理时查询后置处理每次只收到一行数据
+     */
+    public boolean isRowByRow() {
+        return cursor || Objects.nonNull(resultHandler);
+    }
+
+    /**
+     * Mapper 方法是否被 @IgnoreEncrypted 注解
+     */
+    public boolean isIgnoreEncrypted() {
+        return Objects.nonNull(plan) ? plan.isIgnoreEncrypted()
+                : MapperMethodRegistry.get(mappedStatement.getId()).isMethodAnnotationPresent(IgnoreEncrypted.class);
+    }
+
+    /**
+     * Mapper 方法是否被 @IgnoreSignature 注解
+     */
+    public boolean isIgnoreSignature() {
+        return Objects.nonNull(plan) ? plan.isIgnoreSignature()
+                : MapperMethodRegistry.get(mappedStatement.getId()).isMethodAnnotationPresent(IgnoreSignature.class);
+    }
+
+    /**
+     * Mapper 对应的实体类，非 MybatisPlus 管理的 Mapper 时取 MappedStatement 的参数类型
+     */
+    public Class<?> getEntityClass() {
+        if (!entityClassResolved) {
+            entityClass = Objects.nonNull(plan) ? plan.getEntityClass() : TableFieldHelper.getEntityClass(mappedStatement.getId());
+            if (Objects.isNull(entityClass)) {
+                entityClass = mappedStatement.getParameterMap().getType();
+            }
+            entityClassResolved = true;
+        }
+        return entityClass;
+    }
+
+    /**
+     * 获取实体类的 TableInfo，同一次调用内只查找一次
+     * @param clazz 实体类
+     * @return TableInfo，实体类没有 TableInfo 时返回 null
+     */
+    public TableInfo getTableInfo(Class<?> clazz) {
+        if (Objects.isNull(tableInfos)) {
+            tableInfos = new HashMap<>(4);
+        }
+        return tableInfos.computeIfAbsent(clazz, TableInfoHelper::getTableInfo);
+    }
+
+    /**
+     * 查询参数中的自定义实体参数，例如：findList(@Param(value = "query") UserEntity query)
+     * <p>已按对象实例去重（同一个实体以 @Param 名称和 param1 等多个 key 出现在参数 Map 中），不包含空值、简单类型和 Wrapper</p>
+     */
+    public List<Object> getEntityParameters() {
+        if (Objects.isNull(entityParameters)) {
+            if (parameter instanceof Map) {
+                Set<Object> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+                List<Object> params = new ArrayList<>();
+                for (Object param : ((Map<?, ?>) parameter).values()) {
+                    if (Objects.isNull(param) || SimpleTypeRegistry.isSimpleType(param.getClass()) || param instanceof AbstractWrapper) {
+                        continue;
+                    }
+                    if (seen.add(param)) {
+                        params.add(param);
+                    }
+                }
+                entityParameters = Collections.unmodifiableList(params);
+            } else if (Objects.nonNull(parameter) && !SimpleTypeRegistry.isSimpleType(parameter.getClass())) {
+                entityParameters = Collections.singletonList(parameter);
+            } else {
+                entityParameters = Collections.emptyList();
+            }
+        }
+        return entityParameters;
+    }
+
+    /**
+     * 新增、更新操作的实体参数：
+     * 1、通过MybatisPlus自带API（save、insert等）新增时为参数本身
+     * 2、通过MybatisPlus自带API（update、updateById等）修改时为 et 参数
+     * 3、通过在mapper.xml中自定义API修改时为 entity 参数
+     * @return 实体参数，不存在时返回 null
+     */
+    public Object getUpdateEntity() {
+        if (!updateEntityResolved) {
+            if (parameter instanceof Map) {
+                Map<?, ?> paramMap = (Map<?, ?>) parameter;
+                Object param;
+                if (paramMap.containsKey(Constants.ENTITY) && null != (param = paramMap.get(Constants.ENTITY))) {
+                    updateEntity = param;
+                } else if (paramMap.containsKey(EnhanceConstants.CUSTOM_ENTITY) && null != (param = paramMap.get(EnhanceConstants.CUSTOM_ENTITY))) {
+                    updateEntity = param;
+                }
+            } else if (Objects.nonNull(parameter) && !SimpleTypeRegistry.isSimpleType(parameter.getClass())) {
+                updateEntity = parameter;
+            }
+            updateEntityResolved = true;
+        }
+        return updateEntity;
+    }
+
+    /**
+     * 参数中的 Wrapper（ew 参数）
+     * @return Wrapper，不存在时返回 null
+     */
+    public AbstractWrapper<?, ?, ?> getWrapper() {
+        if (parameter instanceof Map) {
+            Map<?, ?> paramMap = (Map<?, ?>) parameter;
+            Object param = paramMap.containsKey(Constants.WRAPPER) ? paramMap.get(Constants.WRAPPER) : null;
+            if (param instanceof AbstractWrapper) {
+                return (AbstractWrapper<?, ?, ?>) param;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 参数中的 UpdateWrapper、LambdaUpdateWrapper
+     * @return UpdateWrapper，不存在时返回 null
+     */
+    public AbstractWrapper<?, ?, ?> getUpdateWrapper() {
+        AbstractWrapper<?, ?, ?> wrapper = getWrapper();
+        return wrapper instanceof Update ? wrapper : null;
+    }
+
+    /**
+     * UpdateWrapper 的 SET 子句索引
+     * @return SET 子句索引，参数中没有 UpdateWrapper 时返回 null
+     */
+    public SqlSetIndex getSqlSetIndex() {
+        AbstractWrapper<?, ?, ?> updateWrapper = getUpdateWrapper();
+        if (Objects.isNull(updateWrapper)) {
+            return null;
+        }
+        // SET 子句可能被前一个拦截器修改，SqlSetIndex.of 会校验并在变化时重建
+        if (Objects.isNull(sqlSetIndex) || !sqlSetIndex.getSqlSet().equals(StringUtils.defaultString(((Update<?, ?>) updateWrapper).getSqlSet()))) {
+            sqlSetIndex = SqlSetIndex.of(updateWrapper);
+        }
+        return sqlSetIndex;
+    }
+
+}
@@ -0,0 +1,36 @@
+package com.baomidou.mybatisplus.enhance.interceptor;
+
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.util.function.Consumer;
+
+/**
+ * 逐行处理查询结果的 ResultHandler
+ * <p>
+ * 通过 ResultHandler 接收的查询结果不会出现在 executor.query 返回的 List 中，因此在每一行交给调用方的 ResultHandler 之前，
+ * 先执行解密、脱敏、验签等查询后置处理，不需要把全部结果加载到内存中。
+ * </p>
+ */
+public class EnhanceResultHandler implements ResultHandler<Object> {
+
+    private final ResultHandler<Object> delegate;
+    private final Consumer<Object> rowProcessor;
+
+    /**
+     * @param delegate 调用方的 ResultHandler
+     * @param rowProcessor 单行查询后置处理
+     */
+    @SuppressWarnings("unchecked")
+    public EnhanceResultHandler(ResultHandler<?> delegate, Consumer<Object> rowProcessor) {
+        this.delegate = (ResultHandler<Object>) delegate;
+        this.rowProcessor = rowProcessor;
+    }
+
+    @Override
+    public void handleResult(ResultContext<?> resultContext) {
+        rowProcessor.accept(resultContext.getResultObject());
+        delegate.handleResult(resultContext);
+    }
+
+}
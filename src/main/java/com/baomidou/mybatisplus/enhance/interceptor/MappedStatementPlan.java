@@ -0,0 +1,294 @@
+package com.baomidou.mybatisplus.enhance.interceptor;
+
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.core.toolkit.AnnotationUtils;
+import com.baomidou.mybatisplus.enhance.crypto.annotation.EncryptedTable;
+import com.baomidou.mybatisplus.enhance.crypto.annotation.IgnoreEncrypted;
+import com.baomidou.mybatisplus.enhance.crypto.annotation.IgnoreSignature;
+import com.baomidou.mybatisplus.enhance.crypto.annotation.TableSignature;
+import com.baomidou.mybatisplus.enhance.datascope.annotation.DataScopePlus;
+import com.baomidou.mybatisplus.enhance.i18n.annotation.I18nMapper;
+import com.baomidou.mybatisplus.enhance.i18n.annotation.I18nSwitch;
+import com.baomidou.mybatisplus.enhance.interceptor.inner.EnhanceInnerInterceptor;
+import com.baomidou.mybatisplus.enhance.util.EncryptedParamPlan;
+import com.baomidou.mybatisplus.enhance.util.MapperMethodRegistry;
+import com.baomidou.mybatisplus.enhance.util.TableFieldHelper;
+import com.baomidou.mybatisplus.extension.plugins.inner.InnerInterceptor;
+import lombok.Getter;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.type.SimpleTypeRegistry;
+
+import java.io.Serializable;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.*;
+import java.util.*;
+
+/**
+ * MappedStatement 执行计划
+ * <p>
+ * 在首次执行某个 MappedStatement 时构建一次，记录：
+ * 1、Mapper 方法及方法上的 @IgnoreEncrypted、@IgnoreSignature、@DataScopePlus、@I18nMapper、@I18nSwitch 注解
+ * 2、参数与查询结果中可能出现的 @EncryptedTable、@TableSignature 实体类
+ * 3、查询前置、查询后置、更新前置、StatementHandler 各阶段实际需要执行的 InnerInterceptor
+ * 之后的每次执行只运行计划中记录的拦截器，不再重复进行反射和注解查找。
+ * </p>
+ */
+@Getter
+public class MappedStatementPlan {
+
+    /**
+     * MappedStatement Id
+     */
+    private final String mappedStatementId;
+    /**
+     * Mapper 方法，XML 或动态生成的 MappedStatement 可能为空
+     */
+    private final Method mapperMethod;
+    /**
+     * Mapper 对应的实体类，非 MybatisPlus 管理的 Mapper 为空
+     */
+    private final Class<?> entityClass;
+    /**
+     * 是否被 @IgnoreEncrypted 注解
+     */
+    private final boolean ignoreEncrypted;
+    /**
+     * 是否被 @IgnoreSignature 注解
+     */
+    private final boolean ignoreSignature;
+    /**
+     * 是否启用了 @DataScopePlus 数据权限
+     */
+    private final boolean dataScope;
+    /**
+     * 是否被 @I18nMapper 或 @I18nSwitch 注解
+     */
+    private final boolean i18n;
+    /**
+     * 参数和查询结果中被 @EncryptedTable 注解的实体类
+     */
+    private final Set<Class<?>> encryptedEntityClasses;
+    /**
+     * 参数和查询结果中被 @TableSignature 注解的实体类
+     */
+    private final Set<Class<?>> signatureEntityClasses;
+    /**
+     * 参数中是否可能包含 @EncryptedTable 实体（参数类型无法确定时为 true），或存在需要加密的简单类型参数
+     */
+    private final boolean encryptedParameter;
+    /**
+     * 查询结果中是否可能包含 @EncryptedTable 实体（结果类型无法确定时为 true）
+     */
+    private final boolean encryptedResult;
+    /**
+     * 参数中是否可能包含 @TableSignature 实体（参数类型无法确定时为 true）
+     */
+    private final boolean signatureParameter;
+    /**
+     * 查询结果中是否可能包含 @TableSignature 实体（结果类型无法确定时为 true）
+     */
+    private final boolean signatureResult;
+    /**
+     * 查询前置（willDoQuery、beforeQuery）需要执行的拦截器
+     */
+    private final List<InnerInterceptor> queryInterceptors;
+    /**
+     * 查询后置（afterQuery）需要执行的拦截器
+     */
+    private final List<EnhanceInnerInterceptor> afterQueryInterceptors;
+    /**
+     * 更新前置（willDoUpdate、beforeUpdate）需要执行的拦截器
+     */
+    private final List<InnerInterceptor> updateInterceptors;
+    /**
+     * StatementHandler 阶段（beforeGetBoundSql、beforePrepare）需要执行的拦截器
+     */
+    private final List<InnerInterceptor> statementInterceptors;
+
+    private MappedStatementPlan(MappedStatement ms, Class<?> mapperClass, Method mapperMethod, Class<?> entityClass,
+                                TypeScan parameterScan, TypeScan resultScan, List<InnerInterceptor> interceptors) {
+        this.mappedStatementId = ms.getId();
+        this.mapperMethod = mapperMethod;
+        this.entityClass = entityClass;
+        this.ignoreEncrypted = MapperMethodRegistry.get(mappedStatementId).isMethodAnnotationPresent(IgnoreEncrypted.class);
+        this.ignoreSignature = MapperMethodRegistry.get(mappedStatementId).isMethodAnnotationPresent(IgnoreSignature.class);
+        this.dataScope = isDataScopeEnabled(mapperClass, mapperMethod);
+        this.i18n = Objects.nonNull(mapperMethod) && (Objects.nonNull(AnnotationUtils.findFirstAnnotation(I18nMapper.class, mapperMethod))
+                || Objects.nonNull(AnnotationUtils.findFirstAnnotation(I18nSwitch.class, mapperMethod)));
+        Set<Class<?>> encrypted = new LinkedHashSet<>();
+        Set<Class<?>> signature = new LinkedHashSet<>();
+        this.encryptedParameter = parameterScan.mayContain(EncryptedTable.class, encrypted) || !EncryptedParamPlan.get(ms).isEmpty();
+        this.encryptedResult = resultScan.mayContain(EncryptedTable.class, encrypted);
+        this.signatureParameter = parameterScan.mayContain(TableSignature.class, signature);
+        this.signatureResult = resultScan.mayContain(TableSignature.class, signature);
+        this.encryptedEntityClasses = Collections.unmodifiableSet(encrypted);
+        this.signatureEntityClasses = Collections.unmodifiableSet(signature);
+        // 按阶段筛选实际需要执行的拦截器，非 EnhanceInnerInterceptor 一律保留
+        List<InnerInterceptor> query = new ArrayList<>(interceptors.size());
+        List<EnhanceInnerInterceptor> afterQuery = new ArrayList<>(interceptors.size());
+        List<InnerInterceptor> update = new ArrayList<>(interceptors.size());
+        List<InnerInterceptor> statement = new ArrayList<>(interceptors.size());
+        for (InnerInterceptor interceptor : interceptors) {
+            if (!(interceptor instanceof EnhanceInnerInterceptor)) {
+                query.add(interceptor);
+                update.add(interceptor);
+                statement.add(interceptor);
+                continue;
+            }
+            EnhanceInnerInterceptor enhanceInterceptor = (EnhanceInnerInterceptor) interceptor;
+            if (enhanceInterceptor.isApplicableBefore(this)) {
+                query.add(interceptor);
+                update.add(interceptor);
+                statement.add(interceptor);
+            }
+            if (ms.getSqlCommandType() == SqlCommandType.SELECT && enhanceInterceptor.isApplicableAfter(this)) {
+                afterQuery.add(enhanceInterceptor);
+            }
+        }
+        this.queryInterceptors = Collections.unmodifiableList(query);
+        this.afterQueryInterceptors = Collections.unmodifiableList(afterQuery);
+        this.updateInterceptors = Collections.unmodifiableList(update);
+        this.statementInterceptors = Collections.unmodifiableList(statement);
+    }
+
+    /**
+     * 构建 MappedStatement 执行计划
+     * @param ms MappedStatement
+     * @param interceptors 当前注册的全部 InnerInterceptor
+     * @return 执行计划
+     */
+    public static MappedStatementPlan build(MappedStatement ms, List<InnerInterceptor> interceptors) {
+        String mappedStatementId = ms.getId();
+        // 1、解析 Mapper 方法
+        MapperMethodRegistry.MapperMethod resolved = MapperMethodRegistry.get(mappedStatementId);
+        Class<?> mapperClass = resolved.getMapperClass();
+        Method mapperMethod = resolved.getMethod();
+        // 2、解析 Mapper 对应的实体类
+        Class<?> entityClass = TableFieldHelper.getEntityClass(mappedStatementId);
+        // 3、解析参数类型
+        TypeScan parameterScan = new TypeScan(entityClass);
+        if (Objects.nonNull(mapperMethod)) {
+            for (Type parameterType : mapperMethod.getGenericParameterTypes()) {
+                parameterScan.add(parameterType);
+            }
+        } else {
+            parameterScan.add(ms.getParameterMap().getType());
+        }
+        // 4、解析查询结果类型
+        TypeScan resultScan = new TypeScan(entityClass);
+        for (ResultMap resultMap : ms.getResultMaps()) {
+            if (Objects.nonNull(resultMap.getDiscriminator())) {
+                resultScan.unresolved();
+            }
+            // Map 类型的结果行无法关联到实体类注解，解密和验签都不会处理
+            if (!Map.class.isAssignableFrom(resultMap.getType())) {
+                resultScan.add(resultMap.getType());
+            }
+        }
+        return new MappedStatementPlan(ms, mapperClass, mapperMethod, entityClass, parameterScan, resultScan, interceptors);
+    }
+
+    /**
+     * DataScope注解优先级：【类上 > 方法上】
+     */
+    private static boolean isDataScopeEnabled(Class<?> mapperClass, Method mapperMethod) {
+        if (Objects.isNull(mapperClass)) {
+            return false;
+        }
+        DataScopePlus dataScope = mapperClass.getAnnotation(DataScopePlus.class);
+        if (Objects.nonNull(dataScope) && dataScope.enabled()) {
+            return true;
+        }
+        if (Objects.isNull(mapperMethod)) {
+            return false;
+        }
+        dataScope = mapperMethod.getAnnotation(DataScopePlus.class);
+        return Objects.nonNull(dataScope) && dataScope.enabled();
+    }
+
+    /**
+     * 参数或结果的类型收集器，无法确定具体类型时记为未解析，按可能包含处理
+     */
+    private static class TypeScan {
+
+        private final Class<?> entityClass;
+        private final Set<Class<?>> types = new LinkedHashSet<>();
+        private boolean resolved = true;
+
+        TypeScan(Class<?> entityClass) {
+            this.entityClass = entityClass;
+        }
+
+        void unresolved() {
+            this.resolved = false;
+        }
+
+        void add(Type type) {
+            if (type instanceof Class) {
+                addClass((Class<?>) type);
+            } else if (type instanceof ParameterizedType) {
+                ParameterizedType parameterizedType = (ParameterizedType) type;
+                Class<?> rawType = (Class<?>) parameterizedType.getRawType();
+                if (Collection.class.isAssignableFrom(rawType)) {
+                    add(parameterizedType.getActualTypeArguments()[0]);
+                } else {
+                    addClass(rawType);
+                }
+            } else if (type instanceof GenericArrayType) {
+                add(((GenericArrayType) type).getGenericComponentType());
+            } else if (type instanceof WildcardType) {
+                add(((WildcardType) type).getUpperBounds()[0]);
+            } else if (type instanceof TypeVariable) {
+                // Mapper 泛型参数，例如 BaseMapper<T> 中的 T；有上界的方法泛型按上界处理，例如 <P extends IPage<T>>
+                Type bound = ((TypeVariable<?>) type).getBounds()[0];
+                if (Object.class == bound) {
+                    addEntityClass();
+                } else {
+                    add(bound);
+                }
+            } else {
+                unresolved();
+            }
+        }
+
+        private void addClass(Class<?> clazz) {
+            if (Objects.isNull(clazz) || SimpleTypeRegistry.isSimpleType(clazz) || Serializable.class == clazz
+                    || IPage.class.isAssignableFrom(clazz)) {
+                return;
+            }
+            if (clazz.isArray()) {
+                add(clazz.getComponentType());
+            } else if (Wrapper.class.isAssignableFrom(clazz)) {
+                addEntityClass();
+            } else if (Object.class == clazz || Map.class.isAssignableFrom(clazz) || Collection.class.isAssignableFrom(clazz)) {
+                unresolved();
+            } else {
+                types.add(clazz);
+            }
+        }
+
+        private void addEntityClass() {
+            if (Objects.isNull(entityClass)) {
+                unresolved();
+            } else {
+                types.add(entityClass);
+            }
+        }
+
+        boolean mayContain(Class<? extends Annotation> annotationType, Set<Class<?>> matched) {
+            boolean contains = !resolved;
+            for (Class<?> type : types) {
+                if (Objects.nonNull(AnnotationUtils.findFirstAnnotation(annotationType, type))) {
+                    matched.add(type);
+                    contains = true;
+                }
+            }
+            return contains;
+        }
+
+    }
+
+}
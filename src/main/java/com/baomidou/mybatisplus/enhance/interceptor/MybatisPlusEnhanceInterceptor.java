@@ -1,23 +1,37 @@
 package com.baomidou.mybatisplus.enhance.interceptor;
 
+import com.baomidou.mybatisplus.core.toolkit.ExceptionUtils;
+import com.baomidou.mybatisplus.core.toolkit.PluginUtils;
 import com.baomidou.mybatisplus.enhance.interceptor.inner.EnhanceInnerInterceptor;
+import com.baomidou.mybatisplus.enhance.util.MapperMethodRegistry;
 import com.baomidou.mybatisplus.extension.plugins.MybatisPlusInterceptor;
 import com.baomidou.mybatisplus.extension.plugins.inner.InnerInterceptor;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.statement.StatementHandler;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.mapping.SqlCommandType;
 import org.apache.ibatis.plugin.Intercepts;
 import org.apache.ibatis.plugin.Invocation;
 import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.reflection.property.PropertyTokenizer;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 
 import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
 
 /**
  * MybatisPlus 解密和签名验证拦截器，用于替代 MybatisPlus 的原生拦截器，实现对数据库字段的解密和签名验证操作
@@ -30,11 +44,21 @@ import java.util.List;
         @Signature(type = StatementHandler.class, method = "getBoundSql", args = {}),
         @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}),
         @Signature(type = Executor.class, method = "query", args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
-        @Signature(type = Executor.class, method = "query", args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class, BoundSql.class})
+        @Signature(type = Executor.class, method = "query", args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class, BoundSql.class}),
+        @Signature(type = Executor.class, method = "queryCursor", args = {MappedStatement.class, Object.class, RowBounds.class})
     }
 )
 public class MybatisPlusEnhanceInterceptor extends MybatisPlusInterceptor {
 
+    /**
+     * MappedStatement 执行计划缓存，key 为 MappedStatement 实例（弱引用，按实例比较）；
+     * 分页插件等动态生成的 MappedStatement 被回收后对应的执行计划随之清除，同时限制缓存数量上限
+     */
+    private final Cache<MappedStatement, MappedStatementPlan> planCache = Caffeine.newBuilder()
+            .weakKeys()
+            .maximumSize(MapperMethodRegistry.MAXIMUM_SIZE)
+            .build();
+
     @Override
     public Object intercept(Invocation invocation) throws Throwable {
         Object target = invocation.getTarget();
@@ -44,6 +68,9 @@ public class MybatisPlusEnhanceInterceptor extends MybatisPlusInterceptor {
             Object parameter = args[1];
             boolean isUpdate = args.length == 2;
             MappedStatement ms = (MappedStatement) args[0];
+            if (args.length == 3) {
+                return queryCursor(executor, ms, parameter, (RowBounds) args[2]);
+            }
             if (!isUpdate && ms.getSqlCommandType() == SqlCommandType.SELECT) {
                 RowBounds rowBounds = (RowBounds) args[2];
                 ResultHandler<?> resultHandler = (ResultHandler<?>) args[3];
@@ -54,42 +81,58 @@ public class MybatisPlusEnhanceInterceptor extends MybatisPlusInterceptor {
                     // 几乎不可能走进这里面,除非使用Executor的代理对象调用query[args[6]]
                     boundSql = (BoundSql) args[5];
                 }
-                for (InnerInterceptor interceptor : super.getInterceptors()) {
+                MappedStatementPlan plan = getPlan(ms);
+                // 本次调用的上下文，拦截器链共享参数提取等结果
+                EnhanceInvocationContext context = EnhanceInvocationContext.ofQuery(executor, ms, parameter, rowBounds, resultHandler, boundSql, plan);
+                for (InnerInterceptor interceptor : plan.getQueryInterceptors()) {
                     if (!interceptor.willDoQuery(executor, ms, parameter, rowBounds, resultHandler, boundSql)) {
                         return Collections.emptyList();
                     }
-                    interceptor.beforeQuery(executor, ms, parameter, rowBounds, resultHandler, boundSql);
+                    if (interceptor instanceof EnhanceInnerInterceptor) {
+                        ((EnhanceInnerInterceptor) interceptor).beforeQuery(context);
+                    } else {
+                        interceptor.beforeQuery(executor, ms, parameter, rowBounds, resultHandler, boundSql);
+                    }
                 }
                 CacheKey cacheKey = executor.createCacheKey(ms, parameter, rowBounds, boundSql);
+                // 通过 ResultHandler 接收的查询结果不在返回的 List 中，逐行执行查询后置处理
+                if (Objects.nonNull(resultHandler) && !plan.getAfterQueryInterceptors().isEmpty()) {
+                    return executor.query(ms, parameter, rowBounds, new EnhanceResultHandler(resultHandler, rowProcessor(plan, context)), cacheKey, boundSql);
+                }
                 List<Object> rtList = executor.query(ms, parameter, rowBounds, resultHandler, cacheKey, boundSql);
                 // 增加查询完成后的增强逻辑
-                for (InnerInterceptor interceptor : super.getInterceptors()) {
-                    if(interceptor instanceof EnhanceInnerInterceptor){
-                        EnhanceInnerInterceptor innerInterceptor = (EnhanceInnerInterceptor) interceptor;
-                        innerInterceptor.afterQuery(executor, ms, parameter, rowBounds, resultHandler, boundSql, rtList);
-                    }
+                for (EnhanceInnerInterceptor innerInterceptor : plan.getAfterQueryInterceptors()) {
+                    innerInterceptor.afterQuery(context, rtList);
                 }
                 return rtList;
             } else if (isUpdate) {
-                for (InnerInterceptor update : super.getInterceptors()) {
+                MappedStatementPlan plan = getPlan(ms);
+                EnhanceInvocationContext context = EnhanceInvocationContext.ofUpdate(executor, ms, parameter, plan);
+                for (InnerInterceptor update : plan.getUpdateInterceptors()) {
                     if (!update.willDoUpdate(executor, ms, parameter)) {
                         return -1;
                     }
-                    update.beforeUpdate(executor, ms, parameter);
+                    if (update instanceof EnhanceInnerInterceptor) {
+                        ((EnhanceInnerInterceptor) update).beforeUpdate(context);
+                    } else {
+                        update.beforeUpdate(executor, ms, parameter);
+                    }
                 }
             }
         } else {
             // StatementHandler
             final StatementHandler sh = (StatementHandler) target;
+            // 按 StatementHandler 对应的 MappedStatement 执行计划，只执行需要的拦截器
+            MappedStatementPlan plan = getPlan(PluginUtils.mpStatementHandler(sh).mappedStatement());
             // 目前只有StatementHandler.getBoundSql方法args才为null
             if (null == args) {
-                for (InnerInterceptor innerInterceptor : super.getInterceptors()) {
+                for (InnerInterceptor innerInterceptor : plan.getStatementInterceptors()) {
                     innerInterceptor.beforeGetBoundSql(sh);
                 }
             } else {
                 Connection connections = (Connection) args[0];
                 Integer transactionTimeout = (Integer) args[1];
-                for (InnerInterceptor innerInterceptor : super.getInterceptors()) {
+                for (InnerInterceptor innerInterceptor : plan.getStatementInterceptors()) {
                     innerInterceptor.beforePrepare(sh, connections, transactionTimeout);
                 }
             }
@@ -97,6 +140,143 @@ public class MybatisPlusEnhanceInterceptor extends MybatisPlusInterceptor {
         return invocation.proceed();
     }
 
+    /**
+     * 游标查询：执行查询前置处理，并将返回的 Cursor 包装为逐行执行查询后置处理的 {@link EnhanceCursor}
+     * <p>
+     * Executor.queryCursor 内部会重新生成 BoundSql，前置处理对 BoundSql 的改写（例如加密参数、改写加密字段条件）会丢失，
+     * 因此前置处理改写了 BoundSql 时，使用返回已处理 BoundSql 的 MappedStatement 副本执行查询
+     * </p>
+     */
+    private Object queryCursor(Executor executor, MappedStatement ms, Object parameter, RowBounds rowBounds) throws SQLException {
+        MappedStatementPlan plan = getPlan(ms);
+        BoundSql boundSql = ms.getBoundSql(parameter);
+        EnhanceInvocationContext context = EnhanceInvocationContext.ofCursor(executor, ms, parameter, rowBounds, boundSql, plan);
+        MappedStatement queryMs = ms;
+        if (!plan.getQueryInterceptors().isEmpty()) {
+            // 记录前置处理之前的 SQL、参数映射和附加参数，用于判断 BoundSql 是否被改写
+            String sql = boundSql.getSql();
+            List<ParameterMapping> parameterMappings = new ArrayList<>(boundSql.getParameterMappings());
+            Map<String, Object> additionalParameters = new HashMap<>(boundSql.getAdditionalParameters());
+            for (InnerInterceptor interceptor : plan.getQueryInterceptors()) {
+                if (!interceptor.willDoQuery(executor, ms, parameter, rowBounds, null, boundSql)) {
+                    return EnhanceCursor.empty();
+                }
+                if (interceptor instanceof EnhanceInnerInterceptor) {
+                    ((EnhanceInnerInterceptor) interceptor).beforeQuery(context);
+                } else {
+                    interceptor.beforeQuery(executor, ms, parameter, rowBounds, null, boundSql);
+                }
+            }
+            if (isBoundSqlChanged(boundSql, sql, parameterMappings, additionalParameters)) {
+                queryMs = copyWithBoundSql(ms, boundSql);
+            }
+        }
+        Cursor<Object> cursor = executor.queryCursor(queryMs, parameter, rowBounds);
+        if (plan.getAfterQueryInterceptors().isEmpty()) {
+            return cursor;
+        }
+        return new EnhanceCursor<>(cursor, rowProcessor(plan, context));
+    }
+
+    /**
+     * BoundSql 的 SQL、参数映射，或参数映射引用的附加参数是否已被改写
+     */
+    private static boolean isBoundSqlChanged(BoundSql boundSql, String sql, List<ParameterMapping> parameterMappings, Map<String, Object> additionalParameters) {
+        if (!Objects.equals(sql, boundSql.getSql()) || !parameterMappings.equals(boundSql.getParameterMappings())) {
+            return true;
+        }
+        Map<String, Object> currentParameters = boundSql.getAdditionalParameters();
+        for (ParameterMapping parameterMapping : parameterMappings) {
+            String name = new PropertyTokenizer(parameterMapping.getProperty()).getName();
+            if (currentParameters.containsKey(name) != additionalParameters.containsKey(name)
+                    || currentParameters.get(name) != additionalParameters.get(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 单行查询后置处理，用于 ResultHandler 和 Cursor 逐行处理查询结果
+     */
+    private static Consumer<Object> rowProcessor(MappedStatementPlan plan, EnhanceInvocationContext context) {
+        List<EnhanceInnerInterceptor> interceptors = plan.getAfterQueryInterceptors();
+        return row -> {
+            for (EnhanceInnerInterceptor innerInterceptor : interceptors) {
+                try {
+                    innerInterceptor.afterQueryRow(context, row);
+                } catch (SQLException e) {
+                    throw ExceptionUtils.mpe(e);
+                }
+            }
+        };
+    }
+
+    /**
+     * 复制 MappedStatement，副本始终返回指定的 BoundSql
+     */
+    private static MappedStatement copyWithBoundSql(MappedStatement ms, BoundSql boundSql) {
+        MappedStatement.Builder builder = new MappedStatement.Builder(ms.getConfiguration(), ms.getId(), parameterObject -> boundSql, ms.getSqlCommandType())
+                .resource(ms.getResource())
+                .fetchSize(ms.getFetchSize())
+                .timeout(ms.getTimeout())
+                .statementType(ms.getStatementType())
+                .resultSetType(ms.getResultSetType())
+                .parameterMap(ms.getParameterMap())
+                .resultMaps(ms.getResultMaps())
+                .keyGenerator(ms.getKeyGenerator())
+                .cache(ms.getCache())
+                .flushCacheRequired(ms.isFlushCacheRequired())
+                .useCache(ms.isUseCache())
+                .resultOrdered(ms.isResultOrdered())
+                .databaseId(ms.getDatabaseId())
+                .lang(ms.getLang())
+                .dirtySelect(ms.isDirtySelect());
+        if (Objects.nonNull(ms.getKeyProperties())) {
+            builder.keyProperty(String.join(",", ms.getKeyProperties()));
+        }
+        if (Objects.nonNull(ms.getKeyColumns())) {
+            builder.keyColumn(String.join(",", ms.getKeyColumns()));
+        }
+        if (Objects.nonNull(ms.getResultSets())) {
+            builder.resultSets(String.join(",", ms.getResultSets()));
+        }
+        return builder.build();
+    }
+
+    /**
+     * 获取 MappedStatement 执行计划，首次执行时构建
+     * @param ms MappedStatement
+     * @return 执行计划
+     */
+    public MappedStatementPlan getPlan(MappedStatement ms) {
+        MappedStatementPlan plan = planCache.getIfPresent(ms);
+        if (plan == null) {
+            plan = planCache.get(ms, key -> MappedStatementPlan.build(key, super.getInterceptors()));
+        }
+        return plan;
+    }
+
+    /**
+     * 当前缓存的执行计划数量，先完成被回收、超出上限的执行计划的清除
+     */
+    long getPlanCount() {
+        planCache.cleanUp();
+        return planCache.estimatedSize();
+    }
+
+    @Override
+    public void addInnerInterceptor(InnerInterceptor innerInterceptor) {
+        super.addInnerInterceptor(innerInterceptor);
+        planCache.invalidateAll();
+    }
+
+    @Override
+    public void setInterceptors(List<InnerInterceptor> interceptors) {
+        super.setInterceptors(interceptors);
+        planCache.invalidateAll();
+    }
+
     @Override
     public String toString() {
         return "MybatisPlusEnhanceInterceptor{interceptors=" + getInterceptors() + "}";
@@ -1,12 +1,11 @@
 package com.baomidou.mybatisplus.enhance.interceptor.inner;
 
-import cn.hutool.core.util.ReflectUtil;
-import com.baomidou.mybatisplus.core.toolkit.AnnotationUtils;
-import com.baomidou.mybatisplus.core.toolkit.ObjectUtils;
-import com.baomidou.mybatisplus.enhance.crypto.annotation.IgnoreEncrypted;
 import com.baomidou.mybatisplus.enhance.crypto.handler.DataEncryptionHandler;
 import com.baomidou.mybatisplus.enhance.crypto.handler.DefaultDataEncryptionHandler;
 import com.baomidou.mybatisplus.enhance.crypto.handler.EncryptedFieldHandler;
+import com.baomidou.mybatisplus.enhance.interceptor.EnhanceInvocationContext;
+import com.baomidou.mybatisplus.enhance.interceptor.MappedStatementPlan;
+import com.baomidou.mybatisplus.enhance.util.ParallelUtils;
 import com.baomidou.mybatisplus.enhance.util.ParameterUtils;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
@@ -17,10 +16,10 @@ import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.type.SimpleTypeRegistry;
 
-import java.lang.reflect.Method;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * 数据解密拦截器，用于对查询结果进行解密操作
@@ -32,6 +31,16 @@ public class DataDecryptionInnerInterceptor implements EnhanceInnerInterceptor {
     private final DataEncryptionHandler dataEncryptionHandler;
     @Getter
     private final boolean decryptSwitch;
+    /**
+     * 并行解密阈值，查询结果行数达到该值时并行解密；小于等于 0 时不启用并行解密
+     */
+    @Getter
+    private final int parallelThreshold;
+    /**
+     * 并行解密使用的线程池，为空时使用 {@link ForkJoinPool#commonPool()}
+     */
+    @Getter
+    private final java.util.concurrent.Executor parallelExecutor;
 
     public DataDecryptionInnerInterceptor(EncryptedFieldHandler encryptedFieldHandler) {
         this(new DefaultDataEncryptionHandler(encryptedFieldHandler), true);
@@ -46,43 +55,84 @@ public class DataDecryptionInnerInterceptor implements EnhanceInnerInterceptor {
     }
 
     public DataDecryptionInnerInterceptor(DataEncryptionHandler dataEncryptionHandler, boolean decryptSwitch) {
+        this(dataEncryptionHandler, decryptSwitch, 0, null);
+    }
+
+    /**
+     * @param dataEncryptionHandler 加解密处理器，启用并行解密时必须是线程安全的
+     * @param decryptSwitch 是否启用解密
+     * @param parallelThreshold 并行解密阈值，查询结果行数达到该值时按行切分并行解密；小于等于 0 时不启用
+     * @param parallelExecutor 并行解密使用的线程池，为空时使用 {@link ForkJoinPool#commonPool()}；JDK 21 可传入虚拟线程 Executor
+     */
+    public DataDecryptionInnerInterceptor(DataEncryptionHandler dataEncryptionHandler, boolean decryptSwitch, int parallelThreshold, java.util.concurrent.Executor parallelExecutor) {
         super();
         this.decryptSwitch = decryptSwitch;
         this.dataEncryptionHandler = dataEncryptionHandler;
+        this.parallelThreshold = parallelThreshold;
+        this.parallelExecutor = Objects.isNull(parallelExecutor) ? ForkJoinPool.commonPool() : parallelExecutor;
+    }
+
+    /**
+     * 解密拦截器没有前置处理
+     */
+    @Override
+    public boolean isApplicableBefore(MappedStatementPlan plan) {
+        return false;
+    }
+
+    /**
+     * 未被 @IgnoreEncrypted 注解，且查询结果中可能包含 @EncryptedTable 实体时才需要解密
+     */
+    @Override
+    public boolean isApplicableAfter(MappedStatementPlan plan) {
+        return decryptSwitch && !plan.isIgnoreEncrypted() && plan.isEncryptedResult();
     }
 
     @Override
     public void afterQuery(Executor executor, MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler<?> resultHandler, BoundSql boundSql, List<Object> rtList) throws SQLException {
+        afterQuery(EnhanceInvocationContext.ofQuery(executor, ms, parameter, rowBounds, resultHandler, boundSql, null), rtList);
+    }
+
+    @Override
+    public void afterQuery(EnhanceInvocationContext context, List<Object> rtList) throws SQLException {
         // 1、如果参数为空，或者参数元素为0，或全局未启用 则直接返回
         if (ParameterUtils.isSwitchOff(decryptSwitch, rtList)) {
             log.debug("DataDecryptionInnerInterceptor.afterQuery decryptSwitch is off, return directly.");
             return;
         }
-        // 2、检查Mapper接口类和方法名
-        try {
-            String mappedStatementId = ms.getId();
-            Class<?> mapperClazz = Class.forName(mappedStatementId.substring(0, mappedStatementId.lastIndexOf(".")));
-            String methodName = mappedStatementId.substring(mappedStatementId.lastIndexOf(".") + 1);
-            Method method = ReflectUtil.getMethodByName(mapperClazz, methodName);
-            if (Objects.nonNull(method)) {
-                // 获取 @EncryptedTable 注解
-                IgnoreEncrypted ignoreEncrypted = AnnotationUtils.findFirstAnnotation(IgnoreEncrypted.class, method);
-                if (ObjectUtils.isNotEmpty(ignoreEncrypted)) {
-                    log.debug("mappedStatementId：{}, ignoreEncrypted is on, return directly.", mappedStatementId);
-                    return;
-                }
-            }
-        } catch (ClassNotFoundException e) {
-            log.error("DataDecryptionInnerInterceptor.afterQuery ClassNotFoundException", e);
+        // 2、检查Mapper方法是否被 @IgnoreEncrypted 注解
+        if (context.isIgnoreEncrypted()) {
+            log.debug("mappedStatementId：{}, ignoreEncrypted is on, return directly.", context.getMappedStatement().getId());
+            return;
+        }
+        // 3、查询结果行数达到阈值时并行解密，行顺序不变，失败时抛出下标最小的行的异常
+        if (parallelThreshold > 0 && rtList.size() >= parallelThreshold) {
+            ParallelUtils.forEach(rtList, parallelExecutor, this::doRawObjectDecrypt);
+            return;
         }
-        // 3、对查询结果进行解密
+        // 4、对查询结果进行解密
         for (Object rawObject : rtList) {
-            if(Objects.isNull(rawObject) || SimpleTypeRegistry.isSimpleType(rawObject.getClass())){
-                continue;
-            }
-            // 逐一解密
-            getDataEncryptionHandler().doRawObjectDecrypt(rawObject, rawObject.getClass());
+            doRawObjectDecrypt(rawObject);
+        }
+    }
+
+    /**
+     * 逐行解密，不创建单行列表
+     */
+    @Override
+    public void afterQueryRow(EnhanceInvocationContext context, Object row) throws SQLException {
+        if (!decryptSwitch || context.isIgnoreEncrypted()) {
+            return;
+        }
+        doRawObjectDecrypt(row);
+    }
+
+    private void doRawObjectDecrypt(Object rawObject) {
+        if(Objects.isNull(rawObject) || SimpleTypeRegistry.isSimpleType(rawObject.getClass())){
+            return;
         }
+        // 逐一解密
+        getDataEncryptionHandler().doRawObjectDecrypt(rawObject, rawObject.getClass());
     }
 
 }
@@ -1,40 +1,83 @@
 package com.baomidou.mybatisplus.enhance.interceptor.inner;
 
-import cn.hutool.core.util.ReflectUtil;
 import com.baomidou.mybatisplus.core.conditions.AbstractWrapper;
-import com.baomidou.mybatisplus.core.conditions.update.Update;
-import com.baomidou.mybatisplus.core.toolkit.AnnotationUtils;
 import com.baomidou.mybatisplus.core.toolkit.Constants;
-import com.baomidou.mybatisplus.core.toolkit.ObjectUtils;
+import com.baomidou.mybatisplus.core.toolkit.PluginUtils;
+import com.baomidou.mybatisplus.core.toolkit.StringPool;
 import com.baomidou.mybatisplus.enhance.crypto.annotation.IgnoreEncrypted;
 import com.baomidou.mybatisplus.enhance.crypto.handler.DataEncryptionHandler;
 import com.baomidou.mybatisplus.enhance.crypto.handler.DefaultDataEncryptionHandler;
 import com.baomidou.mybatisplus.enhance.crypto.handler.EncryptedFieldHandler;
+import com.baomidou.mybatisplus.enhance.interceptor.EnhanceInvocationContext;
+import com.baomidou.mybatisplus.enhance.interceptor.MappedStatementPlan;
+import com.baomidou.mybatisplus.enhance.util.EncryptedFieldPlan;
+import com.baomidou.mybatisplus.enhance.util.EncryptedParamPlan;
+import com.baomidou.mybatisplus.enhance.util.EncryptedParamPlan.EncryptedParamItem;
 import com.baomidou.mybatisplus.enhance.util.EnhanceConstants;
+import com.baomidou.mybatisplus.enhance.util.MapperMethodRegistry;
 import com.baomidou.mybatisplus.enhance.util.ParameterUtils;
+import com.baomidou.mybatisplus.enhance.util.TableFieldHelper;
 import com.baomidou.mybatisplus.extension.parser.JsqlParserSupport;
-import com.baomidou.mybatisplus.extension.plugins.inner.InnerInterceptor;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import net.sf.jsqlparser.expression.BinaryExpression;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.JdbcParameter;
+import net.sf.jsqlparser.expression.NotExpression;
+import net.sf.jsqlparser.expression.Parenthesis;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.expression.operators.conditional.OrExpression;
+import net.sf.jsqlparser.expression.operators.relational.EqualsTo;
+import net.sf.jsqlparser.expression.operators.relational.ExpressionList;
+import net.sf.jsqlparser.expression.operators.relational.InExpression;
+import net.sf.jsqlparser.expression.operators.relational.NotEqualsTo;
+import net.sf.jsqlparser.expression.operators.relational.ParenthesedExpressionList;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.statement.delete.Delete;
+import net.sf.jsqlparser.statement.select.ParenthesedSelect;
+import net.sf.jsqlparser.statement.select.PlainSelect;
+import net.sf.jsqlparser.statement.select.Select;
+import net.sf.jsqlparser.statement.select.SetOperationList;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.statement.StatementHandler;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.scripting.xmltags.ForEachSqlNode;
+import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.type.SimpleTypeRegistry;
 
-import java.lang.reflect.Method;
+import java.sql.Connection;
 import java.sql.SQLException;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Objects;
-import java.util.Set;
+import java.util.*;
 
 /**
  * 数据加解密拦截器，用于对新增/更新数据进行加密操作
  */
 @Slf4j
-public class DataEncryptionInnerInterceptor extends JsqlParserSupport implements InnerInterceptor {
+public class DataEncryptionInnerInterceptor extends JsqlParserSupport implements EnhanceInnerInterceptor {
+
+    /**
+     * 没有 @Param 注解的单个集合、数组参数，MyBatis 包装为 Map 时使用的参数名
+     */
+    private static final String COLLECTION_PARAM_NAME = "collection";
+    private static final String ARRAY_PARAM_NAME = "array";
+    /**
+     * 查询语句的 BoundSql 已完成加密处理的标记，以附加参数的形式记录；分页插件生成的 count 语句会复制附加参数
+     */
+    private static final String ENCRYPTED_BOUND_SQL_MARKER = EnhanceConstants.ENCRYPTED_PARAM_PREFIX + "processed";
+    /**
+     * 已加密的查询实体参数，按实体实例缓存（弱引用）：实体 → 各加密字段加密后的值
+     */
+    private static final Cache<Object, Object[]> ENCRYPTED_QUERY_ENTITIES = Caffeine.newBuilder()
+            .weakKeys()
+            .build();
 
     @Getter
     private final DataEncryptionHandler dataEncryptionHandler;
@@ -61,61 +104,102 @@ public class DataEncryptionInnerInterceptor extends JsqlParserSupport implements
         this.encryptSwitch = encryptSwitch;
     }
 
+    /**
+     * 未被 @IgnoreEncrypted 注解，且参数中可能包含 @EncryptedTable 实体时才需要加密
+     */
+    @Override
+    public boolean isApplicableBefore(MappedStatementPlan plan) {
+        return encryptSwitch && !plan.isIgnoreEncrypted() && plan.isEncryptedParameter();
+    }
+
+    /**
+     * 加密拦截器没有查询后置处理
+     */
+    @Override
+    public boolean isApplicableAfter(MappedStatementPlan plan) {
+        return false;
+    }
+
     /**
      * 如果查询条件是加密数据列，那么要将查询条件进行数据加密。
      * 例如，手机号加密存储后，按手机号查询时，先把要查询的手机号进行加密，再和数据库存储的加密数据进行匹配
      */
     @Override
     public void beforeQuery(Executor executor, MappedStatement ms, Object parameterObject, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql) throws SQLException {
-        // 1、如果参数为空，或者参数元素为0，或全局未启用 则直接返回
-        if (ParameterUtils.isSwitchOff(encryptSwitch, parameterObject)) {
+        beforeQuery(EnhanceInvocationContext.ofQuery(executor, ms, parameterObject, rowBounds, resultHandler, boundSql, null));
+    }
+
+    @Override
+    public void beforeQuery(EnhanceInvocationContext context) throws SQLException {
+        MappedStatement ms = context.getMappedStatement();
+        Object parameterObject = context.getParameter();
+        // 1、如果参数为空，或全局未启用，或Mapper方法被 @IgnoreEncrypted 注解，则直接返回
+        if (!encryptSwitch || Objects.isNull(parameterObject)) {
             log.debug("DataEncryptionInnerInterceptor.beforeQuery encryptSwitch is off, return directly.");
             return;
         }
-        // 2、检查Mapper接口类和方法名
-        try {
-            String mappedStatementId = ms.getId();
-            Class<?> mapperClazz = Class.forName(mappedStatementId.substring(0, mappedStatementId.lastIndexOf(".")));
-            String methodName = mappedStatementId.substring(mappedStatementId.lastIndexOf(".") + 1);
-            Method method = ReflectUtil.getMethodByName(mapperClazz, methodName);
-            if (Objects.nonNull(method)) {
-                // 获取 @EncryptedTable 注解
-                IgnoreEncrypted ignoreEncrypted = AnnotationUtils.findFirstAnnotation(IgnoreEncrypted.class, method);
-                if (ObjectUtils.isNotEmpty(ignoreEncrypted)) {
-                    log.debug("mappedStatementId：{}, ignoreEncrypted is on, return directly.", mappedStatementId);
-                    return;
-                }
-            }
-        } catch (ClassNotFoundException e) {
-            log.error("DataDecryptionInnerInterceptor.afterQuery ClassNotFoundException", e);
+        if (context.isIgnoreEncrypted()) {
+            log.debug("mappedStatementId：{}, ignoreEncrypted is on, return directly.", ms.getId());
+            return;
         }
-        // 2、如果参数
-        if (!(parameterObject instanceof Map)) {
-            // 对参数进行加密处理
-            getDataEncryptionHandler().doEntityEncrypt(parameterObject);
+        // 2、加密查询参数和查询条件
+        encryptQuery(ms, parameterObject, context.getBoundSql(), context.getEntityParameters());
+    }
+
+    /**
+     * 加密查询参数和查询条件，查询语句的 BoundSql 只处理一次：
+     * 1、@EncryptedParam 注解或与加密字段同名的简单类型参数，见 encryptSimpleParams；参数本身可能就是简单类型
+     * 2、QueryWrapper、LambdaQueryWrapper 条件中的加密字段条件，改写为对密文或盲索引的查询，见 rewriteWrapperCondition
+     * 3、自定义Entity类型的参数，例如：findList(@Param(value = "query") UserEntity query)、findPage(@Param(value = "query") UserEntity query, Page<UserEntity> page)，
+     *    对实体的加密字段进行加密处理，见 encryptQueryEntity；同一个实体多次查询（例如分页的 count 和查询）不会重复加密
+     * @param ms MappedStatement
+     * @param parameterObject 参数
+     * @param boundSql BoundSql
+     * @param entityParameters 已去重的实体参数
+     */
+    protected void encryptQuery(MappedStatement ms, Object parameterObject, BoundSql boundSql, List<Object> entityParameters) {
+        // 1、BoundSql 的改写只执行一次，处理完成后以附加参数标记
+        if (!boundSql.hasAdditionalParameter(ENCRYPTED_BOUND_SQL_MARKER)) {
+            encryptSimpleParams(ms, parameterObject, boundSql);
+            rewriteWrapperCondition(ms, parameterObject, boundSql);
+            boundSql.setAdditionalParameter(ENCRYPTED_BOUND_SQL_MARKER, Boolean.TRUE);
+        }
+        // 2、遍历已去重的实体参数，进行加密处理，去重是因为多次加密会导致查询失败
+        for (Object param : entityParameters) {
+            encryptQueryEntity(param);
+        }
+    }
+
+    /**
+     * 对查询参数中的实体进行加密处理，记录加密后的值；字段值仍是上次加密后的值时跳过，避免重复加密
+     * @param entity 实体参数
+     */
+    protected void encryptQueryEntity(Object entity) {
+        // 1、获取该类的加解密计划，未被@EncryptedTable所注解或没有加密字段则直接返回
+        if (Objects.isNull(entity) || SimpleTypeRegistry.isSimpleType(entity.getClass())) {
             return;
         }
-        // 3、Map类型参数
-        Map<?,?> paramMap = (Map<?,?>) parameterObject;
-        // 4、参数去重，否则多次加密会导致查询失败
-        Set<?> set = new HashSet<>(paramMap.values());
-        // 5、遍历参数，进行加密处理
-        for (Object param : set) {
-            /*
-             *  仅支持类型是自定义Entity的参数，不支持mapper的参数是QueryWrapper、String等，例如：
-             *
-             *  支持：findList(@Param(value = "query") UserEntity query);
-             *  支持：findPage(@Param(value = "query") UserEntity query, Page<UserEntity> page);
-             *
-             *  不支持：findOne(@Param(value = "mobile") String mobile);
-             *  不支持：findList(QueryWrapper wrapper);
-             */
-            if (Objects.isNull(param) || SimpleTypeRegistry.isSimpleType(param.getClass()) || param instanceof AbstractWrapper) {
-                // Wrapper、String类型查询参数，无法获取参数变量上的注解，无法确认是否需要加密，因此不做判断
-                continue;
+        EncryptedFieldPlan plan = TableFieldHelper.getEncryptedFieldPlan(entity.getClass());
+        if (!plan.isEncryptable()) {
+            return;
+        }
+        // 2、逐个字段加密，字段值与上次加密后的值相同（同一对象）时跳过
+        EncryptedFieldPlan.EncryptedFieldItem[] fields = plan.getFields();
+        Object[] encryptedValues = ENCRYPTED_QUERY_ENTITIES.get(entity, key -> new Object[fields.length]);
+        synchronized (encryptedValues) {
+            for (int i = 0; i < fields.length; i++) {
+                EncryptedFieldPlan.EncryptedFieldItem field = fields[i];
+                Object rawValue = field.getAccessor().get(entity);
+                if (Objects.isNull(rawValue) || rawValue == encryptedValues[i]) {
+                    continue;
+                }
+                if (field.hasBlindIndex()) {
+                    field.getBlindIndexAccessor().set(entity, getDataEncryptionHandler().doBlindIndex(rawValue));
+                }
+                String newValue = getDataEncryptionHandler().doValueEncrypt(rawValue);
+                field.getAccessor().set(entity, newValue);
+                encryptedValues[i] = newValue;
             }
-            // 对参数进行加密处理
-            getDataEncryptionHandler().doEntityEncrypt(param);
         }
     }
 
@@ -124,57 +208,393 @@ public class DataEncryptionInnerInterceptor extends JsqlParserSupport implements
      */
     @Override
     public void beforeUpdate(Executor executor, MappedStatement ms, Object parameterObject) throws SQLException {
+        beforeUpdate(EnhanceInvocationContext.ofUpdate(executor, ms, parameterObject, null));
+    }
+
+    @Override
+    public void beforeUpdate(EnhanceInvocationContext context) throws SQLException {
         // 1、如果参数为空，或者参数元素为0，或全局未启用 则直接返回
-        if (ParameterUtils.isSwitchOff(encryptSwitch, parameterObject)) {
+        if (ParameterUtils.isSwitchOff(encryptSwitch, context.getParameter())) {
             log.debug("DataEncryptionInnerInterceptor.beforeUpdate encryptSwitch is off, return directly.");
             return;
         }
-        // 2、检查Mapper接口类和方法名
-        try {
-            String mappedStatementId = ms.getId();
-            Class<?> mapperClazz = Class.forName(mappedStatementId.substring(0, mappedStatementId.lastIndexOf(".")));
-            String methodName = mappedStatementId.substring(mappedStatementId.lastIndexOf(".") + 1);
-            Method method = ReflectUtil.getMethodByName(mapperClazz, methodName);
-            if (Objects.nonNull(method)) {
-                // 获取 @EncryptedTable 注解
-                IgnoreEncrypted ignoreEncrypted = AnnotationUtils.findFirstAnnotation(IgnoreEncrypted.class, method);
-                if (ObjectUtils.isNotEmpty(ignoreEncrypted)) {
-                    log.debug("mappedStatementId：{}, ignoreEncrypted is on, return directly.", mappedStatementId);
-                    return;
+        // 2、检查Mapper方法是否被 @IgnoreEncrypted 注解
+        if (context.isIgnoreEncrypted()) {
+            log.debug("mappedStatementId：{}, ignoreEncrypted is on, return directly.", context.getMappedStatement().getId());
+            return;
+        }
+        // 3、通过MybatisPlus自带API新增、修改，或在mapper.xml中自定义API修改数据库时
+        Object entity = context.getUpdateEntity();
+        if (Objects.nonNull(entity)) {
+            getDataEncryptionHandler().doEntityEncrypt(entity);
+            return;
+        }
+        // 4、通过UpdateWrapper、LambdaUpdateWrapper修改数据库时
+        AbstractWrapper<?, ?, ?> updateWrapper = context.getUpdateWrapper();
+        if (Objects.nonNull(updateWrapper)) {
+            getDataEncryptionHandler().doWrapperEncrypt(context.getEntityClass(), updateWrapper);
+        }
+    }
+
+    /**
+     * 通过 UpdateWrapper、QueryWrapper 修改、删除数据时，改写 where 条件中的加密字段条件。
+     * 修改、删除语句在 beforeUpdate 阶段还没有生成 BoundSql，因此在 StatementHandler.prepare 阶段改写；
+     * 查询语句在此阶段补充处理未经过 beforeQuery 的 BoundSql（例如分页插件的 count 语句）。
+     * 通过 MybatisPlusEnhanceInterceptor 注册时，只有执行计划中 {@link #isApplicableBefore} 为 true 的语句才会执行到这里
+     */
+    @Override
+    public void beforePrepare(StatementHandler sh, Connection connection, Integer transactionTimeout) {
+        if (!encryptSwitch) {
+            return;
+        }
+        PluginUtils.MPStatementHandler mpSh = PluginUtils.mpStatementHandler(sh);
+        MappedStatement ms = mpSh.mappedStatement();
+        BoundSql boundSql = mpSh.boundSql();
+        Object parameterObject = boundSql.getParameterObject();
+        // 查询语句通常已在 beforeQuery 阶段处理并标记，直接返回，不再构建上下文和查找注解
+        boolean select = ms.getSqlCommandType() == SqlCommandType.SELECT;
+        if (Objects.isNull(parameterObject) || (select && boundSql.hasAdditionalParameter(ENCRYPTED_BOUND_SQL_MARKER))
+                || MapperMethodRegistry.get(ms.getId()).isMethodAnnotationPresent(IgnoreEncrypted.class)) {
+            return;
+        }
+        // 分页插件的 count 语句在 willDoQuery 阶段直接通过 Executor 执行，不经过 beforeQuery
+        // （例如分页插件注册在加密拦截器之前，或通过 countId 指定 count 语句），在此补充处理
+        if (select) {
+            encryptQuery(ms, parameterObject, boundSql,
+                    EnhanceInvocationContext.ofQuery(null, ms, parameterObject, null, null, boundSql, null).getEntityParameters());
+            return;
+        }
+        encryptSimpleParams(ms, parameterObject, boundSql);
+        if (ms.getSqlCommandType() == SqlCommandType.UPDATE || ms.getSqlCommandType() == SqlCommandType.DELETE) {
+            rewriteWrapperCondition(ms, parameterObject, boundSql);
+        }
+    }
+
+    /**
+     * 加密 @EncryptedParam 注解的参数，以及 @Param 名称与 @EncryptedField 字段属性名相同的参数，例如：
+     * <pre>
+     * Person findByMobile(@Param("mobile") String mobile);
+     * List&lt;Person&gt; findByMobiles(@Param("mobile") List&lt;String&gt; mobiles);
+     * </pre>
+     * 字段维护盲索引时参数值替换为盲索引值；集合、数组参数按元素逐个处理，替换 foreach 生成的附加参数。
+     * 加密后的值以 BoundSql 附加参数的形式传递，附加参数优先于参数对象，不修改调用方传入的参数
+     * @param ms MappedStatement
+     * @param parameterObject 参数
+     * @param boundSql BoundSql
+     */
+    protected void encryptSimpleParams(MappedStatement ms, Object parameterObject, BoundSql boundSql) {
+        // 1、获取参数加密计划，按 MappedStatement 解析一次
+        EncryptedParamPlan paramPlan = EncryptedParamPlan.get(ms);
+        if (paramPlan.isEmpty()) {
+            return;
+        }
+        for (EncryptedParamItem param : paramPlan.getParams()) {
+            // 2、获取参数值，没有 @Param 注解的单个参数直接以参数值作为参数对象（集合、数组参数由 MyBatis 包装为 Map）
+            Object rawValue;
+            if (paramPlan.isSingleParam() && !param.isMultiple()) {
+                rawValue = parameterObject;
+            } else if (parameterObject instanceof Map && ((Map<?,?>) parameterObject).containsKey(param.getName())) {
+                rawValue = ((Map<?,?>) parameterObject).get(param.getName());
+            } else if (paramPlan.isSingleParam() && parameterObject instanceof Map) {
+                Map<?,?> paramMap = (Map<?,?>) parameterObject;
+                rawValue = paramMap.containsKey(COLLECTION_PARAM_NAME) ? paramMap.get(COLLECTION_PARAM_NAME) : paramMap.get(ARRAY_PARAM_NAME);
+            } else {
+                continue;
+            }
+            if (Objects.isNull(rawValue)) {
+                continue;
+            }
+            // 3、集合、数组参数按元素逐个处理
+            if (param.isMultiple()) {
+                encryptElementParams(param, rawValue, boundSql);
+                continue;
+            }
+            // 4、对参数值进行加密或计算盲索引，替换引用该参数的参数映射
+            Object newValue = encryptParamValue(param, rawValue);
+            for (ParameterMapping parameterMapping : boundSql.getParameterMappings()) {
+                String property = parameterMapping.getProperty();
+                // foreach、bind 生成的附加参数不处理
+                if (boundSql.hasAdditionalParameter(property)) {
+                    continue;
+                }
+                boolean matched = paramPlan.isSingleParam()
+                        ? property.indexOf('.') < 0 && property.indexOf('[') < 0
+                        : property.equals(param.getName()) || property.equals(param.getGenericName());
+                if (matched) {
+                    boundSql.setAdditionalParameter(property, newValue);
                 }
             }
-        } catch (ClassNotFoundException e) {
-            log.error("DataDecryptionInnerInterceptor.afterQuery ClassNotFoundException", e);
         }
-        // 2、通过MybatisPlus自带API（save、insert等）新增数据库时
+    }
+
+    /**
+     * 对集合、数组参数的元素逐个加密或计算盲索引：foreach 为每个元素生成的附加参数（例如 __frch_item_0）取值就是元素本身，
+     * 按对象引用找到元素对应的附加参数并替换；已替换的附加参数不再是原元素，重复处理不会重复加密
+     * @param param 参数加密项
+     * @param rawValue 集合或数组参数值
+     * @param boundSql BoundSql
+     */
+    private void encryptElementParams(EncryptedParamItem param, Object rawValue, BoundSql boundSql) {
+        // 1、计算每个元素的加密值或盲索引值
+        Collection<?> elements;
+        if (rawValue instanceof Collection) {
+            elements = (Collection<?>) rawValue;
+        } else if (rawValue instanceof Object[]) {
+            elements = Arrays.asList((Object[]) rawValue);
+        } else {
+            return;
+        }
+        Map<Object, Object> newValues = new IdentityHashMap<>(elements.size());
+        for (Object element : elements) {
+            if (Objects.nonNull(element) && !newValues.containsKey(element)) {
+                newValues.put(element, encryptParamValue(param, element));
+            }
+        }
+        if (newValues.isEmpty()) {
+            return;
+        }
+        // 2、替换 foreach 生成的取值为元素的附加参数
+        for (ParameterMapping parameterMapping : boundSql.getParameterMappings()) {
+            String property = parameterMapping.getProperty();
+            if (!property.startsWith(ForEachSqlNode.ITEM_PREFIX) || !boundSql.hasAdditionalParameter(property)) {
+                continue;
+            }
+            Object newValue = newValues.get(boundSql.getAdditionalParameter(property));
+            if (Objects.nonNull(newValue)) {
+                boundSql.setAdditionalParameter(property, newValue);
+            }
+        }
+    }
+
+    private Object encryptParamValue(EncryptedParamItem param, Object rawValue) {
+        return param.isBlindIndex() ? getDataEncryptionHandler().doBlindIndex(rawValue) : getDataEncryptionHandler().doValueEncrypt(rawValue);
+    }
+
+    /**
+     * 改写 QueryWrapper、LambdaQueryWrapper、UpdateWrapper 条件中对加密字段的 eq、ne、in 条件，使过滤在数据库中完成：
+     * 1、维护盲索引的加密字段：列改写为盲索引字段，参数值替换为明文的盲索引值，例如：mobile = ? 改写为 mobile_idx = ?
+     * 2、其他加密字段：参数值替换为加密后的值，要求加密结果是确定性的（ECB 模式或固定偏移向量）；
+     *    同一明文存在多个候选密文时（例如密钥轮换期间新旧密钥的密文），eq 改写为 IN、ne 改写为 NOT IN，in 的取值列表追加全部候选密文
+     * 改写后的参数值以 BoundSql 附加参数的形式传递，不修改 Wrapper 本身，同一个 Wrapper 多次执行（例如分页的 count 和查询）不会重复加密
+     * @param ms MappedStatement
+     * @param parameterObject 参数
+     * @param boundSql BoundSql
+     */
+    protected void rewriteWrapperCondition(MappedStatement ms, Object parameterObject, BoundSql boundSql) {
+        // 1、仅处理 Wrapper 参数
         if (!(parameterObject instanceof Map)) {
-            // 对参数进行加密处理
-            getDataEncryptionHandler().doEntityEncrypt(parameterObject);
             return;
         }
-        // 3、Map类型参数
         Map<?,?> paramMap = (Map<?,?>) parameterObject;
-        Object param;
-        // 4、通过MybatisPlus自带API（update、updateById等）修改数据库时
-        if (paramMap.containsKey(Constants.ENTITY) && null != (param = paramMap.get(Constants.ENTITY))) {
-            // 对参数进行加密处理
-            getDataEncryptionHandler().doEntityEncrypt(param);
+        Object param = paramMap.containsKey(Constants.WRAPPER) ? paramMap.get(Constants.WRAPPER) : null;
+        if (!(param instanceof AbstractWrapper) || ((AbstractWrapper<?,?,?>) param).getParamNameValuePairs().isEmpty()) {
             return;
         }
-        // 5、通过在mapper.xml中自定义API修改数据库时
-        if (paramMap.containsKey(EnhanceConstants.CUSTOM_ENTITY) && null != (param = paramMap.get(EnhanceConstants.CUSTOM_ENTITY))) {
-            // 对参数进行加密处理
-            getDataEncryptionHandler().doEntityEncrypt(param);
+        AbstractWrapper<?,?,?> wrapper = (AbstractWrapper<?,?,?>) param;
+        // 2、获取实体类的加解密计划，未被@EncryptedTable所注解或没有加密字段则直接返回
+        Class<?> entityClass = Objects.nonNull(wrapper.getEntityClass()) ? wrapper.getEntityClass() : TableFieldHelper.getEntityClass(ms.getId());
+        if (Objects.isNull(entityClass)) {
             return;
         }
-        // 6、通过UpdateWrapper、LambdaUpdateWrapper修改数据库时
-        if (paramMap.containsKey(Constants.WRAPPER) && null != (param = paramMap.get(Constants.WRAPPER))) {
-            // 6.1、判断是否是UpdateWrapper、LambdaUpdateWrapper类型
-            if (param instanceof Update && param instanceof AbstractWrapper) {
-                Class<?> entityClass = ms.getParameterMap().getType();
-                getDataEncryptionHandler().doWrapperEncrypt(entityClass, (AbstractWrapper<?,?,?>) param);
+        EncryptedFieldPlan plan = TableFieldHelper.getEncryptedFieldPlan(entityClass);
+        if (!plan.isEncryptable()) {
+            return;
+        }
+        // 3、Wrapper 条件中不包含加密字段时不解析 SQL
+        String sqlSegment = wrapper.getSqlSegment();
+        if (StringUtils.isEmpty(sqlSegment) || plan.getColumnItems().keySet().stream().noneMatch(column -> StringUtils.containsIgnoreCase(sqlSegment, column))) {
+            return;
+        }
+        // 4、解析 SQL 并改写查询条件，存在改写时替换 SQL 和参数映射
+        ConditionContext context = new ConditionContext(ms.getConfiguration(), plan, wrapper, boundSql);
+        String newSql = parserSingle(boundSql.getSql(), context);
+        if (context.isRewritten()) {
+            PluginUtils.MPBoundSql mpBoundSql = PluginUtils.mpBoundSql(boundSql);
+            mpBoundSql.sql(newSql);
+            mpBoundSql.parameterMappings(context.getParameterMappings());
+        }
+    }
+
+    @Override
+    protected void processSelect(Select select, int index, String sql, Object obj) {
+        if (select instanceof PlainSelect) {
+            PlainSelect plainSelect = (PlainSelect) select;
+            plainSelect.setWhere(rewriteCondition(plainSelect.getWhere(), (ConditionContext) obj));
+        } else if (select instanceof SetOperationList) {
+            for (Select child : ((SetOperationList) select).getSelects()) {
+                processSelect(child, index, sql, obj);
             }
+        } else if (select instanceof ParenthesedSelect) {
+            processSelect(((ParenthesedSelect) select).getSelect(), index, sql, obj);
         }
     }
 
+    @Override
+    protected void processUpdate(net.sf.jsqlparser.statement.update.Update update, int index, String sql, Object obj) {
+        update.setWhere(rewriteCondition(update.getWhere(), (ConditionContext) obj));
+    }
+
+    @Override
+    protected void processDelete(Delete delete, int index, String sql, Object obj) {
+        delete.setWhere(rewriteCondition(delete.getWhere(), (ConditionContext) obj));
+    }
+
+    /**
+     * 遍历 AND、OR、NOT 和括号组合的条件，改写其中对加密字段的 eq、ne、in 条件
+     * @return 改写后的条件，eq、ne 改写为 IN、NOT IN 时返回新的条件
+     */
+    private Expression rewriteCondition(Expression expr, ConditionContext context) {
+        if (expr instanceof AndExpression || expr instanceof OrExpression) {
+            BinaryExpression binary = (BinaryExpression) expr;
+            binary.setLeftExpression(rewriteCondition(binary.getLeftExpression(), context));
+            binary.setRightExpression(rewriteCondition(binary.getRightExpression(), context));
+        } else if (expr instanceof ParenthesedExpressionList) {
+            ExpressionList<Expression> list = (ExpressionList<Expression>) expr;
+            list.replaceAll(child -> rewriteCondition(child, context));
+        } else if (expr instanceof Parenthesis) {
+            ((Parenthesis) expr).setExpression(rewriteCondition(((Parenthesis) expr).getExpression(), context));
+        } else if (expr instanceof NotExpression) {
+            ((NotExpression) expr).setExpression(rewriteCondition(((NotExpression) expr).getExpression(), context));
+        } else if (expr instanceof EqualsTo || expr instanceof NotEqualsTo) {
+            BinaryExpression binary = (BinaryExpression) expr;
+            return context.rewrite(expr, binary.getLeftExpression(), Collections.singletonList(binary.getRightExpression()), expr instanceof NotEqualsTo);
+        } else if (expr instanceof InExpression && ((InExpression) expr).getRightExpression() instanceof ExpressionList) {
+            InExpression in = (InExpression) expr;
+            return context.rewrite(expr, in.getLeftExpression(), (ExpressionList<?>) in.getRightExpression(), in.isNot());
+        }
+        return expr;
+    }
+
+    /**
+     * 加密字段条件改写上下文，记录改写后的参数映射
+     */
+    private class ConditionContext {
+
+        private final Configuration configuration;
+        private final EncryptedFieldPlan plan;
+        private final AbstractWrapper<?,?,?> wrapper;
+        private final BoundSql boundSql;
+        /**
+         * 按原 SQL 参数位置记录的参数映射
+         */
+        private final List<ParameterMapping> parameterMappings;
+        /**
+         * 原 SQL 参数位置 → 追加候选密文后的参数映射
+         */
+        private final Map<Integer, List<ParameterMapping>> expandedMappings = new HashMap<>();
+        @Getter
+        private boolean rewritten;
+
+        ConditionContext(Configuration configuration, EncryptedFieldPlan plan, AbstractWrapper<?,?,?> wrapper, BoundSql boundSql) {
+            this.configuration = configuration;
+            this.plan = plan;
+            this.wrapper = wrapper;
+            this.boundSql = boundSql;
+            this.parameterMappings = new ArrayList<>(boundSql.getParameterMappings());
+        }
+
+        /**
+         * 改写后的参数映射，存在追加的候选密文时按 SQL 中参数的顺序展开
+         */
+        List<ParameterMapping> getParameterMappings() {
+            if (expandedMappings.isEmpty()) {
+                return parameterMappings;
+            }
+            List<ParameterMapping> mappings = new ArrayList<>(parameterMappings.size() + expandedMappings.size());
+            for (int i = 0; i < parameterMappings.size(); i++) {
+                List<ParameterMapping> expanded = expandedMappings.get(i);
+                if (Objects.isNull(expanded)) {
+                    mappings.add(parameterMappings.get(i));
+                } else {
+                    mappings.addAll(expanded);
+                }
+            }
+            return mappings;
+        }
+
+        /**
+         * 列是加密字段，且取值全部为 Wrapper 参数时，改写参数（维护盲索引时同时改写列名）
+         * @param condition 条件表达式
+         * @param left 条件左侧表达式
+         * @param values 条件取值表达式
+         * @param not 是否为 ne、not in 条件
+         * @return 改写后的条件，存在多个候选密文时 eq、ne 改写为 IN、NOT IN，否则返回原条件
+         */
+        Expression rewrite(Expression condition, Expression left, List<? extends Expression> values, boolean not) {
+            if (!(left instanceof Column) || values.isEmpty()) {
+                return condition;
+            }
+            EncryptedFieldPlan.EncryptedFieldItem item = plan.getColumnItem(((Column) left).getColumnName());
+            if (Objects.isNull(item)) {
+                return condition;
+            }
+            int[] positions = new int[values.size()];
+            for (int i = 0; i < positions.length; i++) {
+                positions[i] = getWrapperParamPosition(values.get(i));
+                if (positions[i] < 0) {
+                    return condition;
+                }
+            }
+            String prefix;
+            if (item.hasBlindIndex()) {
+                ((Column) left).setColumnName(item.getBlindIndexColumn());
+                prefix = EnhanceConstants.BLIND_INDEX_PARAM_PREFIX;
+            } else {
+                prefix = EnhanceConstants.ENCRYPTED_PARAM_PREFIX;
+            }
+            List<Expression> newValues = new ArrayList<>(values.size());
+            for (int i = 0; i < positions.length; i++) {
+                String valueKey = parameterMappings.get(positions[i]).getProperty().substring(EnhanceConstants.WRAPPER_PARAM_PREFIX.length());
+                Object rawValue = wrapper.getParamNameValuePairs().get(valueKey);
+                List<?> candidates = Collections.singletonList(rawValue);
+                if (Objects.nonNull(rawValue)) {
+                    candidates = item.hasBlindIndex() ? Collections.singletonList(getDataEncryptionHandler().doBlindIndex(rawValue))
+                            : getDataEncryptionHandler().doValueEncryptCandidates(rawValue);
+                }
+                // 第一个候选值替换原参数，其余候选值追加在原参数之后
+                List<ParameterMapping> mappings = new ArrayList<>(candidates.size());
+                for (int j = 0; j < candidates.size(); j++) {
+                    String property = j == 0 ? prefix + valueKey : prefix + valueKey + StringPool.UNDERSCORE + j;
+                    boundSql.setAdditionalParameter(property, candidates.get(j));
+                    mappings.add(new ParameterMapping.Builder(configuration, property, String.class).build());
+                    newValues.add(j == 0 ? values.get(i) : new JdbcParameter());
+                }
+                parameterMappings.set(positions[i], mappings.get(0));
+                if (mappings.size() > 1) {
+                    expandedMappings.put(positions[i], mappings);
+                }
+            }
+            rewritten = true;
+            if (newValues.size() == values.size()) {
+                return condition;
+            }
+            // 存在多个候选密文：in 条件追加取值，eq、ne 条件改写为 IN、NOT IN
+            if (condition instanceof InExpression) {
+                ExpressionList<Expression> list = (ExpressionList<Expression>) ((InExpression) condition).getRightExpression();
+                list.clear();
+                list.addAll(newValues);
+                return condition;
+            }
+            InExpression in = new InExpression(left, new ParenthesedExpressionList<>(newValues));
+            in.setNot(not);
+            return in;
+        }
+
+        /**
+         * 获取 Wrapper 参数对应的参数映射下标，不是 Wrapper 参数时返回 -1
+         */
+        private int getWrapperParamPosition(Expression value) {
+            if (!(value instanceof JdbcParameter) || ((JdbcParameter) value).isUseFixedIndex()) {
+                return -1;
+            }
+            int position = ((JdbcParameter) value).getIndex() - 1;
+            if (position < 0 || position >= parameterMappings.size()
+                    || !parameterMappings.get(position).getProperty().startsWith(EnhanceConstants.WRAPPER_PARAM_PREFIX)) {
+                return -1;
+            }
+            return position;
+        }
+
+    }
+
 }
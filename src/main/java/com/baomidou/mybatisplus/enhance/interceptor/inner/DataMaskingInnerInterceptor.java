@@ -1,10 +1,8 @@
 package com.baomidou.mybatisplus.enhance.interceptor.inner;
 
 import com.baomidou.mybatisplus.core.conditions.AbstractWrapper;
-import com.baomidou.mybatisplus.core.conditions.update.Update;
-import com.baomidou.mybatisplus.core.toolkit.Constants;
 import com.baomidou.mybatisplus.enhance.sensitive.handler.DataMaskingHandler;
-import com.baomidou.mybatisplus.enhance.util.EnhanceConstants;
+import com.baomidou.mybatisplus.enhance.interceptor.EnhanceInvocationContext;
 import com.baomidou.mybatisplus.enhance.util.ParameterUtils;
 import com.baomidou.mybatisplus.extension.parser.JsqlParserSupport;
 import lombok.Getter;
@@ -64,34 +62,29 @@ public class DataMaskingInnerInterceptor extends JsqlParserSupport implements En
      */
     @Override
     public void beforeQuery(Executor executor, MappedStatement ms, Object parameterObject, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql) throws SQLException {
+        beforeQuery(EnhanceInvocationContext.ofQuery(executor, ms, parameterObject, rowBounds, resultHandler, boundSql, null));
+    }
+
+    @Override
+    public void beforeQuery(EnhanceInvocationContext context) throws SQLException {
         // 1、如果参数为空，或者参数是简单类型，或全局未启用 则直接返回
-        if (ParameterUtils.isSwitchOff(maskingGet, parameterObject)) {
+        if (ParameterUtils.isSwitchOff(maskingGet, context.getParameter())) {
             return;
         }
         // 2、如果参数
-        if (!(parameterObject instanceof Map)) {
+        if (!(context.getParameter() instanceof Map)) {
             return;
         }
-        // 3、Map类型参数
-        Map<?,?> paramMap = (Map<?,?>) parameterObject;
-        // 4、参数去重，否则多次签名会导致查询失败
-        Set<?> set = new HashSet<>(paramMap.values());
-        // 5、遍历参数，进行签名处理
-        for (Object param : set) {
-            /*
-             *  仅支持类型是自定义Entity的参数，不支持mapper的参数是QueryWrapper、String等，例如：
-             *
-             *  支持：findList(@Param(value = "query") UserEntity query);
-             *  支持：findPage(@Param(value = "query") UserEntity query, Page<UserEntity> page);
-             *
-             *  不支持：findOne(@Param(value = "mobile") String mobile);
-             *  不支持：findList(QueryWrapper wrapper);
-             */
-            if (Objects.isNull(param) || SimpleTypeRegistry.isSimpleType(param.getClass()) || param instanceof AbstractWrapper) {
-                // Wrapper、String类型查询参数，无法获取参数变量上的注解，无法确认是否需要签名，因此不做判断
-                continue;
-            }
-            // 对参数进行签名处理
+        /*
+         *  3、遍历已去重的实体参数，进行脱敏处理，仅支持类型是自定义Entity的参数，不支持mapper的参数是QueryWrapper、String等，例如：
+         *
+         *  支持：findList(@Param(value = "query") UserEntity query);
+         *  支持：findPage(@Param(value = "query") UserEntity query, Page<UserEntity> page);
+         *
+         *  不支持：findOne(@Param(value = "mobile") String mobile);
+         *  不支持：findList(QueryWrapper wrapper);
+         */
+        for (Object param : context.getEntityParameters()) {
             getDataMaskingHandler().doQueryMasking(param);
         }
     }
@@ -101,43 +94,35 @@ public class DataMaskingInnerInterceptor extends JsqlParserSupport implements En
      */
     @Override
     public void beforeUpdate(Executor executor, MappedStatement mappedStatement, Object parameterObject) throws SQLException {
+        beforeUpdate(EnhanceInvocationContext.ofUpdate(executor, mappedStatement, parameterObject, null));
+    }
+
+    @Override
+    public void beforeUpdate(EnhanceInvocationContext context) throws SQLException {
         // 1、如果参数为空，或者参数是简单类型，或全局未启用 则直接返回
-        if (ParameterUtils.isSwitchOff(maskingSet, parameterObject)) {
-            return;
-        }
-        // 2、通过MybatisPlus自带API（save、insert等）新增数据库时
-        if (!(parameterObject instanceof Map)) {
-            // 对参数进行签名处理
-            getDataMaskingHandler().doQueryMasking(parameterObject);
+        if (ParameterUtils.isSwitchOff(maskingSet, context.getParameter())) {
             return;
         }
-        // 3、Map类型参数
-        Map<?,?> paramMap = (Map<?,?>) parameterObject;
-        Object param;
-        // 4、通过MybatisPlus自带API（update、updateById等）修改数据库时
-        if (paramMap.containsKey(Constants.ENTITY) && null != (param = paramMap.get(Constants.ENTITY))) {
-            // 对参数进行签名处理
-            getDataMaskingHandler().doQueryMasking(param);
+        // 2、通过MybatisPlus自带API新增、修改，或在mapper.xml中自定义API修改数据库时
+        Object entity = context.getUpdateEntity();
+        if (Objects.nonNull(entity)) {
+            getDataMaskingHandler().doQueryMasking(entity);
             return;
         }
-        // 5、通过在mapper.xml中自定义API修改数据库时
-        if (paramMap.containsKey(EnhanceConstants.CUSTOM_ENTITY) && null != (param = paramMap.get(EnhanceConstants.CUSTOM_ENTITY))) {
-            // 对参数进行签名处理
-            getDataMaskingHandler().doQueryMasking(param);
-            return;
-        }
-        // 6、通过UpdateWrapper、LambdaUpdateWrapper修改数据库时
-        if (paramMap.containsKey(Constants.WRAPPER) && null != (param = paramMap.get(Constants.WRAPPER))) {
-            // 6.1、判断是否是UpdateWrapper、LambdaUpdateWrapper类型
-            if (param instanceof Update && param instanceof AbstractWrapper) {
-                Class<?> entityClass = mappedStatement.getParameterMap().getType();
-                getDataMaskingHandler().doQueryMasking(entityClass, (AbstractWrapper<?,?,?>) param);
-            }
+        // 3、通过UpdateWrapper、LambdaUpdateWrapper修改数据库时
+        AbstractWrapper<?, ?, ?> updateWrapper = context.getUpdateWrapper();
+        if (Objects.nonNull(updateWrapper)) {
+            getDataMaskingHandler().doQueryMasking(context.getEntityClass(), updateWrapper);
         }
     }
 
     @Override
     public void afterQuery(Executor executor, MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler<?> resultHandler, BoundSql boundSql, List<Object> rtList) throws SQLException {
+        afterQuery(EnhanceInvocationContext.ofQuery(executor, ms, parameter, rowBounds, resultHandler, boundSql, null), rtList);
+    }
+
+    @Override
+    public void afterQuery(EnhanceInvocationContext context, List<Object> rtList) throws SQLException {
         // 1、如果参数为空，或者参数元素为0，或全局未启用 则直接返回
         if (ParameterUtils.isSwitchOff(maskingGet, rtList)) {
             return;
@@ -1,10 +1,15 @@
 package com.baomidou.mybatisplus.enhance.interceptor.inner;
 
 import com.baomidou.mybatisplus.core.conditions.AbstractWrapper;
-import com.baomidou.mybatisplus.core.conditions.update.Update;
-import com.baomidou.mybatisplus.core.toolkit.Constants;
+import com.baomidou.mybatisplus.enhance.crypto.exception.SignatureMismatchException;
+import com.baomidou.mybatisplus.enhance.crypto.exception.SignatureVerificationException;
+import com.baomidou.mybatisplus.enhance.crypto.exception.SignatureVerificationFailure;
 import com.baomidou.mybatisplus.enhance.crypto.handler.DataSignatureHandler;
-import com.baomidou.mybatisplus.enhance.util.EnhanceConstants;
+import com.baomidou.mybatisplus.enhance.crypto.handler.SignatureVerificationFailureHandler;
+import com.baomidou.mybatisplus.enhance.crypto.handler.SignatureVerificationSampler;
+import com.baomidou.mybatisplus.enhance.interceptor.MappedStatementPlan;
+import com.baomidou.mybatisplus.enhance.interceptor.EnhanceInvocationContext;
+import com.baomidou.mybatisplus.enhance.util.ParallelUtils;
 import com.baomidou.mybatisplus.enhance.util.ParameterUtils;
 import com.baomidou.mybatisplus.extension.parser.JsqlParserSupport;
 import lombok.Getter;
@@ -18,12 +23,17 @@ import org.apache.ibatis.type.SimpleTypeRegistry;
 
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * 数据签名和验签拦截器
  * 1、用于对新增/更新数据进行签名操作
  * 2、用于对查询数据进行验签操作
  * 3、更新操作执行顺序：DataEncryptionInnerInterceptor -> DataSignatureInnerInterceptor
+ * 4、验签时汇总全部验签失败的数据，不在第一行失败时中断；查询结果行数达到阈值时并行验签
+ * 5、查询结果为同一实体类时调用批量验签，已存储的签名按批读取
+ * 6、配置 {@link SignatureVerificationSampler} 时只对抽样选中的数据验签，验签计数可通过 getSeenRowCount、getVerifiedRowCount、getFailedRowCount 获取
  */
 @Slf4j
 public class DataSignatureInnerInterceptor extends JsqlParserSupport implements EnhanceInnerInterceptor {
@@ -43,6 +53,30 @@ public class DataSignatureInnerInterceptor extends JsqlParserSupport implements
      */
     @Getter
     private final boolean signVerify;
+    /**
+     * 并行验签阈值，查询结果行数达到该值时并行验签；小于等于 0 时不启用并行验签
+     */
+    @Getter
+    private final int parallelThreshold;
+    /**
+     * 并行验签使用的线程池，为空时使用 {@link ForkJoinPool#commonPool()}
+     */
+    @Getter
+    private final java.util.concurrent.Executor parallelExecutor;
+    /**
+     * 验签失败回调，为空时汇总全部验签失败的数据后抛出 {@link SignatureVerificationException}
+     */
+    @Getter
+    private final SignatureVerificationFailureHandler failureHandler;
+    /**
+     * 签名验证抽样策略，为空时对全部查询结果验签
+     */
+    @Getter
+    private final SignatureVerificationSampler sampler;
+
+    private final LongAdder seenRowCount = new LongAdder();
+    private final LongAdder verifiedRowCount = new LongAdder();
+    private final LongAdder failedRowCount = new LongAdder();
 
     public DataSignatureInnerInterceptor(DataSignatureHandler dataSignatureHandler) {
         this(dataSignatureHandler, true, false);
@@ -53,9 +87,59 @@ public class DataSignatureInnerInterceptor extends JsqlParserSupport implements
     }
 
     public DataSignatureInnerInterceptor(DataSignatureHandler dataSignatureHandler, boolean signSwitch, boolean signVerify) {
+        this(dataSignatureHandler, signSwitch, signVerify, 0, null, null);
+    }
+
+    /**
+     * @param dataSignatureHandler 数据签名和验签 Handler，启用并行验签时必须是线程安全的
+     * @param signSwitch 是否开启数据签名
+     * @param signVerify 是否开启数据签名验证
+     * @param parallelThreshold 并行验签阈值，查询结果行数达到该值时按行切分并行验签；小于等于 0 时不启用
+     * @param parallelExecutor 并行验签使用的线程池，为空时使用 {@link ForkJoinPool#commonPool()}
+     * @param failureHandler 验签失败回调，为空时汇总全部验签失败的数据后抛出 {@link SignatureVerificationException}
+     */
+    public DataSignatureInnerInterceptor(DataSignatureHandler dataSignatureHandler, boolean signSwitch, boolean signVerify, int parallelThreshold,
+                                         java.util.concurrent.Executor parallelExecutor, SignatureVerificationFailureHandler failureHandler) {
+        this(dataSignatureHandler, signSwitch, signVerify, parallelThreshold, parallelExecutor, failureHandler, null);
+    }
+
+    /**
+     * @param dataSignatureHandler 数据签名和验签 Handler，启用并行验签时必须是线程安全的
+     * @param signSwitch 是否开启数据签名
+     * @param signVerify 是否开启数据签名验证
+     * @param parallelThreshold 并行验签阈值，抽样选中的行数达到该值时按行切分并行验签；小于等于 0 时不启用
+     * @param parallelExecutor 并行验签使用的线程池，为空时使用 {@link ForkJoinPool#commonPool()}
+     * @param failureHandler 验签失败回调，为空时汇总全部验签失败的数据后抛出 {@link SignatureVerificationException}
+     * @param sampler 签名验证抽样策略，为空时对全部查询结果验签
+     */
+    public DataSignatureInnerInterceptor(DataSignatureHandler dataSignatureHandler, boolean signSwitch, boolean signVerify, int parallelThreshold,
+                                         java.util.concurrent.Executor parallelExecutor, SignatureVerificationFailureHandler failureHandler,
+                                         SignatureVerificationSampler sampler) {
         this.dataSignatureHandler = dataSignatureHandler;
         this.signSwitch = signSwitch;
         this.signVerify = signVerify;
+        this.parallelThreshold = parallelThreshold;
+        this.parallelExecutor = Objects.isNull(parallelExecutor) ? ForkJoinPool.commonPool() : parallelExecutor;
+        this.failureHandler = failureHandler;
+        this.sampler = sampler;
+    }
+
+    /**
+     * 参数中可能包含 @TableSignature 实体时才需要签名；被 @IgnoreSignature 注解的方法由调用方签名
+     */
+    @Override
+    public boolean isApplicableBefore(MappedStatementPlan plan) {
+        return signSwitch && !plan.isIgnoreSignature() && plan.isSignatureParameter();
+    }
+
+    /**
+     * 查询结果中可能包含 @TableSignature 实体时才需要验签；
+     * 被 @IgnoreSignature 注解的原始数据查询（selectIgnoreDecryptById 等）用于重新签名和显式验签，不在拦截器中验签，
+     * 只被 @IgnoreEncrypted 注解的查询仍然验签
+     */
+    @Override
+    public boolean isApplicableAfter(MappedStatementPlan plan) {
+        return signVerify && !plan.isIgnoreSignature() && plan.isSignatureResult();
     }
 
     /**
@@ -64,34 +148,29 @@ public class DataSignatureInnerInterceptor extends JsqlParserSupport implements
      */
     @Override
     public void beforeQuery(Executor executor, MappedStatement ms, Object parameterObject, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql) throws SQLException {
+        beforeQuery(EnhanceInvocationContext.ofQuery(executor, ms, parameterObject, rowBounds, resultHandler, boundSql, null));
+    }
+
+    @Override
+    public void beforeQuery(EnhanceInvocationContext context) throws SQLException {
         // 1、如果参数为空，或者参数是简单类型，或全局未启用 则直接返回
-        if (ParameterUtils.isSwitchOff(signSwitch, parameterObject)) {
+        if (ParameterUtils.isSwitchOff(signSwitch, context.getParameter())) {
             return;
         }
         // 2、如果参数
-        if (!(parameterObject instanceof Map)) {
+        if (!(context.getParameter() instanceof Map)) {
             return;
         }
-        // 3、Map类型参数
-        Map<?,?> paramMap = (Map<?,?>) parameterObject;
-        // 4、参数去重，否则多次签名会导致查询失败
-        Set<?> set = new HashSet<>(paramMap.values());
-        // 5、遍历参数，进行签名处理
-        for (Object param : set) {
-            /*
-             *  仅支持类型是自定义Entity的参数，不支持mapper的参数是QueryWrapper、String等，例如：
-             *
-             *  支持：findList(@Param(value = "query") UserEntity query);
-             *  支持：findPage(@Param(value = "query") UserEntity query, Page<UserEntity> page);
-             *
-             *  不支持：findOne(@Param(value = "mobile") String mobile);
-             *  不支持：findList(QueryWrapper wrapper);
-             */
-            if (Objects.isNull(param) || SimpleTypeRegistry.isSimpleType(param.getClass()) || param instanceof AbstractWrapper) {
-                // Wrapper、String类型查询参数，无法获取参数变量上的注解，无法确认是否需要签名，因此不做判断
-                continue;
-            }
-            // 对参数进行签名处理
+        /*
+         *  3、遍历已去重的实体参数，进行签名处理，仅支持类型是自定义Entity的参数，不支持mapper的参数是QueryWrapper、String等，例如：
+         *
+         *  支持：findList(@Param(value = "query") UserEntity query);
+         *  支持：findPage(@Param(value = "query") UserEntity query, Page<UserEntity> page);
+         *
+         *  不支持：findOne(@Param(value = "mobile") String mobile);
+         *  不支持：findList(QueryWrapper wrapper);
+         */
+        for (Object param : context.getEntityParameters()) {
             getDataSignatureHandler().doEntitySignature(param);
         }
     }
@@ -101,52 +180,219 @@ public class DataSignatureInnerInterceptor extends JsqlParserSupport implements
      */
     @Override
     public void beforeUpdate(Executor executor, MappedStatement mappedStatement, Object parameterObject) throws SQLException {
+        beforeUpdate(EnhanceInvocationContext.ofUpdate(executor, mappedStatement, parameterObject, null));
+    }
+
+    @Override
+    public void beforeUpdate(EnhanceInvocationContext context) throws SQLException {
         // 1、如果参数为空，或者参数是简单类型，或全局未启用 则直接返回
-        if (ParameterUtils.isSwitchOff(signSwitch, parameterObject)) {
+        if (ParameterUtils.isSwitchOff(signSwitch, context.getParameter())) {
             return;
         }
-        // 2、通过MybatisPlus自带API（save、insert等）新增数据库时
-        if (!(parameterObject instanceof Map)) {
-            // 对参数进行签名处理
-            getDataSignatureHandler().doEntitySignature(parameterObject);
-            return;
-        }
-        // 3、Map类型参数
-        Map<?,?> paramMap = (Map<?,?>) parameterObject;
-        Object param;
-        // 4、通过MybatisPlus自带API（update、updateById等）修改数据库时
-        if (paramMap.containsKey(Constants.ENTITY) && null != (param = paramMap.get(Constants.ENTITY))) {
-            // 对参数进行签名处理
-            getDataSignatureHandler().doEntitySignature(param);
+        // 2、被 @IgnoreSignature 注解的原始数据修改（updateSignatureById、updateIgnoreEncrypt 等）由调用方签名，不在拦截器中签名
+        if (context.isIgnoreSignature()) {
             return;
         }
-        // 5、通过在mapper.xml中自定义API修改数据库时
-        if (paramMap.containsKey(EnhanceConstants.CUSTOM_ENTITY) && null != (param = paramMap.get(EnhanceConstants.CUSTOM_ENTITY))) {
-            // 对参数进行签名处理
-            getDataSignatureHandler().doEntitySignature(param);
+        // 3、通过MybatisPlus自带API新增、修改，或在mapper.xml中自定义API修改数据库时
+        Object entity = context.getUpdateEntity();
+        if (Objects.nonNull(entity)) {
+            getDataSignatureHandler().doEntitySignature(entity);
             return;
         }
-        // 6、通过UpdateWrapper、LambdaUpdateWrapper修改数据库时
-        if (paramMap.containsKey(Constants.WRAPPER) && null != (param = paramMap.get(Constants.WRAPPER))) {
-            // 6.1、判断是否是UpdateWrapper、LambdaUpdateWrapper类型
-            if (param instanceof Update && param instanceof AbstractWrapper) {
-                Class<?> entityClass = mappedStatement.getParameterMap().getType();
-                getDataSignatureHandler().doWrapperSignature(entityClass, (AbstractWrapper<?,?,?>) param);
-            }
+        // 4、通过UpdateWrapper、LambdaUpdateWrapper修改数据库时
+        AbstractWrapper<?, ?, ?> updateWrapper = context.getUpdateWrapper();
+        if (Objects.nonNull(updateWrapper)) {
+            getDataSignatureHandler().doWrapperSignature(context.getEntityClass(), updateWrapper);
         }
     }
 
     @Override
     public void afterQuery(Executor executor, MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler<?> resultHandler, BoundSql boundSql, List<Object> rtList) throws SQLException {
+        afterQuery(EnhanceInvocationContext.ofQuery(executor, ms, parameter, rowBounds, resultHandler, boundSql, null), rtList);
+    }
+
+    @Override
+    public void afterQuery(EnhanceInvocationContext context, List<Object> rtList) throws SQLException {
         // 1、如果参数为空，或者参数元素为0，或全局未启用 则直接返回
         if (ParameterUtils.isSwitchOff(signVerify, rtList)) {
             return;
         }
+        // 2、被 @IgnoreSignature 注解的原始数据查询不验签，由调用方显式验签或重新签名
+        if (context.isIgnoreSignature()) {
+            return;
+        }
+        // 3、按抽样策略选择需要验签的数据
+        seenRowCount.add(rtList.size());
+        int[] rowIndexes = null;
+        List<Object> verifyList = rtList;
+        if (Objects.nonNull(sampler)) {
+            boolean singleRowLookup = rtList.size() == 1 && !context.isRowByRow();
+            BitSet selected = sampler.sample(context.getMappedStatement().getId(), context.getEntityClass(), rtList, singleRowLookup);
+            if (selected.cardinality() < rtList.size()) {
+                rowIndexes = selected.stream().filter(index -> index < rtList.size()).toArray();
+                verifyList = new ArrayList<>(rowIndexes.length);
+                for (int index : rowIndexes) {
+                    verifyList.add(rtList.get(index));
+                }
+            }
+        }
+        if (verifyList.isEmpty()) {
+            return;
+        }
+        verifiedRowCount.add(verifyList.size());
+        // 4、逐行验签，验签失败不中断，记录到对应下标
+        RuntimeException[] errors = doVerification(verifyList);
+        // 5、汇总验签失败的数据，下标为数据在查询结果中的下标，交给回调处理或抛出汇总异常
+        List<SignatureVerificationFailure> failures = new ArrayList<>();
+        for (int i = 0; i < errors.length; i++) {
+            if (Objects.nonNull(errors[i])) {
+                int rowIndex = Objects.isNull(rowIndexes) ? i : rowIndexes[i];
+                failures.add(new SignatureVerificationFailure(rowIndex, rtList.get(rowIndex), errors[i]));
+            }
+        }
+        if (failures.isEmpty()) {
+            return;
+        }
+        failedRowCount.add(failures.size());
+        if (Objects.nonNull(failureHandler)) {
+            failureHandler.onFailures(context.getEntityClass(), failures);
+            return;
+        }
+        throw new SignatureVerificationException(failures);
+    }
+
+    /**
+     * 逐行处理的单行验签：不创建单行列表、不走批量验签，抽样策略以单行调用
+     */
+    @Override
+    public void afterQueryRow(EnhanceInvocationContext context, Object row) throws SQLException {
+        if (!signVerify || Objects.isNull(row) || SimpleTypeRegistry.isSimpleType(row.getClass()) || context.isIgnoreSignature()) {
+            return;
+        }
+        seenRowCount.increment();
+        if (Objects.nonNull(sampler)
+                && !sampler.sample(context.getMappedStatement().getId(), context.getEntityClass(), Collections.singletonList(row), false).get(0)) {
+            return;
+        }
+        verifiedRowCount.increment();
+        RuntimeException error = doRawObjectVerification(row);
+        if (Objects.isNull(error)) {
+            return;
+        }
+        failedRowCount.increment();
+        List<SignatureVerificationFailure> failures = Collections.singletonList(new SignatureVerificationFailure(0, row, error));
+        if (Objects.nonNull(failureHandler)) {
+            failureHandler.onFailures(context.getEntityClass(), failures);
+            return;
+        }
+        throw new SignatureVerificationException(failures);
+    }
+
+    /**
+     * 逐行验签，行数达到阈值时并行验签
+     * @param rtList 需要验签的数据
+     * @return 与数据下标对应的验签异常，验签通过的下标为空
+     */
+    private RuntimeException[] doVerification(List<Object> rtList) {
+        RuntimeException[] errors = new RuntimeException[rtList.size()];
+        boolean parallel = parallelThreshold > 0 && rtList.size() >= parallelThreshold;
+        Class<?> rowClass = getUniformRowClass(rtList);
+        if (Objects.nonNull(rowClass)) {
+            // 查询结果为同一实体类时批量验签，签名读写提供者可以一次读取全部已存储的签名
+            doBatchVerification(rtList, rowClass, errors, parallel);
+        } else if (parallel) {
+            List<Integer> indexes = new ArrayList<>(rtList.size());
+            for (int i = 0; i < rtList.size(); i++) {
+                indexes.add(i);
+            }
+            ParallelUtils.forEach(indexes, parallelExecutor, index -> errors[index] = doRawObjectVerification(rtList.get(index)));
+        } else {
+            for (int i = 0; i < rtList.size(); i++) {
+                errors[i] = doRawObjectVerification(rtList.get(i));
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * 经过抽样的查询结果行数，包含未被选中验签的行
+     */
+    public long getSeenRowCount() {
+        return seenRowCount.sum();
+    }
+
+    /**
+     * 实际验签的行数
+     */
+    public long getVerifiedRowCount() {
+        return verifiedRowCount.sum();
+    }
+
+    /**
+     * 验签失败的行数
+     */
+    public long getFailedRowCount() {
+        return failedRowCount.sum();
+    }
+
+    /**
+     * 获取查询结果中所有非空数据的公共实体类，存在不同类型或简单类型时返回空
+     */
+    private Class<?> getUniformRowClass(List<Object> rtList) {
+        Class<?> rowClass = null;
         for (Object rawObject : rtList) {
-            if(Objects.isNull(rawObject) || SimpleTypeRegistry.isSimpleType(rawObject.getClass())){
+            if (Objects.isNull(rawObject)) {
                 continue;
             }
+            if (Objects.isNull(rowClass)) {
+                rowClass = rawObject.getClass();
+            } else if (rowClass != rawObject.getClass()) {
+                return null;
+            }
+        }
+        return Objects.isNull(rowClass) || SimpleTypeRegistry.isSimpleType(rowClass) ? null : rowClass;
+    }
+
+    /**
+     * 批量验签，并行时按线程池并行度切分为多个分片，每个分片批量验签一次
+     */
+    private void doBatchVerification(List<Object> rtList, Class<?> rowClass, RuntimeException[] errors, boolean parallel) {
+        if (!parallel) {
+            copyErrors(getDataSignatureHandler().doBatchSignatureVerification(rtList, rowClass), errors, 0);
+            return;
+        }
+        int parallelism = ParallelUtils.getParallelism(parallelExecutor);
+        int chunkSize = (rtList.size() + parallelism - 1) / parallelism;
+        List<Integer> offsets = new ArrayList<>(parallelism);
+        for (int offset = 0; offset < rtList.size(); offset += chunkSize) {
+            offsets.add(offset);
+        }
+        ParallelUtils.forEach(offsets, parallelExecutor, offsets.size(), offset -> {
+            List<Object> chunk = rtList.subList(offset, Math.min(offset + chunkSize, rtList.size()));
+            copyErrors(getDataSignatureHandler().doBatchSignatureVerification(chunk, rowClass), errors, offset);
+        });
+    }
+
+    private static void copyErrors(List<RuntimeException> chunkErrors, RuntimeException[] errors, int offset) {
+        for (int i = 0; i < chunkErrors.size(); i++) {
+            errors[offset + i] = chunkErrors.get(i);
+        }
+    }
+
+    /**
+     * 对单行数据验签
+     * @param rawObject 单行数据
+     * @return 验签不通过时返回验签异常，否则返回空；其他异常（例如读取签名失败）直接抛出
+     */
+    private RuntimeException doRawObjectVerification(Object rawObject) {
+        if(Objects.isNull(rawObject) || SimpleTypeRegistry.isSimpleType(rawObject.getClass())){
+            return null;
+        }
+        try {
             getDataSignatureHandler().doSignatureVerification(rawObject, rawObject.getClass());
+            return null;
+        } catch (SignatureMismatchException e) {
+            return e;
         }
     }
 
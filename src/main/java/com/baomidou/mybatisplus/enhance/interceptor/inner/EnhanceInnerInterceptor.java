@@ -1,5 +1,7 @@
 package com.baomidou.mybatisplus.enhance.interceptor.inner;
 
+import com.baomidou.mybatisplus.enhance.interceptor.EnhanceInvocationContext;
+import com.baomidou.mybatisplus.enhance.interceptor.MappedStatementPlan;
 import com.baomidou.mybatisplus.extension.plugins.inner.InnerInterceptor;
 import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.executor.Executor;
@@ -9,13 +11,87 @@ import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 
 import java.sql.SQLException;
+import java.util.Collections;
 import java.util.List;
 
 public interface EnhanceInnerInterceptor extends InnerInterceptor {
 
+    /**
+     * 构建 {@link MappedStatementPlan} 时调用，判断该拦截器是否需要参与查询前置、更新前置处理
+     * （willDoQuery、beforeQuery、willDoUpdate、beforeUpdate）
+     *
+     * @param plan MappedStatement 执行计划
+     * @return false 时该 MappedStatement 的前置处理将跳过此拦截器
+     */
+    default boolean isApplicableBefore(MappedStatementPlan plan) {
+        return true;
+    }
+
+    /**
+     * 构建 {@link MappedStatementPlan} 时调用，判断该拦截器是否需要参与查询后置处理（afterQuery）
+     *
+     * @param plan MappedStatement 执行计划
+     * @return false 时该 MappedStatement 的查询后置处理将跳过此拦截器
+     */
+    default boolean isApplicableAfter(MappedStatementPlan plan) {
+        return true;
+    }
+
     /**
      * {@link Executor#query(MappedStatement, Object, RowBounds, ResultHandler, CacheKey, BoundSql)} 操作前置处理
      * <p>
+     * 由 MybatisPlusEnhanceInterceptor 调用，上下文中的参数提取等结果在整个拦截器链中共享；默认委托给
+     * {@link #beforeQuery(Executor, MappedStatement, Object, RowBounds, ResultHandler, BoundSql)}
+     *
+     * @param context 本次调用的上下文
+     */
+    default void beforeQuery(EnhanceInvocationContext context) throws SQLException {
+        beforeQuery(context.getExecutor(), context.getMappedStatement(), context.getParameter(), context.getRowBounds(),
+                context.getResultHandler(), context.getBoundSql());
+    }
+
+    /**
+     * {@link Executor#update(MappedStatement, Object)} 操作前置处理
+     * <p>
+     * 由 MybatisPlusEnhanceInterceptor 调用，上下文中的参数提取等结果在整个拦截器链中共享；默认委托给
+     * {@link #beforeUpdate(Executor, MappedStatement, Object)}
+     *
+     * @param context 本次调用的上下文
+     */
+    default void beforeUpdate(EnhanceInvocationContext context) throws SQLException {
+        beforeUpdate(context.getExecutor(), context.getMappedStatement(), context.getParameter());
+    }
+
+    /**
+     * {@link Executor#query(MappedStatement, Object, RowBounds, ResultHandler, CacheKey, BoundSql)} 操作后置处理
+     * <p>
+     * 由 MybatisPlusEnhanceInterceptor 调用；默认委托给
+     * {@link #afterQuery(Executor, MappedStatement, Object, RowBounds, ResultHandler, BoundSql, List)}
+     *
+     * @param context 本次调用的上下文
+     * @param rtList  查询结果
+     */
+    default void afterQuery(EnhanceInvocationContext context, List<Object> rtList) throws SQLException {
+        afterQuery(context.getExecutor(), context.getMappedStatement(), context.getParameter(), context.getRowBounds(),
+                context.getResultHandler(), context.getBoundSql(), rtList);
+    }
+
+    /**
+     * 单行查询后置处理，用于通过 ResultHandler 或游标逐行处理的查询结果
+     * <p>
+     * 由 MybatisPlusEnhanceInterceptor 对每一行调用；默认以只包含该行的列表委托给 {@link #afterQuery(EnhanceInvocationContext, List)}，
+     * 逐行处理开销敏感的拦截器应覆盖该方法
+     *
+     * @param context 本次调用的上下文
+     * @param row     单行查询结果
+     */
+    default void afterQueryRow(EnhanceInvocationContext context, Object row) throws SQLException {
+        afterQuery(context, Collections.singletonList(row));
+    }
+
+    /**
+     * {@link Executor#query(MappedStatement, Object, RowBounds, ResultHandler, CacheKey, BoundSql)} 操作后置处理
+     * <p>
      * 改改sql啥的
      *
      * @param executor      Executor(可能是代理对象)
@@ -5,7 +5,10 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.baomidou.mybatisplus.core.toolkit.Constants;
 import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.baomidou.mybatisplus.enhance.crypto.annotation.IgnoreEncrypted;
+import com.baomidou.mybatisplus.enhance.crypto.annotation.IgnoreSignature;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.ResultHandler;
 
 import java.io.Serializable;
 import java.util.Collection;
@@ -20,6 +23,7 @@ public interface EnhanceMapper<T> extends BaseMapper<T> {
      * @return 实体对象
      */
     @IgnoreEncrypted
+    @IgnoreSignature
     T selectIgnoreDecryptById(Serializable id);
 
     /**
@@ -28,6 +32,7 @@ public interface EnhanceMapper<T> extends BaseMapper<T> {
      * @return 实体对象集合
      */
     @IgnoreEncrypted
+    @IgnoreSignature
     List<T> selectIgnoreDecryptBatchIds(@Param(Constants.COLL) Collection<? extends Serializable> idList);
 
     /**
@@ -36,6 +41,7 @@ public interface EnhanceMapper<T> extends BaseMapper<T> {
      * @param queryWrapper 实体对象封装操作类
      */
     @IgnoreEncrypted
+    @IgnoreSignature
     List<Map<String, Object>> selectIgnoreDecryptMaps(@Param(Constants.WRAPPER) Wrapper<T> queryWrapper);
 
     /**
@@ -53,8 +59,19 @@ public interface EnhanceMapper<T> extends BaseMapper<T> {
      * @param queryWrapper 实体对象封装操作类（可以为 null）
      */
     @IgnoreEncrypted
+    @IgnoreSignature
     List<T> selectIgnoreDecryptList(@Param(Constants.WRAPPER) Wrapper<T> queryWrapper);
 
+    /**
+     * 根据 entity 条件，逐行处理全部记录，不解密、不验签，内存占用与结果行数无关
+     *
+     * @param queryWrapper 实体对象封装操作类（可以为 null）
+     * @param handler 结果处理器
+     */
+    @IgnoreEncrypted
+    @IgnoreSignature
+    void selectIgnoreDecryptList(@Param(Constants.WRAPPER) Wrapper<T> queryWrapper, ResultHandler<T> handler);
+
     /**
      * 根据 Wrapper 条件，查询全部记录
      * <p>注意： 只返回第一个字段的值</p>
@@ -62,6 +79,46 @@ public interface EnhanceMapper<T> extends BaseMapper<T> {
      * @param queryWrapper 实体对象封装操作类（可以为 null）
      */
     @IgnoreEncrypted
+    @IgnoreSignature
     <E> List<E> selectIgnoreDecryptObjs(@Param(Constants.WRAPPER) Wrapper<T> queryWrapper);
 
+    /**
+     * 根据 entity 条件，以游标方式查询全部记录，逐行解密、验签，内存占用与结果行数无关
+     * <p>注意：游标需要在 SqlSession 打开期间（例如事务内）读取，读取完成后需要关闭</p>
+     *
+     * @param queryWrapper 实体对象封装操作类（可以为 null）
+     */
+    Cursor<T> selectCursor(@Param(Constants.WRAPPER) Wrapper<T> queryWrapper);
+
+    /**
+     * 根据 whereEntity 条件，更新记录，SET 的值按原样写入，不加密、不签名
+     * <p>注意：用于写入已加密的值（例如密钥轮换重新加密后的密文），调用方需要自行重新签名</p>
+     *
+     * @param entity        实体对象 (set 条件值,可以为 null,当entity为null时,无法进行自动填充)
+     * @param updateWrapper 实体对象封装操作类（可以为 null,里面的 entity 用于生成 where 语句）
+     */
+    @IgnoreEncrypted
+    @IgnoreSignature
+    int updateIgnoreEncrypt(@Param(Constants.ENTITY) T entity, @Param(Constants.WRAPPER) Wrapper<T> updateWrapper);
+
+    /**
+     * 根据 ID 只修改签名字段（@TableSignatureField(stored = true)），不重写整行数据
+     * <p>注意：实体类没有签名存储字段或未使用 EnhanceSqlInjector 时不会注入该方法，应通过 EnhanceServiceImpl 调用，未注入时回退为 UpdateWrapper 更新签名字段</p>
+     *
+     * @param entity 实体对象，签名字段已完成签名
+     */
+    @IgnoreEncrypted
+    @IgnoreSignature
+    int updateSignatureById(@Param(Constants.ENTITY) T entity);
+
+    /**
+     * 根据 ID 集合，以一条 UPDATE ... CASE 语句批量只修改签名字段（@TableSignatureField(stored = true)）
+     * <p>注意：实体类没有签名存储字段或未使用 EnhanceSqlInjector 时不会注入该方法，应通过 EnhanceServiceImpl 调用，未注入时回退为 UpdateWrapper 更新签名字段</p>
+     *
+     * @param entityList 实体对象集合，签名字段已完成签名（不能为 null 以及 empty）
+     */
+    @IgnoreEncrypted
+    @IgnoreSignature
+    int updateSignatureBatchByIds(@Param(Constants.COLL) Collection<T> entityList);
+
 }
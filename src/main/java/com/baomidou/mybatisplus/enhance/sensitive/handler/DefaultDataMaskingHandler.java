@@ -1,6 +1,5 @@
 package com.baomidou.mybatisplus.enhance.sensitive.handler;
 
-import cn.hutool.core.map.MapUtil;
 import cn.hutool.core.util.ReflectUtil;
 import cn.hutool.json.JSONUtil;
 import com.baomidou.mybatisplus.core.conditions.AbstractWrapper;
@@ -8,7 +7,6 @@ import com.baomidou.mybatisplus.core.metadata.TableFieldInfo;
 import com.baomidou.mybatisplus.core.metadata.TableInfo;
 import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
 import com.baomidou.mybatisplus.core.toolkit.AnnotationUtils;
-import com.baomidou.mybatisplus.core.toolkit.Constants;
 import com.baomidou.mybatisplus.enhance.crypto.handler.DataSignatureReadWriteProvider;
 import com.baomidou.mybatisplus.enhance.crypto.handler.DefaultDataSignatureReadWriteProvider;
 import com.baomidou.mybatisplus.enhance.crypto.handler.EncryptedFieldHandler;
@@ -16,16 +14,13 @@ import com.baomidou.mybatisplus.enhance.sensitive.annotation.SensitiveField;
 import com.baomidou.mybatisplus.enhance.sensitive.annotation.SensitiveJSONField;
 import com.baomidou.mybatisplus.enhance.sensitive.annotation.SensitiveJSONFieldKey;
 import com.baomidou.mybatisplus.enhance.sensitive.annotation.SensitiveType;
+import com.baomidou.mybatisplus.enhance.util.SqlSetIndex;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.StringUtils;
 
-import java.util.Arrays;
 import java.util.Map;
 import java.util.Objects;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 @Slf4j
 public class DefaultDataMaskingHandler implements DataMaskingHandler {
@@ -33,7 +28,7 @@ public class DefaultDataMaskingHandler implements DataMaskingHandler {
     /**
      * 变量占位符正则
      */
-    public static final Pattern PARAM_PAIRS_RE = Pattern.compile("#\\{ew\\.paramNameValuePairs\\.(" + Constants.WRAPPER_PARAM + "\\d+)\\}");
+    public static final Pattern PARAM_PAIRS_RE = SqlSetIndex.PARAM_PLACEHOLDER_RE;
     /**
      * 加解密处理器，加解密的情况都在该处理器中自行判断
      */
@@ -109,11 +104,8 @@ public class DefaultDataMaskingHandler implements DataMaskingHandler {
             return;
         }
 
-        // 2、获取 SQL 更新字段内容，例如：name='1', age=2
-        String sqlSet = updateWrapper.getSqlSet();
-        // 2.1、解析SQL更新字段内容，例如：name='1', age=2，解析为Map 对象
-        String[] sqlSetArr = StringUtils.split(sqlSet, Constants.COMMA);
-        Map<String, String> propMap = Arrays.stream(sqlSetArr).map(el -> el.split(Constants.EQUALS)).collect(Collectors.toMap(el -> el[0], el -> el[1]));
+        // 2、获取 SQL 更新字段的索引，例如：name=#{ew.paramNameValuePairs.MPGENVAL1} 索引为 name → MPGENVAL1
+        SqlSetIndex setIndex = SqlSetIndex.of(updateWrapper);
 
         // 3、遍历字段，对字段进行脱敏处理
         for (TableFieldInfo fieldInfo : tableInfo.getFieldList()) {
@@ -127,27 +119,19 @@ public class DefaultDataMaskingHandler implements DataMaskingHandler {
             }
             // 2.5、如果字段上有@SensitiveField 或 @SensitiveJSONField注解，且 maskingWhenSet = true，则进行脱敏处理
             if ((Objects.nonNull(sensitiveField) && sensitiveField.maskingWhenSet()) || (Objects.nonNull(sensitiveJSONField) && sensitiveJSONField.maskingWhenSet())) {
-                // 2.5.1、获取字段的原始值
-                String el = MapUtil.getStr(propMap, fieldInfo.getProperty());
-                // 2.5.2、进行参数正则匹配，如果匹配成功，则对参数进行签名处理
-                Matcher matcher = PARAM_PAIRS_RE.matcher(el);
-                if (matcher.matches()) {
-                    // 2.5.2.1、获取参数变量名
-                    String valueKey = matcher.group(1);
-                    // 2.5.2.2、获取参数变量值
-                    Object fieldValue = updateWrapper.getParamNameValuePairs().get(valueKey);
-                    // 2.5.2.3、对字段进行脱敏处理
-                    Object markingValue = null;
-                    if (Objects.nonNull(sensitiveField) && sensitiveField.maskingWhenSet() && Objects.nonNull(fieldValue)) {
-                        markingValue = SensitiveTypeRegisty.get(sensitiveField.value()).handle(fieldValue);
-                    }
-                    else if (Objects.nonNull(sensitiveJSONField) && sensitiveJSONField.maskingWhenSet()  && Objects.nonNull(fieldValue)) {
-                        markingValue = processJsonField(fieldValue, sensitiveJSONField);
-                    }
-                    // 2.5.2.4、替换参数变量值为脱敏后的值
-                    if(Objects.nonNull(markingValue)){
-                        updateWrapper.getParamNameValuePairs().put(valueKey, markingValue);
-                    }
+                // 2.5.1、获取字段赋值的参数变量值，字段不在 SET 子句中则跳过
+                Object fieldValue = setIndex.getValue(fieldInfo);
+                // 2.5.2、对字段进行脱敏处理
+                Object markingValue = null;
+                if (Objects.nonNull(sensitiveField) && sensitiveField.maskingWhenSet() && Objects.nonNull(fieldValue)) {
+                    markingValue = SensitiveTypeRegisty.get(sensitiveField.value()).handle(fieldValue);
+                }
+                else if (Objects.nonNull(sensitiveJSONField) && sensitiveJSONField.maskingWhenSet()  && Objects.nonNull(fieldValue)) {
+                    markingValue = processJsonField(fieldValue, sensitiveJSONField);
+                }
+                // 2.5.3、替换参数变量值为脱敏后的值
+                if(Objects.nonNull(markingValue)){
+                    setIndex.setValue(fieldInfo, markingValue);
                 }
             }
         }
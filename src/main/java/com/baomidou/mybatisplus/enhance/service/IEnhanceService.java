@@ -2,18 +2,30 @@ package com.baomidou.mybatisplus.enhance.service;
 
 import com.baomidou.mybatisplus.core.conditions.Wrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.core.metadata.TableInfo;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
 import com.baomidou.mybatisplus.core.toolkit.CollectionUtils;
+import com.baomidou.mybatisplus.core.toolkit.ExceptionUtils;
 import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.baomidou.mybatisplus.enhance.crypto.exception.SignatureMismatchException;
+import com.baomidou.mybatisplus.enhance.crypto.exception.SignatureVerificationException;
+import com.baomidou.mybatisplus.enhance.crypto.exception.SignatureVerificationFailure;
+import com.baomidou.mybatisplus.enhance.crypto.integrity.IntegrityAuditReport;
+import com.baomidou.mybatisplus.enhance.interceptor.EnhanceCursor;
 import com.baomidou.mybatisplus.enhance.mapper.EnhanceMapper;
 import com.baomidou.mybatisplus.enhance.util.TableFieldHelper;
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.baomidou.mybatisplus.extension.toolkit.SqlHelper;
+import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.session.ResultHandler;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
@@ -36,6 +48,57 @@ public interface IEnhanceService<T> extends IService<T> {
      */
     <RT> void doSignatureVerification(RT rowObject, Class<?> entityClass);
 
+    /**
+     * 批量对实体对象进行签名，签名读写提供者支持时一次写出全部签名；默认逐个调用 {@link #doEntitySignature(Object)}
+     * @param entities 实体对象列表
+     * @return 签名完成后是否继续执行数据更新操作
+     */
+    default boolean doBatchEntitySignature(List<?> entities) {
+        boolean doUpdate = false;
+        for (Object entity : entities) {
+            doUpdate |= doEntitySignature(entity);
+        }
+        return doUpdate;
+    }
+
+    /**
+     * 批量对同一实体类的数据进行验签，签名读写提供者支持时一次读取全部已存储的签名；
+     * 汇总全部验签失败的数据后抛出 {@link SignatureVerificationException}；默认逐个调用 {@link #doSignatureVerification(Object, Class)}
+     * @param rowObjects 数据对象列表
+     * @param entityClass 实体类
+     */
+    default void doBatchSignatureVerification(List<?> rowObjects, Class<?> entityClass) {
+        List<SignatureVerificationFailure> failures = new ArrayList<>();
+        for (int i = 0; i < rowObjects.size(); i++) {
+            try {
+                doSignatureVerification(rowObjects.get(i), entityClass);
+            } catch (SignatureMismatchException e) {
+                failures.add(new SignatureVerificationFailure(i, rowObjects.get(i), e));
+            }
+        }
+        if (!failures.isEmpty()) {
+            throw new SignatureVerificationException(failures);
+        }
+    }
+
+    /**
+     * 插入数据时是否已由 DataSignatureInnerInterceptor 在内存中完成签名（加密之后、执行 INSERT 之前）
+     * <p>返回 true 时，saveSigned、saveBatchSigned 只对签名字段可能由数据库生成的数据回读重新签名，
+     * 参见 {@link TableFieldHelper#isSignatureGeneratedOnInsert(Object, TableInfo)}；返回 false 时每条数据都回读重新签名</p>
+     */
+    default boolean isInsertSignedInMemory() {
+        return false;
+    }
+
+    /**
+     * 插入后是否需要回读数据重新签名，需要在插入之前调用：插入之后主键、填充字段已有值，无法判断签名时的状态
+     * @param entity 将要插入的实体对象
+     */
+    default boolean isSignatureReadBackRequired(T entity) {
+        return !isInsertSignedInMemory()
+                || TableFieldHelper.isSignatureGeneratedOnInsert(entity, TableInfoHelper.getTableInfo(entity.getClass()));
+    }
+
     /**
      * 插入一条记录（选择字段，策略插入）
      *
@@ -43,8 +106,9 @@ public interface IEnhanceService<T> extends IService<T> {
      */
     @Transactional(rollbackFor = Exception.class)
     default boolean saveSigned(T entity) {
+        boolean readBack = isSignatureReadBackRequired(entity);
         boolean result = SqlHelper.retBool(getBaseMapper().insert(entity));
-        if (result) {
+        if (result && readBack) {
             this.doSignatureById(TableFieldHelper.getKeyValue(entity));
         }
         return result;
@@ -161,7 +225,7 @@ public interface IEnhanceService<T> extends IService<T> {
         List<T> rtList = getBaseMapper().selectBatchIds(idList);
         // 2、验证签名
         if (CollectionUtils.isNotEmpty(rtList)) {
-            rtList.forEach(rowObject -> this.doSignatureVerification(rowObject, rowObject.getClass()));
+            this.doBatchSignatureVerification(rtList, getEntityClass());
         }
         return rtList;
     }
@@ -195,7 +259,7 @@ public interface IEnhanceService<T> extends IService<T> {
         List<T> rtList = getBaseMapper().selectByMap(columnMap);
         // 2、验证签名
         if (CollectionUtils.isNotEmpty(rtList)) {
-            rtList.forEach(rowObject -> this.doSignatureVerification(rowObject, rowObject.getClass()));
+            this.doBatchSignatureVerification(rtList, getEntityClass());
         }
         return rtList;
     }
@@ -282,7 +346,7 @@ public interface IEnhanceService<T> extends IService<T> {
         List<T> rtList = getBaseMapper().selectList(queryWrapper);
         // 2、验证签名
         if (CollectionUtils.isNotEmpty(rtList)) {
-            rtList.forEach(rowObject -> this.doSignatureVerification(rowObject, rowObject.getClass()));
+            this.doBatchSignatureVerification(rtList, getEntityClass());
         }
         return rtList;
     }
@@ -319,7 +383,7 @@ public interface IEnhanceService<T> extends IService<T> {
         List<T> rtList = getBaseMapper().selectList(page, queryWrapper);
         // 2、验证签名
         if (CollectionUtils.isNotEmpty(rtList)) {
-            rtList.forEach(rowObject -> this.doSignatureVerification(rowObject, rowObject.getClass()));
+            this.doBatchSignatureVerification(rtList, getEntityClass());
         }
         return rtList;
     }
@@ -374,7 +438,7 @@ public interface IEnhanceService<T> extends IService<T> {
         page.setRecords(getBaseMapper().selectList(page, queryWrapper));
         // 2、验证签名
         if (CollectionUtils.isNotEmpty(page.getRecords())) {
-            page.getRecords().forEach(rowObject -> this.doSignatureVerification(rowObject, rowObject.getClass()));
+            this.doBatchSignatureVerification(page.getRecords(), getEntityClass());
         }
         return page;
     }
@@ -399,7 +463,7 @@ public interface IEnhanceService<T> extends IService<T> {
         List<Map<String, Object>> rtList = getBaseMapper().selectMaps(queryWrapper);
         // 2、验证签名
         if (CollectionUtils.isNotEmpty(rtList)) {
-            rtList.forEach( rowMap -> this.doSignatureVerification(rowMap, queryWrapper.getEntity().getClass()));
+            this.doBatchSignatureVerification(rtList, queryWrapper.getEntity().getClass());
         }
         return rtList;
     }
@@ -436,7 +500,7 @@ public interface IEnhanceService<T> extends IService<T> {
         List<Map<String, Object>> rtList = getBaseMapper().selectMaps(page, queryWrapper);
         // 2、验证签名
         if (CollectionUtils.isNotEmpty(rtList)) {
-            rtList.forEach( rowMap -> this.doSignatureVerification(rowMap, queryWrapper.getEntity().getClass()));
+            this.doBatchSignatureVerification(rtList, queryWrapper.getEntity().getClass());
         }
         return rtList;
     }
@@ -558,7 +622,7 @@ public interface IEnhanceService<T> extends IService<T> {
         page.setRecords(getBaseMapper().selectMaps(page, queryWrapper));
         // 2、验证签名
         if (CollectionUtils.isNotEmpty(page.getRecords())) {
-            page.getRecords().forEach( rowMap -> this.doSignatureVerification(rowMap, queryWrapper.getEntity().getClass()));
+            this.doBatchSignatureVerification(page.getRecords(), queryWrapper.getEntity().getClass());
         }
         return page;
     }
@@ -573,6 +637,62 @@ public interface IEnhanceService<T> extends IService<T> {
         return pageMaps(page, Wrappers.emptyWrapper());
     }
 
+    /**
+     * 根据 Wrapper 条件，以游标方式查询签名验证通过的数据
+     * <p>
+     * 每一行在迭代时解密、验签，验签失败时异常从迭代器抛出；调用方可以随时停止迭代并关闭游标，内存占用与结果行数无关。
+     * 游标需要在 SqlSession 打开期间（例如事务内）读取，读取完成后需要关闭。
+     * </p>
+     *
+     * @param queryWrapper 实体对象封装操作类（可以为 null）
+     * @return 游标 {@link Cursor}
+     */
+    default Cursor<T> cursorSigned(Wrapper<T> queryWrapper) {
+        return new EnhanceCursor<>(getEnhanceMapper().selectCursor(queryWrapper),
+                rowObject -> this.doSignatureVerification(rowObject, rowObject.getClass()));
+    }
+
+    /**
+     * 根据 Wrapper 条件，逐行读取签名验证通过的数据，适用于导出、完整性审计等大数据量场景
+     * <p>数据逐行从数据库读取、解密、验签后交给 consumer，consumer 处理完成后才读取下一行</p>
+     *
+     * @param queryWrapper 实体对象封装操作类（可以为 null）
+     * @param consumer     逐行处理函数
+     * @return 处理的行数
+     */
+    @Transactional(readOnly = true, rollbackFor = Exception.class)
+    default long streamSigned(Wrapper<T> queryWrapper, Consumer<? super T> consumer) {
+        return streamSignedWhile(queryWrapper, rowObject -> {
+            consumer.accept(rowObject);
+            return true;
+        });
+    }
+
+    /**
+     * 根据 Wrapper 条件，逐行读取签名验证通过的数据，predicate 返回 false 时提前结束读取并关闭游标
+     *
+     * @param queryWrapper 实体对象封装操作类（可以为 null）
+     * @param predicate    逐行处理函数，返回 false 时停止读取
+     * @return 处理的行数
+     */
+    @Transactional(readOnly = true, rollbackFor = Exception.class)
+    default long streamSignedWhile(Wrapper<T> queryWrapper, Predicate<? super T> predicate) {
+        long count = 0;
+        // 1、打开游标，读取完成或提前结束时自动关闭
+        try (Cursor<T> cursor = cursorSigned(queryWrapper)) {
+            // 2、逐行解密、验签后交给调用方处理
+            for (T rowObject : cursor) {
+                count++;
+                if (!predicate.test(rowObject)) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            throw ExceptionUtils.mpe(e);
+        }
+        return count;
+    }
+
     /**
      * 根据 ID 对匹配的实体进行表签名
      *
@@ -643,6 +763,48 @@ public interface IEnhanceService<T> extends IService<T> {
     @Transactional(rollbackFor = Exception.class)
     void doSignatureVerificationByWrappers(List<Wrapper<T>> queryWrappers);
 
+    /**
+     * 根据 ID 删除，启用表完整性摘要时同步从摘要中移除该数据
+     *
+     * @param id 主键ID
+     */
+    @Transactional(rollbackFor = Exception.class)
+    default boolean removeSignedById(Serializable id) {
+        return removeSignedByIds(Collections.singletonList(id));
+    }
+
+    /**
+     * 根据 ID 批量删除，启用表完整性摘要时同步从摘要中移除这些数据
+     *
+     * @param idList 主键ID列表(不能为 null 以及 empty)
+     */
+    @Transactional(rollbackFor = Exception.class)
+    boolean removeSignedByIds(Collection<? extends Serializable> idList);
+
+    /**
+     * 审计表完整性：以一次查询逐行读取主键和签名（外部存储的签名每批读取一次），在内存中计算全部分桶摘要，与已存储的摘要比较，
+     * 只对不一致或包含没有签名的数据行的分桶读取完整数据逐行验签
+     * <p>摘要覆盖（主键，签名值），可以发现绕过 IEnhanceService 删除、插入、修改签名值或用其他行的数据和签名替换的数据；
+     * 只修改签名字段而不修改签名值的数据由逐行验签发现（例如 doSignatureVerificationByWrappers）</p>
+     * <p>注意：实体类需要通过 @TableSignature(integrityBucketSize) 启用表完整性摘要</p>
+     */
+    IntegrityAuditReport auditIntegritySummary();
+
+    /**
+     * 根据当前数据重建表完整性摘要，用于对已有数据的表启用摘要，或确认数据可信后修复摘要
+     * <p>注意：重建会以当前数据为准覆盖已存储的摘要，只能在确认数据可信时执行</p>
+     */
+    @Transactional(rollbackFor = Exception.class)
+    void rebuildIntegritySummary();
+
+    /**
+     * 将延迟重新签名日志中尚未完成的数据重新提交到 DeferredSignatureQueue，应用启动时调用
+     * <p>注意：未配置 DeferredSignatureQueue 时返回 0</p>
+     *
+     * @return 重新提交的主键数量
+     */
+    int recoverDeferredSignatures();
+
     /**
      * 获取对应 entity 的 BaseMapper
      *
@@ -0,0 +1,37 @@
+package com.baomidou.mybatisplus.enhance.service.deferred;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 延迟重新签名日志，用于进程崩溃后恢复尚未完成重新签名的数据
+ * <p>
+ * 1、提交重新签名任务时（事务提交前）记录主键，事务回滚或重新签名完成后标记完成
+ * 2、重启后通过 {@link #pending()} 读取尚未完成的主键，重新提交到队列；重复签名是幂等的
+ * </p>
+ */
+public interface DeferredSignatureJournal {
+
+    /**
+     * 记录需要重新签名的主键
+     * @param entityName 实体类名
+     * @param ids 主键列表
+     */
+    void append(String entityName, Collection<? extends Serializable> ids);
+
+    /**
+     * 标记主键已完成重新签名（或事务已回滚，不需要重新签名）
+     * @param entityName 实体类名
+     * @param ids 主键列表
+     */
+    void complete(String entityName, Collection<? extends Serializable> ids);
+
+    /**
+     * 读取尚未完成重新签名的主键
+     * @return 实体类名与主键字符串列表，同一主键尚未完成的提交次数大于 1 时重复出现
+     */
+    Map<String, List<String>> pending();
+
+}
@@ -0,0 +1,539 @@
+package com.baomidou.mybatisplus.enhance.service.deferred;
+
+import com.baomidou.mybatisplus.core.toolkit.Constants;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.Closeable;
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 延迟重新签名队列
+ * <p>
+ * 1、批量写入后只提交需要重新签名的主键：存在 Spring 事务时在事务提交后（afterCommit）入队，事务回滚时丢弃；不存在事务时立即入队
+ * 2、队列按实体类分组，同一实体类尚未处理的重复主键只保留一个；工作线程按实体类轮流取出最多 batchSize 个主键，合并为一次重新签名
+ * 3、队列中的主键数量达到 capacity 时，入队线程最多等待 offerTimeoutMillis，仍然没有空间时由入队线程同步重新签名（背压）
+ * 4、重新签名失败的一批主键等待 retryBackoffMillis * 2^(n-1) 毫秒后重新入队，最多执行 maxAttempts 次
+ * 5、配置 {@link DeferredSignatureJournal} 时，主键在事务提交前写入日志，重新签名完成或事务回滚后标记完成；
+ * 重试次数用尽的主键保留在日志中，重启后通过 {@link #recover(Class, Function, Consumer)} 重新入队
+ * 6、配置 PlatformTransactionManager 时每次重新签名以 PROPAGATION_REQUIRES_NEW 在独立事务中执行，入队线程在 afterCommit 中同步重新签名时也不会加入已提交的事务
+ * 7、创建后需要调用 {@link #start()} 启动工作线程，Spring 中可以声明为 @Bean(initMethod = "start", destroyMethod = "close")
+ * </p>
+ */
+@Slf4j
+public class DeferredSignatureQueue implements Closeable {
+
+    /**
+     * 默认的队列容量（主键数量）
+     */
+    public static final int DEFAULT_CAPACITY = 100000;
+    /**
+     * 默认的入队等待时间
+     */
+    public static final long DEFAULT_OFFER_TIMEOUT_MILLIS = 1000;
+    /**
+     * 默认的最大执行次数（包含第一次）
+     */
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+    /**
+     * 默认的首次重试等待时间
+     */
+    public static final long DEFAULT_RETRY_BACKOFF_MILLIS = 1000;
+
+    /**
+     * 工作线程数量
+     */
+    @Getter
+    private final int workers;
+    /**
+     * 队列容量（主键数量）
+     */
+    @Getter
+    private final int capacity;
+    /**
+     * 每次重新签名的最大主键数量
+     */
+    @Getter
+    private final int batchSize;
+    /**
+     * 队列已满时入队线程的最大等待时间，超时后由入队线程同步重新签名
+     */
+    @Getter
+    private final long offerTimeoutMillis;
+    /**
+     * 延迟重新签名日志，为空时不记录日志
+     */
+    @Getter
+    private final DeferredSignatureJournal journal;
+    /**
+     * 每批主键的最大执行次数（包含第一次），小于等于 1 时不重试
+     */
+    @Getter
+    private final int maxAttempts;
+    /**
+     * 首次重试的等待时间，之后每次加倍
+     */
+    @Getter
+    private final long retryBackoffMillis;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Condition idle = lock.newCondition();
+    /**
+     * 按实体类分组的待重新签名主键，值为主键被提交的次数
+     */
+    private final Map<String, Target> targets = new LinkedHashMap<>();
+    private final List<Thread> threads = new ArrayList<>();
+    private ScheduledExecutorService retryScheduler;
+    private int pendingCount;
+    private int inFlight;
+    private int retrying;
+    private boolean started;
+    private boolean closed;
+
+    private final AtomicLong submittedCount = new AtomicLong();
+    private final AtomicLong deduplicatedCount = new AtomicLong();
+    private final AtomicLong signedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong callerRunsCount = new AtomicLong();
+    private final AtomicLong retriedCount = new AtomicLong();
+
+    public DeferredSignatureQueue(int workers, DeferredSignatureJournal journal, PlatformTransactionManager transactionManager) {
+        this(workers, DEFAULT_CAPACITY, Constants.DEFAULT_BATCH_SIZE, DEFAULT_OFFER_TIMEOUT_MILLIS, journal, transactionManager);
+    }
+
+    public DeferredSignatureQueue(int workers, int capacity, int batchSize, long offerTimeoutMillis,
+                                  DeferredSignatureJournal journal, PlatformTransactionManager transactionManager) {
+        this(workers, capacity, batchSize, offerTimeoutMillis, DEFAULT_MAX_ATTEMPTS, DEFAULT_RETRY_BACKOFF_MILLIS, journal, transactionManager);
+    }
+
+    /**
+     * @param workers 工作线程数量
+     * @param capacity 队列容量（主键数量）
+     * @param batchSize 每次重新签名的最大主键数量
+     * @param offerTimeoutMillis 队列已满时入队线程的最大等待时间，超时后由入队线程同步重新签名
+     * @param maxAttempts 每批主键的最大执行次数（包含第一次），小于等于 1 时不重试
+     * @param retryBackoffMillis 首次重试的等待时间，之后每次加倍
+     * @param journal 延迟重新签名日志，为空时不记录日志
+     * @param transactionManager 事务管理器，不为空时每次重新签名以 PROPAGATION_REQUIRES_NEW 在独立事务中执行
+     */
+    public DeferredSignatureQueue(int workers, int capacity, int batchSize, long offerTimeoutMillis, int maxAttempts, long retryBackoffMillis,
+                                  DeferredSignatureJournal journal, PlatformTransactionManager transactionManager) {
+        this.workers = Math.max(workers, 1);
+        this.capacity = Math.max(capacity, 1);
+        this.batchSize = Math.max(batchSize, 1);
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.maxAttempts = Math.max(maxAttempts, 1);
+        this.retryBackoffMillis = Math.max(retryBackoffMillis, 0);
+        this.journal = journal;
+        if (Objects.isNull(transactionManager)) {
+            this.transactionTemplate = null;
+        } else {
+            this.transactionTemplate = new TransactionTemplate(transactionManager);
+            this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        }
+    }
+
+    /**
+     * 启动工作线程和重试线程，重复调用不产生影响；启动前提交的主键在启动后处理
+     */
+    public void start() {
+        lock.lock();
+        try {
+            if (started || closed) {
+                return;
+            }
+            started = true;
+            for (int i = 0; i < workers; i++) {
+                Thread thread = new Thread(this::work, "deferred-signature-" + i);
+                thread.setDaemon(true);
+                thread.start();
+                threads.add(thread);
+            }
+            retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "deferred-signature-retry");
+                thread.setDaemon(true);
+                return thread;
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 提交需要重新签名的主键
+     * @param entityClass 实体类
+     * @param ids 主键列表，忽略空值
+     * @param signer 重新签名操作，例如 IEnhanceService#doSignatureByBatchIds
+     */
+    public void submit(Class<?> entityClass, Collection<? extends Serializable> ids, Consumer<Collection<Serializable>> signer) {
+        List<Serializable> idList = new ArrayList<>(ids.size());
+        for (Serializable id : ids) {
+            if (Objects.nonNull(id)) {
+                idList.add(id);
+            }
+        }
+        if (idList.isEmpty()) {
+            return;
+        }
+        String entityName = entityClass.getName();
+        submittedCount.addAndGet(idList.size());
+        // 1、事务提交前写入日志，提交后进程崩溃也可以恢复
+        if (Objects.nonNull(journal)) {
+            journal.append(entityName, idList);
+        }
+        // 2、存在事务时在事务提交后入队，事务回滚时数据未修改，不需要重新签名
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    enqueue(entityName, idList, signer);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    // 提交结果未知时保留日志，由恢复流程重新签名
+                    if (status == TransactionSynchronization.STATUS_ROLLED_BACK && Objects.nonNull(journal)) {
+                        journal.complete(entityName, idList);
+                    }
+                }
+            });
+        } else {
+            enqueue(entityName, idList, signer);
+        }
+    }
+
+    /**
+     * 将日志中尚未完成重新签名的主键重新入队，应用启动时调用
+     * @param entityClass 实体类
+     * @param idParser 主键字符串转换为主键值
+     * @param signer 重新签名操作
+     * @return 重新入队的主键数量
+     */
+    public int recover(Class<?> entityClass, Function<String, Serializable> idParser, Consumer<Collection<Serializable>> signer) {
+        if (Objects.isNull(journal)) {
+            return 0;
+        }
+        List<String> pending = journal.pending().get(entityClass.getName());
+        if (Objects.isNull(pending) || pending.isEmpty()) {
+            return 0;
+        }
+        List<Serializable> idList = new ArrayList<>(pending.size());
+        for (String id : pending) {
+            idList.add(idParser.apply(id));
+        }
+        enqueue(entityClass.getName(), idList, signer);
+        return idList.size();
+    }
+
+    private void enqueue(String entityName, List<Serializable> idList, Consumer<Collection<Serializable>> signer) {
+        Map<Serializable, Integer> overflow = new LinkedHashMap<>();
+        lock.lock();
+        try {
+            Target target = targets.computeIfAbsent(entityName, key -> new Target());
+            target.signer = signer;
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(offerTimeoutMillis);
+            for (Serializable id : idList) {
+                // 1、尚未处理的重复主键只增加提交次数
+                Integer references = target.pendingIds.get(id);
+                if (Objects.nonNull(references)) {
+                    target.pendingIds.put(id, references + 1);
+                    deduplicatedCount.incrementAndGet();
+                    continue;
+                }
+                // 2、队列已满时等待空间，超时后由当前线程同步重新签名
+                if (!awaitCapacity(deadline)) {
+                    overflow.merge(id, 1, Integer::sum);
+                    continue;
+                }
+                target.pendingIds.put(id, 1);
+                pendingCount++;
+            }
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (!overflow.isEmpty()) {
+            callerRunsCount.addAndGet(overflow.size());
+            sign(entityName, signer, overflow, 1);
+        }
+    }
+
+    /**
+     * 重新签名失败的一批主键在等待后重新入队，重试不受队列容量限制；重试次数用尽或队列已关闭时保留在日志中
+     */
+    private void retry(String entityName, Consumer<Collection<Serializable>> signer, Map<Serializable, Integer> batch, int attempt) {
+        lock.lock();
+        try {
+            if (attempt >= maxAttempts || closed || Objects.isNull(retryScheduler)) {
+                failedCount.addAndGet(batch.size());
+                log.error("Deferred signature of {} rows of {} failed after {} attempts, they are kept in the journal for recovery",
+                        batch.size(), entityName, attempt);
+                return;
+            }
+            retrying++;
+            long delay = retryBackoffMillis << Math.min(attempt - 1, 20);
+            retryScheduler.schedule(() -> requeue(entityName, signer, batch, attempt + 1), delay, TimeUnit.MILLISECONDS);
+        } finally {
+            lock.unlock();
+        }
+        retriedCount.addAndGet(batch.size());
+    }
+
+    private void requeue(String entityName, Consumer<Collection<Serializable>> signer, Map<Serializable, Integer> batch, int attempt) {
+        lock.lock();
+        try {
+            retrying--;
+            Target target = targets.computeIfAbsent(entityName, key -> new Target());
+            if (Objects.isNull(target.signer)) {
+                target.signer = signer;
+            }
+            batch.forEach((id, references) -> {
+                Integer pending = target.pendingIds.get(id);
+                target.pendingIds.put(id, Objects.isNull(pending) ? references : pending + references);
+                target.attempts.merge(id, attempt, Math::max);
+                if (Objects.isNull(pending)) {
+                    pendingCount++;
+                }
+            });
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean awaitCapacity(long deadline) {
+        try {
+            while (pendingCount >= capacity && !closed) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                notFull.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return !closed;
+    }
+
+    private void work() {
+        while (true) {
+            String entityName;
+            Consumer<Collection<Serializable>> signer;
+            Map<Serializable, Integer> batch = new LinkedHashMap<>();
+            int attempt = 1;
+            lock.lock();
+            try {
+                while (pendingCount == 0 && !closed) {
+                    notEmpty.awaitUninterruptibly();
+                }
+                if (pendingCount == 0) {
+                    return;
+                }
+                // 按实体类轮流取出一批主键，取出后该实体类移到末尾
+                Map.Entry<String, Target> entry = targets.entrySet().stream()
+                        .filter(candidate -> !candidate.getValue().pendingIds.isEmpty()).findFirst().get();
+                entityName = entry.getKey();
+                Target target = entry.getValue();
+                signer = target.signer;
+                Iterator<Map.Entry<Serializable, Integer>> iterator = target.pendingIds.entrySet().iterator();
+                while (iterator.hasNext() && batch.size() < batchSize) {
+                    Map.Entry<Serializable, Integer> id = iterator.next();
+                    batch.put(id.getKey(), id.getValue());
+                    Integer idAttempt = target.attempts.remove(id.getKey());
+                    attempt = Objects.isNull(idAttempt) ? attempt : Math.max(attempt, idAttempt);
+                    iterator.remove();
+                }
+                targets.remove(entityName);
+                targets.put(entityName, target);
+                pendingCount -= batch.size();
+                inFlight++;
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            try {
+                sign(entityName, signer, batch, attempt);
+            } finally {
+                lock.lock();
+                try {
+                    inFlight--;
+                    if (pendingCount == 0 && inFlight == 0 && retrying == 0) {
+                        idle.signalAll();
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    private void sign(String entityName, Consumer<Collection<Serializable>> signer, Map<Serializable, Integer> batch, int attempt) {
+        List<Serializable> ids = new ArrayList<>(batch.keySet());
+        try {
+            if (Objects.isNull(transactionTemplate)) {
+                signer.accept(ids);
+            } else {
+                transactionTemplate.execute(status -> {
+                    signer.accept(ids);
+                    return null;
+                });
+            }
+            signedCount.addAndGet(ids.size());
+        } catch (RuntimeException e) {
+            log.warn("Deferred signature of {} rows of {} failed on attempt {}", ids.size(), entityName, attempt, e);
+            retry(entityName, signer, batch, attempt);
+            return;
+        }
+        // 按提交次数标记完成
+        if (Objects.nonNull(journal)) {
+            List<Serializable> completed = new ArrayList<>(ids.size());
+            batch.forEach((id, references) -> {
+                for (int i = 0; i < references; i++) {
+                    completed.add(id);
+                }
+            });
+            journal.complete(entityName, completed);
+        }
+    }
+
+    /**
+     * 等待队列中的主键全部处理完成，包含等待重试的主键
+     * @param timeout 最大等待时间
+     * @param unit 时间单位
+     * @return 是否已全部处理完成
+     */
+    public boolean flush(long timeout, TimeUnit unit) throws InterruptedException {
+        long remaining = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (pendingCount > 0 || inFlight > 0 || retrying > 0) {
+                if (remaining <= 0) {
+                    return false;
+                }
+                remaining = idle.awaitNanos(remaining);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 队列中尚未处理的主键数量
+     */
+    public int getPendingCount() {
+        lock.lock();
+        try {
+            return pendingCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 已提交的主键数量
+     */
+    public long getSubmittedCount() {
+        return submittedCount.get();
+    }
+
+    /**
+     * 因重复提交而合并的主键数量
+     */
+    public long getDeduplicatedCount() {
+        return deduplicatedCount.get();
+    }
+
+    /**
+     * 已完成重新签名的主键数量
+     */
+    public long getSignedCount() {
+        return signedCount.get();
+    }
+
+    /**
+     * 重试次数用尽后仍然重新签名失败的主键数量
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * 队列已满时由入队线程同步重新签名的主键数量
+     */
+    public long getCallerRunsCount() {
+        return callerRunsCount.get();
+    }
+
+    /**
+     * 重新签名失败后等待重试的主键数量（按次累计）
+     */
+    public long getRetriedCount() {
+        return retriedCount.get();
+    }
+
+    /**
+     * 停止接收新的主键，处理完队列中已有的主键后停止工作线程；尚未执行的重试取消，对应的主键保留在日志中
+     */
+    @Override
+    public void close() {
+        List<Thread> workerThreads;
+        lock.lock();
+        try {
+            closed = true;
+            workerThreads = new ArrayList<>(threads);
+            if (Objects.nonNull(retryScheduler)) {
+                retryScheduler.shutdownNow();
+            }
+            retrying = 0;
+            notEmpty.signalAll();
+            notFull.signalAll();
+            idle.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        for (Thread thread : workerThreads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * 实体类的待重新签名主键
+     */
+    private static class Target {
+
+        private final Map<Serializable, Integer> pendingIds = new LinkedHashMap<>();
+        /**
+         * 重新入队的主键已执行的次数
+         */
+        private final Map<Serializable, Integer> attempts = new HashMap<>();
+        private Consumer<Collection<Serializable>> signer;
+
+    }
+
+}
@@ -0,0 +1,193 @@
+package com.baomidou.mybatisplus.enhance.service.deferred;
+
+import com.baomidou.mybatisplus.core.toolkit.ExceptionUtils;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * 基于本地文件的延迟重新签名日志
+ * <p>
+ * 1、每条记录一行：A\t实体类名\t主键 表示提交，C\t实体类名\t主键 表示完成；同一主键可以多次提交，完成次数与提交次数相同时才移除
+ * 2、启动时重放日志得到尚未完成的主键，并压缩日志文件；完成记录数达到阈值后再次压缩，日志文件大小与未完成的主键数量相关
+ * 3、sync = true 时每次写入后调用 fsync，进程或操作系统崩溃后都不会丢失已提交的主键
+ * </p>
+ * <p>注意：主键的字符串形式不能包含制表符和换行符</p>
+ */
+@Slf4j
+public class FileDeferredSignatureJournal implements DeferredSignatureJournal, Closeable {
+
+    /**
+     * 默认的日志压缩阈值（完成记录数）
+     */
+    public static final int DEFAULT_COMPACT_THRESHOLD = 10000;
+
+    private static final String APPEND = "A";
+    private static final String COMPLETE = "C";
+    private static final String SEPARATOR = "\t";
+
+    @Getter
+    private final Path path;
+    @Getter
+    private final boolean sync;
+    @Getter
+    private final int compactThreshold;
+    /**
+     * 尚未完成的主键及其提交次数，与日志文件内容一致
+     */
+    private final Map<String, Map<String, Integer>> pendingIds = new LinkedHashMap<>();
+    private FileOutputStream outputStream;
+    private Writer writer;
+    private int completedSinceCompact;
+
+    public FileDeferredSignatureJournal(Path path) {
+        this(path, true, DEFAULT_COMPACT_THRESHOLD);
+    }
+
+    /**
+     * @param path 日志文件路径
+     * @param sync 每次写入后是否调用 fsync
+     * @param compactThreshold 完成记录数达到该值时压缩日志文件
+     */
+    public FileDeferredSignatureJournal(Path path, boolean sync, int compactThreshold) {
+        this.path = path;
+        this.sync = sync;
+        this.compactThreshold = compactThreshold;
+        try {
+            // 1、重放已有的日志，得到尚未完成的主键
+            if (Files.exists(path)) {
+                for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                    String[] parts = line.split(SEPARATOR, 3);
+                    if (parts.length == 3) {
+                        apply(parts[0], parts[1], parts[2]);
+                    }
+                }
+            }
+            // 2、压缩日志文件，并以追加方式打开
+            compact();
+        } catch (IOException e) {
+            throw ExceptionUtils.mpe("Open deferred signature journal %s error", e, path);
+        }
+    }
+
+    @Override
+    public synchronized void append(String entityName, Collection<? extends Serializable> ids) {
+        write(APPEND, entityName, ids);
+    }
+
+    @Override
+    public synchronized void complete(String entityName, Collection<? extends Serializable> ids) {
+        Map<String, Integer> entityIds = pendingIds.get(entityName);
+        if (Objects.isNull(entityIds)) {
+            return;
+        }
+        // 只记录确实尚未完成的主键
+        List<Serializable> completed = new ArrayList<>(ids.size());
+        for (Serializable id : ids) {
+            if (entityIds.containsKey(String.valueOf(id))) {
+                completed.add(id);
+            }
+        }
+        write(COMPLETE, entityName, completed);
+        completedSinceCompact += completed.size();
+        if (completedSinceCompact >= compactThreshold) {
+            try {
+                compact();
+            } catch (IOException e) {
+                log.warn("Compact deferred signature journal {} error: {}", path, e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public synchronized Map<String, List<String>> pending() {
+        Map<String, List<String>> pending = new LinkedHashMap<>(pendingIds.size() * 2);
+        pendingIds.forEach((entityName, entityIds) -> {
+            List<String> ids = new ArrayList<>(entityIds.size());
+            entityIds.forEach((id, count) -> {
+                for (int i = 0; i < count; i++) {
+                    ids.add(id);
+                }
+            });
+            pending.put(entityName, ids);
+        });
+        return pending;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (Objects.nonNull(writer)) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    private void write(String type, String entityName, Collection<? extends Serializable> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        try {
+            for (Serializable id : ids) {
+                writer.write(type + SEPARATOR + entityName + SEPARATOR + id + "\n");
+            }
+            writer.flush();
+            if (sync) {
+                outputStream.getFD().sync();
+            }
+        } catch (IOException e) {
+            throw ExceptionUtils.mpe("Write deferred signature journal %s error", e, path);
+        }
+        for (Serializable id : ids) {
+            apply(type, entityName, String.valueOf(id));
+        }
+    }
+
+    private void apply(String type, String entityName, String id) {
+        if (APPEND.equals(type)) {
+            pendingIds.computeIfAbsent(entityName, key -> new LinkedHashMap<>()).merge(id, 1, Integer::sum);
+        } else if (COMPLETE.equals(type)) {
+            Map<String, Integer> entityIds = pendingIds.get(entityName);
+            if (Objects.nonNull(entityIds)) {
+                entityIds.computeIfPresent(id, (key, count) -> count > 1 ? count - 1 : null);
+                if (entityIds.isEmpty()) {
+                    pendingIds.remove(entityName);
+                }
+            }
+        }
+    }
+
+    /**
+     * 只保留尚未完成的主键，写入临时文件后替换日志文件
+     */
+    private void compact() throws IOException {
+        close();
+        Path parent = path.toAbsolutePath().getParent();
+        if (Objects.nonNull(parent)) {
+            Files.createDirectories(parent);
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileOutputStream tempStream = new FileOutputStream(temp.toFile());
+             Writer tempWriter = new BufferedWriter(new OutputStreamWriter(tempStream, StandardCharsets.UTF_8))) {
+            for (Map.Entry<String, Map<String, Integer>> entry : pendingIds.entrySet()) {
+                for (Map.Entry<String, Integer> id : entry.getValue().entrySet()) {
+                    for (int i = 0; i < id.getValue(); i++) {
+                        tempWriter.write(APPEND + SEPARATOR + entry.getKey() + SEPARATOR + id.getKey() + "\n");
+                    }
+                }
+            }
+            tempWriter.flush();
+            tempStream.getFD().sync();
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        this.outputStream = new FileOutputStream(path.toFile(), true);
+        this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        this.completedSinceCompact = 0;
+    }
+
+}
@@ -1,22 +1,40 @@
 package com.baomidou.mybatisplus.enhance.service.impl;
 
+import cn.hutool.core.convert.Convert;
 import com.baomidou.mybatisplus.core.conditions.Wrapper;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
 import com.baomidou.mybatisplus.core.enums.SqlMethod;
+import com.baomidou.mybatisplus.core.metadata.TableFieldInfo;
 import com.baomidou.mybatisplus.core.metadata.TableInfo;
 import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
 import com.baomidou.mybatisplus.core.toolkit.Assert;
 import com.baomidou.mybatisplus.core.toolkit.CollectionUtils;
 import com.baomidou.mybatisplus.core.toolkit.Constants;
+import com.baomidou.mybatisplus.core.toolkit.StringPool;
 import com.baomidou.mybatisplus.core.toolkit.StringUtils;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.baomidou.mybatisplus.enhance.crypto.exception.SignatureVerificationException;
+import com.baomidou.mybatisplus.enhance.crypto.exception.SignatureVerificationFailure;
 import com.baomidou.mybatisplus.enhance.crypto.handler.DataSignatureHandler;
+import com.baomidou.mybatisplus.enhance.crypto.integrity.IntegrityAuditReport;
+import com.baomidou.mybatisplus.enhance.crypto.integrity.IntegrityBucket;
+import com.baomidou.mybatisplus.enhance.crypto.integrity.TableIntegritySummary;
+import com.baomidou.mybatisplus.enhance.enums.EnhanceSqlMethod;
+import com.baomidou.mybatisplus.enhance.interceptor.inner.DataSignatureInnerInterceptor;
 import com.baomidou.mybatisplus.enhance.mapper.EnhanceMapper;
 import com.baomidou.mybatisplus.enhance.service.IEnhanceService;
+import com.baomidou.mybatisplus.enhance.service.deferred.DeferredSignatureQueue;
+import com.baomidou.mybatisplus.enhance.util.SignaturePlan;
 import com.baomidou.mybatisplus.enhance.util.TableFieldHelper;
+import com.baomidou.mybatisplus.extension.plugins.MybatisPlusInterceptor;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.baomidou.mybatisplus.extension.toolkit.SqlHelper;
 import lombok.Getter;
 import org.apache.ibatis.binding.MapperMethod;
+import org.springframework.beans.factory.BeanNameAware;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.io.Serializable;
@@ -33,7 +51,7 @@ import java.util.function.Function;
  * @param <M> Mapper
  * @param <T> Entity
  */
-public abstract class EnhanceServiceImpl<M extends EnhanceMapper<T>, T> extends ServiceImpl<M, T> implements IEnhanceService<T> {
+public abstract class EnhanceServiceImpl<M extends EnhanceMapper<T>, T> extends ServiceImpl<M, T> implements IEnhanceService<T>, BeanNameAware {
 
     @Autowired
     protected M enhanceMapper;
@@ -51,6 +69,65 @@ public abstract class EnhanceServiceImpl<M extends EnhanceMapper<T>, T> extends
     @Getter
     protected DataSignatureHandler dataSignatureHandler;
 
+    /**
+     * 表完整性摘要，为空时不维护摘要；实体类需要通过 @TableSignature(integrityBucketSize) 启用
+     */
+    @Autowired(required = false)
+    @Getter
+    protected TableIntegritySummary tableIntegritySummary;
+
+    /**
+     * 延迟重新签名队列，为空时批量写入后同步重新签名
+     */
+    @Autowired(required = false)
+    @Getter
+    protected DeferredSignatureQueue deferredSignatureQueue;
+
+    /**
+     * Spring 容器，用于获取当前 Service 的代理对象
+     */
+    @Autowired(required = false)
+    protected ApplicationContext applicationContext;
+    private String beanName;
+
+    @Override
+    public void setBeanName(String name) {
+        this.beanName = name;
+    }
+
+    /**
+     * 获取当前 Service 的 Spring 代理对象，使工作线程中的重新签名经过 @Transactional 等切面；不在 Spring 容器中时返回当前对象
+     */
+    @SuppressWarnings("unchecked")
+    protected IEnhanceService<T> getProxy() {
+        if (Objects.isNull(this.applicationContext) || Objects.isNull(this.beanName) || !this.applicationContext.containsBean(this.beanName)) {
+            return this;
+        }
+        return this.applicationContext.getBean(this.beanName, IEnhanceService.class);
+    }
+
+    /**
+     * 插入数据时是否已由拦截器在内存中完成签名，首次调用时根据已注册的拦截器判断
+     */
+    private volatile Boolean insertSignedInMemory;
+
+    /**
+     * 已注册开启数据签名的 DataSignatureInnerInterceptor 时，插入数据在加密之后、执行 INSERT 之前已完成签名
+     */
+    @Override
+    public boolean isInsertSignedInMemory() {
+        Boolean signedInMemory = this.insertSignedInMemory;
+        if (Objects.isNull(signedInMemory)) {
+            signedInMemory = getSqlSessionFactory().getConfiguration().getInterceptors().stream()
+                    .filter(interceptor -> interceptor instanceof MybatisPlusInterceptor)
+                    .flatMap(interceptor -> ((MybatisPlusInterceptor) interceptor).getInterceptors().stream())
+                    .anyMatch(interceptor -> interceptor instanceof DataSignatureInnerInterceptor
+                            && ((DataSignatureInnerInterceptor) interceptor).isSignSwitch());
+            this.insertSignedInMemory = signedInMemory;
+        }
+        return signedInMemory;
+    }
+
     @Override
     public <RT> boolean doEntitySignature(RT entity) {
         return getDataSignatureHandler().doEntitySignature(entity);
@@ -61,6 +138,55 @@ public abstract class EnhanceServiceImpl<M extends EnhanceMapper<T>, T> extends
         getDataSignatureHandler().doSignatureVerification(rowObject, entityClass);
     }
 
+    @Override
+    public boolean doBatchEntitySignature(List<?> entities) {
+        return getDataSignatureHandler().doBatchEntitySignature(entities);
+    }
+
+    @Override
+    public void doBatchSignatureVerification(List<?> rowObjects, Class<?> entityClass) {
+        List<RuntimeException> errors = getDataSignatureHandler().doBatchSignatureVerification(rowObjects, entityClass);
+        List<SignatureVerificationFailure> failures = new ArrayList<>();
+        for (int i = 0; i < errors.size(); i++) {
+            if (Objects.nonNull(errors.get(i))) {
+                failures.add(new SignatureVerificationFailure(i, rowObjects.get(i), errors.get(i)));
+            }
+        }
+        if (!failures.isEmpty()) {
+            throw new SignatureVerificationException(failures);
+        }
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean saveSigned(T entity) {
+        // 插入之前判断，插入之后主键等字段已被填充
+        boolean readBack = isSignatureReadBackRequired(entity);
+        boolean result = SqlHelper.retBool(getBaseMapper().insert(entity));
+        if (result) {
+            if (readBack) {
+                this.doSignatureById(TableFieldHelper.getKeyValue(entity), Collections.emptyMap());
+            } else {
+                // 已在内存中完成签名的数据直接计入表完整性摘要
+                this.updateIntegritySummary(Collections.emptyMap(), this.readIntegritySignatures(Collections.singletonList(entity)));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean updateSignedById(T entity) {
+        Serializable id = TableFieldHelper.getKeyValue(entity);
+        // 修改前记录表完整性摘要需要移除的签名值
+        Map<String, Optional<Object>> previousSignatures = this.snapshotIntegritySignatures(Collections.singletonList(id));
+        boolean result = SqlHelper.retBool(getBaseMapper().updateById(entity));
+        if (result) {
+            this.doSignatureById(id, previousSignatures);
+        }
+        return result;
+    }
+
     /**
      * 批量插入
      *
@@ -71,18 +197,29 @@ public abstract class EnhanceServiceImpl<M extends EnhanceMapper<T>, T> extends
     @Transactional(rollbackFor = Exception.class)
     @Override
     public boolean saveBatchSigned(Collection<T> entityList, int batchSize) {
+        TableInfo tableInfo = TableInfoHelper.getTableInfo(this.getEntityClass());
+        Assert.notNull(tableInfo, "error: can not execute. because can not find cache of TableInfo for entity!");
         String sqlStatement = getSqlStatement(SqlMethod.INSERT_ONE);
-        Set<Serializable> idSet = new HashSet<>(entityList.size());
+        List<T> readBackList = new ArrayList<>(entityList.size());
+        List<T> signedList = new ArrayList<>(entityList.size());
         try {
             return executeBatch(entityList, batchSize, (sqlSession, entity) -> {
+                // 插入之前判断是否需要回读重新签名，插入之后主键等字段已被填充
+                boolean readBack = isSignatureReadBackRequired(entity);
                 // 保存数据
                 sqlSession.insert(sqlStatement, entity);
-                // 获取主键值
-                idSet.add(TableFieldHelper.getKeyValue(entity));
+                // 批处理执行（flushStatements）之后自增主键才会回填，这里只记录实体
+                if (readBack) {
+                    readBackList.add(entity);
+                } else {
+                    signedList.add(entity);
+                }
             });
         } finally {
+            // 已在内存中完成签名的数据直接计入表完整性摘要
+            this.updateIntegritySummary(Collections.emptyMap(), this.readIntegritySignatures(signedList));
             // 批量签名
-            this.doSignatureByBatchIds(idSet);
+            this.doSignatureAfterBatchWrite(new HashSet<>(getKeyValues(readBackList, tableInfo)), Collections.emptyMap());
         }
     }
 
@@ -93,23 +230,21 @@ public abstract class EnhanceServiceImpl<M extends EnhanceMapper<T>, T> extends
         Assert.notNull(tableInfo, "error: can not execute. because can not find cache of TableInfo for entity!");
         String keyProperty = tableInfo.getKeyProperty();
         Assert.notEmpty(keyProperty, "error: can not execute. because can not find column for id from entity!");
-        Set<Serializable> idSet = new HashSet<>(entityList.size());
+        // 修改前记录表完整性摘要需要移除的签名值
+        Map<String, Optional<Object>> previousSignatures = this.snapshotIntegritySignatures(getKeyValues(entityList, tableInfo));
         try {
             return SqlHelper.saveOrUpdateBatch(getSqlSessionFactory(), this.getMapperClass(), this.log, entityList, batchSize, (sqlSession, entity) -> {
                 Object idVal = tableInfo.getPropertyValue(entity, keyProperty);
-                idSet.add((Serializable) idVal);
                 return StringUtils.checkValNull(idVal)
                         || CollectionUtils.isEmpty(sqlSession.selectList(getSqlStatement(SqlMethod.SELECT_BY_ID), entity));
             }, (sqlSession, entity) -> {
                 MapperMethod.ParamMap<T> param = new MapperMethod.ParamMap<>();
                 param.put(Constants.ENTITY, entity);
                 sqlSession.update(getSqlStatement(SqlMethod.UPDATE_BY_ID), param);
-                Object idVal = tableInfo.getPropertyValue(entity, keyProperty);
-                idSet.add((Serializable) idVal);
             });
         } finally {
-            // 批量签名
-            this.doSignatureByBatchIds(idSet);
+            // 批处理执行之后新增数据的自增主键已回填，批量签名
+            this.doSignatureAfterBatchWrite(new HashSet<>(getKeyValues(entityList, tableInfo)), previousSignatures);
         }
     }
 
@@ -121,6 +256,8 @@ public abstract class EnhanceServiceImpl<M extends EnhanceMapper<T>, T> extends
         String keyProperty = tableInfo.getKeyProperty();
         Assert.notEmpty(keyProperty, "error: can not execute. because can not find column for id from entity!");
         Set<Serializable> idSet = new HashSet<>(entityList.size());
+        // 修改前记录表完整性摘要需要移除的签名值
+        Map<String, Optional<Object>> previousSignatures = this.snapshotIntegritySignatures(getKeyValues(entityList, tableInfo));
         try {
             String sqlStatement = getSqlStatement(SqlMethod.UPDATE_BY_ID);
             return executeBatch(entityList, batchSize, (sqlSession, entity) -> {
@@ -134,7 +271,7 @@ public abstract class EnhanceServiceImpl<M extends EnhanceMapper<T>, T> extends
             });
         } finally {
             // 批量签名
-            this.doSignatureByBatchIds(idSet);
+            this.doSignatureAfterBatchWrite(idSet, previousSignatures);
         }
     }
 
@@ -147,9 +284,11 @@ public abstract class EnhanceServiceImpl<M extends EnhanceMapper<T>, T> extends
     @Override
     @Transactional(rollbackFor = Exception.class)
     public boolean saveOrUpdateSigned(T entity) {
+        // 修改前记录表完整性摘要需要移除的签名值
+        Map<String, Optional<Object>> previousSignatures = this.snapshotIntegritySignatures(Collections.singletonList(TableFieldHelper.getKeyValue(entity)));
         boolean result = getBaseMapper().insertOrUpdate(entity);
         if (result) {
-            this.doSignatureById(TableFieldHelper.getKeyValue(entity));
+            this.doSignatureById(TableFieldHelper.getKeyValue(entity), previousSignatures);
         }
         return result;
     }
@@ -204,16 +343,36 @@ public abstract class EnhanceServiceImpl<M extends EnhanceMapper<T>, T> extends
     @Transactional(rollbackFor = Exception.class)
     @Override
     public void doSignatureById(Serializable id){
+        this.doSignatureById(id, null);
+    }
+
+    /**
+     * 根据 ID 对匹配的实体进行表签名，并增量维护表完整性摘要
+     *
+     * @param id 主键ID
+     * @param previousSignatures 表完整性摘要中该数据原来的签名值，为空时取签名前数据中存储的签名值
+     */
+    protected void doSignatureById(Serializable id, Map<String, Optional<Object>> previousSignatures){
         // 1、根据 ID 查询原始数据
         T entity = getBaseMapper().selectIgnoreDecryptById(id);
         // 2、如果原始数据不为空，则对原始数据进行签名
         if (Objects.nonNull(entity)) {
+            List<T> entityList = Collections.singletonList(entity);
+            Map<String, Optional<Object>> before = Objects.nonNull(previousSignatures) ? previousSignatures : this.readIntegritySignatures(entityList);
             // 2.1、对原始数据进行签名
             boolean doUpdate = this.doEntitySignature(entity);
-            // 2.2、如果 doUpdate = true, 则更新数据
+            // 2.2、如果 doUpdate = true, 则更新数据；存在签名存储字段时只更新签名字段，不重写整行数据
             if(doUpdate){
-                this.updateById(entity);
+                TableInfo tableInfo = TableInfoHelper.getTableInfo(this.getEntityClass());
+                Optional<TableFieldInfo> storeFieldInfo = TableFieldHelper.getTableSignatureStoreFieldInfo(tableInfo);
+                if (storeFieldInfo.isPresent()) {
+                    this.updateSignature(entity, tableInfo, storeFieldInfo.get());
+                } else {
+                    this.updateById(entity);
+                }
             }
+            // 2.3、增量维护表完整性摘要
+            this.updateIntegritySummary(before, this.readIntegritySignatures(entityList));
         }
     }
 
@@ -225,10 +384,52 @@ public abstract class EnhanceServiceImpl<M extends EnhanceMapper<T>, T> extends
     @Transactional(rollbackFor = Exception.class)
     @Override
     public void doSignatureByBatchIds(Collection<? extends Serializable> idList) {
+        this.doSignatureByBatchIds(idList, null);
+    }
+
+    /**
+     * 批量写入后对需要回读的数据重新签名
+     * <p>
+     * 1、配置了 DeferredSignatureQueue 时提交到队列，事务提交后由工作线程合并重新签名，事务回滚时丢弃
+     * 2、启用了表完整性摘要时仍然同步重新签名，摘要需要在同一事务中用写入前的签名值增量维护
+     * </p>
+     *
+     * @param idList 主键ID列表
+     * @param previousSignatures 表完整性摘要中这些数据原来的签名值
+     */
+    protected void doSignatureAfterBatchWrite(Collection<? extends Serializable> idList, Map<String, Optional<Object>> previousSignatures) {
+        if (idList.isEmpty()) {
+            return;
+        }
+        if (Objects.isNull(this.deferredSignatureQueue) || Objects.nonNull(this.getIntegritySignaturePlan())) {
+            this.doSignatureByBatchIds(idList, previousSignatures);
+            return;
+        }
+        this.deferredSignatureQueue.submit(this.getEntityClass(), idList, ids -> this.getProxy().doSignatureByBatchIds(ids));
+    }
+
+    @Override
+    public int recoverDeferredSignatures() {
+        if (Objects.isNull(this.deferredSignatureQueue)) {
+            return 0;
+        }
+        TableInfo tableInfo = TableInfoHelper.getTableInfo(this.getEntityClass());
+        Assert.notNull(tableInfo, "error: can not execute. because can not find cache of TableInfo for entity!");
+        return this.deferredSignatureQueue.recover(this.getEntityClass(),
+                id -> (Serializable) Convert.convert(tableInfo.getKeyType(), id), ids -> this.getProxy().doSignatureByBatchIds(ids));
+    }
+
+    /**
+     * 根据 ID 批量对匹配的实体进行表签名，并增量维护表完整性摘要
+     *
+     * @param idList 主键ID列表(不能为 null 以及 empty)
+     * @param previousSignatures 表完整性摘要中这些数据原来的签名值，为空时取签名前数据中存储的签名值
+     */
+    protected void doSignatureByBatchIds(Collection<? extends Serializable> idList, Map<String, Optional<Object>> previousSignatures) {
         // 1、根据 ID 批量查询原始数据
         List<T> rtList = getEnhanceMapper().selectIgnoreDecryptBatchIds(idList);
         // 2、批量对原始数据进行签名
-        this.doSignatureByList(rtList, Constants.DEFAULT_BATCH_SIZE);
+        this.doSignatureByList(rtList, Constants.DEFAULT_BATCH_SIZE, previousSignatures);
     }
 
     /**
@@ -268,24 +469,113 @@ public abstract class EnhanceServiceImpl<M extends EnhanceMapper<T>, T> extends
     @Override
     @Transactional(rollbackFor = Exception.class)
     public void doSignatureByList(List<T> entityList, int batchSize){
+        this.doSignatureByList(entityList, batchSize, null);
+    }
+
+    /**
+     * 对匹配的实体进行表签名，并增量维护表完整性摘要
+     * @param entityList 实体对象集合
+     * @param batchSize 每次的数量
+     * @param previousSignatures 表完整性摘要中这些数据原来的签名值，为空时取签名前数据中存储的签名值
+     */
+    protected void doSignatureByList(List<T> entityList, int batchSize, Map<String, Optional<Object>> previousSignatures){
         if(CollectionUtils.isEmpty(entityList)){
             return;
         }
-        // 2、对原始数据进行签名
+        Map<String, Optional<Object>> before = Objects.nonNull(previousSignatures) ? previousSignatures : this.readIntegritySignatures(entityList);
+        // 1、批量签名，并将签名写回数据表
+        this.doSignatureAndUpdate(entityList, batchSize);
+        // 2、增量维护表完整性摘要
+        this.updateIntegritySummary(before, this.readIntegritySignatures(entityList));
+    }
+
+    /**
+     * 批量签名，只将签名值发生变化的数据的签名字段写回数据表
+     */
+    private void doSignatureAndUpdate(List<T> entityList, int batchSize){
+        // 1、获取存储签名结果的字段，不存在时签名不需要写回数据表
+        TableInfo tableInfo = TableInfoHelper.getTableInfo(this.getEntityClass());
+        Assert.notNull(tableInfo, "error: can not execute. because can not find cache of TableInfo for entity!");
+        Optional<TableFieldInfo> storeFieldInfo = TableFieldHelper.getTableSignatureStoreFieldInfo(tableInfo);
+        // 2、记录签名前已存储的签名值
+        List<Object> oldSignatures = new ArrayList<>(entityList.size());
         for (T entity : entityList) {
-            // 2.1、对原始数据进行签名
-            boolean doUpdate = this.doEntitySignature(entity);
-            // 2.2、如果 doUpdate = true, 则更新数据
-            if(!doUpdate){
-                entityList.removeIf(rowObject -> TableFieldHelper.getKeyValue(entity).equals(TableFieldHelper.getKeyValue(rowObject)));
+            oldSignatures.add(storeFieldInfo.map(fieldInfo -> tableInfo.getPropertyValue(entity, fieldInfo.getProperty())).orElse(null));
+        }
+        // 3、批量签名，签名读写提供者支持时一次写出全部签名，doUpdate = false 时签名不需要写回数据表
+        boolean doUpdate = this.doBatchEntitySignature(entityList);
+        if (!doUpdate || !storeFieldInfo.isPresent()) {
+            return;
+        }
+        // 4、只收集签名值发生变化的数据
+        List<T> changedList = new ArrayList<>();
+        for (int i = 0; i < entityList.size(); i++) {
+            T entity = entityList.get(i);
+            if (!Objects.equals(oldSignatures.get(i), tableInfo.getPropertyValue(entity, storeFieldInfo.get().getProperty()))) {
+                changedList.add(entity);
             }
         }
-        // 3、批量更新数据
-        if(CollectionUtils.isNotEmpty(entityList)){
-            this.updateBatchById(entityList, batchSize);
+        // 5、批量更新签名字段，只更新签名字段，不重写整行数据
+        if(CollectionUtils.isNotEmpty(changedList)){
+            this.updateSignatureBatch(changedList, tableInfo, storeFieldInfo.get(), batchSize);
         }
     }
 
+    /**
+     * 批量更新签名字段，只更新签名字段，不重写整行数据：
+     * 1、Mapper 注入了 updateSignatureBatchByIds 时，每 batchSize 条数据执行一次 UPDATE table SET 签名字段 = CASE 主键 WHEN ? THEN ? ... END WHERE 主键 IN (...)，
+     *    不依赖驱动对 JDBC 批处理的改写（例如 MySQL 未开启 rewriteBatchedStatements 时批处理仍逐条发送），每批只有一次数据库往返
+     * 2、未注入时（例如未使用 EnhanceSqlInjector）以 JDBC 批处理的方式逐行执行 UPDATE table SET 签名字段 = ? WHERE 主键 = ?，所有行共用一个 PreparedStatement
+     * @param entityList 签名已变化的实体对象集合
+     * @param tableInfo 表信息
+     * @param storeFieldInfo 存储签名结果的字段
+     * @param batchSize 每次的数量
+     */
+    protected void updateSignatureBatch(List<T> entityList, TableInfo tableInfo, TableFieldInfo storeFieldInfo, int batchSize) {
+        String keyProperty = tableInfo.getKeyProperty();
+        Assert.notEmpty(keyProperty, "error: can not execute. because can not find column for id from entity!");
+        if (hasEnhanceStatement(EnhanceSqlMethod.UPDATE_SIGNATURE_BATCH_BY_IDS)) {
+            for (List<T> partition : CollectionUtils.split(entityList, batchSize)) {
+                getEnhanceMapper().updateSignatureBatchByIds(partition);
+            }
+            return;
+        }
+        String sqlStatement = getSqlStatement(SqlMethod.UPDATE);
+        executeBatch(entityList, batchSize, (sqlSession, entity) -> sqlSession.update(sqlStatement, getSignatureUpdateParam(entity, tableInfo, storeFieldInfo)));
+    }
+
+    /**
+     * 只更新一条数据的签名字段，Mapper 未注入 updateSignatureById 时通过 UpdateWrapper 更新
+     */
+    private void updateSignature(T entity, TableInfo tableInfo, TableFieldInfo storeFieldInfo) {
+        if (hasEnhanceStatement(EnhanceSqlMethod.UPDATE_SIGNATURE_BY_ID)) {
+            getEnhanceMapper().updateSignatureById(entity);
+        } else {
+            getBaseMapper().update(null, (UpdateWrapper<T>) getSignatureUpdateParam(entity, tableInfo, storeFieldInfo).get(Constants.WRAPPER));
+        }
+    }
+
+    /**
+     * 构建只更新签名字段的 update 参数：UPDATE table SET 签名字段 = ? WHERE 主键 = ?
+     */
+    private MapperMethod.ParamMap<Object> getSignatureUpdateParam(T entity, TableInfo tableInfo, TableFieldInfo storeFieldInfo) {
+        UpdateWrapper<T> updateWrapper = Wrappers.<T>update()
+                .set(storeFieldInfo.getColumn(), tableInfo.getPropertyValue(entity, storeFieldInfo.getProperty()))
+                .eq(tableInfo.getKeyColumn(), tableInfo.getPropertyValue(entity, tableInfo.getKeyProperty()));
+        MapperMethod.ParamMap<Object> param = new MapperMethod.ParamMap<>();
+        param.put(Constants.ENTITY, null);
+        param.put(Constants.WRAPPER, updateWrapper);
+        return param;
+    }
+
+    /**
+     * Mapper 是否注入了 EnhanceSqlInjector 提供的方法；按条件注入的方法（例如只在存在签名存储字段时注入的 updateSignatureById）未注入时返回 false
+     * @param sqlMethod 增强的 SQL 方法
+     */
+    protected boolean hasEnhanceStatement(EnhanceSqlMethod sqlMethod) {
+        return getSqlSessionFactory().getConfiguration().hasStatement(getMapperClass().getName() + StringPool.DOT + sqlMethod.getMethod(), false);
+    }
+
     /**
      * 根据 ID 对匹配的实体进行表签名
      *
@@ -315,7 +605,7 @@ public abstract class EnhanceServiceImpl<M extends EnhanceMapper<T>, T> extends
         List<T> rtList = getEnhanceMapper().selectIgnoreDecryptBatchIds(idList);
         if(CollectionUtils.isNotEmpty(rtList)){
             // 2、对原始数据进行验签
-            rtList.forEach(rowObject -> this.doSignatureVerification(rowObject, rowObject.getClass()));
+            this.doBatchSignatureVerification(rtList, getEntityClass());
         }
     }
 
@@ -331,7 +621,7 @@ public abstract class EnhanceServiceImpl<M extends EnhanceMapper<T>, T> extends
         List<T> rtList = getEnhanceMapper().selectIgnoreDecryptByMap(columnMap);
         if(CollectionUtils.isNotEmpty(rtList)){
             // 2、对原始数据进行验签
-            rtList.forEach(rowObject -> this.doSignatureVerification(rowObject, rowObject.getClass()));
+            this.doBatchSignatureVerification(rtList, getEntityClass());
         }
     }
 
@@ -347,9 +637,205 @@ public abstract class EnhanceServiceImpl<M extends EnhanceMapper<T>, T> extends
             List<T> rtList = getEnhanceMapper().selectIgnoreDecryptList(queryWrapper);
             if(CollectionUtils.isNotEmpty(rtList)){
                 // 2、对原始数据进行验签
-                rtList.forEach(rowObject -> this.doSignatureVerification(rowObject, rowObject.getClass()));
+                this.doBatchSignatureVerification(rtList, getEntityClass());
+            }
+        }
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean removeSignedByIds(Collection<? extends Serializable> idList) {
+        // 1、删除前记录表完整性摘要需要移除的签名值
+        Map<String, Optional<Object>> previousSignatures = this.snapshotIntegritySignatures(idList);
+        // 2、删除数据
+        boolean result = this.removeByIds(idList);
+        // 3、从表完整性摘要中移除已删除的数据
+        this.updateIntegritySummary(previousSignatures, Collections.emptyMap());
+        return result;
+    }
+
+    @Override
+    public IntegrityAuditReport auditIntegritySummary() {
+        return this.auditIntegritySummary(false);
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void rebuildIntegritySummary() {
+        IntegrityAuditReport report = this.auditIntegritySummary(true);
+        // 合并 已存储摘要 ^ 实际摘要 后，已存储的摘要即等于实际摘要
+        Map<Long, IntegrityBucket> deltas = new TreeMap<>();
+        for (IntegrityBucket bucket : report.getActualBuckets()) {
+            deltas.merge(bucket.getBucketId(), bucket, IntegrityBucket::merge);
+        }
+        for (IntegrityBucket bucket : report.getStoredBuckets()) {
+            IntegrityBucket negated = new IntegrityBucket(bucket.getBucketId(), bucket.getDigest(), -bucket.getRowCount());
+            deltas.merge(bucket.getBucketId(), negated, IntegrityBucket::merge);
+        }
+        deltas.values().removeIf(IntegrityBucket::isEmpty);
+        getTableIntegritySummary().getStore().merge(report.getTableName(), deltas.values());
+        // 压缩追加写入的增量
+        getTableIntegritySummary().getStore().compact(report.getTableName());
+    }
+
+    /**
+     * 审计表完整性
+     * @param rebuild 是否用于重建摘要，重建时只计算全部实际分桶，不比较、不逐行验签
+     */
+    protected IntegrityAuditReport auditIntegritySummary(boolean rebuild) {
+        SignaturePlan plan = this.getIntegritySignaturePlan();
+        Assert.notNull(plan, "error: integrity summary is not enabled for entity %s", this.getEntityClass().getName());
+        TableInfo tableInfo = plan.getTableInfo();
+        String tableName = tableInfo.getTableName();
+        String keyColumn = tableInfo.getKeyColumn();
+        long bucketSize = plan.getIntegrityBucketSize();
+        // 1、读取已存储的分桶摘要
+        Map<Long, IntegrityBucket> storedBuckets = new TreeMap<>();
+        for (IntegrityBucket bucket : getTableIntegritySummary().getStore().getBuckets(tableName)) {
+            storedBuckets.put(bucket.getBucketId(), bucket);
+        }
+        // 2、一次查询逐行读取主键和签名字段，每 DEFAULT_BATCH_SIZE 行读取一次签名，在内存中按与写入相同的分桶公式计算全部分桶摘要
+        Map<Long, IntegrityBucket> actualBuckets = new TreeMap<>();
+        SortedSet<Long> unsignedBuckets = new TreeSet<>();
+        List<T> chunk = new ArrayList<>(Constants.DEFAULT_BATCH_SIZE);
+        QueryWrapper<T> keyWrapper = Wrappers.<T>query()
+                .select(plan.getStoreField().map(fieldInfo -> new String[]{keyColumn, fieldInfo.getColumn()}).orElse(new String[]{keyColumn}));
+        getEnhanceMapper().selectIgnoreDecryptList(keyWrapper, resultContext -> {
+            chunk.add(resultContext.getResultObject());
+            if (chunk.size() >= Constants.DEFAULT_BATCH_SIZE) {
+                this.accumulateIntegrityBuckets(plan, chunk, actualBuckets, unsignedBuckets);
+            }
+        });
+        this.accumulateIntegrityBuckets(plan, chunk, actualBuckets, unsignedBuckets);
+        // 3、比较已存储的分桶与实际分桶，包含没有签名的数据行的分桶同样视为不一致
+        if (rebuild) {
+            return new IntegrityAuditReport(tableName, new ArrayList<>(storedBuckets.values()), new ArrayList<>(actualBuckets.values()),
+                    Collections.emptyList(), Collections.emptyList());
+        }
+        SortedSet<Long> mismatched = new TreeSet<>(TableIntegritySummary.diff(storedBuckets.values(), actualBuckets.values()));
+        mismatched.addAll(unsignedBuckets);
+        List<Long> mismatchedBuckets = new ArrayList<>(mismatched);
+        // 4、只对不一致的分桶读取完整数据逐行验签
+        List<SignatureVerificationFailure> failures = new ArrayList<>();
+        for (Long bucketId : mismatchedBuckets) {
+            List<T> rows = getEnhanceMapper().selectIgnoreDecryptList(this.getBucketWrapper(keyColumn, bucketId, bucketSize));
+            List<RuntimeException> errors = getDataSignatureHandler().doBatchSignatureVerification(rows, this.getEntityClass());
+            for (int i = 0; i < errors.size(); i++) {
+                if (Objects.nonNull(errors.get(i))) {
+                    failures.add(new SignatureVerificationFailure(i, rows.get(i), errors.get(i)));
+                }
+            }
+        }
+        return new IntegrityAuditReport(tableName, new ArrayList<>(storedBuckets.values()), new ArrayList<>(actualBuckets.values()), mismatchedBuckets, failures);
+    }
+
+    /**
+     * 分桶 bucketId 的主键范围 [bucketId * bucketSize, (bucketId + 1) * bucketSize)，与 {@link TableIntegritySummary#getBucketId(String, long)} 一致
+     */
+    private QueryWrapper<T> getBucketWrapper(String keyColumn, long bucketId, long bucketSize) {
+        return Wrappers.<T>query().ge(keyColumn, bucketId * bucketSize).lt(keyColumn, (bucketId + 1) * bucketSize);
+    }
+
+    /**
+     * 计算一批数据行的分桶摘要并合并到实际分桶中，处理完成后清空数据行
+     * @param unsignedBuckets 记录包含没有签名的数据行的分桶
+     */
+    private void accumulateIntegrityBuckets(SignaturePlan plan, List<T> rows, Map<Long, IntegrityBucket> actualBuckets, Set<Long> unsignedBuckets) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        Map<String, Optional<Object>> signatures = this.readIntegritySignatures(rows);
+        signatures.forEach((rowKey, signature) -> {
+            if (!signature.isPresent()) {
+                unsignedBuckets.add(TableIntegritySummary.getBucketId(rowKey, plan.getIntegrityBucketSize()));
+            }
+        });
+        getTableIntegritySummary().compute(plan.getTableInfo().getTableName(), plan.getIntegrityBucketSize(), signatures)
+                .forEach((bucketId, bucket) -> actualBuckets.merge(bucketId, bucket, IntegrityBucket::merge));
+        rows.clear();
+    }
+
+    /**
+     * 获取启用了表完整性摘要的签名计划，未配置 TableIntegritySummary 或实体类未启用摘要时返回空
+     */
+    protected SignaturePlan getIntegritySignaturePlan() {
+        if (Objects.isNull(this.tableIntegritySummary)) {
+            return null;
+        }
+        SignaturePlan plan = TableFieldHelper.getSignaturePlan(this.getEntityClass());
+        return plan.isIntegritySummaryEnabled() ? plan : null;
+    }
+
+    /**
+     * 读取数据行当前存储的签名值，未启用表完整性摘要时返回空
+     * @param rows 数据对象列表
+     * @return 主键值字符串与签名值
+     */
+    protected Map<String, Optional<Object>> readIntegritySignatures(List<?> rows) {
+        SignaturePlan plan = this.getIntegritySignaturePlan();
+        if (Objects.isNull(plan)) {
+            return null;
+        }
+        Map<String, Optional<Object>> signatures = new LinkedHashMap<>(rows.size() * 2);
+        if (rows.isEmpty()) {
+            return signatures;
+        }
+        List<Optional<Object>> values = getDataSignatureHandler().getSignatureReadWriteProvider().readSignatures(rows, plan.getTableInfo());
+        for (int i = 0; i < rows.size(); i++) {
+            String rowKey = TableIntegritySummary.getRowKey(rows.get(i), plan.getTableInfo());
+            if (Objects.nonNull(rowKey)) {
+                signatures.put(rowKey, values.get(i));
+            }
+        }
+        return signatures;
+    }
+
+    /**
+     * 根据 ID 查询数据行当前存储的签名值，未启用表完整性摘要时返回空
+     * @param idList 主键ID列表，忽略空值
+     * @return 主键值字符串与签名值，数据不存在的主键不包含在内
+     */
+    protected Map<String, Optional<Object>> snapshotIntegritySignatures(Collection<? extends Serializable> idList) {
+        if (Objects.isNull(this.getIntegritySignaturePlan())) {
+            return null;
+        }
+        List<Serializable> ids = new ArrayList<>(idList.size());
+        for (Serializable id : idList) {
+            if (!StringUtils.checkValNull(id)) {
+                ids.add(id);
+            }
+        }
+        if (ids.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return this.readIntegritySignatures(getEnhanceMapper().selectIgnoreDecryptBatchIds(ids));
+    }
+
+    /**
+     * 按写入前后的签名值增量维护表完整性摘要，未启用表完整性摘要时不处理
+     * @param before 写入前的主键值字符串与签名值
+     * @param after 写入后的主键值字符串与签名值
+     */
+    protected void updateIntegritySummary(Map<String, Optional<Object>> before, Map<String, Optional<Object>> after) {
+        SignaturePlan plan = this.getIntegritySignaturePlan();
+        if (Objects.isNull(plan) || Objects.isNull(before) || Objects.isNull(after)) {
+            return;
+        }
+        getTableIntegritySummary().update(plan.getTableInfo().getTableName(), plan.getIntegrityBucketSize(), before, after);
+    }
+
+    /**
+     * 获取实体的主键值，跳过主键值为空的实体（例如插入失败、自增主键未回填）
+     */
+    private static List<Serializable> getKeyValues(Collection<?> entityList, TableInfo tableInfo) {
+        List<Serializable> ids = new ArrayList<>(entityList.size());
+        for (Object entity : entityList) {
+            Object id = tableInfo.getPropertyValue(entity, tableInfo.getKeyProperty());
+            if (!StringUtils.checkValNull(id)) {
+                ids.add((Serializable) id);
             }
         }
+        return ids;
     }
 
 }
@@ -0,0 +1,86 @@
+package com.baomidou.mybatisplus.enhance.service.rotation;
+
+import com.baomidou.mybatisplus.core.toolkit.ExceptionUtils;
+import lombok.Getter;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 基于数据表的密钥轮换断点存储：
+ * <pre>
+ * CREATE TABLE t_key_rotation_checkpoint (
+ *     table_name VARCHAR(64)  NOT NULL,
+ *     key_id     VARCHAR(32)  NOT NULL,
+ *     last_key   VARCHAR(128) NOT NULL,
+ *     PRIMARY KEY (table_name, key_id)
+ * );
+ * </pre>
+ * <p>在 Spring 事务中使用时，dataSource 需要使用 TransactionAwareDataSourceProxy 包装，使断点与重新加密的数据在同一事务中提交或回滚</p>
+ */
+public class JdbcKeyRotationCheckpointStore implements KeyRotationCheckpointStore {
+
+    /**
+     * 默认的断点表名
+     */
+    public static final String DEFAULT_CHECKPOINT_TABLE = "t_key_rotation_checkpoint";
+
+    private final DataSource dataSource;
+    @Getter
+    private final String checkpointTable;
+
+    public JdbcKeyRotationCheckpointStore(DataSource dataSource) {
+        this(dataSource, DEFAULT_CHECKPOINT_TABLE);
+    }
+
+    /**
+     * @param dataSource 断点表所在的数据源
+     * @param checkpointTable 断点表名
+     */
+    public JdbcKeyRotationCheckpointStore(DataSource dataSource, String checkpointTable) {
+        this.dataSource = dataSource;
+        this.checkpointTable = checkpointTable;
+    }
+
+    @Override
+    public String load(String tableName, String keyId) {
+        String sql = "SELECT last_key FROM " + checkpointTable + " WHERE table_name = ? AND key_id = ?";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, tableName);
+            statement.setString(2, keyId);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getString(1) : null;
+            }
+        } catch (SQLException e) {
+            throw ExceptionUtils.mpe("Read key rotation checkpoint of table %s error", e, tableName);
+        }
+    }
+
+    @Override
+    public void save(String tableName, String keyId, String lastKey) {
+        String updateSql = "UPDATE " + checkpointTable + " SET last_key = ? WHERE table_name = ? AND key_id = ?";
+        String insertSql = "INSERT INTO " + checkpointTable + " (table_name, key_id, last_key) VALUES (?, ?, ?)";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement update = connection.prepareStatement(updateSql)) {
+            update.setString(1, lastKey);
+            update.setString(2, tableName);
+            update.setString(3, keyId);
+            if (update.executeUpdate() > 0) {
+                return;
+            }
+            try (PreparedStatement insert = connection.prepareStatement(insertSql)) {
+                insert.setString(1, tableName);
+                insert.setString(2, keyId);
+                insert.setString(3, lastKey);
+                insert.executeUpdate();
+            }
+        } catch (SQLException e) {
+            throw ExceptionUtils.mpe("Save key rotation checkpoint of table %s error", e, tableName);
+        }
+    }
+
+}
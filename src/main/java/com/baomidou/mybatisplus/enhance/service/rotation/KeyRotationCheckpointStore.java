@@ -0,0 +1,24 @@
+package com.baomidou.mybatisplus.enhance.service.rotation;
+
+/**
+ * 密钥轮换断点存储，记录每个数据表已完成重新加密的最大主键值，任务中断后从断点继续
+ */
+public interface KeyRotationCheckpointStore {
+
+    /**
+     * 读取断点
+     * @param tableName 数据表名
+     * @param keyId 目标密钥版本
+     * @return 已完成重新加密的最大主键值，尚未开始时返回空
+     */
+    String load(String tableName, String keyId);
+
+    /**
+     * 保存断点
+     * @param tableName 数据表名
+     * @param keyId 目标密钥版本
+     * @param lastKey 已完成重新加密的最大主键值
+     */
+    void save(String tableName, String keyId, String lastKey);
+
+}
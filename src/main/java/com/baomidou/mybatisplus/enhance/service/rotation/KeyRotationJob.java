@@ -0,0 +1,261 @@
+package com.baomidou.mybatisplus.enhance.service.rotation;
+
+import cn.hutool.core.convert.Convert;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
+import com.baomidou.mybatisplus.core.metadata.TableInfo;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.baomidou.mybatisplus.core.toolkit.Assert;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.baomidou.mybatisplus.enhance.crypto.handler.KeyRingEncryptedFieldHandler;
+import com.baomidou.mybatisplus.enhance.service.IEnhanceService;
+import com.baomidou.mybatisplus.enhance.util.EncryptedFieldPlan;
+import com.baomidou.mybatisplus.enhance.util.TableFieldHelper;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 密钥轮换任务，将 @EncryptedTable 实体类的加密字段在线重新加密为密钥环的当前密钥
+ * <p>
+ * 1、按主键升序分片读取原始数据（selectIgnoreDecryptList），每个分片最多 chunkSize 行，分片之间等待 throttleMillis 毫秒，限制对在线业务的影响
+ * 2、跳过已使用当前密钥加密的字段值；需要重新加密的字段由密钥环解密后使用当前密钥加密，通过 updateIgnoreEncrypt 执行 UPDATE table SET 加密字段 = ? WHERE 主键 = ?，
+ * 只修改需要重新加密的字段，不经过加密、签名拦截器
+ * 3、重新加密后通过 doSignatureByBatchIds 按主键读取完整的原始数据重新签名，与重新加密在同一事务中完成
+ * 4、每个分片在一个事务中完成：读取时以 SELECT ... FOR UPDATE 锁定分片内的数据，写入后保存断点（已完成的最大主键值），任务中断后从断点继续
+ * 5、断点按目标密钥版本记录，再次轮换到新密钥时从头开始；重复执行是幂等的
+ * </p>
+ * <p>注意：实体类的加密字段需要由 KeyRingEncryptedFieldHandler 加解密，Mapper 需要使用 EnhanceSqlInjector 注入 selectIgnoreDecryptList、updateIgnoreEncrypt；
+ * 轮换期间 Wrapper 中加密字段的等值条件匹配密钥环中每个密钥的密文，实体参数条件和 @EncryptedParam 参数需要使用盲索引；
+ * 分片语句使用 LIMIT，不支持 LIMIT 的数据库需要重写 {@link #getChunkClause(int)}</p>
+ */
+@Slf4j
+public class KeyRotationJob implements Runnable {
+
+    /**
+     * 默认的分片行数
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 500;
+
+    /**
+     * 需要轮换的实体类对应的 Service，未被 @EncryptedTable 注解的实体类跳过
+     */
+    @Getter
+    private final List<IEnhanceService<?>> services;
+    /**
+     * 密钥环
+     */
+    @Getter
+    private final KeyRingEncryptedFieldHandler keyRing;
+    /**
+     * 断点存储，为空时每次从头开始
+     */
+    @Getter
+    private final KeyRotationCheckpointStore checkpointStore;
+    /**
+     * 每个分片的最大行数
+     */
+    @Getter
+    private final int chunkSize;
+    /**
+     * 分片之间的等待时间（毫秒）
+     */
+    @Getter
+    private final long throttleMillis;
+    /**
+     * 读取分片时是否以 SELECT ... FOR UPDATE 锁定数据，避免覆盖并发修改
+     */
+    @Getter
+    private final boolean lockRows;
+    private final TransactionTemplate transactionTemplate;
+    private volatile boolean stopped;
+
+    private final AtomicLong scannedRowCount = new AtomicLong();
+    private final AtomicLong rotatedRowCount = new AtomicLong();
+
+    public KeyRotationJob(List<IEnhanceService<?>> services, KeyRingEncryptedFieldHandler keyRing, KeyRotationCheckpointStore checkpointStore,
+                          PlatformTransactionManager transactionManager) {
+        this(services, keyRing, checkpointStore, transactionManager, DEFAULT_CHUNK_SIZE, 0, true);
+    }
+
+    /**
+     * @param services 需要轮换的实体类对应的 Service
+     * @param keyRing 密钥环
+     * @param checkpointStore 断点存储，为空时每次从头开始
+     * @param transactionManager 事务管理器，每个分片在一个事务中完成；为空时不开启事务，此时 lockRows 不起作用
+     * @param chunkSize 每个分片的最大行数
+     * @param throttleMillis 分片之间的等待时间（毫秒）
+     * @param lockRows 读取分片时是否以 SELECT ... FOR UPDATE 锁定数据
+     */
+    public KeyRotationJob(List<IEnhanceService<?>> services, KeyRingEncryptedFieldHandler keyRing, KeyRotationCheckpointStore checkpointStore,
+                          PlatformTransactionManager transactionManager, int chunkSize, long throttleMillis, boolean lockRows) {
+        this.services = Collections.unmodifiableList(new ArrayList<>(services));
+        this.keyRing = keyRing;
+        this.checkpointStore = checkpointStore;
+        this.transactionTemplate = Objects.isNull(transactionManager) ? null : new TransactionTemplate(transactionManager);
+        this.chunkSize = Math.max(chunkSize, 1);
+        this.throttleMillis = throttleMillis;
+        this.lockRows = lockRows;
+    }
+
+    /**
+     * 依次轮换全部 @EncryptedTable 实体类，调用 {@link #stop()} 后在当前分片完成时停止
+     */
+    @Override
+    public void run() {
+        for (IEnhanceService<?> service : services) {
+            if (stopped) {
+                return;
+            }
+            if (TableFieldHelper.isExistEncryptedTable(service.getEntityClass())) {
+                rotate(service);
+            }
+        }
+    }
+
+    /**
+     * 轮换一个实体类
+     * @param service 实体类对应的 Service
+     * @return 本次重新加密的行数
+     */
+    public <T> long rotate(IEnhanceService<T> service) {
+        TableInfo tableInfo = TableInfoHelper.getTableInfo(service.getEntityClass());
+        Assert.notNull(tableInfo, "error: can not execute. because can not find cache of TableInfo for entity!");
+        Assert.notEmpty(tableInfo.getKeyProperty(), "error: can not execute. because can not find column for id from entity!");
+        EncryptedFieldPlan plan = TableFieldHelper.getEncryptedFieldPlan(service.getEntityClass());
+        if (!plan.isEncryptable()) {
+            return 0;
+        }
+        String keyId = keyRing.getCurrentKeyId();
+        String lastKey = Objects.isNull(checkpointStore) ? null : checkpointStore.load(tableInfo.getTableName(), keyId);
+        log.info("Key rotation of table {} to key {} starts after key {}", tableInfo.getTableName(), keyId, lastKey);
+        long rotated = 0;
+        while (!stopped) {
+            // 1、在一个事务中完成一个分片的读取、重新加密、重新签名和断点保存
+            String startKey = lastKey;
+            Chunk chunk = execute(() -> rotateChunk(service, tableInfo, plan, keyId, startKey));
+            if (chunk.scanned == 0) {
+                log.info("Key rotation of table {} to key {} completed", tableInfo.getTableName(), keyId);
+                break;
+            }
+            lastKey = chunk.lastKey;
+            rotated += chunk.rotated;
+            // 2、分片之间等待，限制对在线业务的影响
+            if (throttleMillis > 0) {
+                try {
+                    Thread.sleep(throttleMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    stopped = true;
+                }
+            }
+        }
+        return rotated;
+    }
+
+    private <T> Chunk rotateChunk(IEnhanceService<T> service, TableInfo tableInfo, EncryptedFieldPlan plan, String keyId, String startKey) {
+        // 1、按主键升序读取断点之后的一个分片的原始数据
+        String keyColumn = tableInfo.getKeyColumn();
+        QueryWrapper<T> queryWrapper = Wrappers.query();
+        if (Objects.nonNull(startKey)) {
+            queryWrapper.gt(keyColumn, Convert.convert(tableInfo.getKeyType(), startKey));
+        }
+        queryWrapper.orderByAsc(keyColumn).last(getChunkClause(chunkSize));
+        List<T> rows = service.getEnhanceMapper().selectIgnoreDecryptList(queryWrapper);
+        if (rows.isEmpty()) {
+            return new Chunk(startKey, 0, 0);
+        }
+        // 2、未使用当前密钥加密的字段值，解密后使用当前密钥重新加密，只更新这些字段
+        List<Serializable> changedIds = new ArrayList<>();
+        for (T row : rows) {
+            UpdateWrapper<T> updateWrapper = null;
+            for (EncryptedFieldPlan.EncryptedFieldItem field : plan.getFields()) {
+                Object rawValue = field.getAccessor().get(row);
+                if (Objects.isNull(rawValue) || keyRing.isCurrent(Objects.toString(rawValue))) {
+                    continue;
+                }
+                if (Objects.isNull(updateWrapper)) {
+                    updateWrapper = Wrappers.update();
+                }
+                updateWrapper.set(field.getFieldInfo().getColumn(), keyRing.encrypt(keyRing.decrypt(Objects.toString(rawValue), field.getTargetType())));
+            }
+            if (Objects.nonNull(updateWrapper)) {
+                Serializable id = (Serializable) tableInfo.getPropertyValue(row, tableInfo.getKeyProperty());
+                service.getEnhanceMapper().updateIgnoreEncrypt(null, updateWrapper.eq(keyColumn, id));
+                changedIds.add(id);
+            }
+        }
+        // 3、按主键读取完整的原始数据重新签名，与重新加密在同一事务中完成
+        if (!changedIds.isEmpty() && TableFieldHelper.getSignaturePlan(service.getEntityClass()).isSignable()) {
+            service.doSignatureByBatchIds(changedIds);
+        }
+        // 4、保存断点
+        String lastKey = Objects.toString(tableInfo.getPropertyValue(rows.get(rows.size() - 1), tableInfo.getKeyProperty()));
+        if (Objects.nonNull(checkpointStore)) {
+            checkpointStore.save(tableInfo.getTableName(), keyId, lastKey);
+        }
+        scannedRowCount.addAndGet(rows.size());
+        rotatedRowCount.addAndGet(changedIds.size());
+        return new Chunk(lastKey, rows.size(), changedIds.size());
+    }
+
+    /**
+     * 分片语句，追加在按主键升序排序之后
+     * @param chunkSize 分片行数
+     */
+    protected String getChunkClause(int chunkSize) {
+        return "LIMIT " + chunkSize + (lockRows && Objects.nonNull(transactionTemplate) ? " FOR UPDATE" : "");
+    }
+
+    private <R> R execute(Supplier<R> action) {
+        return Objects.isNull(transactionTemplate) ? action.get() : transactionTemplate.execute(status -> action.get());
+    }
+
+    /**
+     * 停止任务，当前分片完成后停止；已保存的断点不受影响
+     */
+    public void stop() {
+        this.stopped = true;
+    }
+
+    /**
+     * 已读取的行数
+     */
+    public long getScannedRowCount() {
+        return scannedRowCount.get();
+    }
+
+    /**
+     * 已重新加密的行数
+     */
+    public long getRotatedRowCount() {
+        return rotatedRowCount.get();
+    }
+
+    /**
+     * 分片处理结果
+     */
+    private static class Chunk {
+
+        private final String lastKey;
+        private final int scanned;
+        private final int rotated;
+
+        Chunk(String lastKey, int scanned, int rotated) {
+            this.lastKey = lastKey;
+            this.scanned = scanned;
+            this.rotated = rotated;
+        }
+
+    }
+
+}
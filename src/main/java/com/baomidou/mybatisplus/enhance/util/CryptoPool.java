@@ -0,0 +1,139 @@
+package com.baomidou.mybatisplus.enhance.util;
+
+import lombok.Getter;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 加密器对象池
+ * <p>
+ * javax.crypto.Cipher、javax.crypto.Mac 不是线程安全的，hutool 的 SymmetricCrypto 通过加锁保证安全，HMac 则完全没有保护。
+ * 对象池保证同一时刻每个实例只被一个线程使用，空闲实例数量有上限，超出上限归还的实例直接丢弃；
+ * 使用过程中抛出异常的实例不再归还，避免复用处于异常状态的实例。
+ * </p>
+ * @param <T> 加密器类型
+ */
+public class CryptoPool<T> {
+
+    private final Supplier<T> factory;
+    private final int maxIdle;
+    private final Queue<T> idle = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder discards = new LongAdder();
+
+    /**
+     * @param factory 加密器创建逻辑
+     * @param maxIdle 最大空闲实例数量
+     */
+    public CryptoPool(Supplier<T> factory, int maxIdle) {
+        this.factory = factory;
+        this.maxIdle = Math.max(maxIdle, 1);
+    }
+
+    /**
+     * 借出一个加密器实例，使用完成后必须通过 {@link #release(Object)} 归还
+     * @return 加密器实例
+     */
+    public T borrow() {
+        T instance = idle.poll();
+        if (Objects.nonNull(instance)) {
+            idleCount.decrementAndGet();
+            hits.increment();
+            return instance;
+        }
+        misses.increment();
+        return factory.get();
+    }
+
+    /**
+     * 归还加密器实例
+     * @param instance 加密器实例
+     */
+    public void release(T instance) {
+        if (idleCount.incrementAndGet() <= maxIdle) {
+            idle.offer(instance);
+        } else {
+            idleCount.decrementAndGet();
+            discards.increment();
+        }
+    }
+
+    /**
+     * 借出一个加密器实例执行操作，执行完成后自动归还
+     * @param function 加密操作
+     * @return 操作结果
+     * @param <R> 结果类型
+     */
+    public <R> R execute(Function<T, R> function) {
+        T instance = borrow();
+        R result;
+        try {
+            result = function.apply(instance);
+        } catch (RuntimeException | Error e) {
+            discards.increment();
+            throw e;
+        }
+        release(instance);
+        return result;
+    }
+
+    /**
+     * 获取对象池统计信息快照
+     */
+    public Metrics getMetrics() {
+        return new Metrics(hits.sum(), misses.sum(), discards.sum(), idleCount.get());
+    }
+
+    /**
+     * 对象池统计信息
+     */
+    @Getter
+    public static class Metrics {
+
+        /**
+         * 从空闲实例中借出的次数
+         */
+        private final long hits;
+        /**
+         * 无空闲实例，新建实例的次数
+         */
+        private final long misses;
+        /**
+         * 超出空闲上限或使用异常被丢弃的实例数量
+         */
+        private final long discards;
+        /**
+         * 当前空闲实例数量
+         */
+        private final int idle;
+
+        public Metrics(long hits, long misses, long discards, int idle) {
+            this.hits = hits;
+            this.misses = misses;
+            this.discards = discards;
+            this.idle = idle;
+        }
+
+        /**
+         * 合并统计信息
+         */
+        public Metrics merge(Metrics other) {
+            return new Metrics(hits + other.hits, misses + other.misses, discards + other.discards, idle + other.idle);
+        }
+
+        @Override
+        public String toString() {
+            return "Metrics{hits=" + hits + ", misses=" + misses + ", discards=" + discards + ", idle=" + idle + "}";
+        }
+
+    }
+
+}
@@ -0,0 +1,141 @@
+package com.baomidou.mybatisplus.enhance.util;
+
+import cn.hutool.core.util.CharsetUtil;
+import cn.hutool.crypto.Mode;
+import cn.hutool.crypto.Padding;
+import cn.hutool.crypto.digest.HmacAlgorithm;
+import lombok.Getter;
+import org.apache.commons.lang3.StringUtils;
+
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * 加密器规格，作为加密器缓存和对象池的 key
+ * <p>
+ * 不可变对象，hashCode 在构造时计算一次；密钥和偏移向量以 byte[] 保存（构造和读取时均复制），
+ * 不会进入字符串常量池，toString 不输出密钥内容。
+ * </p>
+ */
+public final class CryptoSpec {
+
+    /**
+     * 算法名称，例如 SM4、AES、HmacSM3
+     */
+    @Getter
+    private final String algorithm;
+    /**
+     * 加密模式，HMAC 为空
+     */
+    @Getter
+    private final Mode mode;
+    /**
+     * 补码方式，HMAC 为空
+     */
+    @Getter
+    private final Padding padding;
+    private final byte[] key;
+    private final byte[] iv;
+    private final int hash;
+
+    private CryptoSpec(String algorithm, Mode mode, Padding padding, byte[] key, byte[] iv) {
+        this.algorithm = algorithm;
+        this.mode = mode;
+        this.padding = padding;
+        this.key = Objects.isNull(key) ? null : key.clone();
+        this.iv = Objects.isNull(iv) ? null : iv.clone();
+        int result = Objects.hash(algorithm.toUpperCase(Locale.ROOT), mode, padding);
+        result = 31 * result + Arrays.hashCode(this.key);
+        this.hash = 31 * result + Arrays.hashCode(this.iv);
+    }
+
+    /**
+     * 对称加密器规格
+     * @param algorithm 算法名称
+     * @param mode 加密模式
+     * @param padding 补码方式
+     * @param key 密钥
+     * @param iv 偏移向量，可为空
+     */
+    public static CryptoSpec of(String algorithm, Mode mode, Padding padding, byte[] key, byte[] iv) {
+        return new CryptoSpec(algorithm, mode, padding, key, iv);
+    }
+
+    /**
+     * 对称加密器规格，密钥和偏移向量按 UTF-8 编码，空白值视为未设置
+     * @param algorithm 算法名称
+     * @param mode 加密模式
+     * @param padding 补码方式
+     * @param key 密钥
+     * @param iv 偏移向量，可为空
+     */
+    public static CryptoSpec of(String algorithm, Mode mode, Padding padding, String key, String iv) {
+        return new CryptoSpec(algorithm, mode, padding, toBytes(key), toBytes(iv));
+    }
+
+    /**
+     * HMAC 签名器规格
+     * @param hmacAlgorithm Hmac算法
+     * @param key 密钥
+     */
+    public static CryptoSpec hmac(HmacAlgorithm hmacAlgorithm, byte[] key) {
+        return new CryptoSpec(hmacAlgorithm.getValue(), null, null, key, null);
+    }
+
+    private static byte[] toBytes(String value) {
+        return StringUtils.isBlank(value) ? null : value.getBytes(CharsetUtil.CHARSET_UTF_8);
+    }
+
+    /**
+     * 密钥副本
+     */
+    public byte[] getKey() {
+        return Objects.isNull(key) ? null : key.clone();
+    }
+
+    /**
+     * 偏移向量副本
+     */
+    public byte[] getIv() {
+        return Objects.isNull(iv) ? null : iv.clone();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CryptoSpec)) {
+            return false;
+        }
+        CryptoSpec that = (CryptoSpec) o;
+        return hash == that.hash
+                && algorithm.equalsIgnoreCase(that.algorithm)
+                && mode == that.mode
+                && padding == that.padding
+                && isEqual(key, that.key)
+                && isEqual(iv, that.iv);
+    }
+
+    private static boolean isEqual(byte[] a, byte[] b) {
+        if (Objects.isNull(a) || Objects.isNull(b)) {
+            return a == b;
+        }
+        return MessageDigest.isEqual(a, b);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "CryptoSpec{algorithm=" + algorithm + ", mode=" + mode + ", padding=" + padding
+                + ", key=" + (Objects.isNull(key) ? "null" : "[" + key.length + " bytes]")
+                + ", iv=" + (Objects.isNull(iv) ? "null" : "[" + iv.length + " bytes]") + "}";
+    }
+
+}
@@ -0,0 +1,161 @@
+package com.baomidou.mybatisplus.enhance.util;
+
+import com.baomidou.mybatisplus.core.metadata.TableFieldInfo;
+import com.baomidou.mybatisplus.core.metadata.TableInfo;
+import com.baomidou.mybatisplus.core.toolkit.AnnotationUtils;
+import com.baomidou.mybatisplus.core.toolkit.ExceptionUtils;
+import com.baomidou.mybatisplus.core.toolkit.StringUtils;
+import com.baomidou.mybatisplus.enhance.crypto.annotation.EncryptedField;
+import lombok.Getter;
+
+import java.util.*;
+
+/**
+ * 实体类加解密计划
+ * <p>
+ * 按实体类构建一次，记录被 @EncryptedField 注解的字段及其读写器，加解密每一行数据时不再进行注解查找和反射。
+ * 由 {@link TableFieldHelper#getEncryptedFieldPlan(Class)} 构建和缓存，TableInfo 重新初始化后自动重建。
+ * </p>
+ */
+@Getter
+public class EncryptedFieldPlan {
+
+    /**
+     * 构建计划时使用的 TableInfo，实体类没有 TableInfo 时为空
+     */
+    private final TableInfo tableInfo;
+    /**
+     * 实体类是否被 @EncryptedTable 注解
+     */
+    private final boolean encryptedTable;
+    /**
+     * 被 @EncryptedField 注解的字段
+     */
+    private final EncryptedFieldItem[] fields;
+    /**
+     * 被 @EncryptedField 注解的字段信息列表
+     */
+    private final List<TableFieldInfo> fieldInfos;
+    /**
+     * 加密字段，key 为加密字段的数据库列名（去除转义符并转为小写），用于 SQL 条件中的列与加密字段进行匹配
+     */
+    private final Map<String, EncryptedFieldItem> columnItems;
+    /**
+     * 是否存在维护盲索引的加密字段
+     */
+    private final boolean blindIndex;
+
+    EncryptedFieldPlan(TableInfo tableInfo, boolean encryptedTable) {
+        this.tableInfo = tableInfo;
+        this.encryptedTable = encryptedTable;
+        List<EncryptedFieldItem> items = new ArrayList<>();
+        List<TableFieldInfo> infos = new ArrayList<>();
+        Map<String, EncryptedFieldItem> columns = new HashMap<>();
+        if (Objects.nonNull(tableInfo)) {
+            for (TableFieldInfo fieldInfo : tableInfo.getFieldList()) {
+                EncryptedField encryptedField = AnnotationUtils.findFirstAnnotation(EncryptedField.class, fieldInfo.getField());
+                if (Objects.nonNull(encryptedField)) {
+                    EncryptedFieldItem item = new EncryptedFieldItem(fieldInfo, getBlindIndexFieldInfo(tableInfo, fieldInfo, encryptedField));
+                    items.add(item);
+                    infos.add(fieldInfo);
+                    columns.put(normalizeColumn(fieldInfo.getColumn()), item);
+                }
+            }
+        }
+        this.fields = items.toArray(new EncryptedFieldItem[0]);
+        this.fieldInfos = Collections.unmodifiableList(infos);
+        this.columnItems = Collections.unmodifiableMap(columns);
+        this.blindIndex = items.stream().anyMatch(EncryptedFieldItem::hasBlindIndex);
+    }
+
+    private static TableFieldInfo getBlindIndexFieldInfo(TableInfo tableInfo, TableFieldInfo fieldInfo, EncryptedField encryptedField) {
+        if (StringUtils.isBlank(encryptedField.blindIndex())) {
+            return null;
+        }
+        return tableInfo.getFieldList().stream()
+                .filter(info -> info.getProperty().equals(encryptedField.blindIndex()))
+                .findFirst()
+                .orElseThrow(() -> ExceptionUtils.mpe("Blind index property '%s' of %s.%s is not a table field",
+                        encryptedField.blindIndex(), tableInfo.getEntityType().getName(), fieldInfo.getProperty()));
+    }
+
+    /**
+     * 去除列名的转义符并转为小写，用于 SQL 中的列名与实体字段的列名进行匹配
+     */
+    public static String normalizeColumn(String column) {
+        return StringUtils.getTargetColumn(column).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 根据数据库列名获取加密字段
+     * @param column 数据库列名，可以带转义符
+     * @return 加密字段，该列不是加密字段时返回空
+     */
+    public EncryptedFieldItem getColumnItem(String column) {
+        return columnItems.get(normalizeColumn(column));
+    }
+
+    /**
+     * 是否需要进行加解密：实体类被 @EncryptedTable 注解且存在 @EncryptedField 字段
+     */
+    public boolean isEncryptable() {
+        return encryptedTable && fields.length > 0;
+    }
+
+    /**
+     * 加解密字段
+     */
+    @Getter
+    public static class EncryptedFieldItem {
+
+        /**
+         * 字段信息
+         */
+        private final TableFieldInfo fieldInfo;
+        /**
+         * 属性名
+         */
+        private final String property;
+        /**
+         * 字段读写器
+         */
+        private final FieldAccessor accessor;
+        /**
+         * 解密目标类型
+         */
+        private final Class<?> targetType;
+        /**
+         * 盲索引字段信息，没有盲索引时为空
+         */
+        private final TableFieldInfo blindIndexFieldInfo;
+        /**
+         * 盲索引字段读写器，没有盲索引时为空
+         */
+        private final FieldAccessor blindIndexAccessor;
+
+        EncryptedFieldItem(TableFieldInfo fieldInfo, TableFieldInfo blindIndexFieldInfo) {
+            this.fieldInfo = fieldInfo;
+            this.property = fieldInfo.getProperty();
+            this.accessor = FieldAccessor.of(fieldInfo.getField());
+            this.targetType = fieldInfo.getPropertyType();
+            this.blindIndexFieldInfo = blindIndexFieldInfo;
+            this.blindIndexAccessor = Objects.isNull(blindIndexFieldInfo) ? null : FieldAccessor.of(blindIndexFieldInfo.getField());
+        }
+
+        /**
+         * 是否维护盲索引
+         */
+        public boolean hasBlindIndex() {
+            return Objects.nonNull(blindIndexFieldInfo);
+        }
+
+        /**
+         * 盲索引字段的数据库列名
+         */
+        public String getBlindIndexColumn() {
+            return hasBlindIndex() ? blindIndexFieldInfo.getColumn() : null;
+        }
+
+    }
+
+}
@@ -0,0 +1,169 @@
+package com.baomidou.mybatisplus.enhance.util;
+
+import com.baomidou.mybatisplus.enhance.crypto.annotation.EncryptedParam;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.Getter;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.reflection.ParamNameResolver;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.type.SimpleTypeRegistry;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.*;
+
+/**
+ * Mapper 方法参数加密计划
+ * <p>
+ * 按 MappedStatement 解析一次并缓存，记录需要加密的简单类型参数，以及元素为简单类型的集合、数组参数（例如 IN 查询的 foreach 参数）：
+ * 1、被 @EncryptedParam 注解的参数
+ * 2、Mapper 对应的实体类被 @EncryptedTable 注解时，@Param 名称与 @EncryptedField 字段属性名相同的参数；字段维护盲索引时替换为盲索引值，
+ * 此时 SQL 中应与盲索引字段比较，例如：mobile_idx = #{mobile}
+ * </p>
+ */
+@Getter
+public class EncryptedParamPlan {
+
+    private static final EncryptedParamPlan EMPTY = new EncryptedParamPlan(Collections.emptyList(), false);
+
+    private static final Cache<String, EncryptedParamPlan> ENCRYPTED_PARAM_PLAN_CACHE = Caffeine.newBuilder()
+            .maximumSize(MapperMethodRegistry.MAXIMUM_SIZE)
+            .build();
+
+    /**
+     * 需要加密的参数
+     */
+    private final List<EncryptedParamItem> params;
+    /**
+     * 是否为没有 @Param 注解的单个参数，此时 MyBatis 直接以参数值作为参数对象，SQL 中任意名称的参数都指向该值
+     */
+    private final boolean singleParam;
+
+    private EncryptedParamPlan(List<EncryptedParamItem> params, boolean singleParam) {
+        this.params = params;
+        this.singleParam = singleParam;
+    }
+
+    /**
+     * 获取 MappedStatement 的参数加密计划，首次获取时解析
+     * @param ms MappedStatement
+     * @return 参数加密计划，不会为 null
+     */
+    public static EncryptedParamPlan get(MappedStatement ms) {
+        return ENCRYPTED_PARAM_PLAN_CACHE.get(ms.getId(), id -> resolve(ms));
+    }
+
+    /**
+     * 清空缓存，Mapper 重新加载后调用
+     */
+    public static void clear() {
+        ENCRYPTED_PARAM_PLAN_CACHE.invalidateAll();
+    }
+
+    /**
+     * 是否没有需要加密的参数
+     */
+    public boolean isEmpty() {
+        return params.isEmpty();
+    }
+
+    private static EncryptedParamPlan resolve(MappedStatement ms) {
+        Method method = MapperMethodRegistry.get(ms.getId()).getMethod();
+        if (Objects.isNull(method) || method.getParameterCount() == 0) {
+            return EMPTY;
+        }
+        // 1、按 MyBatis 的规则解析参数名称
+        ParamNameResolver resolver = new ParamNameResolver(ms.getConfiguration(), method);
+        String[] names = resolver.getNames();
+        // 2、Mapper 对应实体类的加密字段
+        Class<?> entityClass = TableFieldHelper.getEntityClass(ms.getId());
+        EncryptedFieldPlan fieldPlan = Objects.isNull(entityClass) ? null : TableFieldHelper.getEncryptedFieldPlan(entityClass);
+        // 3、筛选需要加密的简单类型参数，ParamNameResolver 会跳过 RowBounds、ResultHandler 参数
+        List<EncryptedParamItem> items = new ArrayList<>();
+        Parameter[] parameters = method.getParameters();
+        int nameIndex = 0;
+        for (Parameter parameter : parameters) {
+            if (RowBounds.class.isAssignableFrom(parameter.getType()) || ResultHandler.class.isAssignableFrom(parameter.getType())) {
+                continue;
+            }
+            String name = names[nameIndex++];
+            boolean multiple = isMultiple(parameter);
+            if (!multiple && !SimpleTypeRegistry.isSimpleType(parameter.getType())) {
+                continue;
+            }
+            EncryptedParam encryptedParam = parameter.getAnnotation(EncryptedParam.class);
+            if (Objects.nonNull(encryptedParam)) {
+                items.add(new EncryptedParamItem(name, nameIndex, encryptedParam.blindIndex(), multiple));
+            } else if (Objects.nonNull(parameter.getAnnotation(Param.class)) && Objects.nonNull(fieldPlan) && fieldPlan.isEncryptable()) {
+                for (EncryptedFieldPlan.EncryptedFieldItem field : fieldPlan.getFields()) {
+                    if (field.getProperty().equals(name)) {
+                        items.add(new EncryptedParamItem(name, nameIndex, field.hasBlindIndex(), multiple));
+                        break;
+                    }
+                }
+            }
+        }
+        if (items.isEmpty()) {
+            return EMPTY;
+        }
+        boolean singleParam = names.length == 1 && Arrays.stream(parameters).noneMatch(parameter -> parameter.isAnnotationPresent(Param.class));
+        return new EncryptedParamPlan(Collections.unmodifiableList(items), singleParam);
+    }
+
+    /**
+     * 参数是否为元素为简单类型的集合或数组，未声明泛型的集合按运行时的元素处理
+     */
+    private static boolean isMultiple(Parameter parameter) {
+        Class<?> type = parameter.getType();
+        if (type.isArray()) {
+            return !type.getComponentType().isPrimitive() && SimpleTypeRegistry.isSimpleType(type.getComponentType());
+        }
+        if (!Collection.class.isAssignableFrom(type)) {
+            return false;
+        }
+        Type genericType = parameter.getParameterizedType();
+        if (genericType instanceof ParameterizedType) {
+            Type elementType = ((ParameterizedType) genericType).getActualTypeArguments()[0];
+            return !(elementType instanceof Class) || SimpleTypeRegistry.isSimpleType((Class<?>) elementType);
+        }
+        return true;
+    }
+
+    /**
+     * 需要加密的参数
+     */
+    @Getter
+    public static class EncryptedParamItem {
+
+        /**
+         * 参数名称，@Param 的值或实际参数名
+         */
+        private final String name;
+        /**
+         * MyBatis 为参数生成的通用名称，例如：param1
+         */
+        private final String genericName;
+        /**
+         * 是否替换为盲索引值
+         */
+        private final boolean blindIndex;
+        /**
+         * 是否为集合或数组参数，按元素逐个加密
+         */
+        private final boolean multiple;
+
+        EncryptedParamItem(String name, int position, boolean blindIndex, boolean multiple) {
+            this.name = name;
+            this.genericName = ParamNameResolver.GENERIC_NAME_PREFIX + position;
+            this.blindIndex = blindIndex;
+            this.multiple = multiple;
+        }
+
+    }
+
+}
@@ -9,4 +9,19 @@ public interface EnhanceConstants extends Constants {
      */
     String CUSTOM_ENTITY = "entity";
 
+    /**
+     * Wrapper 参数变量的属性前缀，例如：ew.paramNameValuePairs.MPGENVAL1
+     */
+    String WRAPPER_PARAM_PREFIX = WRAPPER + WRAPPER_PARAM_MIDDLE;
+
+    /**
+     * 盲索引查询参数的属性前缀，改写后的查询参数以 BoundSql 附加参数的形式传递
+     */
+    String BLIND_INDEX_PARAM_PREFIX = "_blindIndex_";
+
+    /**
+     * 加密查询参数的属性前缀，加密后的查询参数以 BoundSql 附加参数的形式传递
+     */
+    String ENCRYPTED_PARAM_PREFIX = "_encrypted_";
+
 }
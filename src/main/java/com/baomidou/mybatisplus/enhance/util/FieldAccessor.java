@@ -0,0 +1,98 @@
+package com.baomidou.mybatisplus.enhance.util;
+
+import com.baomidou.mybatisplus.core.toolkit.ExceptionUtils;
+import lombok.Getter;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+
+/**
+ * 基于 MethodHandle 的字段读写器
+ * <p>
+ * 构建时完成 setAccessible 和 MethodHandle 解析，读写时不再进行反射查找和类型转换。
+ * 写入的值必须与字段类型兼容，否则抛出 ClassCastException。
+ * </p>
+ */
+public final class FieldAccessor {
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    /**
+     * 字段
+     */
+    @Getter
+    private final Field field;
+    private final MethodHandle getter;
+    private final MethodHandle setter;
+
+    private FieldAccessor(Field field, MethodHandle getter, MethodHandle setter) {
+        this.field = field;
+        this.getter = getter;
+        this.setter = setter;
+    }
+
+    /**
+     * 创建字段读写器
+     * @param field 字段
+     * @return 字段读写器
+     */
+    public static FieldAccessor of(Field field) {
+        try {
+            field.setAccessible(true);
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle getter = lookup.unreflectGetter(field).asType(GETTER_TYPE);
+            MethodHandle setter = lookup.unreflectSetter(field).asType(SETTER_TYPE);
+            return new FieldAccessor(field, getter, setter);
+        } catch (IllegalAccessException | SecurityException e) {
+            throw ExceptionUtils.mpe("Unable to access field %s.%s", e, field.getDeclaringClass().getName(), field.getName());
+        }
+    }
+
+    /**
+     * 读取字段值
+     * @param target 目标对象
+     * @return 字段值
+     */
+    public Object get(Object target) {
+        try {
+            return (Object) getter.invokeExact(target);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw ExceptionUtils.mpe(e);
+        }
+    }
+
+    /**
+     * 写入字段值
+     * @param target 目标对象
+     * @param value 字段值
+     */
+    public void set(Object target, Object value) {
+        try {
+            setter.invokeExact(target, value);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw ExceptionUtils.mpe(e);
+        }
+    }
+
+    /**
+     * 字段类型
+     */
+    public Class<?> getType() {
+        return field.getType();
+    }
+
+    /**
+     * 字段名
+     */
+    public String getName() {
+        return field.getName();
+    }
+
+}
@@ -0,0 +1,162 @@
+package com.baomidou.mybatisplus.enhance.util;
+
+import cn.hutool.core.util.ReflectUtil;
+import com.baomidou.mybatisplus.core.toolkit.AnnotationUtils;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.io.Resources;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Mapper 方法注册表
+ * <p>
+ * 以 MappedStatement Id 为 key，缓存解析出的 Mapper 接口类、Mapper 方法以及其上的注解，避免每次执行 SQL 都进行
+ * Class.forName 和方法遍历。无法解析的 Id（XML 中独立定义的 namespace、动态生成的 MappedStatement 等）同样会被缓存，
+ * 后续不再重复解析。
+ * </p>
+ */
+@Slf4j
+public class MapperMethodRegistry {
+
+    /**
+     * 缓存的 MappedStatement 数量上限
+     */
+    public static final long MAXIMUM_SIZE = 10000;
+    /**
+     * 分页插件生成的 count 语句后缀
+     */
+    private static final String[] COUNT_SUFFIXES = {"_COUNT", "_count", "_mpCount"};
+
+    private static final Cache<String, MapperMethod> MAPPER_METHOD_CACHE = Caffeine.newBuilder()
+            .maximumSize(MAXIMUM_SIZE)
+            .build();
+
+    /**
+     * 获取 MappedStatement Id 对应的 Mapper 方法信息，首次获取时解析
+     * @param mappedStatementId MappedStatement Id
+     * @return Mapper 方法信息，不会为 null；无法解析时 {@link MapperMethod#isResolved()} 为 false
+     */
+    public static MapperMethod get(String mappedStatementId) {
+        return MAPPER_METHOD_CACHE.get(mappedStatementId, MapperMethodRegistry::resolve);
+    }
+
+    /**
+     * 获取 MappedStatement Id 对应的 Mapper 方法上的注解
+     * @param mappedStatementId MappedStatement Id
+     * @param annotationType 注解类型
+     * @return 注解，方法不存在或未注解时返回 null
+     */
+    public static <A extends Annotation> A getMethodAnnotation(String mappedStatementId, Class<A> annotationType) {
+        return get(mappedStatementId).getMethodAnnotation(annotationType);
+    }
+
+    /**
+     * 清空注册表，Mapper 重新加载后调用
+     */
+    public static void clear() {
+        MAPPER_METHOD_CACHE.invalidateAll();
+    }
+
+    private static MapperMethod resolve(String mappedStatementId) {
+        int index = mappedStatementId.lastIndexOf('.');
+        if (index <= 0) {
+            log.debug("mappedStatementId：{}, no mapper namespace, annotations are ignored.", mappedStatementId);
+            return new MapperMethod(mappedStatementId, null, null);
+        }
+        Class<?> mapperClass;
+        try {
+            mapperClass = Resources.classForName(mappedStatementId.substring(0, index));
+        } catch (ClassNotFoundException e) {
+            log.debug("mappedStatementId：{}, mapper class not found, annotations are ignored.", mappedStatementId);
+            return new MapperMethod(mappedStatementId, null, null);
+        }
+        String methodName = mappedStatementId.substring(index + 1);
+        Method method = ReflectUtil.getMethodByName(mapperClass, methodName);
+        if (Objects.isNull(method)) {
+            // 分页插件的 count 语句沿用原方法上的注解
+            for (String suffix : COUNT_SUFFIXES) {
+                if (methodName.endsWith(suffix)) {
+                    method = ReflectUtil.getMethodByName(mapperClass, methodName.substring(0, methodName.length() - suffix.length()));
+                    break;
+                }
+            }
+        }
+        if (Objects.isNull(method)) {
+            log.debug("mappedStatementId：{}, mapper method not found, method annotations are ignored.", mappedStatementId);
+        }
+        return new MapperMethod(mappedStatementId, mapperClass, method);
+    }
+
+    /**
+     * Mapper 方法信息
+     */
+    @Getter
+    public static class MapperMethod {
+
+        /**
+         * MappedStatement Id
+         */
+        private final String mappedStatementId;
+        /**
+         * Mapper 接口类，无法解析时为空
+         */
+        private final Class<?> mapperClass;
+        /**
+         * Mapper 方法，无法解析时为空
+         */
+        private final Method method;
+        /**
+         * 方法注解查找结果缓存
+         */
+        private final Map<Class<? extends Annotation>, Optional<Annotation>> methodAnnotations = new ConcurrentHashMap<>(4);
+
+        MapperMethod(String mappedStatementId, Class<?> mapperClass, Method method) {
+            this.mappedStatementId = mappedStatementId;
+            this.mapperClass = mapperClass;
+            this.method = method;
+        }
+
+        /**
+         * 是否解析到了 Mapper 方法
+         */
+        public boolean isResolved() {
+            return Objects.nonNull(method);
+        }
+
+        /**
+         * 获取 Mapper 接口类上的注解
+         */
+        public <A extends Annotation> A getClassAnnotation(Class<A> annotationType) {
+            return Objects.isNull(mapperClass) ? null : mapperClass.getAnnotation(annotationType);
+        }
+
+        /**
+         * 获取 Mapper 方法上的注解（支持组合注解），查找结果会被缓存
+         */
+        @SuppressWarnings("unchecked")
+        public <A extends Annotation> A getMethodAnnotation(Class<A> annotationType) {
+            if (Objects.isNull(method)) {
+                return null;
+            }
+            return (A) methodAnnotations.computeIfAbsent(annotationType,
+                    type -> Optional.ofNullable(AnnotationUtils.findFirstAnnotation(type, method))).orElse(null);
+        }
+
+        /**
+         * Mapper 方法上是否存在指定注解
+         */
+        public boolean isMethodAnnotationPresent(Class<? extends Annotation> annotationType) {
+            return Objects.nonNull(getMethodAnnotation(annotationType));
+        }
+
+    }
+
+}
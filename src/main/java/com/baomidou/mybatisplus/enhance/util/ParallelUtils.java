@@ -0,0 +1,119 @@
+package com.baomidou.mybatisplus.enhance.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * 列表并行处理工具类
+ * <p>
+ * 将列表按下标切分为连续的分片，分片提交到指定线程池执行，第一个分片在调用线程上执行。
+ * 元素在原列表中就地处理，不改变列表顺序；任一元素处理失败时，抛出下标最小的失败元素的异常，与串行执行时的结果一致。
+ * </p>
+ */
+public class ParallelUtils {
+
+    /**
+     * 并行处理列表中的每个元素，调用线程会等待全部分片执行完成
+     * @param list 待处理列表
+     * @param executor 线程池，为空时使用 {@link ForkJoinPool#commonPool()}
+     * @param action 元素处理逻辑，必须是线程安全的
+     * @param <T> 元素类型
+     */
+    public static <T> void forEach(List<T> list, Executor executor, Consumer<? super T> action) {
+        Executor actualExecutor = Objects.isNull(executor) ? ForkJoinPool.commonPool() : executor;
+        forEach(list, actualExecutor, getParallelism(actualExecutor), action);
+    }
+
+    /**
+     * 并行处理列表中的每个元素，调用线程会等待全部分片执行完成
+     * @param list 待处理列表
+     * @param executor 线程池
+     * @param parallelism 分片数量
+     * @param action 元素处理逻辑，必须是线程安全的
+     * @param <T> 元素类型
+     */
+    public static <T> void forEach(List<T> list, Executor executor, int parallelism, Consumer<? super T> action) {
+        int size = list.size();
+        int chunks = Math.min(Math.max(parallelism, 1), size);
+        if (chunks <= 1) {
+            list.forEach(action);
+            return;
+        }
+        int chunkSize = (size + chunks - 1) / chunks;
+        // 记录失败的最小下标及对应异常，下标大于该值的元素不再处理
+        AtomicInteger firstFailedIndex = new AtomicInteger(Integer.MAX_VALUE);
+        AtomicReferenceArray<Throwable> failures = new AtomicReferenceArray<>(chunks);
+        List<CompletableFuture<Void>> futures = new ArrayList<>(chunks - 1);
+        for (int chunk = 1; chunk < chunks; chunk++) {
+            int from = chunk * chunkSize;
+            int to = Math.min(from + chunkSize, size);
+            if (from >= to) {
+                break;
+            }
+            int index = chunk;
+            Runnable task = () -> runChunk(list, from, to, index, action, firstFailedIndex, failures);
+            try {
+                futures.add(CompletableFuture.runAsync(task, executor));
+            } catch (RejectedExecutionException e) {
+                // 线程池已满时由调用线程执行
+                task.run();
+            }
+        }
+        runChunk(list, 0, Math.min(chunkSize, size), 0, action, firstFailedIndex, failures);
+        // 分片内已捕获全部异常，这里只等待执行完成
+        futures.forEach(CompletableFuture::join);
+        // 按分片顺序找到第一个失败，分片内只会记录该分片的首个失败
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            Throwable failure = failures.get(chunk);
+            if (Objects.nonNull(failure)) {
+                throwUnchecked(failure);
+            }
+        }
+    }
+
+    private static <T> void runChunk(List<T> list, int from, int to, int chunk, Consumer<? super T> action,
+                                     AtomicInteger firstFailedIndex, AtomicReferenceArray<Throwable> failures) {
+        for (int i = from; i < to; i++) {
+            if (i > firstFailedIndex.get()) {
+                return;
+            }
+            try {
+                action.accept(list.get(i));
+            } catch (Throwable e) {
+                firstFailedIndex.accumulateAndGet(i, Math::min);
+                failures.set(chunk, e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * 获取线程池的并行度
+     */
+    public static int getParallelism(Executor executor) {
+        if (executor instanceof ForkJoinPool) {
+            return ((ForkJoinPool) executor).getParallelism();
+        }
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    private static void throwUnchecked(Throwable e) {
+        if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        throw new CompletionException(e);
+    }
+
+}
@@ -0,0 +1,158 @@
+package com.baomidou.mybatisplus.enhance.util;
+
+import com.baomidou.mybatisplus.core.metadata.TableFieldInfo;
+import com.baomidou.mybatisplus.core.metadata.TableInfo;
+import com.baomidou.mybatisplus.core.toolkit.AnnotationUtils;
+import com.baomidou.mybatisplus.core.toolkit.Constants;
+import com.baomidou.mybatisplus.core.toolkit.ExceptionUtils;
+import com.baomidou.mybatisplus.enhance.crypto.annotation.TableSignature;
+import com.baomidou.mybatisplus.enhance.crypto.annotation.TableSignatureField;
+import com.baomidou.mybatisplus.enhance.crypto.enums.SignatureFormat;
+import lombok.Getter;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * 实体类签名计划
+ * <p>
+ * 按实体类构建一次，记录参与签名的字段（已排序）及其读写器、存储签名结果的字段、签名格式和异常信息中使用的列名，
+ * 签名和验签每一行数据时不再进行字段筛选、排序和注解查找。
+ * 由 {@link TableFieldHelper#getSignaturePlan(Class)} 构建和缓存，TableInfo 重新初始化后自动重建。
+ * </p>
+ */
+@Getter
+public class SignaturePlan {
+
+    /**
+     * 构建计划时使用的 TableInfo，实体类没有 TableInfo 时为空
+     */
+    private final TableInfo tableInfo;
+    /**
+     * 实体类上的 @TableSignature 注解，未注解时为空
+     */
+    private final TableSignature tableSignature;
+    /**
+     * 是否将实体类的所有字段进行联合签名
+     */
+    private final boolean unionAll;
+    /**
+     * 新签名使用的签名格式
+     */
+    private final SignatureFormat format;
+    /**
+     * 验签时允许的最低签名格式
+     */
+    private final SignatureFormat minimumFormat;
+    /**
+     * 表完整性摘要的主键范围分桶大小，小于等于 0 时不维护表完整性摘要
+     */
+    private final long integrityBucketSize;
+    /**
+     * 参与签名的字段，按 @TableSignatureField 的 order、列名排序
+     */
+    private final SignatureFieldItem[] fields;
+    /**
+     * 参与签名的字段信息列表，按 @TableSignatureField 的 order、列名排序
+     */
+    private final List<TableFieldInfo> fieldInfos;
+    /**
+     * 存储签名结果的字段信息，不存在时为空
+     */
+    private final TableFieldInfo storeFieldInfo;
+    /**
+     * 存储签名结果的字段读写器，不存在时为空
+     */
+    private final FieldAccessor storeAccessor;
+    /**
+     * 参与签名的字段的列名，以逗号拼接，用于异常信息
+     */
+    private final String columns;
+
+    SignaturePlan(TableInfo tableInfo) {
+        this.tableInfo = tableInfo;
+        this.tableSignature = Objects.isNull(tableInfo) ? null : AnnotationUtils.findFirstAnnotation(TableSignature.class, tableInfo.getEntityType());
+        this.unionAll = Objects.nonNull(tableSignature) && tableSignature.unionAll();
+        this.format = Objects.isNull(tableSignature) ? SignatureFormat.V1 : tableSignature.format();
+        this.minimumFormat = Objects.isNull(tableSignature) ? SignatureFormat.V1 : tableSignature.minimumFormat();
+        if (minimumFormat.getVersion() > format.getVersion()) {
+            throw ExceptionUtils.mpe("Minimum signature format %s of entity %s is newer than format %s", minimumFormat, tableInfo.getEntityType().getName(), format);
+        }
+        this.integrityBucketSize = Objects.isNull(tableSignature) ? 0 : tableSignature.integrityBucketSize();
+        List<SignatureFieldItem> items = new ArrayList<>();
+        TableFieldInfo storeField = null;
+        if (Objects.nonNull(tableInfo)) {
+            for (TableFieldInfo fieldInfo : tableInfo.getFieldList()) {
+                TableSignatureField signatureField = AnnotationUtils.findFirstAnnotation(TableSignatureField.class, fieldInfo.getField());
+                if (Objects.nonNull(signatureField) && signatureField.stored()) {
+                    // 存储签名结果的字段不参与签名，只取第一个
+                    if (Objects.isNull(storeField)) {
+                        storeField = fieldInfo;
+                    }
+                } else if (unionAll || Objects.nonNull(signatureField)) {
+                    items.add(new SignatureFieldItem(fieldInfo, Objects.isNull(signatureField) ? 0 : signatureField.order()));
+                }
+            }
+        }
+        items.sort(Comparator.comparingInt(SignatureFieldItem::getOrder).thenComparing(item -> item.getFieldInfo().getColumn()));
+        this.fields = items.toArray(new SignatureFieldItem[0]);
+        this.fieldInfos = Collections.unmodifiableList(items.stream().map(SignatureFieldItem::getFieldInfo).collect(Collectors.toList()));
+        this.storeFieldInfo = storeField;
+        this.storeAccessor = Objects.isNull(storeField) ? null : FieldAccessor.of(storeField.getField());
+        this.columns = items.stream().map(item -> item.getFieldInfo().getColumn()).collect(Collectors.joining(Constants.COMMA));
+    }
+
+    /**
+     * 是否需要进行签名：实体类被 @TableSignature 注解且存在参与签名的字段
+     */
+    public boolean isSignable() {
+        return Objects.nonNull(tableSignature) && fields.length > 0;
+    }
+
+    /**
+     * 是否维护表完整性摘要
+     */
+    public boolean isIntegritySummaryEnabled() {
+        return isSignable() && integrityBucketSize > 0;
+    }
+
+    /**
+     * 存储签名结果的字段
+     */
+    public Optional<TableFieldInfo> getStoreField() {
+        return Optional.ofNullable(storeFieldInfo);
+    }
+
+    /**
+     * 参与签名的字段
+     */
+    @Getter
+    public static class SignatureFieldItem {
+
+        /**
+         * 字段信息
+         */
+        private final TableFieldInfo fieldInfo;
+        /**
+         * 属性名
+         */
+        private final String property;
+        /**
+         * 字段读写器
+         */
+        private final FieldAccessor accessor;
+        /**
+         * 签名顺序
+         */
+        private final int order;
+
+        SignatureFieldItem(TableFieldInfo fieldInfo, int order) {
+            this.fieldInfo = fieldInfo;
+            this.property = fieldInfo.getProperty();
+            this.accessor = FieldAccessor.of(fieldInfo.getField());
+            this.order = order;
+        }
+
+    }
+
+}
@@ -0,0 +1,219 @@
+package com.baomidou.mybatisplus.enhance.util;
+
+import com.baomidou.mybatisplus.core.conditions.AbstractWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.Update;
+import com.baomidou.mybatisplus.core.metadata.TableFieldInfo;
+import com.baomidou.mybatisplus.core.metadata.TableInfo;
+import com.baomidou.mybatisplus.core.toolkit.Constants;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.Getter;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * UpdateWrapper、LambdaUpdateWrapper 的 SET 子句索引
+ * <p>
+ * 将 getSqlSet() 解析为【列名 → 参数变量名】，例如：name=#{ew.paramNameValuePairs.MPGENVAL1} 解析为 name → MPGENVAL1。
+ * 按逗号拆分时跳过引号、括号和 #{} 中的逗号，取值中包含逗号的 setSql 片段不会被错误拆分。
+ * 索引按 Wrapper 实例缓存（弱引用，Wrapper 被回收后自动清除），加密、签名、脱敏等处理器共享同一个索引；
+ * SET 子句发生变化（例如处理器追加了 setSql）时自动重建。
+ * </p>
+ */
+public class SqlSetIndex {
+
+    /**
+     * 参数变量占位符正则，例如：#{ew.paramNameValuePairs.MPGENVAL1} 或 #{ew.paramNameValuePairs.MPGENVAL1,javaType=int}
+     */
+    public static final Pattern PARAM_PLACEHOLDER_RE = Pattern.compile("#\\{" + Pattern.quote(EnhanceConstants.WRAPPER_PARAM_PREFIX)
+            + "(" + Constants.WRAPPER_PARAM + "\\d+)(?:,[^}]*)?}");
+
+    private static final SqlSetIndex EMPTY = new SqlSetIndex(null, Constants.EMPTY);
+
+    private static final Cache<AbstractWrapper<?, ?, ?>, SqlSetIndex> SQL_SET_INDEX_CACHE = Caffeine.newBuilder()
+            .weakKeys()
+            .build();
+
+    /**
+     * 构建索引时的 SET 子句
+     */
+    @Getter
+    private final String sqlSet;
+    private final AbstractWrapper<?, ?, ?> wrapper;
+    /**
+     * 列名（去除转义符并转为小写） → 赋值表达式，例如：name → #{ew.paramNameValuePairs.MPGENVAL1}
+     */
+    @Getter
+    private final Map<String, String> segments;
+    /**
+     * 列名（去除转义符并转为小写） → 参数变量名，仅包含以参数变量赋值的列
+     */
+    @Getter
+    private final Map<String, String> paramKeys;
+
+    private SqlSetIndex(AbstractWrapper<?, ?, ?> wrapper, String sqlSet) {
+        this.wrapper = wrapper;
+        this.sqlSet = sqlSet;
+        Map<String, String> segmentMap = new LinkedHashMap<>();
+        Map<String, String> paramKeyMap = new LinkedHashMap<>();
+        for (String assignment : split(sqlSet)) {
+            int index = indexOfEquals(assignment);
+            if (index <= 0) {
+                continue;
+            }
+            String column = EncryptedFieldPlan.normalizeColumn(assignment.substring(0, index).trim());
+            String expression = assignment.substring(index + 1).trim();
+            segmentMap.put(column, expression);
+            Matcher matcher = PARAM_PLACEHOLDER_RE.matcher(expression);
+            if (matcher.matches()) {
+                paramKeyMap.put(column, matcher.group(1));
+            }
+        }
+        this.segments = Collections.unmodifiableMap(segmentMap);
+        this.paramKeys = Collections.unmodifiableMap(paramKeyMap);
+    }
+
+    /**
+     * 获取 Wrapper 的 SET 子句索引，同一个 Wrapper 实例在 SET 子句不变时只解析一次
+     * @param wrapper UpdateWrapper、LambdaUpdateWrapper，其他类型返回空索引
+     * @return SET 子句索引，不会为 null
+     */
+    public static SqlSetIndex of(AbstractWrapper<?, ?, ?> wrapper) {
+        if (!(wrapper instanceof Update)) {
+            return EMPTY;
+        }
+        String sqlSet = StringUtils.defaultString(((Update<?, ?>) wrapper).getSqlSet());
+        SqlSetIndex index = SQL_SET_INDEX_CACHE.getIfPresent(wrapper);
+        if (Objects.isNull(index) || !index.sqlSet.equals(sqlSet)) {
+            index = new SqlSetIndex(wrapper, sqlSet);
+            SQL_SET_INDEX_CACHE.put(wrapper, index);
+        }
+        return index;
+    }
+
+    /**
+     * 获取以属性名为 key 的 SET 子句赋值表达式，例如：name → #{ew.paramNameValuePairs.MPGENVAL1}；
+     * 不属于实体类字段的列（例如 setSql 追加的列）保留列名
+     * @param tableInfo 实体类表信息
+     * @return 属性名 → 赋值表达式
+     */
+    public Map<String, String> getPropertySegments(TableInfo tableInfo) {
+        Map<String, String> propertySegments = new LinkedHashMap<>(segments.size());
+        for (Map.Entry<String, String> entry : segments.entrySet()) {
+            propertySegments.put(getProperty(tableInfo, entry.getKey()), entry.getValue());
+        }
+        return propertySegments;
+    }
+
+    private static String getProperty(TableInfo tableInfo, String column) {
+        if (Objects.isNull(tableInfo)) {
+            return column;
+        }
+        if (Objects.nonNull(tableInfo.getKeyColumn()) && column.equals(EncryptedFieldPlan.normalizeColumn(tableInfo.getKeyColumn()))) {
+            return tableInfo.getKeyProperty();
+        }
+        for (TableFieldInfo fieldInfo : tableInfo.getFieldList()) {
+            if (column.equals(EncryptedFieldPlan.normalizeColumn(fieldInfo.getColumn()))) {
+                return fieldInfo.getProperty();
+            }
+        }
+        return column;
+    }
+
+    /**
+     * 获取字段赋值对应的参数变量名，先按列名查找，再按属性名查找
+     * @param fieldInfo 字段信息
+     * @return 参数变量名，字段不在 SET 子句中或不是以参数变量赋值时返回 null
+     */
+    public String getParamKey(TableFieldInfo fieldInfo) {
+        String paramKey = paramKeys.get(EncryptedFieldPlan.normalizeColumn(fieldInfo.getColumn()));
+        return Objects.nonNull(paramKey) ? paramKey : paramKeys.get(EncryptedFieldPlan.normalizeColumn(fieldInfo.getProperty()));
+    }
+
+    /**
+     * 字段是否以参数变量赋值
+     */
+    public boolean containsParam(TableFieldInfo fieldInfo) {
+        return Objects.nonNull(getParamKey(fieldInfo));
+    }
+
+    /**
+     * 获取字段赋值的参数变量值
+     * @param fieldInfo 字段信息
+     * @return 参数变量值，字段不在 SET 子句中时返回 null
+     */
+    public Object getValue(TableFieldInfo fieldInfo) {
+        String paramKey = getParamKey(fieldInfo);
+        return Objects.isNull(paramKey) ? null : wrapper.getParamNameValuePairs().get(paramKey);
+    }
+
+    /**
+     * 替换字段赋值的参数变量值
+     * @param fieldInfo 字段信息
+     * @param value 新的参数变量值
+     * @return 字段以参数变量赋值并完成替换时返回 true
+     */
+    public boolean setValue(TableFieldInfo fieldInfo, Object value) {
+        String paramKey = getParamKey(fieldInfo);
+        if (Objects.isNull(paramKey)) {
+            return false;
+        }
+        wrapper.getParamNameValuePairs().put(paramKey, value);
+        return true;
+    }
+
+    /**
+     * 按顶层逗号拆分 SET 子句，忽略引号、括号和 #{} 中的逗号
+     */
+    private static List<String> split(String sqlSet) {
+        List<String> assignments = new ArrayList<>();
+        int depth = 0;
+        char quote = 0;
+        int start = 0;
+        for (int i = 0; i < sqlSet.length(); i++) {
+            char ch = sqlSet.charAt(i);
+            if (quote != 0) {
+                if (ch == quote) {
+                    quote = 0;
+                }
+            } else if (ch == '\'' || ch == '"' || ch == '`') {
+                quote = ch;
+            } else if (ch == '(' || ch == '{') {
+                depth++;
+            } else if (ch == ')' || ch == '}') {
+                depth--;
+            } else if (ch == ',' && depth == 0) {
+                assignments.add(sqlSet.substring(start, i));
+                start = i + 1;
+            }
+        }
+        if (start < sqlSet.length()) {
+            assignments.add(sqlSet.substring(start));
+        }
+        return assignments;
+    }
+
+    /**
+     * 获取赋值表达式中第一个不在引号中的等号位置
+     */
+    private static int indexOfEquals(String assignment) {
+        char quote = 0;
+        for (int i = 0; i < assignment.length(); i++) {
+            char ch = assignment.charAt(i);
+            if (quote != 0) {
+                if (ch == quote) {
+                    quote = 0;
+                }
+            } else if (ch == '\'' || ch == '"' || ch == '`') {
+                quote = ch;
+            } else if (ch == '=') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+}
@@ -1,6 +1,8 @@
 package com.baomidou.mybatisplus.enhance.util;
 
 import cn.hutool.core.util.CharsetUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.KeyUtil;
 import cn.hutool.crypto.Mode;
 import cn.hutool.crypto.Padding;
 import cn.hutool.crypto.digest.HMac;
@@ -9,48 +11,67 @@ import cn.hutool.crypto.symmetric.AES;
 import cn.hutool.crypto.symmetric.SM4;
 import cn.hutool.crypto.symmetric.SymmetricAlgorithm;
 import cn.hutool.crypto.symmetric.SymmetricCrypto;
-import org.apache.commons.lang3.StringUtils;
 
+import javax.crypto.spec.IvParameterSpec;
 import java.util.Map;
 import java.util.Objects;
-import java.util.StringJoiner;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 /**
  * 对称加密工具类
  */
 public class SymmetricCryptoUtil {
 
-    private static final Map<String, SymmetricCrypto> SYMMETRIC_CRYPTO_CACHE = new ConcurrentHashMap<>();
-    private static final Map<String, HMac> HMAC_CACHE  = new ConcurrentHashMap<>();
+    /**
+     * 每个密钥对应的对象池最大空闲实例数量
+     */
+    public static final int POOL_MAX_IDLE = Runtime.getRuntime().availableProcessors() * 2;
+
+    private static final Map<CryptoSpec, SymmetricCrypto> SYMMETRIC_CRYPTO_CACHE = new ConcurrentHashMap<>();
+    private static final Map<CryptoSpec, HMac> HMAC_CACHE  = new ConcurrentHashMap<>();
+    private static final Map<CryptoSpec, CryptoPool<SymmetricCrypto>> SYMMETRIC_CRYPTO_POOLS = new ConcurrentHashMap<>();
+    private static final Map<CryptoSpec, CryptoPool<HMac>> HMAC_POOLS = new ConcurrentHashMap<>();
 
     /**
      * 获取 SymmetricCrypto
+     * <p>返回的实例在所有线程间共享，hutool 通过加锁保证线程安全，高并发下会串行执行；高并发场景请使用
+     * {@link #execute(String, Mode, Padding, String, String, Function)}</p>
      * @param key 密钥
      * @param iv 偏移向量，加盐
      * @return SymmetricCrypto
      */
     public static SymmetricCrypto getSymmetricCrypto(String algorithmType, Mode mode, Padding padding, String key, String iv) {
-        StringJoiner keyJoiner = new StringJoiner("_").add(algorithmType).add(mode.name()).add(padding.name()).add(key).add(iv);
-        // 构造对称加密器
-        return SYMMETRIC_CRYPTO_CACHE.computeIfAbsent(keyJoiner.toString(), join -> {
-            String[] keyArr =  join.split("_");
-            String algorithmTypeStr = Objects.toString(keyArr[0], SM4.ALGORITHM_NAME);
-            String modeStr = Objects.toString(keyArr[1], Mode.ECB.name());
-            String paddingStr = Objects.toString(keyArr[2], Padding.PKCS5Padding.name());
-            byte[] keyBytes = StringUtils.isBlank(keyArr[3]) ? null : keyArr[3].getBytes(CharsetUtil.CHARSET_UTF_8);
-            byte[] ivBytes = StringUtils.isBlank(keyArr[4]) ? null : keyArr[4].getBytes(CharsetUtil.CHARSET_UTF_8);
-            // 构造SM4加密器
-            if(SM4.ALGORITHM_NAME.equalsIgnoreCase(algorithmType)){
-                return new SM4(modeStr, paddingStr, keyBytes, ivBytes);
-            }
-            // 构造AES加密器
-            if(SymmetricAlgorithm.AES.name().equalsIgnoreCase(algorithmType)){
-                return new AES(Mode.valueOf(modeStr), Padding.valueOf(paddingStr), keyBytes, ivBytes);
-            }
-
-            return new AES(Mode.valueOf(algorithmTypeStr), Padding.valueOf(keyArr[2]), keyBytes, ivBytes);
-        });
+        return getSymmetricCrypto(CryptoSpec.of(algorithmType, mode, padding, key, iv));
+    }
+
+    /**
+     * 获取 SymmetricCrypto，返回的实例在所有线程间共享
+     * @param spec 加密器规格
+     * @return SymmetricCrypto
+     */
+    public static SymmetricCrypto getSymmetricCrypto(CryptoSpec spec) {
+        return SYMMETRIC_CRYPTO_CACHE.computeIfAbsent(spec, SymmetricCryptoUtil::createSymmetricCrypto);
+    }
+
+    /**
+     * 获取 SymmetricCrypto 对象池，调用方可在初始化时获取并持有，避免每次加解密都查找对象池
+     * @param spec 加密器规格
+     * @return 对象池
+     */
+    public static CryptoPool<SymmetricCrypto> getSymmetricCryptoPool(CryptoSpec spec) {
+        return SYMMETRIC_CRYPTO_POOLS.computeIfAbsent(spec, key -> new CryptoPool<>(() -> createSymmetricCrypto(key), POOL_MAX_IDLE));
+    }
+
+    /**
+     * 从对象池借出一个 SymmetricCrypto 执行加解密操作，执行期间该实例由当前线程独占，执行完成后自动归还
+     * @param key 密钥
+     * @param iv 偏移向量，加盐
+     * @param function 加解密操作
+     * @return 操作结果
+     */
+    public static <R> R execute(String algorithmType, Mode mode, Padding padding, String key, String iv, Function<SymmetricCrypto, R> function) {
+        return getSymmetricCryptoPool(CryptoSpec.of(algorithmType, mode, padding, key, iv)).execute(function);
     }
 
     /**
@@ -75,20 +96,89 @@ public class SymmetricCryptoUtil {
 
     /**
      * 获取aes
+     * <p>返回的实例在所有线程间共享且没有任何同步保护，并发使用请通过 {@link #executeHmac(HmacAlgorithm, String, Function)}</p>
      * @param hmacAlgorithm Hmac算法
      * @param key 密钥，支持三种密钥长度：128、192、256位
      * @return AES
      */
     public static HMac getHmac(HmacAlgorithm hmacAlgorithm, String key) {
-        StringJoiner keyJoiner = new StringJoiner("_").add(hmacAlgorithm.getValue()).add(key);
-        // 构造对称加密器
-        return HMAC_CACHE.computeIfAbsent(keyJoiner.toString(), join -> {
-            String[] keyArr =  join.split("_");
-            String hmacAlgorithmStr = Objects.toString(keyArr[0], HmacAlgorithm.HmacSM3.getValue());
-            byte[] keyBytes = keyArr[1].getBytes(CharsetUtil.CHARSET_UTF_8);
-            return new HMac(hmacAlgorithmStr, keyBytes);
-        });
+        return HMAC_CACHE.computeIfAbsent(getHmacSpec(hmacAlgorithm, key), spec -> new HMac(spec.getAlgorithm(), spec.getKey()));
+    }
+
+    /**
+     * 获取 HMac 对象池，调用方可在初始化时获取并持有，避免每次签名都查找对象池
+     * @param spec 签名器规格，通过 {@link #getHmacSpec(HmacAlgorithm, String)} 获取
+     * @return 对象池
+     */
+    public static CryptoPool<HMac> getHmacPool(CryptoSpec spec) {
+        return HMAC_POOLS.computeIfAbsent(spec, key -> new CryptoPool<>(() -> new HMac(key.getAlgorithm(), key.getKey()), POOL_MAX_IDLE));
     }
 
+    /**
+     * 从对象池借出一个 HMac 执行签名操作，执行期间该实例由当前线程独占，执行完成后自动归还
+     * @param hmacAlgorithm Hmac算法
+     * @param key 密钥
+     * @param function 签名操作
+     * @return 操作结果
+     */
+    public static <R> R executeHmac(HmacAlgorithm hmacAlgorithm, String key, Function<HMac, R> function) {
+        return getHmacPool(getHmacSpec(hmacAlgorithm, key)).execute(function);
+    }
+
+    /**
+     * 获取 HMAC 签名器规格，使用完整的密钥
+     * @param hmacAlgorithm Hmac算法
+     * @param key 密钥
+     * @return 签名器规格
+     */
+    public static CryptoSpec getHmacSpec(HmacAlgorithm hmacAlgorithm, String key) {
+        return CryptoSpec.hmac(hmacAlgorithm, key.getBytes(CharsetUtil.CHARSET_UTF_8));
+    }
+
+    /**
+     * 获取历史版本的 HMAC 签名器规格：密钥只取第一个 "_" 之前的部分（历史版本以 "_" 拼接缓存 key 后再拆分）
+     * <p>已存储的历史格式（{@link com.baomidou.mybatisplus.enhance.crypto.enums.SignatureFormat#V1}）签名都是按此密钥计算的，
+     * 只能用于历史格式签名的计算和验证，其他场景使用 {@link #getHmacSpec(HmacAlgorithm, String)}</p>
+     * @param hmacAlgorithm Hmac算法
+     * @param key 密钥
+     * @return 签名器规格
+     */
+    public static CryptoSpec getLegacyHmacSpec(HmacAlgorithm hmacAlgorithm, String key) {
+        int index = key.indexOf('_');
+        return getHmacSpec(hmacAlgorithm, index < 0 ? key : key.substring(0, index));
+    }
+
+    /**
+     * 获取全部 SymmetricCrypto 对象池的汇总统计信息
+     */
+    public static CryptoPool.Metrics getSymmetricCryptoPoolMetrics() {
+        return SYMMETRIC_CRYPTO_POOLS.values().stream().map(CryptoPool::getMetrics)
+                .reduce(new CryptoPool.Metrics(0, 0, 0, 0), CryptoPool.Metrics::merge);
+    }
+
+    /**
+     * 获取全部 HMac 对象池的汇总统计信息
+     */
+    public static CryptoPool.Metrics getHmacPoolMetrics() {
+        return HMAC_POOLS.values().stream().map(CryptoPool::getMetrics)
+                .reduce(new CryptoPool.Metrics(0, 0, 0, 0), CryptoPool.Metrics::merge);
+    }
+
+    private static SymmetricCrypto createSymmetricCrypto(CryptoSpec spec) {
+        String algorithmType = spec.getAlgorithm();
+        byte[] keyBytes = spec.getKey();
+        byte[] ivBytes = spec.getIv();
+        // 构造SM4加密器
+        if(SM4.ALGORITHM_NAME.equalsIgnoreCase(algorithmType)){
+            return new SM4(spec.getMode(), spec.getPadding(), keyBytes, ivBytes);
+        }
+        // 构造AES加密器
+        if(SymmetricAlgorithm.AES.name().equalsIgnoreCase(algorithmType)){
+            return new AES(spec.getMode(), spec.getPadding(), keyBytes, ivBytes);
+        }
+        // 构造其他算法的加密器
+        return new SymmetricCrypto(StrUtil.format("{}/{}/{}", algorithmType, spec.getMode().name(), spec.getPadding().name()),
+                KeyUtil.generateKey(algorithmType, keyBytes), Objects.isNull(ivBytes) ? null : new IvParameterSpec(ivBytes));
+    }
 
 }
@@ -2,6 +2,8 @@ package com.baomidou.mybatisplus.enhance.util;
 
 import cn.hutool.core.map.MapUtil;
 import cn.hutool.core.util.ReflectUtil;
+import com.baomidou.mybatisplus.annotation.FieldStrategy;
+import com.baomidou.mybatisplus.annotation.IdType;
 import com.baomidou.mybatisplus.annotation.TableId;
 import com.baomidou.mybatisplus.core.handlers.AnnotationHandler;
 import com.baomidou.mybatisplus.core.metadata.TableFieldInfo;
@@ -10,18 +12,41 @@ import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
 import com.baomidou.mybatisplus.core.toolkit.AnnotationUtils;
 import com.baomidou.mybatisplus.enhance.crypto.annotation.EncryptedField;
 import com.baomidou.mybatisplus.enhance.crypto.annotation.EncryptedTable;
-import com.baomidou.mybatisplus.enhance.crypto.annotation.TableSignature;
-import com.baomidou.mybatisplus.enhance.crypto.annotation.TableSignatureField;
 import com.baomidou.mybatisplus.enhance.sensitive.annotation.SensitiveField;
 import com.baomidou.mybatisplus.enhance.sensitive.annotation.SensitiveJSONField;
 
 import java.io.Serializable;
 import java.lang.reflect.Field;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 public class TableFieldHelper {
 
+    /**
+     * 实体类加解密计划缓存
+     */
+    private static final Map<Class<?>, EncryptedFieldPlan> ENCRYPTED_FIELD_PLAN_CACHE = new ConcurrentHashMap<>();
+    /**
+     * 实体类签名计划缓存
+     */
+    private static final Map<Class<?>, SignaturePlan> SIGNATURE_PLAN_CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * 获取 MappedStatement 所属 Mapper 对应的实体类
+     * @param mappedStatementId MappedStatement Id
+     * @return 实体类，非 MybatisPlus 管理的 Mapper 返回空
+     */
+    public static Class<?> getEntityClass(String mappedStatementId) {
+        String namespace = mappedStatementId.substring(0, Math.max(mappedStatementId.lastIndexOf('.'), 0));
+        for (TableInfo tableInfo : TableInfoHelper.getTableInfos()) {
+            if (namespace.equals(tableInfo.getCurrentNamespace())) {
+                return tableInfo.getEntityType();
+            }
+        }
+        return null;
+    }
+
     /**
      * 校验该实例的类是否被 @EncryptedTable所注解
      */
@@ -121,8 +146,25 @@ public class TableFieldHelper {
      * @return 属性集合
      */
     public static List<TableFieldInfo> getEncryptedFieldInfos(Class<?> entityClazz) {
+        return getEncryptedFieldPlan(entityClazz).getFieldInfos();
+    }
+
+    /**
+     * <p>
+     * 获取该类的加解密计划，首次获取时构建并缓存；TableInfo 被重新初始化（例如 Mapper 重新加载）后自动重建
+     * </p>
+     *
+     * @param entityClazz 反射类
+     * @return 加解密计划
+     */
+    public static EncryptedFieldPlan getEncryptedFieldPlan(Class<?> entityClazz) {
         TableInfo tableInfo = TableInfoHelper.getTableInfo(entityClazz);
-        return getEncryptedFieldInfos(tableInfo);
+        EncryptedFieldPlan plan = ENCRYPTED_FIELD_PLAN_CACHE.get(entityClazz);
+        if (Objects.isNull(plan) || plan.getTableInfo() != tableInfo) {
+            plan = new EncryptedFieldPlan(tableInfo, isExistEncryptedTable(entityClazz));
+            ENCRYPTED_FIELD_PLAN_CACHE.put(entityClazz, plan);
+        }
+        return plan;
     }
 
     /**
@@ -141,6 +183,41 @@ public class TableFieldHelper {
         }).collect(Collectors.toList());
     }
 
+    /**
+     * <p>
+     * 获取该类的签名计划，首次获取时构建并缓存；TableInfo 被重新初始化（例如 Mapper 重新加载）后自动重建
+     * </p>
+     *
+     * @param entityClazz 反射类
+     * @return 签名计划
+     */
+    public static SignaturePlan getSignaturePlan(Class<?> entityClazz) {
+        TableInfo tableInfo = TableInfoHelper.getTableInfo(entityClazz);
+        SignaturePlan plan = SIGNATURE_PLAN_CACHE.get(entityClazz);
+        if (Objects.isNull(plan) || plan.getTableInfo() != tableInfo) {
+            plan = new SignaturePlan(tableInfo);
+            SIGNATURE_PLAN_CACHE.put(entityClazz, plan);
+        }
+        return plan;
+    }
+
+    /**
+     * <p>
+     * 获取表信息对应的签名计划
+     * </p>
+     *
+     * @param tableInfo 表信息
+     * @return 签名计划
+     */
+    public static SignaturePlan getSignaturePlan(TableInfo tableInfo) {
+        SignaturePlan plan = SIGNATURE_PLAN_CACHE.get(tableInfo.getEntityType());
+        if (Objects.isNull(plan) || plan.getTableInfo() != tableInfo) {
+            plan = new SignaturePlan(tableInfo);
+            SIGNATURE_PLAN_CACHE.put(tableInfo.getEntityType(), plan);
+        }
+        return plan;
+    }
+
     /**
      * 获取自定义Entity类联合签名的字段信息列表（未排序）
      * 1、@TableSignature 注解且 unionAll = true 的实体类的所有字段
@@ -165,22 +242,7 @@ public class TableFieldHelper {
      * @return 属性集合
      */
     public static List<TableFieldInfo> getSignatureFieldInfos(TableInfo tableInfo) {
-        TableSignature tableSignature = AnnotationUtils.findFirstAnnotation(TableSignature.class, tableInfo.getEntityType());
-        if (Objects.nonNull(tableSignature) && tableSignature.unionAll()) {
-            // 如果是联合签名，则返回除存储签名结果字段外的所有其他字段
-            return tableInfo.getFieldList().stream().filter(fieldInfo -> {
-                TableSignatureField tableSignatureField = AnnotationUtils.findFirstAnnotation(TableSignatureField.class, fieldInfo.getField());
-                if(Objects.isNull(tableSignatureField) ){
-                    return true;
-                }
-                return !tableSignatureField.stored();
-            }).collect(Collectors.toList());
-        }
-        // 如果不是联合签名，则返回所有标记有 @TableSignatureField 注解且 stored = false 的字段
-        return tableInfo.getFieldList().stream().filter(fieldInfo -> {
-            TableSignatureField signatureField = AnnotationUtils.findFirstAnnotation(TableSignatureField.class, fieldInfo.getField());
-            return Objects.nonNull(signatureField) && !signatureField.stored();
-        }).collect(Collectors.toList());
+        return getSignaturePlan(tableInfo).getFieldInfos();
     }
 
     /**
@@ -209,17 +271,7 @@ public class TableFieldHelper {
      * @return 属性集合
      */
     public static List<TableFieldInfo> getSortedSignatureFieldInfos(TableInfo tableInfo) {
-        return getSignatureFieldInfos(tableInfo).stream().sorted(Comparator.comparing(info -> {
-            TableFieldInfo fieldInfo = (TableFieldInfo) info;
-            TableSignatureField ef1 = AnnotationUtils.findFirstAnnotation(TableSignatureField.class, fieldInfo.getField());
-            if (Objects.isNull(ef1)) {
-                return 0;
-            }
-            return ef1.order();
-        }).thenComparing(info -> {
-            TableFieldInfo fieldInfo = (TableFieldInfo) info;
-            return fieldInfo.getColumn();
-        })).collect(Collectors.toList());
+        return getSignaturePlan(tableInfo).getFieldInfos();
     }
 
     /**
@@ -244,11 +296,43 @@ public class TableFieldHelper {
      * @return 属性集合
      */
     public static Optional<TableFieldInfo> getTableSignatureStoreFieldInfo(TableInfo tableInfo) {
-        return tableInfo.getFieldList().stream().filter(fieldInfo -> {
-            /* 过滤注解 @TableSignatureField 字段属性 */
-            TableSignatureField tableSignatureField = AnnotationUtils.findFirstAnnotation(TableSignatureField.class, fieldInfo.getField());
-            return Objects.nonNull(tableSignatureField) && tableSignatureField.stored();
-        }).findFirst();
+        return getSignaturePlan(tableInfo).getStoreField();
+    }
+
+    /**
+     * <p>
+     * 判断插入数据时签名字段的值是否可能由数据库生成，此时插入前在内存中计算的签名与数据库中的数据不一致，需要插入后回读数据重新签名：
+     * 1、签名字段配置了插入填充（FieldFill.INSERT、FieldFill.INSERT_UPDATE），填充在签名之后执行
+     * 2、签名字段的插入策略为 NEVER，字段值由数据库默认值决定
+     * 3、签名字段的值为空且插入策略会忽略空值（NOT_NULL、NOT_EMPTY），字段值由数据库默认值决定
+     * 4、实体类没有签名存储字段（签名写出到外部存储，以主键关联）且签名时主键值未知：主键为数据库自增（AUTO），
+     * 或主键值为空（ASSIGN_ID、ASSIGN_UUID 的主键由 MybatisParameterHandler 在插件执行之后生成，INPUT 的主键可能由 KeyGenerator 生成）
+     * </p>
+     *
+     * @param entity 实体对象
+     * @param tableInfo 表信息
+     * @return 是否需要插入后回读数据重新签名
+     */
+    public static boolean isSignatureGeneratedOnInsert(Object entity, TableInfo tableInfo) {
+        if (!getTableSignatureStoreFieldInfo(tableInfo).isPresent() && (tableInfo.getIdType() == IdType.AUTO
+                || (tableInfo.havePK() && Objects.isNull(tableInfo.getPropertyValue(entity, tableInfo.getKeyProperty()))))) {
+            return true;
+        }
+        for (TableFieldInfo fieldInfo : getSignatureFieldInfos(tableInfo)) {
+            FieldStrategy insertStrategy = fieldInfo.getInsertStrategy();
+            if (fieldInfo.isWithInsertFill() || insertStrategy == FieldStrategy.NEVER) {
+                return true;
+            }
+            if (insertStrategy == FieldStrategy.ALWAYS || insertStrategy == FieldStrategy.IGNORED) {
+                continue;
+            }
+            Object fieldValue = tableInfo.getPropertyValue(entity, fieldInfo.getProperty());
+            if (Objects.isNull(fieldValue) || (insertStrategy == FieldStrategy.NOT_EMPTY
+                    && fieldValue instanceof CharSequence && ((CharSequence) fieldValue).length() == 0)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     public static Serializable getKeyValue(Object rawObject) {
@@ -0,0 +1,107 @@
+package com.baomidou.mybatisplus.enhance.crypto.codec;
+
+import cn.hutool.crypto.Mode;
+import cn.hutool.crypto.Padding;
+import cn.hutool.crypto.digest.HmacAlgorithm;
+import com.baomidou.mybatisplus.core.exceptions.MybatisPlusException;
+import com.baomidou.mybatisplus.enhance.crypto.enums.SymmetricAlgorithmType;
+import com.baomidou.mybatisplus.enhance.crypto.handler.DefaultEncryptedFieldHandler;
+import com.baomidou.mybatisplus.enhance.support.H2TestEnvironment;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.*;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class FieldValueCodecTest {
+
+    enum Color {
+        RED,
+        GREEN {
+            @Override
+            public String toString() {
+                return "green";
+            }
+        }
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final FieldValueCodec codec = new FieldValueCodec(objectMapper);
+
+    @Test
+    public void testCompactRoundTrip() throws Exception {
+        Object[] values = {"", "中文|a,b", 1, 2L, (short) 3, (byte) 4, 1.5d, 2.5f, true, 'x', new BigDecimal("1.10"), new BigInteger("123456789012345678901234567890"),
+                UUID.randomUUID(), Color.RED, Color.GREEN, LocalDate.now(), LocalTime.now(), LocalDateTime.now(), Instant.now(), OffsetDateTime.now(), ZonedDateTime.now()};
+        for (Object value : values) {
+            byte[] plain = codec.encode(value);
+            assertTrue(String.valueOf(value), FieldValueCodec.isCompact(plain));
+            Class<?> type = value instanceof Enum ? ((Enum<?>) value).getDeclaringClass() : value.getClass();
+            assertEquals(value, codec.decode(plain, type));
+        }
+        // BigDecimal 保留精度
+        assertEquals("1.10", codec.decode(codec.encode(new BigDecimal("1.10")), BigDecimal.class).toString());
+    }
+
+    @Test
+    public void testJsonFallback() throws Exception {
+        Map<String, Integer> value = Collections.singletonMap("a", 1);
+        byte[] plain = codec.encode(value);
+        assertFalse(FieldValueCodec.isCompact(plain));
+        assertArrayEquals(objectMapper.writeValueAsBytes(value), plain);
+        assertEquals(value, codec.decode(plain, Map.class));
+    }
+
+    @Test
+    public void testDecodeToCompatibleType() throws Exception {
+        assertEquals("42", codec.decode(codec.encode(42L), String.class));
+        assertEquals(42L, (long) codec.decode(codec.encode(42L), long.class));
+        assertEquals(7, codec.decode(codec.encode(7), Object.class));
+    }
+
+    /**
+     * 枚举解码到 Object、Serializable 等父类型字段时得到枚举常量名，与 JSON 格式解码的结果一致
+     */
+    @Test
+    public void testDecodeEnumToSupertype() throws Exception {
+        assertEquals("GREEN", codec.decode(codec.encode(Color.GREEN), Object.class));
+        assertEquals("RED", codec.decode(codec.encode(Color.RED), Serializable.class));
+        assertEquals("RED", codec.decode(codec.encode(Color.RED), CharSequence.class));
+        try {
+            codec.decode(codec.encode(Color.RED), Runnable.class);
+            fail("expected MybatisPlusException");
+        } catch (MybatisPlusException expected) {
+            assertTrue(expected.getMessage().contains(Runnable.class.getName()));
+        }
+        DefaultEncryptedFieldHandler legacy = newHandler(false);
+        DefaultEncryptedFieldHandler compact = newHandler(true);
+        assertEquals("GREEN", compact.decrypt(compact.encrypt(Color.GREEN), Object.class));
+        assertEquals(legacy.decrypt(legacy.encrypt(Color.GREEN), Object.class), compact.decrypt(compact.encrypt(Color.GREEN), Object.class));
+    }
+
+    @Test
+    public void testLegacyInterop() {
+        DefaultEncryptedFieldHandler legacy = newHandler(false);
+        DefaultEncryptedFieldHandler compact = newHandler(true);
+        // 历史密文可以由紧凑格式 Handler 解密，紧凑格式密文也可以由历史 Handler 解密
+        Object[] values = {"13800000000", 123L, new BigDecimal("9.90"), Color.GREEN, true};
+        for (Object value : values) {
+            Class<?> type = value instanceof Enum ? ((Enum<?>) value).getDeclaringClass() : value.getClass();
+            assertEquals(value, compact.decrypt(legacy.encrypt(value), type));
+            assertEquals(value, legacy.decrypt(compact.encrypt(value), type));
+        }
+        assertTrue(compact.encrypt("13800000000").length() <= legacy.encrypt("13800000000").length());
+    }
+
+    private DefaultEncryptedFieldHandler newHandler(boolean compactCodec) {
+        return new DefaultEncryptedFieldHandler(objectMapper, SymmetricAlgorithmType.SM4, HmacAlgorithm.HmacSM3, Mode.CBC, Padding.PKCS5Padding,
+                H2TestEnvironment.KEY, H2TestEnvironment.IV, true, compactCodec);
+    }
+
+}
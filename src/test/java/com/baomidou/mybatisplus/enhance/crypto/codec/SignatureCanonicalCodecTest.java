@@ -0,0 +1,50 @@
+package com.baomidou.mybatisplus.enhance.crypto.codec;
+
+import cn.hutool.crypto.digest.HMac;
+import cn.hutool.crypto.digest.HmacAlgorithm;
+import com.baomidou.mybatisplus.enhance.crypto.enums.SignatureFormat;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class SignatureCanonicalCodecTest {
+
+    @Test
+    public void testLayout() {
+        byte[] encoded = SignatureCanonicalCodec.encode(Arrays.asList("ab", null, 12));
+        byte[] expected = {2, 0, 0, 0, 2, 'a', 'b', -1, -1, -1, -1, 0, 0, 0, 2, '1', '2'};
+        assertArrayEquals(expected, encoded);
+        byte[] utf8 = SignatureCanonicalCodec.encode(Collections.singletonList("中"));
+        assertEquals(3, utf8[4]);
+        assertEquals(1 + 4 + "中".getBytes(StandardCharsets.UTF_8).length, utf8.length);
+    }
+
+    @Test
+    public void testUnambiguous() {
+        assertFalse(Arrays.equals(SignatureCanonicalCodec.encode(Arrays.asList("a|b", "c")), SignatureCanonicalCodec.encode(Arrays.asList("a", "b|c"))));
+        assertFalse(Arrays.equals(SignatureCanonicalCodec.encode(Collections.singletonList(null)), SignatureCanonicalCodec.encode(Collections.singletonList(""))));
+        assertFalse(Arrays.equals(SignatureCanonicalCodec.encode(Arrays.asList("ab", "")), SignatureCanonicalCodec.encode(Arrays.asList("a", "b"))));
+    }
+
+    @Test
+    public void testUpdateMatchesEncode() {
+        byte[] key = "1234567890abcdef".getBytes(StandardCharsets.UTF_8);
+        HMac streamed = new HMac(HmacAlgorithm.HmacSHA256, key);
+        SignatureCanonicalCodec.update(streamed.getEngine(), Arrays.asList("name", null, 1L));
+        byte[] digest = streamed.getEngine().doFinal();
+        assertArrayEquals(new HMac(HmacAlgorithm.HmacSHA256, key).digest(SignatureCanonicalCodec.encode(Arrays.asList("name", null, 1L))), digest);
+    }
+
+    @Test
+    public void testFormatOf() {
+        assertEquals(SignatureFormat.V2, SignatureFormat.of("v2$abc"));
+        assertEquals(SignatureFormat.V1, SignatureFormat.of("abc"));
+        assertEquals(SignatureFormat.V1, SignatureFormat.of(null));
+        assertEquals("v2$", SignatureFormat.V2.getPrefix());
+    }
+
+}
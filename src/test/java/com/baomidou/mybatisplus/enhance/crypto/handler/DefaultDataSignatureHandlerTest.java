@@ -0,0 +1,82 @@
+package com.baomidou.mybatisplus.enhance.crypto.handler;
+
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.baomidou.mybatisplus.enhance.crypto.enums.SignatureFormat;
+import com.baomidou.mybatisplus.enhance.crypto.exception.SignatureMismatchException;
+import com.baomidou.mybatisplus.enhance.support.*;
+import org.apache.ibatis.session.SqlSession;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DefaultDataSignatureHandlerTest {
+
+    private H2TestEnvironment environment;
+    private SqlSession sqlSession;
+
+    @Before
+    public void setUp() {
+        environment = new H2TestEnvironment();
+        sqlSession = environment.getSqlSessionFactory().openSession(true);
+    }
+
+    @After
+    public void tearDown() {
+        sqlSession.close();
+    }
+
+    @Test
+    public void testV1RowVerifiesWithV2Format() {
+        PersonMapper mapper = sqlSession.getMapper(PersonMapper.class);
+        Person person = new Person();
+        person.setName("a|b");
+        person.setMobile("1");
+        mapper.insert(person);
+        String hmac = mapper.selectIgnoreDecryptById(person.getId()).getHmac();
+        assertEquals(SignatureFormat.V1, SignatureFormat.of(hmac));
+        // 配置为 V2 格式的实体类仍然接受历史格式的签名
+        PersonV2 personV2 = sqlSession.getMapper(PersonV2Mapper.class).selectById(person.getId());
+        assertEquals("a|b", personV2.getName());
+    }
+
+    @Test
+    public void testV2Signature() {
+        PersonV2Mapper mapper = sqlSession.getMapper(PersonV2Mapper.class);
+        PersonV2 person = new PersonV2();
+        person.setName("x");
+        person.setMobile("2");
+        mapper.insert(person);
+        String hmac = mapper.selectIgnoreDecryptById(person.getId()).getHmac();
+        assertTrue(hmac, hmac.startsWith(SignatureFormat.V2.getPrefix()));
+        assertEquals("x", mapper.selectById(person.getId()).getName());
+        assertEquals("x", sqlSession.getMapper(PersonV2StrictMapper.class).selectById(person.getId()).getName());
+        // UpdateWrapper 修改全部签名字段并为签名字段赋值时，签名字段的赋值替换为 V2 格式的签名
+        mapper.update(null, Wrappers.<PersonV2>update().set("name", "y").set("mobile", "3").set("hmac", null).eq("id", person.getId()));
+        assertTrue(mapper.selectIgnoreDecryptById(person.getId()).getHmac().startsWith(SignatureFormat.V2.getPrefix()));
+        assertEquals("y", mapper.selectById(person.getId()).getName());
+        environment.execute("UPDATE person SET name = 'z' WHERE id = " + person.getId());
+        try {
+            mapper.selectById(person.getId());
+            fail("tampered row passed verification");
+        } catch (RuntimeException e) {
+            assertNotNull(H2TestEnvironment.findCause(e, SignatureMismatchException.class));
+        }
+    }
+
+    @Test
+    public void testMinimumFormatRejectsV1() {
+        Person person = new Person();
+        person.setName("a");
+        person.setMobile("1");
+        sqlSession.getMapper(PersonMapper.class).insert(person);
+        try {
+            sqlSession.getMapper(PersonV2StrictMapper.class).selectById(person.getId());
+            fail("V1 signature accepted by minimumFormat V2");
+        } catch (RuntimeException e) {
+            assertNotNull(H2TestEnvironment.findCause(e, SignatureMismatchException.class));
+        }
+    }
+
+}
@@ -0,0 +1,65 @@
+package com.baomidou.mybatisplus.enhance.crypto.handler;
+
+import cn.hutool.core.codec.Base64;
+import cn.hutool.crypto.digest.HMac;
+import cn.hutool.crypto.digest.HmacAlgorithm;
+import com.baomidou.mybatisplus.enhance.crypto.codec.SignatureCanonicalCodec;
+import com.baomidou.mybatisplus.enhance.support.H2TestEnvironment;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DefaultEncryptedFieldHandlerTest {
+
+    /**
+     * 历史格式签名沿用历史版本派生的密钥：再次 Base64 解码，只取第一个 "_" 之前的部分
+     */
+    @Test
+    public void testHmacUsesLegacyKey() throws Exception {
+        DefaultEncryptedFieldHandler handler = H2TestEnvironment.newEncryptedFieldHandler(H2TestEnvironment.KEY, H2TestEnvironment.IV);
+        String legacyKey = Base64.decodeStr(Base64.decodeStr(H2TestEnvironment.KEY));
+        int index = legacyKey.indexOf('_');
+        legacyKey = index < 0 ? legacyKey : legacyKey.substring(0, index);
+        String json = new ObjectMapper().writeValueAsString("alice|13800000000");
+        String expected = new HMac(HmacAlgorithm.HmacSM3, legacyKey.getBytes(StandardCharsets.UTF_8))
+                .digestBase64(json, StandardCharsets.UTF_8, true);
+        assertEquals(expected, handler.hmac("alice|13800000000"));
+    }
+
+    /**
+     * 规范格式签名和盲索引使用完整的密钥
+     */
+    @Test
+    public void testHmacCanonicalUsesFullKey() {
+        DefaultEncryptedFieldHandler handler = H2TestEnvironment.newEncryptedFieldHandler(H2TestEnvironment.KEY, H2TestEnvironment.IV);
+        List<Object> values = Arrays.asList("alice", null, 1L);
+        byte[] fullKey = Base64.decode(H2TestEnvironment.KEY);
+        String expected = Base64.encodeUrlSafe(new HMac(HmacAlgorithm.HmacSM3, fullKey).digest(SignatureCanonicalCodec.encode(values)));
+        assertEquals(expected, handler.hmacCanonical(values));
+        assertEquals(handler.hmacCanonical(Collections.singletonList("13800000000")), handler.blindIndex(" 13800000000 "));
+        assertNull(handler.blindIndex(null));
+    }
+
+    /**
+     * 两个密钥在历史派生方式下只有 "_" 之后不同：历史格式签名相同，规范格式签名和盲索引不同
+     */
+    @Test
+    public void testLegacyDerivationOnlyAffectsV1() {
+        DefaultEncryptedFieldHandler first = H2TestEnvironment.newEncryptedFieldHandler(Base64.encode(Base64.encode("ab_cdefghijk")), H2TestEnvironment.IV);
+        DefaultEncryptedFieldHandler second = H2TestEnvironment.newEncryptedFieldHandler(Base64.encode(Base64.encode("ab_zyxwvutsr")), H2TestEnvironment.IV);
+        assertEquals(first.hmac("alice|13800000000"), second.hmac("alice|13800000000"));
+        List<Object> values = Arrays.asList("alice", "13800000000");
+        assertNotEquals(first.hmacCanonical(values), second.hmacCanonical(values));
+        assertNotEquals(first.blindIndex("13800000000"), second.blindIndex("13800000000"));
+        // 加解密不受影响
+        assertEquals("13800000000", first.decrypt(first.encrypt("13800000000"), String.class));
+        assertEquals("13800000000", second.decrypt(second.encrypt("13800000000"), String.class));
+    }
+
+}
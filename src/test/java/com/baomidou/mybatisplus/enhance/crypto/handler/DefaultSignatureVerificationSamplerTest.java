@@ -0,0 +1,74 @@
+package com.baomidou.mybatisplus.enhance.crypto.handler;
+
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class DefaultSignatureVerificationSamplerTest {
+
+    public static class Row {
+
+        private final LocalDateTime updateTime;
+
+        Row(LocalDateTime updateTime) {
+            this.updateTime = updateTime;
+        }
+
+    }
+
+    private static List<Object> rows(int size) {
+        List<Object> rows = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            rows.add(new Row(null));
+        }
+        return rows;
+    }
+
+    @Test
+    public void testSingleRowLookup() {
+        DefaultSignatureVerificationSampler sampler = new DefaultSignatureVerificationSampler(0.0);
+        assertEquals(1, sampler.sample("x.Mapper.selectById", Row.class, rows(1), true).cardinality());
+        assertEquals(0, sampler.sample("x.Mapper.selectById", Row.class, rows(1), false).cardinality());
+        DefaultSignatureVerificationSampler never = new DefaultSignatureVerificationSampler(0.0, null, false, null, 0);
+        assertEquals(0, never.sample("x.Mapper.selectById", Row.class, rows(1), true).cardinality());
+    }
+
+    @Test
+    public void testRate() {
+        assertEquals(100, new DefaultSignatureVerificationSampler(1.0).sample("x.Mapper.selectList", Row.class, rows(100), false).cardinality());
+        assertEquals(0, new DefaultSignatureVerificationSampler(0.0).sample("x.Mapper.selectList", Row.class, rows(100), false).cardinality());
+        int selected = new DefaultSignatureVerificationSampler(0.5).sample("x.Mapper.selectList", Row.class, rows(10000), false).cardinality();
+        assertTrue(String.valueOf(selected), selected > 4000 && selected < 6000);
+    }
+
+    @Test
+    public void testStatementRates() {
+        Map<String, Double> rates = new HashMap<>();
+        rates.put("x.Mapper.selectList", 1.0);
+        rates.put("x.Mapper", 0.0);
+        rates.put("y.Mapper", 1.0);
+        DefaultSignatureVerificationSampler sampler = new DefaultSignatureVerificationSampler(0.0, rates, true, null, 0);
+        assertEquals(1.0, sampler.getRate("x.Mapper.selectList"), 0);
+        assertEquals(0.0, sampler.getRate("x.Mapper.selectPage"), 0);
+        assertEquals(1.0, sampler.getRate("y.Mapper.selectPage"), 0);
+        assertEquals(0.0, sampler.getRate("z.Mapper.selectList"), 0);
+        assertEquals(10, sampler.sample("y.Mapper.selectPage", Row.class, rows(10), false).cardinality());
+    }
+
+    @Test
+    public void testRecentWindow() {
+        LocalDateTime now = LocalDateTime.now();
+        DefaultSignatureVerificationSampler sampler = new DefaultSignatureVerificationSampler(0.0, null, true, "updateTime", 60000);
+        List<Object> rows = Arrays.asList(new Row(now), new Row(now.minusHours(1)), new Row(null), new Row(now.minusSeconds(30)));
+        BitSet selected = sampler.sample("x.Mapper.selectList", Row.class, rows, false);
+        assertEquals(2, selected.cardinality());
+        assertTrue(selected.get(0));
+        assertTrue(selected.get(3));
+        // 实体类不存在修改时间字段时按抽样比例处理
+        assertEquals(0, sampler.sample("x.Mapper.selectList", Object.class, Collections.singletonList(new Object()), false).cardinality());
+    }
+
+}
@@ -0,0 +1,93 @@
+package com.baomidou.mybatisplus.enhance.crypto.handler;
+
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.baomidou.mybatisplus.enhance.crypto.exception.SignatureVerificationException;
+import com.baomidou.mybatisplus.enhance.support.H2TestEnvironment;
+import com.baomidou.mybatisplus.enhance.support.PersonExt;
+import com.baomidou.mybatisplus.enhance.support.PersonExtMapper;
+import com.baomidou.mybatisplus.enhance.support.PersonExtService;
+import org.apache.ibatis.session.SqlSession;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class JdbcDataSignatureReadWriteProviderTest {
+
+    private H2TestEnvironment environment;
+    private SqlSession sqlSession;
+    private PersonExtMapper mapper;
+
+    @Before
+    public void setUp() {
+        environment = new H2TestEnvironment(H2TestEnvironment.newEncryptedFieldHandler(H2TestEnvironment.KEY, H2TestEnvironment.IV),
+                JdbcDataSignatureReadWriteProvider::new, null, null);
+        sqlSession = environment.getSqlSessionFactory().openSession(true);
+        mapper = sqlSession.getMapper(PersonExtMapper.class);
+        for (long i = 1; i <= 10; i++) {
+            PersonExt person = new PersonExt();
+            person.setId(i);
+            person.setName("n" + i);
+            person.setMobile("138" + i);
+            mapper.insert(person);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        sqlSession.close();
+    }
+
+    @Test
+    public void testInsertWritesSignatureTable() {
+        assertEquals(10, environment.queryForLong("SELECT COUNT(*) FROM t_data_signature WHERE table_name = 'person_ext'"));
+        List<PersonExt> persons = mapper.selectList(null);
+        assertEquals(10, persons.size());
+        assertEquals("1386", persons.get(5).getMobile());
+    }
+
+    @Test
+    public void testTamperAndResign() {
+        environment.execute("UPDATE t_data_signature SET signature = 'bad' WHERE row_key = '4'");
+        environment.execute("DELETE FROM t_data_signature WHERE row_key = '7'");
+        try {
+            mapper.selectList(null);
+            fail("tampered signatures passed verification");
+        } catch (RuntimeException e) {
+            SignatureVerificationException exception = H2TestEnvironment.findCause(e, SignatureVerificationException.class);
+            assertNotNull(exception);
+            assertEquals(2, exception.getFailures().size());
+            assertEquals(3, exception.getFailures().get(0).getRowIndex());
+            assertEquals(6, exception.getFailures().get(1).getRowIndex());
+        }
+        new PersonExtService(environment, mapper).doSignatureByBatchIds(Arrays.asList(4L, 7L));
+        assertEquals(10, mapper.selectList(null).size());
+        assertEquals(10, environment.queryForLong("SELECT COUNT(*) FROM t_data_signature WHERE table_name = 'person_ext'"));
+    }
+
+    @Test
+    public void testUpdateById() {
+        PersonExt person = new PersonExt();
+        person.setId(3L);
+        person.setName("changed");
+        person.setMobile("139");
+        mapper.updateById(person);
+        assertEquals("changed", mapper.selectById(3L).getName());
+    }
+
+    @Test
+    public void testWrapperUpdateRejected() {
+        try {
+            mapper.update(null, Wrappers.<PersonExt>update().set("name", "x").eq("id", 1L));
+            fail("wrapper update of a table signed in the signature table accepted");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("UpdateWrapper"));
+        }
+        assertEquals("n1", mapper.selectById(1L).getName());
+    }
+
+}
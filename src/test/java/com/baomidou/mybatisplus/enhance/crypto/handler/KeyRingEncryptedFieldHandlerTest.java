@@ -0,0 +1,75 @@
+package com.baomidou.mybatisplus.enhance.crypto.handler;
+
+import cn.hutool.core.codec.Base64;
+import com.baomidou.mybatisplus.core.exceptions.MybatisPlusException;
+import com.baomidou.mybatisplus.enhance.support.H2TestEnvironment;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class KeyRingEncryptedFieldHandlerTest {
+
+    private final EncryptedFieldHandler key1 = H2TestEnvironment.newEncryptedFieldHandler(H2TestEnvironment.KEY, H2TestEnvironment.IV);
+    private final EncryptedFieldHandler key2 = H2TestEnvironment.newEncryptedFieldHandler(Base64.encode("fedcba0987654321"), Base64.encode("0987654321fedcba"));
+
+    private KeyRingEncryptedFieldHandler newKeyRing(String legacyKeyId) {
+        Map<String, EncryptedFieldHandler> handlers = new LinkedHashMap<>();
+        handlers.put("1", key1);
+        handlers.put("2", key2);
+        return new KeyRingEncryptedFieldHandler("2", handlers, legacyKeyId, "1");
+    }
+
+    @Test
+    public void testEncryptWithCurrentKey() {
+        KeyRingEncryptedFieldHandler keyRing = newKeyRing("1");
+        String cipherText = keyRing.encrypt("13800000000");
+        assertEquals("k2$" + key2.encrypt("13800000000"), cipherText);
+        assertTrue(keyRing.isCurrent(cipherText));
+        assertEquals("2", keyRing.getKeyId(cipherText));
+        assertEquals("13800000000", keyRing.decrypt(cipherText, String.class));
+        // 签名和盲索引不随加密密钥轮换
+        assertEquals(key1.hmac("13800000000"), keyRing.hmac("13800000000"));
+        assertEquals(key1.blindIndex("13800000000"), keyRing.blindIndex("13800000000"));
+    }
+
+    @Test
+    public void testDecryptOtherKeys() {
+        KeyRingEncryptedFieldHandler keyRing = newKeyRing("1");
+        String legacy = key1.encrypt("13800000000");
+        assertEquals("13800000000", keyRing.decrypt(legacy, String.class));
+        assertEquals("1", keyRing.getKeyId(legacy));
+        assertFalse(keyRing.isCurrent(legacy));
+        assertEquals("13800000000", keyRing.decrypt("k1$" + legacy, String.class));
+    }
+
+    @Test(expected = MybatisPlusException.class)
+    public void testUnknownKey() {
+        newKeyRing("1").decrypt("k9$" + key1.encrypt("x"), String.class);
+    }
+
+    @Test(expected = MybatisPlusException.class)
+    public void testLegacyKeyNotConfigured() {
+        newKeyRing(null).decrypt(key1.encrypt("x"), String.class);
+    }
+
+    @Test(expected = MybatisPlusException.class)
+    public void testCurrentKeyNotInKeyRing() {
+        new KeyRingEncryptedFieldHandler("3", Collections.singletonMap("1", key1));
+    }
+
+    @Test
+    public void testEncryptCandidates() {
+        List<String> candidates = newKeyRing("1").encryptCandidates("a@x.com");
+        assertEquals(3, candidates.size());
+        assertEquals("k2$" + key2.encrypt("a@x.com"), candidates.get(0));
+        assertEquals("k1$" + key1.encrypt("a@x.com"), candidates.get(1));
+        assertEquals(key1.encrypt("a@x.com"), candidates.get(2));
+        assertEquals(2, newKeyRing(null).encryptCandidates("a@x.com").size());
+    }
+
+}
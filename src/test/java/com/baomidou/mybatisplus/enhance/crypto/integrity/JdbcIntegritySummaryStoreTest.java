@@ -0,0 +1,109 @@
+package com.baomidou.mybatisplus.enhance.crypto.integrity;
+
+import com.baomidou.mybatisplus.enhance.support.H2TestEnvironment;
+import com.baomidou.mybatisplus.enhance.support.PersonSum;
+import com.baomidou.mybatisplus.enhance.support.PersonSumMapper;
+import com.baomidou.mybatisplus.enhance.support.PersonSumService;
+import org.apache.ibatis.session.SqlSession;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class JdbcIntegritySummaryStoreTest {
+
+    private H2TestEnvironment environment;
+    private SqlSession sqlSession;
+
+    @Before
+    public void setUp() {
+        environment = new H2TestEnvironment();
+        sqlSession = environment.getSqlSessionFactory().openSession(true);
+    }
+
+    @After
+    public void tearDown() {
+        sqlSession.close();
+    }
+
+    private static byte[] digest(int seed) {
+        byte[] digest = new byte[IntegrityBucket.DIGEST_LENGTH];
+        Arrays.fill(digest, (byte) seed);
+        return digest;
+    }
+
+    @Test
+    public void testMergeAndCompact() {
+        JdbcIntegritySummaryStore store = new JdbcIntegritySummaryStore(environment.getDataSource());
+        IntegrityBucket added = new IntegrityBucket(1, digest(7), 1);
+        store.merge("t", Arrays.asList(added, new IntegrityBucket(2, digest(3), 1)));
+        store.merge("t", Collections.singletonList(new IntegrityBucket(1, digest(5), 1)));
+        assertEquals(3, environment.queryForLong("SELECT COUNT(*) FROM t_integrity_bucket WHERE table_name = 't'"));
+        List<IntegrityBucket> buckets = store.getBuckets("t");
+        assertEquals(2, buckets.size());
+        assertTrue(buckets.get(0).matches(new IntegrityBucket(1, digest(7 ^ 5), 2)));
+        // 同一叶子摘要异或两次相互抵消
+        store.merge("t", Collections.singletonList(new IntegrityBucket(1, digest(7), -1)));
+        assertTrue(store.getBuckets("t").get(0).matches(new IntegrityBucket(1, digest(5), 1)));
+        // 压缩后每个分桶只保留一行，空桶删除
+        store.merge("t", Collections.singletonList(new IntegrityBucket(2, digest(3), -1)));
+        store.compact("t");
+        assertEquals(1, environment.queryForLong("SELECT COUNT(*) FROM t_integrity_bucket WHERE table_name = 't'"));
+        buckets = store.getBuckets("t");
+        assertEquals(1, buckets.size());
+        assertTrue(buckets.get(0).matches(new IntegrityBucket(1, digest(5), 1)));
+        assertTrue(store.getBuckets("other").isEmpty());
+    }
+
+    @Test
+    public void testBucketId() {
+        assertEquals(0, TableIntegritySummary.getBucketId("9", 10));
+        assertEquals(1, TableIntegritySummary.getBucketId("10", 10));
+        assertEquals(-1, TableIntegritySummary.getBucketId("-1", 10));
+        assertEquals(-1, TableIntegritySummary.getBucketId("-10", 10));
+        assertEquals(-2, TableIntegritySummary.getBucketId("-11", 10));
+    }
+
+    @Test
+    public void testAudit() {
+        PersonSumService service = new PersonSumService(environment, sqlSession.getMapper(PersonSumMapper.class));
+        List<PersonSum> persons = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            PersonSum person = new PersonSum();
+            person.setName("n" + i);
+            person.setMobile("138" + i);
+            persons.add(person);
+        }
+        service.saveSigned(persons.get(0));
+        service.saveBatchSigned(persons.subList(1, persons.size()), 10);
+        IntegrityAuditReport report = service.auditIntegritySummary();
+        assertTrue(report.isConsistent());
+        assertEquals(3, report.getStoredBuckets().size());
+
+        PersonSum person = service.getById(5L);
+        person.setName("changed");
+        service.updateSignedById(person);
+        service.removeSignedById(3L);
+        assertTrue(service.auditIntegritySummary().isConsistent());
+
+        environment.execute("DELETE FROM person_sum WHERE id = 7");
+        environment.execute("UPDATE person_sum SET name = 'evil' WHERE id = 8");
+        report = service.auditIntegritySummary();
+        assertFalse(report.isConsistent());
+        assertEquals(Collections.singletonList(0L), report.getMismatchedBuckets());
+        assertEquals(1, report.getFailures().size());
+        assertEquals(8L, (long) ((PersonSum) report.getFailures().get(0).getRawObject()).getId());
+
+        long deltaRows = environment.queryForLong("SELECT COUNT(*) FROM t_integrity_bucket");
+        service.rebuildIntegritySummary();
+        assertTrue(environment.queryForLong("SELECT COUNT(*) FROM t_integrity_bucket") < deltaRows);
+        assertTrue(service.auditIntegritySummary().isConsistent());
+    }
+
+}
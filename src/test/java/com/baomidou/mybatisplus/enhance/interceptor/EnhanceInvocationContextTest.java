@@ -0,0 +1,166 @@
+package com.baomidou.mybatisplus.enhance.interceptor;
+
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
+import com.baomidou.mybatisplus.core.toolkit.Constants;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.baomidou.mybatisplus.enhance.crypto.annotation.IgnoreEncrypted;
+import com.baomidou.mybatisplus.enhance.crypto.annotation.IgnoreSignature;
+import com.baomidou.mybatisplus.enhance.interceptor.inner.EnhanceInnerInterceptor;
+import com.baomidou.mybatisplus.enhance.support.H2TestEnvironment;
+import com.baomidou.mybatisplus.enhance.support.Person;
+import com.baomidou.mybatisplus.enhance.support.PersonMapper;
+import com.baomidou.mybatisplus.enhance.util.MapperMethodRegistry;
+import com.baomidou.mybatisplus.enhance.util.SqlSetIndex;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.SqlSession;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class EnhanceInvocationContextTest {
+
+    private static final String PERSON_MAPPER = PersonMapper.class.getName();
+
+    /**
+     * 记录每个阶段收到的上下文
+     */
+    static class RecordingInterceptor implements EnhanceInnerInterceptor {
+
+        private final List<EnhanceInvocationContext> contexts = new ArrayList<>();
+        private final List<List<Object>> entityParameters = new ArrayList<>();
+
+        @Override
+        public boolean isApplicableBefore(MappedStatementPlan plan) {
+            return true;
+        }
+
+        @Override
+        public boolean isApplicableAfter(MappedStatementPlan plan) {
+            return true;
+        }
+
+        @Override
+        public void beforeQuery(EnhanceInvocationContext context) {
+            contexts.add(context);
+            entityParameters.add(context.getEntityParameters());
+        }
+
+        @Override
+        public void beforeUpdate(EnhanceInvocationContext context) {
+            contexts.add(context);
+        }
+
+        @Override
+        public void afterQuery(EnhanceInvocationContext context, List<Object> rtList) {
+            contexts.add(context);
+        }
+
+    }
+
+    private H2TestEnvironment environment;
+
+    @Before
+    public void setUp() {
+        environment = new H2TestEnvironment();
+    }
+
+    private MappedStatement mappedStatement(String method) {
+        return environment.getSqlSessionFactory().getConfiguration().getMappedStatement(PERSON_MAPPER + "." + method);
+    }
+
+    /**
+     * 同一次调用的全部拦截器和阶段共享一个上下文，参数提取只计算一次
+     */
+    @Test
+    public void testSharedPerInvocation() {
+        RecordingInterceptor first = new RecordingInterceptor();
+        RecordingInterceptor second = new RecordingInterceptor();
+        environment.getEnhanceInterceptor().addInnerInterceptor(first);
+        environment.getEnhanceInterceptor().addInnerInterceptor(second);
+        try (SqlSession session = environment.getSqlSessionFactory().openSession(true)) {
+            PersonMapper mapper = session.getMapper(PersonMapper.class);
+            Person person = new Person();
+            person.setName("alice");
+            mapper.insert(person);
+            mapper.selectList(Wrappers.<Person>lambdaQuery().eq(Person::getName, "alice"));
+            mapper.selectList(Wrappers.<Person>lambdaQuery().eq(Person::getName, "bob"));
+        }
+        // insert、两次查询（前置和后置）
+        assertEquals(5, first.contexts.size());
+        assertEquals(first.contexts, second.contexts);
+        EnhanceInvocationContext insert = first.contexts.get(0);
+        EnhanceInvocationContext query = first.contexts.get(1);
+        assertSame(query, first.contexts.get(2));
+        assertNotSame(insert, query);
+        assertNotSame(query, first.contexts.get(3));
+        assertSame(first.contexts.get(3), first.contexts.get(4));
+        assertSame(first.entityParameters.get(0), second.entityParameters.get(0));
+        assertNotNull(query.getPlan());
+        assertSame(environment.getEnhanceInterceptor().getPlan(query.getMappedStatement()), query.getPlan());
+    }
+
+    /**
+     * 查询参数中的实体按实例去重，不包含空值、简单类型和 Wrapper
+     */
+    @Test
+    public void testEntityParameters() {
+        Person person = new Person();
+        Map<String, Object> paramMap = new HashMap<>();
+        paramMap.put("query", person);
+        paramMap.put("param1", person);
+        paramMap.put("name", "alice");
+        paramMap.put("empty", null);
+        paramMap.put(Constants.WRAPPER, Wrappers.query());
+        MappedStatement ms = mappedStatement("selectList");
+        assertEquals(Collections.singletonList(person),
+                EnhanceInvocationContext.ofQuery(null, ms, paramMap, null, null, null, null).getEntityParameters());
+        assertEquals(Collections.singletonList(person),
+                EnhanceInvocationContext.ofQuery(null, ms, person, null, null, null, null).getEntityParameters());
+        assertTrue(EnhanceInvocationContext.ofQuery(null, ms, 1L, null, null, null, null).getEntityParameters().isEmpty());
+        assertTrue(EnhanceInvocationContext.ofQuery(null, ms, null, null, null, null, null).getEntityParameters().isEmpty());
+    }
+
+    @Test
+    public void testUpdateEntityAndWrapper() {
+        Person person = new Person();
+        MappedStatement ms = mappedStatement("updateById");
+        assertSame(person, EnhanceInvocationContext.ofUpdate(null, ms, person, null).getUpdateEntity());
+        assertSame(person, EnhanceInvocationContext.ofUpdate(null, ms, Collections.singletonMap(Constants.ENTITY, person), null).getUpdateEntity());
+        assertNull(EnhanceInvocationContext.ofUpdate(null, ms, 1L, null).getUpdateEntity());
+
+        UpdateWrapper<Person> wrapper = new UpdateWrapper<Person>().set("name", "a");
+        EnhanceInvocationContext context = EnhanceInvocationContext.ofUpdate(null, mappedStatement("update"),
+                Collections.singletonMap(Constants.WRAPPER, wrapper), null);
+        assertSame(wrapper, context.getUpdateWrapper());
+        SqlSetIndex index = context.getSqlSetIndex();
+        assertSame(index, context.getSqlSetIndex());
+        // SET 子句被修改后重建
+        wrapper.set("email", "b");
+        assertNotSame(index, context.getSqlSetIndex());
+        assertNull(EnhanceInvocationContext.ofUpdate(null, ms, Collections.singletonMap(Constants.WRAPPER, Wrappers.query()), null).getUpdateWrapper());
+    }
+
+    /**
+     * 有执行计划时使用计划中的结果，没有执行计划时与逐次查找的结果一致
+     */
+    @Test
+    public void testPlanAndLookupAgree() {
+        for (String method : new String[]{"selectById", "selectRawById", "selectIgnoreDecryptById", "updateSignatureById"}) {
+            MappedStatement ms = mappedStatement(method);
+            MappedStatementPlan plan = environment.getEnhanceInterceptor().getPlan(ms);
+            EnhanceInvocationContext planned = EnhanceInvocationContext.ofQuery(null, ms, null, null, null, null, plan);
+            EnhanceInvocationContext lookup = EnhanceInvocationContext.ofQuery(null, ms, null, null, null, null, null);
+            assertEquals(method, MapperMethodRegistry.get(ms.getId()).isMethodAnnotationPresent(IgnoreEncrypted.class), lookup.isIgnoreEncrypted());
+            assertEquals(method, lookup.isIgnoreEncrypted(), planned.isIgnoreEncrypted());
+            assertEquals(method, MapperMethodRegistry.get(ms.getId()).isMethodAnnotationPresent(IgnoreSignature.class), lookup.isIgnoreSignature());
+            assertEquals(method, lookup.isIgnoreSignature(), planned.isIgnoreSignature());
+            assertEquals(method, Person.class, planned.getEntityClass());
+            assertEquals(method, lookup.getEntityClass(), planned.getEntityClass());
+            assertSame(planned.getTableInfo(Person.class), lookup.getTableInfo(Person.class));
+        }
+    }
+
+}
@@ -0,0 +1,213 @@
+package com.baomidou.mybatisplus.enhance.interceptor;
+
+import com.baomidou.mybatisplus.core.toolkit.AnnotationUtils;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.baomidou.mybatisplus.enhance.crypto.annotation.EncryptedTable;
+import com.baomidou.mybatisplus.enhance.crypto.annotation.IgnoreEncrypted;
+import com.baomidou.mybatisplus.enhance.interceptor.inner.DataDecryptionInnerInterceptor;
+import com.baomidou.mybatisplus.enhance.interceptor.inner.DataEncryptionInnerInterceptor;
+import com.baomidou.mybatisplus.enhance.interceptor.inner.DataSignatureInnerInterceptor;
+import com.baomidou.mybatisplus.enhance.interceptor.inner.EnhanceInnerInterceptor;
+import com.baomidou.mybatisplus.enhance.support.H2TestEnvironment;
+import com.baomidou.mybatisplus.enhance.support.Person;
+import com.baomidou.mybatisplus.enhance.support.PersonMapper;
+import com.baomidou.mybatisplus.enhance.util.MapperMethodRegistry;
+import com.baomidou.mybatisplus.extension.plugins.inner.InnerInterceptor;
+import com.baomidou.mybatisplus.extension.plugins.inner.PaginationInnerInterceptor;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.SqlSession;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class MappedStatementPlanTest {
+
+    private static final String PERSON_MAPPER = PersonMapper.class.getName();
+
+    /**
+     * 记录执行计划构建次数和 StatementHandler 阶段执行次数的拦截器，只作用于参数中可能包含加密实体的语句
+     */
+    static class CountingInterceptor implements EnhanceInnerInterceptor {
+
+        private final Map<String, AtomicInteger> planBuilds = new ConcurrentHashMap<>();
+        private final AtomicInteger beforePrepare = new AtomicInteger();
+
+        @Override
+        public boolean isApplicableBefore(MappedStatementPlan plan) {
+            planBuilds.computeIfAbsent(plan.getMappedStatementId(), id -> new AtomicInteger()).incrementAndGet();
+            return plan.isEncryptedParameter();
+        }
+
+        @Override
+        public void beforePrepare(StatementHandler sh, Connection connection, Integer transactionTimeout) {
+            beforePrepare.incrementAndGet();
+        }
+
+    }
+
+    private H2TestEnvironment environment;
+    private MybatisPlusEnhanceInterceptor interceptor;
+
+    @Before
+    public void setUp() {
+        environment = new H2TestEnvironment();
+        interceptor = environment.getEnhanceInterceptor();
+    }
+
+    private MappedStatement mappedStatement(String method) {
+        return environment.getSqlSessionFactory().getConfiguration().getMappedStatement(PERSON_MAPPER + "." + method);
+    }
+
+    private static Person person(String name) {
+        Person person = new Person();
+        person.setName(name);
+        person.setMobile("13800000000");
+        person.setEmail(name + "@example.com");
+        return person;
+    }
+
+    private static boolean contains(List<? extends InnerInterceptor> interceptors, Class<?> type) {
+        return interceptors.stream().anyMatch(type::isInstance);
+    }
+
+    @Test
+    public void testPlanBuiltOncePerStatement() {
+        CountingInterceptor counting = new CountingInterceptor();
+        interceptor.addInnerInterceptor(counting);
+        try (SqlSession session = environment.getSqlSessionFactory().openSession(true)) {
+            PersonMapper mapper = session.getMapper(PersonMapper.class);
+            Person person = person("alice");
+            mapper.insert(person);
+            for (int i = 0; i < 3; i++) {
+                assertEquals("alice", mapper.selectById(person.getId()).getName());
+                mapper.updateById(person);
+            }
+        }
+        assertEquals(1, counting.planBuilds.get(PERSON_MAPPER + ".selectById").get());
+        assertEquals(1, counting.planBuilds.get(PERSON_MAPPER + ".updateById").get());
+        MappedStatement ms = mappedStatement("selectById");
+        assertSame(interceptor.getPlan(ms), interceptor.getPlan(ms));
+        // 修改拦截器后重新构建执行计划
+        MappedStatementPlan plan = interceptor.getPlan(ms);
+        interceptor.addInnerInterceptor(new CountingInterceptor());
+        assertNotSame(plan, interceptor.getPlan(ms));
+    }
+
+    @Test
+    public void testStatementInterceptorsFollowPlan() {
+        CountingInterceptor counting = new CountingInterceptor();
+        interceptor.addInnerInterceptor(counting);
+        try (SqlSession session = environment.getSqlSessionFactory().openSession(true)) {
+            PersonMapper mapper = session.getMapper(PersonMapper.class);
+            Person person = person("bob");
+            mapper.insert(person);
+            assertEquals(1, counting.beforePrepare.get());
+            // 参数为主键的查询不需要 StatementHandler 阶段的增强处理
+            mapper.selectById(person.getId());
+            mapper.selectBatchIds(Collections.singletonList(person.getId()));
+            assertEquals(1, counting.beforePrepare.get());
+            mapper.updateById(person);
+            assertEquals(2, counting.beforePrepare.get());
+        }
+        MappedStatementPlan selectPlan = interceptor.getPlan(mappedStatement("selectById"));
+        assertTrue(contains(selectPlan.getStatementInterceptors(), PaginationInnerInterceptor.class));
+        assertFalse(contains(selectPlan.getStatementInterceptors(), DataEncryptionInnerInterceptor.class));
+        MappedStatementPlan updatePlan = interceptor.getPlan(mappedStatement("updateById"));
+        assertTrue(contains(updatePlan.getStatementInterceptors(), DataEncryptionInnerInterceptor.class));
+    }
+
+    /**
+     * 执行计划的判断与逐次反射查找的结果一致：实际查询结果包含 @EncryptedTable 实体的语句才执行解密
+     */
+    @Test
+    public void testPlanDecisionsMatchReflection() throws Exception {
+        List<Object> selectByIdRows = new ArrayList<>();
+        List<Object> selectMapsRows = new ArrayList<>();
+        try (SqlSession session = environment.getSqlSessionFactory().openSession(true)) {
+            PersonMapper mapper = session.getMapper(PersonMapper.class);
+            Person person = person("carol");
+            mapper.insert(person);
+            selectByIdRows.add(mapper.selectById(person.getId()));
+            selectMapsRows.addAll(mapper.selectMaps(Wrappers.query()));
+        }
+        assertPlanMatches("selectById", selectByIdRows);
+        assertPlanMatches("selectMaps", selectMapsRows);
+
+        MappedStatementPlan selectById = interceptor.getPlan(mappedStatement("selectById"));
+        assertEquals(Person.class, selectById.getEntityClass());
+        assertFalse(selectById.isEncryptedParameter());
+        assertTrue(contains(selectById.getAfterQueryInterceptors(), DataSignatureInnerInterceptor.class));
+
+        MappedStatementPlan insert = interceptor.getPlan(mappedStatement("insert"));
+        assertTrue(insert.isEncryptedParameter());
+        assertTrue(insert.isSignatureParameter());
+        assertTrue(contains(insert.getUpdateInterceptors(), DataEncryptionInnerInterceptor.class));
+        assertTrue(contains(insert.getUpdateInterceptors(), DataSignatureInnerInterceptor.class));
+        assertTrue(insert.getAfterQueryInterceptors().isEmpty());
+
+        MappedStatementPlan ignore = interceptor.getPlan(mappedStatement("selectIgnoreDecryptById"));
+        assertEquals(PersonMapper.class.getMethod("selectIgnoreDecryptById", Serializable.class).isAnnotationPresent(IgnoreEncrypted.class),
+                ignore.isIgnoreEncrypted());
+        assertFalse(contains(ignore.getAfterQueryInterceptors(), DataDecryptionInnerInterceptor.class));
+    }
+
+    private void assertPlanMatches(String method, List<Object> rows) {
+        boolean encryptedRows = rows.stream().anyMatch(row -> row != null
+                && AnnotationUtils.findFirstAnnotation(EncryptedTable.class, row.getClass()) != null);
+        MappedStatementPlan plan = interceptor.getPlan(mappedStatement(method));
+        assertEquals(method, encryptedRows, plan.isEncryptedResult());
+        assertEquals(method, encryptedRows, contains(plan.getAfterQueryInterceptors(), DataDecryptionInnerInterceptor.class));
+    }
+
+    /**
+     * 动态生成的 MappedStatement 被回收后，执行计划随之清除
+     */
+    @Test
+    public void testPlanEvictedWithMappedStatement() throws InterruptedException {
+        MappedStatement ms = copy(mappedStatement("selectById"));
+        assertSame(interceptor.getPlan(ms), interceptor.getPlan(ms));
+        assertEquals(1, interceptor.getPlanCount());
+        ms = null;
+        for (int i = 0; i < 50 && interceptor.getPlanCount() > 0; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertEquals(0, interceptor.getPlanCount());
+    }
+
+    /**
+     * 执行计划按 MappedStatement 实例缓存，且数量不超过上限
+     */
+    @Test
+    public void testPlanCacheSizeBounded() {
+        MappedStatement template = mappedStatement("selectById");
+        int overflow = (int) MapperMethodRegistry.MAXIMUM_SIZE + 100;
+        List<MappedStatement> statements = new ArrayList<>(overflow);
+        for (int i = 0; i < overflow; i++) {
+            MappedStatement ms = copy(template);
+            statements.add(ms);
+            assertNotSame(interceptor.getPlan(template), interceptor.getPlan(ms));
+        }
+        assertEquals(MapperMethodRegistry.MAXIMUM_SIZE, interceptor.getPlanCount());
+        assertEquals(overflow, statements.size());
+    }
+
+    private static MappedStatement copy(MappedStatement ms) {
+        return new MappedStatement.Builder(ms.getConfiguration(), ms.getId(), ms.getSqlSource(), SqlCommandType.SELECT)
+                .resultMaps(ms.getResultMaps())
+                .build();
+    }
+
+}
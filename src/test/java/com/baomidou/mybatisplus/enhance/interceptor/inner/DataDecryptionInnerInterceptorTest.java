@@ -0,0 +1,128 @@
+package com.baomidou.mybatisplus.enhance.interceptor.inner;
+
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.baomidou.mybatisplus.enhance.crypto.handler.DefaultDataEncryptionHandler;
+import com.baomidou.mybatisplus.enhance.crypto.handler.EncryptedFieldHandler;
+import com.baomidou.mybatisplus.enhance.support.H2TestEnvironment;
+import com.baomidou.mybatisplus.enhance.support.Person;
+import com.baomidou.mybatisplus.enhance.support.PersonMapper;
+import com.baomidou.mybatisplus.extension.plugins.inner.InnerInterceptor;
+import org.apache.ibatis.session.SqlSession;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.*;
+
+public class DataDecryptionInnerInterceptorTest {
+
+    private static final int ROWS = 200;
+
+    private H2TestEnvironment environment;
+    private ForkJoinPool executor;
+
+    @Before
+    public void setUp() {
+        environment = new H2TestEnvironment();
+        // 并行度取自 ForkJoinPool，与运行环境的 CPU 数量无关
+        executor = new ForkJoinPool(4);
+        try (SqlSession session = environment.getSqlSessionFactory().openSession(true)) {
+            PersonMapper mapper = session.getMapper(PersonMapper.class);
+            for (int i = 0; i < ROWS; i++) {
+                Person person = new Person();
+                person.setName(String.format("p%03d", i));
+                person.setMobile("138" + String.format("%08d", i));
+                person.setEmail(person.getName() + "@example.com");
+                mapper.insert(person);
+            }
+        }
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 将解密拦截器替换为并行解密的拦截器，每解密一行之前执行 beforeDecrypt
+     */
+    private void useParallelDecryption(Consumer<Object> beforeDecrypt) {
+        EncryptedFieldHandler encryptedFieldHandler = environment.getEncryptedFieldHandler();
+        DefaultDataEncryptionHandler handler = new DefaultDataEncryptionHandler(encryptedFieldHandler) {
+            @Override
+            public <T> void doRawObjectDecrypt(Object rawObject, Class<T> entityClass) {
+                beforeDecrypt.accept(rawObject);
+                super.doRawObjectDecrypt(rawObject, entityClass);
+            }
+        };
+        List<InnerInterceptor> interceptors = new ArrayList<>();
+        for (InnerInterceptor interceptor : environment.getEnhanceInterceptor().getInterceptors()) {
+            interceptors.add(interceptor instanceof DataDecryptionInnerInterceptor
+                    ? new DataDecryptionInnerInterceptor(handler, true, 16, executor) : interceptor);
+        }
+        environment.getEnhanceInterceptor().setInterceptors(interceptors);
+    }
+
+    private List<Person> selectAll() {
+        try (SqlSession session = environment.getSqlSessionFactory().openSession(true)) {
+            return session.getMapper(PersonMapper.class).selectList(Wrappers.<Person>lambdaQuery().orderByAsc(Person::getId));
+        }
+    }
+
+    @Test
+    public void testParallelDecryptionKeepsRowOrder() {
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        useParallelDecryption(row -> threads.add(Thread.currentThread()));
+        List<Person> persons = selectAll();
+        assertEquals(ROWS, persons.size());
+        for (int i = 0; i < ROWS; i++) {
+            Person person = persons.get(i);
+            assertEquals(String.format("p%03d", i), person.getName());
+            assertEquals("138" + String.format("%08d", i), person.getMobile());
+            assertEquals(person.getName() + "@example.com", person.getEmail());
+        }
+        assertTrue(threads.contains(Thread.currentThread()));
+        assertTrue(threads.size() > 1);
+    }
+
+    /**
+     * 多行解密失败时，抛出下标最小的行的异常，与串行解密一致
+     */
+    @Test
+    public void testParallelDecryptionReportsLowestIndexFailure() {
+        CountDownLatch laterFailed = new CountDownLatch(1);
+        useParallelDecryption(row -> {
+            String name = ((Person) row).getName();
+            if ("p010".equals(name)) {
+                try {
+                    assertTrue(laterFailed.await(10, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IllegalStateException(name);
+            }
+            if ("p150".equals(name)) {
+                laterFailed.countDown();
+                throw new IllegalStateException(name);
+            }
+        });
+        try {
+            selectAll();
+            fail("expected decryption failure");
+        } catch (RuntimeException e) {
+            IllegalStateException cause = H2TestEnvironment.findCause(e, IllegalStateException.class);
+            assertNotNull(cause);
+            assertEquals("p010", cause.getMessage());
+        }
+    }
+
+}
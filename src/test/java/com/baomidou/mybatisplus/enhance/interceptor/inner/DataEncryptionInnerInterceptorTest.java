@@ -0,0 +1,178 @@
+package com.baomidou.mybatisplus.enhance.interceptor.inner;
+
+import com.baomidou.mybatisplus.annotation.DbType;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.baomidou.mybatisplus.enhance.crypto.handler.DefaultDataEncryptionHandler;
+import com.baomidou.mybatisplus.enhance.support.H2TestEnvironment;
+import com.baomidou.mybatisplus.enhance.support.Person;
+import com.baomidou.mybatisplus.enhance.support.PersonMapper;
+import com.baomidou.mybatisplus.extension.plugins.inner.InnerInterceptor;
+import com.baomidou.mybatisplus.extension.plugins.inner.PaginationInnerInterceptor;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.SqlSession;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class DataEncryptionInnerInterceptorTest {
+
+    private H2TestEnvironment environment;
+    private SqlSession sqlSession;
+    private PersonMapper mapper;
+
+    @Before
+    public void setUp() {
+        environment = new H2TestEnvironment();
+        sqlSession = environment.getSqlSessionFactory().openSession(true);
+        mapper = sqlSession.getMapper(PersonMapper.class);
+        for (int i = 0; i < 5; i++) {
+            Person person = new Person();
+            person.setName("n" + i);
+            person.setMobile("1380000000" + i);
+            person.setEmail(i < 3 ? "same@x.com" : "e" + i + "@x.com");
+            mapper.insert(person);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        sqlSession.close();
+    }
+
+    @Test
+    public void testStoredCipherText() {
+        Person raw = mapper.selectIgnoreDecryptById(1L);
+        assertNotEquals("13800000000", raw.getMobile());
+        assertNotEquals("same@x.com", raw.getEmail());
+        assertEquals(environment.getEncryptedFieldHandler().encrypt("same@x.com"), raw.getEmail());
+        assertEquals(environment.getEncryptedFieldHandler().blindIndex("13800000000"), raw.getMobileIdx());
+        Person person = mapper.selectById(1L);
+        assertEquals("13800000000", person.getMobile());
+        assertEquals("same@x.com", person.getEmail());
+        assertEquals(1, environment.queryForLong("SELECT COUNT(*) FROM person WHERE email = '" + raw.getEmail() + "' AND id = 1"));
+    }
+
+    @Test
+    public void testWrapperCondition() {
+        assertEquals(3, mapper.selectList(Wrappers.<Person>lambdaQuery().eq(Person::getEmail, "same@x.com")).size());
+        assertEquals(2L, (long) mapper.selectCount(Wrappers.<Person>lambdaQuery().ne(Person::getEmail, "same@x.com")));
+        assertEquals(2, mapper.selectList(Wrappers.<Person>query().in("email", "e3@x.com", "e4@x.com", "none@x.com")).size());
+        assertEquals(1, mapper.selectList(Wrappers.<Person>query().gt("id", 0).and(w -> w.eq("email", "e3@x.com").or().eq("name", "missing"))).size());
+    }
+
+    @Test
+    public void testBlindIndexCondition() {
+        List<Person> persons = mapper.selectList(Wrappers.<Person>lambdaQuery().eq(Person::getMobile, "13800000002"));
+        assertEquals(1, persons.size());
+        assertEquals("n2", persons.get(0).getName());
+        assertEquals(2, mapper.selectList(Wrappers.<Person>lambdaQuery().in(Person::getMobile, "13800000001", "13800000003")).size());
+        assertEquals(4, mapper.selectList(Wrappers.<Person>lambdaQuery().ne(Person::getMobile, "13800000002")).size());
+    }
+
+    /**
+     * 同一个 UpdateWrapper 多次执行时只加密一次，盲索引字段的赋值也不会重复追加
+     */
+    @Test
+    public void testWrapperUpdateEncryptedOnce() {
+        LambdaUpdateWrapper<Person> wrapper = Wrappers.<Person>lambdaUpdate()
+                .set(Person::getName, "n1")
+                .set(Person::getMobile, "13900000001")
+                .set(Person::getHmac, null)
+                .eq(Person::getId, 2L);
+        for (int i = 0; i < 2; i++) {
+            assertEquals(1, mapper.update(null, wrapper));
+            Person raw = mapper.selectIgnoreDecryptById(2L);
+            assertEquals(environment.getEncryptedFieldHandler().encrypt("13900000001"), raw.getMobile());
+            assertEquals(environment.getEncryptedFieldHandler().blindIndex("13900000001"), raw.getMobileIdx());
+            assertEquals("13900000001", mapper.selectById(2L).getMobile());
+        }
+        assertEquals(1, wrapper.getSqlSet().split("mobile_idx", -1).length - 1);
+        assertEquals(1, mapper.selectList(Wrappers.<Person>lambdaQuery().eq(Person::getMobile, "13900000001")).size());
+    }
+
+    @Test
+    public void testPage() {
+        Page<Person> page = mapper.selectPage(new Page<>(1, 2), Wrappers.<Person>lambdaQuery().eq(Person::getEmail, "same@x.com"));
+        assertEquals(3, page.getTotal());
+        assertEquals(2, page.getRecords().size());
+        assertEquals("same@x.com", page.getRecords().get(0).getEmail());
+        page = mapper.selectPage(new Page<>(2, 2), Wrappers.<Person>lambdaQuery().in(Person::getMobile, "13800000001", "13800000002", "13800000003"));
+        assertEquals(3, page.getTotal());
+        assertEquals(1, page.getRecords().size());
+    }
+
+    /**
+     * 查询条件在 beforeQuery 阶段处理后，StatementHandler.prepare 阶段不再处理；
+     * 分页插件注册在加密拦截器之前时，count 语句不经过 beforeQuery，在 prepare 阶段补充处理
+     */
+    @Test
+    public void testEncryptQueryOncePerBoundSql() {
+        AtomicInteger encryptQueries = new AtomicInteger();
+        DataEncryptionInnerInterceptor counting = new DataEncryptionInnerInterceptor(
+                new DefaultDataEncryptionHandler(environment.getEncryptedFieldHandler())) {
+            @Override
+            protected void encryptQuery(MappedStatement ms, Object parameterObject, BoundSql boundSql, List<Object> entityParameters) {
+                encryptQueries.incrementAndGet();
+                super.encryptQuery(ms, parameterObject, boundSql, entityParameters);
+            }
+        };
+        List<InnerInterceptor> interceptors = new ArrayList<>();
+        for (InnerInterceptor interceptor : environment.getEnhanceInterceptor().getInterceptors()) {
+            interceptors.add(interceptor instanceof DataEncryptionInnerInterceptor ? counting : interceptor);
+        }
+        environment.getEnhanceInterceptor().setInterceptors(interceptors);
+
+        assertEquals(3, mapper.selectList(Wrappers.<Person>lambdaQuery().eq(Person::getEmail, "same@x.com")).size());
+        assertEquals(1, encryptQueries.getAndSet(0));
+        // 自动生成的 count 语句沿用已处理的附加参数
+        Page<Person> page = mapper.selectPage(new Page<>(1, 2), Wrappers.<Person>lambdaQuery().eq(Person::getEmail, "same@x.com"));
+        assertEquals(3, page.getTotal());
+        assertEquals(1, encryptQueries.getAndSet(0));
+        // 主键查询不需要加密处理
+        assertNotNull(mapper.selectById(1L));
+        assertEquals(0, encryptQueries.getAndSet(0));
+
+        // 分页插件注册在加密拦截器之前
+        interceptors.removeIf(PaginationInnerInterceptor.class::isInstance);
+        interceptors.add(0, new PaginationInnerInterceptor(DbType.H2));
+        environment.getEnhanceInterceptor().setInterceptors(interceptors);
+        page = mapper.selectPage(new Page<>(1, 2), Wrappers.<Person>lambdaQuery().eq(Person::getEmail, "same@x.com"));
+        assertEquals(3, page.getTotal());
+        assertEquals(2, page.getRecords().size());
+        assertEquals(2, encryptQueries.getAndSet(0));
+    }
+
+    @Test
+    public void testEncryptedParam() {
+        List<Person> persons = mapper.selectByEmails(Arrays.asList("e3@x.com", "e4@x.com"));
+        assertEquals(2, persons.size());
+        assertEquals("e3@x.com", persons.get(0).getEmail());
+        assertEquals(1, mapper.selectByMobile("13800000004").size());
+        IPage<Person> page = mapper.selectPageByEmail(new Page<>(1, 2), "same@x.com");
+        assertEquals(3, page.getTotal());
+        assertEquals(2, page.getRecords().size());
+    }
+
+    /**
+     * 没有 @EncryptedParam 注解、@Param 名称与加密字段属性名相同的参数，字段维护盲索引时替换为盲索引值
+     */
+    @Test
+    public void testParamMatchedByName() {
+        assertEquals(3, mapper.selectByEmail("same@x.com").size());
+        List<Person> persons = mapper.selectByMobiles(Arrays.asList("13800000001", "13800000003", "13900000000"));
+        assertEquals(2, persons.size());
+        assertEquals("13800000001", persons.get(0).getMobile());
+    }
+
+}
@@ -0,0 +1,231 @@
+package com.baomidou.mybatisplus.enhance.interceptor.inner;
+
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.baomidou.mybatisplus.enhance.crypto.exception.SignatureVerificationException;
+import com.baomidou.mybatisplus.enhance.crypto.exception.SignatureVerificationFailure;
+import com.baomidou.mybatisplus.enhance.crypto.handler.DefaultDataSignatureHandler;
+import com.baomidou.mybatisplus.enhance.crypto.handler.DefaultSignatureVerificationSampler;
+import com.baomidou.mybatisplus.enhance.crypto.handler.SignatureVerificationFailureHandler;
+import com.baomidou.mybatisplus.enhance.support.H2TestEnvironment;
+import com.baomidou.mybatisplus.enhance.support.Person;
+import com.baomidou.mybatisplus.enhance.support.PersonMapper;
+import com.baomidou.mybatisplus.extension.plugins.inner.InnerInterceptor;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.SqlSession;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class DataSignatureInnerInterceptorTest {
+
+    private static final String NAMESPACE = PersonMapper.class.getName();
+
+    private SqlSession sqlSession;
+
+    @After
+    public void tearDown() {
+        if (sqlSession != null) {
+            sqlSession.close();
+        }
+    }
+
+    private PersonMapper open(H2TestEnvironment environment, int rows) {
+        sqlSession = environment.getSqlSessionFactory().openSession(true);
+        PersonMapper mapper = sqlSession.getMapper(PersonMapper.class);
+        for (int i = 0; i < rows; i++) {
+            Person person = new Person();
+            person.setName("n" + i);
+            person.setMobile("138" + i);
+            person.setEmail("e" + i + "@x.com");
+            mapper.insert(person);
+        }
+        return mapper;
+    }
+
+    /**
+     * 游标逐行解密、验签：条件中的加密字段被改写，篡改的行在迭代到该行时失败，之前的行已经返回
+     */
+    @Test
+    public void testCursor() throws IOException {
+        H2TestEnvironment environment = new H2TestEnvironment();
+        PersonMapper mapper = open(environment, 5);
+        List<String> mobiles = new ArrayList<>();
+        try (Cursor<Person> cursor = mapper.selectCursorList(Wrappers.<Person>lambdaQuery().in(Person::getEmail, "e1@x.com", "e3@x.com"))) {
+            cursor.forEach(person -> mobiles.add(person.getMobile()));
+        }
+        assertEquals(2, mobiles.size());
+        assertEquals("1381", mobiles.get(0));
+        environment.execute("UPDATE person SET name = 'evil' WHERE id = 4");
+        int[] read = {0};
+        try (Cursor<Person> cursor = mapper.selectCursor(null)) {
+            for (Person ignored : cursor) {
+                read[0]++;
+            }
+            fail("tampered row passed verification");
+        } catch (RuntimeException e) {
+            assertNotNull(H2TestEnvironment.findCause(e, SignatureVerificationException.class));
+            assertEquals(3, read[0]);
+        }
+    }
+
+    /**
+     * ResultHandler 收到的每一行都已经解密、验签
+     */
+    @Test
+    public void testResultHandler() {
+        H2TestEnvironment environment = new H2TestEnvironment();
+        PersonMapper mapper = open(environment, 5);
+        List<Person> persons = new ArrayList<>();
+        mapper.selectList(Wrappers.<Person>lambdaQuery().eq(Person::getMobile, "1384"), context -> persons.add(context.getResultObject()));
+        assertEquals(1, persons.size());
+        assertEquals("e4@x.com", persons.get(0).getEmail());
+        environment.execute("UPDATE person SET hmac = 'bad' WHERE id = 2");
+        try {
+            sqlSession.select(NAMESPACE + ".selectList", Collections.singletonMap("ew", null), context -> persons.add((Person) context.getResultObject()));
+            fail("tampered row passed verification");
+        } catch (RuntimeException e) {
+            assertNotNull(H2TestEnvironment.findCause(e, SignatureVerificationException.class));
+            assertEquals(2, persons.size());
+        }
+    }
+
+    /**
+     * 只被 @IgnoreEncrypted 注解的查询不解密但仍然验签，被 @IgnoreSignature 注解的内部原始数据查询不验签
+     */
+    @Test
+    public void testIgnoreEncryptedQueryVerified() {
+        H2TestEnvironment environment = new H2TestEnvironment();
+        PersonMapper mapper = open(environment, 3);
+        Person raw = mapper.selectRawById(2L);
+        assertEquals("n1", raw.getName());
+        assertEquals(environment.getEncryptedFieldHandler().encrypt("1381"), raw.getMobile());
+        environment.execute("UPDATE person SET name = 'evil' WHERE id = 2");
+        try {
+            mapper.selectRawById(2L);
+            fail("tampered row passed verification");
+        } catch (RuntimeException e) {
+            assertNotNull(H2TestEnvironment.findCause(e, SignatureVerificationException.class));
+        }
+        assertEquals("evil", mapper.selectIgnoreDecryptById(2L).getName());
+        assertEquals(3, mapper.selectIgnoreDecryptList(null).size());
+    }
+
+    @Test
+    public void testFailuresAggregated() {
+        H2TestEnvironment environment = new H2TestEnvironment();
+        PersonMapper mapper = open(environment, 5);
+        environment.execute("UPDATE person SET name = 'evil' WHERE id IN (2, 5)");
+        try {
+            mapper.selectList(null);
+            fail("tampered rows passed verification");
+        } catch (RuntimeException e) {
+            SignatureVerificationException exception = H2TestEnvironment.findCause(e, SignatureVerificationException.class);
+            assertNotNull(exception);
+            assertEquals(2, exception.getFailures().size());
+            assertEquals(1, exception.getFailures().get(0).getRowIndex());
+            assertEquals(4, exception.getFailures().get(1).getRowIndex());
+        }
+    }
+
+    /**
+     * 将签名拦截器替换为并行验签的拦截器，记录批量验签执行的线程
+     */
+    private void useParallelVerification(H2TestEnvironment environment, ForkJoinPool executor, Set<Thread> threads,
+                                         SignatureVerificationFailureHandler failureHandler) {
+        DefaultDataSignatureHandler handler = new DefaultDataSignatureHandler(environment.getEncryptedFieldHandler()) {
+            @Override
+            public <T> List<RuntimeException> doBatchSignatureVerification(List<?> rawObjects, Class<T> entityClass) {
+                threads.add(Thread.currentThread());
+                return super.doBatchSignatureVerification(rawObjects, entityClass);
+            }
+        };
+        List<InnerInterceptor> interceptors = new ArrayList<>();
+        for (InnerInterceptor interceptor : environment.getEnhanceInterceptor().getInterceptors()) {
+            interceptors.add(interceptor instanceof DataSignatureInnerInterceptor
+                    ? new DataSignatureInnerInterceptor(handler, true, true, 16, executor, failureHandler) : interceptor);
+        }
+        environment.getEnhanceInterceptor().setInterceptors(interceptors);
+    }
+
+    /**
+     * 并行验签时各分片的验签失败按查询结果中的下标汇总为一个异常
+     */
+    @Test
+    public void testParallelFailuresAggregated() {
+        H2TestEnvironment environment = new H2TestEnvironment();
+        PersonMapper mapper = open(environment, 100);
+        environment.execute("UPDATE person SET name = 'evil' WHERE id IN (90, 10, 50)");
+        ForkJoinPool executor = new ForkJoinPool(4);
+        try {
+            Set<Thread> threads = ConcurrentHashMap.newKeySet();
+            useParallelVerification(environment, executor, threads, null);
+            try {
+                mapper.selectList(Wrappers.<Person>lambdaQuery().orderByAsc(Person::getId));
+                fail("tampered rows passed verification");
+            } catch (RuntimeException e) {
+                SignatureVerificationException exception = H2TestEnvironment.findCause(e, SignatureVerificationException.class);
+                assertNotNull(exception);
+                assertEquals(Arrays.asList(9, 49, 89), exception.getFailures().stream()
+                        .map(SignatureVerificationFailure::getRowIndex).collect(Collectors.toList()));
+                assertEquals("evil", ((Person) exception.getFailures().get(0).getRawObject()).getName());
+                assertEquals(2, exception.getSuppressed().length);
+            }
+            assertTrue(threads.size() > 1);
+
+            // 指定回调时交给回调处理，不抛出异常
+            List<SignatureVerificationFailure> failures = new ArrayList<>();
+            useParallelVerification(environment, executor, threads, (entityClass, list) -> {
+                assertEquals(Person.class, entityClass);
+                failures.addAll(list);
+            });
+            assertEquals(100, mapper.selectList(Wrappers.<Person>lambdaQuery().orderByAsc(Person::getId)).size());
+            assertEquals(3, failures.size());
+            assertEquals(89, failures.get(2).getRowIndex());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSamplerCounters() {
+        Map<String, Double> rates = new HashMap<>();
+        rates.put(NAMESPACE + ".selectById", 1.0);
+        DefaultSignatureVerificationSampler sampler = new DefaultSignatureVerificationSampler(0.0, rates, true, null, 0);
+        H2TestEnvironment environment = new H2TestEnvironment(H2TestEnvironment.newEncryptedFieldHandler(H2TestEnvironment.KEY, H2TestEnvironment.IV),
+                null, sampler, null);
+        PersonMapper mapper = open(environment, 20);
+        environment.execute("UPDATE person SET hmac = 'bad' WHERE id <= 10");
+        DataSignatureInnerInterceptor interceptor = environment.getDataSignatureInnerInterceptor();
+        // 抽样比例为 0 时多行查询不验签
+        assertEquals(20, mapper.selectList(null).size());
+        assertEquals(20, interceptor.getSeenRowCount());
+        assertEquals(0, interceptor.getVerifiedRowCount());
+        // 单行查询全部验签
+        assertEquals("n15", mapper.selectList(Wrappers.<Person>query().eq("id", 16)).get(0).getName());
+        assertEquals(21, interceptor.getSeenRowCount());
+        assertEquals(1, interceptor.getVerifiedRowCount());
+        try {
+            mapper.selectById(3L);
+            fail("tampered row passed verification");
+        } catch (RuntimeException e) {
+            assertNotNull(H2TestEnvironment.findCause(e, SignatureVerificationException.class));
+        }
+        assertEquals(22, interceptor.getSeenRowCount());
+        assertEquals(2, interceptor.getVerifiedRowCount());
+        assertEquals(1, interceptor.getFailedRowCount());
+    }
+
+}
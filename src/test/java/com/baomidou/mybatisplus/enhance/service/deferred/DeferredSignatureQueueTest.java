@@ -0,0 +1,163 @@
+package com.baomidou.mybatisplus.enhance.service.deferred;
+
+import com.baomidou.mybatisplus.enhance.support.H2TestEnvironment;
+import com.baomidou.mybatisplus.enhance.support.Person;
+import com.baomidou.mybatisplus.enhance.support.PersonExt;
+import com.baomidou.mybatisplus.enhance.support.PersonMapper;
+import com.baomidou.mybatisplus.enhance.support.PersonService;
+import org.apache.ibatis.session.SqlSession;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class DeferredSignatureQueueTest {
+
+    private FileDeferredSignatureJournal journal;
+    private DeferredSignatureQueue queue;
+    private final List<Collection<Serializable>> calls = Collections.synchronizedList(new ArrayList<>());
+
+    @Before
+    public void setUp() throws IOException {
+        Path path = Files.createTempDirectory("deferred-signature").resolve("journal.log");
+        journal = new FileDeferredSignatureJournal(path);
+        queue = new DeferredSignatureQueue(1, 4, 3, 50, 3, 20, journal, null);
+        queue.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        queue.close();
+        journal.close();
+    }
+
+    /**
+     * 模拟事务：submit 在事务同步中注册回调，完成后按提交或回滚调用回调
+     */
+    private void inTransaction(Runnable action, boolean commit) {
+        TransactionSynchronizationManager.initSynchronization();
+        List<TransactionSynchronization> synchronizations;
+        try {
+            action.run();
+            synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        if (commit) {
+            TransactionSynchronizationUtils.invokeAfterCommit(synchronizations);
+        }
+        TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations,
+                commit ? TransactionSynchronization.STATUS_COMMITTED : TransactionSynchronization.STATUS_ROLLED_BACK);
+    }
+
+    @Test
+    public void testCommit() throws InterruptedException {
+        inTransaction(() -> {
+            queue.submit(Person.class, Arrays.asList(1L, 2L), calls::add);
+            // 事务提交前只写入日志，不入队
+            assertEquals(0, queue.getPendingCount());
+            assertEquals(Arrays.asList("1", "2"), journal.pending().get(Person.class.getName()));
+        }, true);
+        assertTrue(queue.flush(5, TimeUnit.SECONDS));
+        assertEquals(1, calls.size());
+        assertEquals(Arrays.asList(1L, 2L), new ArrayList<>(calls.get(0)));
+        assertTrue(journal.pending().isEmpty());
+    }
+
+    @Test
+    public void testRollback() throws InterruptedException {
+        inTransaction(() -> queue.submit(Person.class, Arrays.asList(3L, 4L), calls::add), false);
+        assertEquals(0, queue.getPendingCount());
+        assertTrue(queue.flush(5, TimeUnit.SECONDS));
+        assertTrue(calls.isEmpty());
+        assertTrue(journal.pending().isEmpty());
+    }
+
+    @Test
+    public void testCallerRunsWhenFull() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        queue.submit(PersonExt.class, Collections.singletonList(100L), ids -> {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        Thread.sleep(100);
+        // 工作线程被阻塞，队列容量为 4，超出容量的主键等待 offerTimeoutMillis 后由提交线程签名
+        queue.submit(Person.class, Arrays.asList(3L, 4L, 3L, 5L, 6L, 1L, 7L), ids -> calls.add(new ArrayList<>(ids)));
+        assertTrue(queue.getCallerRunsCount() > 0);
+        assertTrue(queue.getDeduplicatedCount() > 0);
+        assertFalse(calls.isEmpty());
+        latch.countDown();
+        assertTrue(queue.flush(5, TimeUnit.SECONDS));
+        Set<Serializable> signed = new HashSet<>();
+        calls.forEach(signed::addAll);
+        assertEquals(new HashSet<>(Arrays.asList(1L, 3L, 4L, 5L, 6L, 7L)), signed);
+        assertTrue(journal.pending().isEmpty());
+    }
+
+    @Test
+    public void testRetryAndFailure() throws InterruptedException {
+        int[] attempts = {0};
+        queue.submit(Person.class, Collections.singletonList(8L), ids -> {
+            if (++attempts[0] < 2) {
+                throw new IllegalStateException("transient");
+            }
+            calls.add(ids);
+        });
+        assertTrue(queue.flush(5, TimeUnit.SECONDS));
+        assertEquals(2, attempts[0]);
+        assertEquals(1, queue.getRetriedCount());
+        queue.submit(Person.class, Collections.singletonList(9L), ids -> {
+            throw new IllegalStateException("permanent");
+        });
+        assertTrue(queue.flush(5, TimeUnit.SECONDS));
+        assertEquals(1, queue.getFailedCount());
+        // 重新签名失败的主键保留在日志中，由恢复流程重新签名
+        assertEquals(Collections.singletonList("9"), journal.pending().get(Person.class.getName()));
+    }
+
+    @Test
+    public void testServiceUpdateBatchSigned() throws InterruptedException {
+        H2TestEnvironment environment = new H2TestEnvironment();
+        try (SqlSession sqlSession = environment.getSqlSessionFactory().openSession(true)) {
+            PersonMapper mapper = sqlSession.getMapper(PersonMapper.class);
+            PersonService service = new PersonService(environment, mapper);
+            service.setDeferredSignatureQueue(queue);
+            for (int i = 0; i < 4; i++) {
+                Person person = new Person();
+                person.setName("n" + i);
+                person.setMobile("138" + i);
+                service.saveSigned(person);
+            }
+            List<Person> persons = new ArrayList<>();
+            for (long id = 1; id <= 2; id++) {
+                Person person = new Person();
+                person.setId(id);
+                person.setName("u" + id);
+                person.setMobile("139" + id);
+                persons.add(person);
+            }
+            service.updateBatchSignedById(persons);
+            assertTrue(queue.flush(5, TimeUnit.SECONDS));
+            assertTrue(journal.pending().isEmpty());
+            List<Person> signed = mapper.selectList(null);
+            assertEquals("u1", signed.get(0).getName());
+            assertEquals("1392", signed.get(1).getMobile());
+        }
+    }
+
+}
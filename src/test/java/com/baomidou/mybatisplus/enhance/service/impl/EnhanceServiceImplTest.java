@@ -0,0 +1,258 @@
+package com.baomidou.mybatisplus.enhance.service.impl;
+
+import com.baomidou.mybatisplus.core.toolkit.Constants;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.baomidou.mybatisplus.enhance.crypto.exception.SignatureVerificationException;
+import com.baomidou.mybatisplus.enhance.enums.EnhanceSqlMethod;
+import com.baomidou.mybatisplus.enhance.interceptor.inner.DataSignatureInnerInterceptor;
+import com.baomidou.mybatisplus.enhance.support.H2TestEnvironment;
+import com.baomidou.mybatisplus.enhance.support.Person;
+import com.baomidou.mybatisplus.enhance.support.PersonMapper;
+import com.baomidou.mybatisplus.enhance.support.PersonService;
+import com.baomidou.mybatisplus.extension.plugins.inner.InnerInterceptor;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class EnhanceServiceImplTest {
+
+    private H2TestEnvironment environment;
+    private SqlSession sqlSession;
+    private PersonMapper mapper;
+    private PersonService service;
+
+    @Before
+    public void setUp() {
+        environment = new H2TestEnvironment();
+        sqlSession = environment.getSqlSessionFactory().openSession(true);
+        mapper = sqlSession.getMapper(PersonMapper.class);
+        service = new PersonService(environment, mapper);
+        // 只保留签名拦截器：数据以明文存储和签名，游标返回的行可以直接由服务再次验签
+        environment.getEnhanceInterceptor().setInterceptors(Collections.singletonList(environment.getDataSignatureInnerInterceptor()));
+    }
+
+    @After
+    public void tearDown() {
+        sqlSession.close();
+    }
+
+    private void insert(int rows) {
+        for (int i = 0; i < rows; i++) {
+            Person person = new Person();
+            person.setName("n" + i);
+            person.setMobile("138" + i);
+            person.setEmail("e" + i + "@x.com");
+            mapper.insert(person);
+        }
+    }
+
+    @Test
+    public void testCursorSigned() throws IOException {
+        insert(5);
+        List<Person> persons = new ArrayList<>();
+        try (Cursor<Person> cursor = service.cursorSigned(Wrappers.<Person>lambdaQuery().eq(Person::getEmail, "e2@x.com"))) {
+            cursor.forEach(persons::add);
+        }
+        assertEquals(1, persons.size());
+        assertEquals("n2", persons.get(0).getName());
+        assertEquals("1382", persons.get(0).getMobile());
+    }
+
+    /**
+     * 逐行交给调用方处理，处理顺序与查询顺序一致，验签失败时之前的行已经处理
+     */
+    @Test
+    public void testStreamSigned() {
+        insert(5);
+        List<String> mobiles = new ArrayList<>();
+        assertEquals(5, service.streamSigned(Wrappers.<Person>lambdaQuery().orderByAsc(Person::getId), person -> mobiles.add(person.getMobile())));
+        assertEquals(5, mobiles.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals("138" + i, mobiles.get(i));
+        }
+
+        environment.execute("UPDATE person SET name = 'evil' WHERE id = 4");
+        mobiles.clear();
+        try {
+            service.streamSigned(Wrappers.<Person>lambdaQuery().orderByAsc(Person::getId), person -> mobiles.add(person.getMobile()));
+            fail("tampered row passed verification");
+        } catch (RuntimeException e) {
+            assertNotNull(H2TestEnvironment.findCause(e, SignatureVerificationException.class));
+            assertEquals(3, mobiles.size());
+        }
+    }
+
+    /**
+     * predicate 返回 false 时停止读取，之后的行不再解密、验签
+     */
+    @Test
+    public void testStreamSignedWhileStopsEarly() {
+        insert(5);
+        environment.execute("UPDATE person SET name = 'evil' WHERE id = 4");
+        List<String> names = new ArrayList<>();
+        long count = service.streamSignedWhile(Wrappers.<Person>lambdaQuery().orderByAsc(Person::getId), person -> {
+            names.add(person.getName());
+            return names.size() < 2;
+        });
+        assertEquals(2, count);
+        assertEquals("n1", names.get(1));
+        assertEquals(0, service.streamSigned(Wrappers.<Person>lambdaQuery().eq(Person::getName, "none"), person -> fail()));
+    }
+
+    /**
+     * 重新签名时只写回签名值发生变化的数据，且只修改签名字段
+     */
+    @Test
+    public void testDoSignatureByListWritesChangedRowsOnly() {
+        insert(5);
+        List<Object> updated = new ArrayList<>();
+        InnerInterceptor recorder = new InnerInterceptor() {
+            @Override
+            public void beforeUpdate(Executor executor, MappedStatement ms, Object parameter) {
+                assertEquals(PersonMapper.class.getName() + ".updateSignatureBatchByIds", ms.getId());
+                updated.addAll((Collection<?>) ((Map<?, ?>) parameter).get(Constants.COLL));
+            }
+        };
+        environment.getEnhanceInterceptor().setInterceptors(Arrays.asList(environment.getDataSignatureInnerInterceptor(), recorder));
+        environment.execute("UPDATE person SET hmac = 'bad' WHERE id IN (2, 4)");
+        service.doSignatureByWrappers(Collections.singletonList(Wrappers.<Person>lambdaQuery().orderByAsc(Person::getId)));
+        assertEquals(Arrays.asList(2L, 4L), updated.stream().map(row -> ((Person) row).getId()).collect(Collectors.toList()));
+        assertEquals(5, mapper.selectList(null).size());
+
+        updated.clear();
+        service.doSignatureByWrappers(Collections.singletonList(Wrappers.<Person>lambdaQuery()));
+        assertTrue(updated.isEmpty());
+    }
+
+    /**
+     * updateSignatureById、updateSignatureBatchByIds 只修改签名字段，实体中其他字段的修改不会写入
+     */
+    @Test
+    public void testUpdateSignatureStatements() {
+        insert(3);
+        List<Person> persons = mapper.selectIgnoreDecryptBatchIds(Arrays.asList(1L, 2L, 3L));
+        persons.forEach(person -> person.setName("changed"));
+        persons.get(0).setHmac("s1");
+        assertEquals(1, mapper.updateSignatureById(persons.get(0)));
+        persons.get(1).setHmac("s2");
+        persons.get(2).setHmac("s3");
+        assertEquals(2, mapper.updateSignatureBatchByIds(persons.subList(1, 3)));
+        List<Person> stored = mapper.selectIgnoreDecryptList(Wrappers.<Person>lambdaQuery().orderByAsc(Person::getId));
+        for (int i = 0; i < 3; i++) {
+            assertEquals("n" + i, stored.get(i).getName());
+            assertEquals("138" + i, stored.get(i).getMobile());
+            assertEquals("s" + (i + 1), stored.get(i).getHmac());
+        }
+    }
+
+    /**
+     * 未注入只修改签名字段的语句时，单行通过 UpdateWrapper、多行通过 JDBC 批处理只修改签名字段
+     */
+    @Test
+    public void testSignatureUpdateFallback() {
+        insert(5);
+        PersonService fallback = new PersonService(environment, mapper) {
+            @Override
+            protected boolean hasEnhanceStatement(EnhanceSqlMethod sqlMethod) {
+                return false;
+            }
+        };
+        List<String> statements = new ArrayList<>();
+        List<Executor> executors = new ArrayList<>();
+        InnerInterceptor recorder = new InnerInterceptor() {
+            @Override
+            public void beforeUpdate(Executor executor, MappedStatement ms, Object parameter) {
+                statements.add(ms.getId());
+                executors.add(executor);
+            }
+        };
+        environment.getEnhanceInterceptor().setInterceptors(Arrays.asList(environment.getDataSignatureInnerInterceptor(), recorder));
+        environment.execute("UPDATE person SET hmac = 'bad' WHERE id IN (1, 2, 4)");
+        String update = PersonMapper.class.getName() + ".update";
+        fallback.doSignatureById(1L);
+        assertEquals(Collections.singletonList(update), statements);
+        Executor sessionExecutor = executors.get(0);
+        statements.clear();
+        executors.clear();
+        // 只有签名变化的两行写回，在同一个批处理会话中执行
+        fallback.doSignatureByBatchIds(Arrays.asList(2L, 3L, 4L));
+        assertEquals(Arrays.asList(update, update), statements);
+        assertSame(executors.get(0), executors.get(1));
+        assertNotSame(sessionExecutor, executors.get(0));
+        // 重新签名后全部验签通过，数据未被改写
+        List<Person> persons = mapper.selectList(Wrappers.<Person>lambdaQuery().orderByAsc(Person::getId));
+        assertEquals(5, persons.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals("n" + i, persons.get(i).getName());
+        }
+    }
+
+    private List<String> recordQueries(DataSignatureInnerInterceptor signatureInterceptor) {
+        List<String> queries = new ArrayList<>();
+        InnerInterceptor recorder = new InnerInterceptor() {
+            @Override
+            public void beforeQuery(Executor executor, MappedStatement ms, Object parameter, RowBounds rowBounds,
+                                    ResultHandler resultHandler, BoundSql boundSql) {
+                queries.add(ms.getId().substring(ms.getId().lastIndexOf('.') + 1));
+            }
+        };
+        environment.getEnhanceInterceptor().setInterceptors(Arrays.asList(signatureInterceptor, recorder));
+        return queries;
+    }
+
+    private static Person person(String name, String mobile) {
+        Person person = new Person();
+        person.setName(name);
+        person.setMobile(mobile);
+        return person;
+    }
+
+    /**
+     * 签名拦截器已在插入前完成签名时不回读数据，签名字段可能由数据库生成（例如空值被忽略）时才回读重新签名
+     */
+    @Test
+    public void testInsertSignedInMemorySkipsReadBack() {
+        List<String> queries = recordQueries(environment.getDataSignatureInnerInterceptor());
+        assertTrue(service.isInsertSignedInMemory());
+        assertFalse(service.isSignatureReadBackRequired(person("a", "1380")));
+        assertTrue(service.isSignatureReadBackRequired(person(null, "1381")));
+
+        assertTrue(service.saveSigned(person("a", "1380")));
+        assertTrue(queries.isEmpty());
+        assertTrue(service.saveSigned(person(null, "1381")));
+        assertEquals(Collections.singletonList("selectIgnoreDecryptById"), queries);
+
+        queries.clear();
+        assertTrue(service.saveBatchSigned(Arrays.asList(person("b", "1382"), person("c", "1383"))));
+        assertTrue(queries.isEmpty());
+        assertEquals(4, mapper.selectList(null).size());
+    }
+
+    /**
+     * 签名拦截器未启用签名时，每条插入的数据都回读重新签名
+     */
+    @Test
+    public void testInsertNotSignedInMemoryReadsBack() {
+        List<String> queries = recordQueries(new DataSignatureInnerInterceptor(environment.getDataSignatureHandler(), false, true));
+        PersonService readBack = new PersonService(environment, mapper);
+        assertFalse(readBack.isInsertSignedInMemory());
+        assertTrue(readBack.isSignatureReadBackRequired(person("a", "1380")));
+        assertTrue(readBack.saveBatchSigned(Arrays.asList(person("a", "1380"), person("b", "1381"))));
+        assertEquals(Collections.singletonList("selectIgnoreDecryptBatchIds"), queries);
+        assertEquals(2, mapper.selectList(null).size());
+    }
+
+}
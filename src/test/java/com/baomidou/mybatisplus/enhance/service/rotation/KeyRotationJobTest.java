@@ -0,0 +1,176 @@
+package com.baomidou.mybatisplus.enhance.service.rotation;
+
+import cn.hutool.core.codec.Base64;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.baomidou.mybatisplus.enhance.crypto.handler.EncryptedFieldHandler;
+import com.baomidou.mybatisplus.enhance.crypto.handler.KeyRingEncryptedFieldHandler;
+import com.baomidou.mybatisplus.enhance.service.IEnhanceService;
+import com.baomidou.mybatisplus.enhance.support.H2TestEnvironment;
+import com.baomidou.mybatisplus.enhance.support.Person;
+import com.baomidou.mybatisplus.enhance.support.PersonMapper;
+import com.baomidou.mybatisplus.enhance.support.PersonService;
+import org.apache.ibatis.session.SqlSession;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class KeyRotationJobTest {
+
+    /**
+     * 可切换目标的字段加解密 Handler，先以历史密钥写入数据，再切换为密钥环
+     */
+    static class SwitchableEncryptedFieldHandler implements EncryptedFieldHandler {
+
+        private volatile EncryptedFieldHandler target;
+
+        SwitchableEncryptedFieldHandler(EncryptedFieldHandler target) {
+            this.target = target;
+        }
+
+        @Override
+        public <T> String encrypt(T value) {
+            return target.encrypt(value);
+        }
+
+        @Override
+        public List<String> encryptCandidates(Object value) {
+            return target.encryptCandidates(value);
+        }
+
+        @Override
+        public <T> T decrypt(String value, Class<T> rtType) {
+            return target.decrypt(value, rtType);
+        }
+
+        @Override
+        public <T> String hmac(T value) {
+            return target.hmac(value);
+        }
+
+        @Override
+        public String hmacCanonical(List<?> values) {
+            return target.hmacCanonical(values);
+        }
+
+        @Override
+        public String blindIndex(Object value) {
+            return target.blindIndex(value);
+        }
+
+    }
+
+    private static final int ROWS = 120;
+
+    private H2TestEnvironment environment;
+    private SqlSession sqlSession;
+    private PersonMapper mapper;
+    private KeyRingEncryptedFieldHandler keyRing;
+
+    @Before
+    public void setUp() {
+        EncryptedFieldHandler key1 = H2TestEnvironment.newEncryptedFieldHandler(H2TestEnvironment.KEY, H2TestEnvironment.IV);
+        SwitchableEncryptedFieldHandler handler = new SwitchableEncryptedFieldHandler(key1);
+        environment = new H2TestEnvironment(handler, null, null, null);
+        sqlSession = environment.getSqlSessionFactory().openSession(true);
+        mapper = sqlSession.getMapper(PersonMapper.class);
+        for (int i = 0; i < ROWS; i++) {
+            Person person = new Person();
+            person.setName("n" + i);
+            person.setMobile("138" + i);
+            person.setEmail("e" + i + "@x.com");
+            mapper.insert(person);
+        }
+        Map<String, EncryptedFieldHandler> handlers = new LinkedHashMap<>();
+        handlers.put("1", key1);
+        handlers.put("2", H2TestEnvironment.newEncryptedFieldHandler(Base64.encode("fedcba0987654321"), Base64.encode("0987654321fedcba")));
+        keyRing = new KeyRingEncryptedFieldHandler("2", handlers, "1", "1");
+        handler.target = keyRing;
+    }
+
+    @After
+    public void tearDown() {
+        sqlSession.close();
+    }
+
+    private void assertQueries() {
+        assertEquals(1, mapper.selectList(Wrappers.<Person>query().eq("email", "e5@x.com")).size());
+        assertEquals(2, mapper.selectList(Wrappers.<Person>lambdaQuery().in(Person::getEmail, "e5@x.com", "e6@x.com")).size());
+        assertEquals(ROWS - 1, (long) mapper.selectCount(Wrappers.<Person>lambdaQuery().ne(Person::getEmail, "e5@x.com")));
+        assertEquals(1, mapper.selectList(Wrappers.<Person>lambdaQuery().eq(Person::getMobile, "1387")).size());
+    }
+
+    @Test
+    public void testRotateAndResume() {
+        // 轮换前：历史密文可以解密，新数据使用当前密钥加密，Wrapper 条件匹配两种密文
+        assertEquals("1385", mapper.selectById(6L).getMobile());
+        Person person = new Person();
+        person.setName("new");
+        person.setMobile("13999");
+        person.setEmail("e5@x.com");
+        mapper.insert(person);
+        assertTrue(keyRing.isCurrent(mapper.selectIgnoreDecryptById(person.getId()).getEmail()));
+        assertEquals(2, mapper.selectList(Wrappers.<Person>query().eq("email", "e5@x.com")).size());
+        mapper.deleteById(person.getId());
+        assertQueries();
+
+        // 第 2 个分片保存断点后中断，再次执行时从断点继续
+        JdbcKeyRotationCheckpointStore store = new JdbcKeyRotationCheckpointStore(environment.getDataSource());
+        int[] saves = {0};
+        KeyRotationCheckpointStore crashing = new KeyRotationCheckpointStore() {
+            @Override
+            public String load(String tableName, String keyId) {
+                return store.load(tableName, keyId);
+            }
+
+            @Override
+            public void save(String tableName, String keyId, String lastKey) {
+                store.save(tableName, keyId, lastKey);
+                if (++saves[0] == 2) {
+                    throw new IllegalStateException("crash");
+                }
+            }
+        };
+        PersonService service = new PersonService(environment, mapper);
+        List<IEnhanceService<?>> services = Collections.singletonList(service);
+        KeyRotationJob crashed = new KeyRotationJob(services, keyRing, crashing, null, 50, 0, true);
+        try {
+            crashed.run();
+            fail("checkpoint store did not crash");
+        } catch (IllegalStateException e) {
+            assertEquals("crash", e.getMessage());
+        }
+        assertEquals("100", store.load("person", "2"));
+        assertQueries();
+
+        KeyRotationJob resumed = new KeyRotationJob(services, keyRing, store, null, 50, 0, true);
+        resumed.run();
+        assertEquals(ROWS - 100, resumed.getScannedRowCount());
+        assertEquals(ROWS - 100, resumed.getRotatedRowCount());
+        assertEquals(String.valueOf(ROWS), store.load("person", "2"));
+
+        // 轮换后：全部密文使用当前密钥，签名和盲索引保持有效
+        for (Person raw : mapper.selectIgnoreDecryptList(null)) {
+            assertTrue(keyRing.isCurrent(raw.getMobile()));
+            assertTrue(keyRing.isCurrent(raw.getEmail()));
+        }
+        List<Person> persons = mapper.selectList(null);
+        assertEquals(ROWS, persons.size());
+        assertEquals("138100", persons.get(100).getMobile());
+        assertEquals("e100@x.com", persons.get(100).getEmail());
+        assertQueries();
+
+        // 再次执行不需要重新加密
+        KeyRotationJob rerun = new KeyRotationJob(services, keyRing, null, null, 50, 0, true);
+        rerun.run();
+        assertEquals(ROWS, rerun.getScannedRowCount());
+        assertEquals(0, rerun.getRotatedRowCount());
+    }
+
+}
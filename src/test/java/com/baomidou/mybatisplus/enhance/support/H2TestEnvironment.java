@@ -0,0 +1,147 @@
+package com.baomidou.mybatisplus.enhance.support;
+
+import cn.hutool.core.codec.Base64;
+import cn.hutool.crypto.Mode;
+import cn.hutool.crypto.Padding;
+import cn.hutool.crypto.digest.HmacAlgorithm;
+import com.baomidou.mybatisplus.annotation.DbType;
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.MybatisSqlSessionFactoryBuilder;
+import com.baomidou.mybatisplus.core.config.GlobalConfig;
+import com.baomidou.mybatisplus.core.toolkit.GlobalConfigUtils;
+import com.baomidou.mybatisplus.enhance.crypto.enums.SymmetricAlgorithmType;
+import com.baomidou.mybatisplus.enhance.crypto.handler.DataSignatureReadWriteProvider;
+import com.baomidou.mybatisplus.enhance.crypto.handler.DefaultDataEncryptionHandler;
+import com.baomidou.mybatisplus.enhance.crypto.handler.DefaultDataSignatureHandler;
+import com.baomidou.mybatisplus.enhance.crypto.handler.DefaultEncryptedFieldHandler;
+import com.baomidou.mybatisplus.enhance.crypto.handler.EncryptedFieldHandler;
+import com.baomidou.mybatisplus.enhance.crypto.handler.SignatureVerificationFailureHandler;
+import com.baomidou.mybatisplus.enhance.crypto.handler.SignatureVerificationSampler;
+import com.baomidou.mybatisplus.enhance.injector.EnhanceSqlInjector;
+import com.baomidou.mybatisplus.enhance.interceptor.MybatisPlusEnhanceInterceptor;
+import com.baomidou.mybatisplus.enhance.interceptor.inner.DataDecryptionInnerInterceptor;
+import com.baomidou.mybatisplus.enhance.interceptor.inner.DataEncryptionInnerInterceptor;
+import com.baomidou.mybatisplus.enhance.interceptor.inner.DataSignatureInnerInterceptor;
+import com.baomidou.mybatisplus.extension.plugins.inner.PaginationInnerInterceptor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.LocalCacheScope;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.h2.jdbcx.JdbcDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * 基于 H2 内存数据库的测试环境：每个实例使用独立的数据库，创建测试表并注册加密、签名、解密和分页拦截器
+ */
+@Getter
+public class H2TestEnvironment {
+
+    public static final String KEY = Base64.encode("1234567890abcdef");
+    public static final String IV = Base64.encode("abcdef1234567890");
+
+    private final JdbcDataSource dataSource;
+    private final EncryptedFieldHandler encryptedFieldHandler;
+    private final DefaultDataSignatureHandler dataSignatureHandler;
+    private final DataSignatureInnerInterceptor dataSignatureInnerInterceptor;
+    private final MybatisPlusEnhanceInterceptor enhanceInterceptor;
+    private final SqlSessionFactory sqlSessionFactory;
+
+    public H2TestEnvironment() {
+        this(newEncryptedFieldHandler(KEY, IV), null, null, null);
+    }
+
+    /**
+     * @param encryptedFieldHandler 字段加解密 Handler
+     * @param signatureProvider 根据数据源创建签名读写提供者，为空时签名存储在实体类的签名字段中
+     * @param sampler 签名验证抽样策略，为空时全部验签
+     * @param failureHandler 验签失败回调，为空时抛出 SignatureVerificationException
+     */
+    public H2TestEnvironment(EncryptedFieldHandler encryptedFieldHandler, Function<DataSource, DataSignatureReadWriteProvider> signatureProvider,
+                             SignatureVerificationSampler sampler, SignatureVerificationFailureHandler failureHandler) {
+        this.dataSource = new JdbcDataSource();
+        this.dataSource.setURL("jdbc:h2:mem:enhance" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        execute("CREATE TABLE person (id BIGINT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(64), mobile VARCHAR(256), mobile_idx VARCHAR(128), email VARCHAR(256), hmac VARCHAR(256))");
+        execute("CREATE TABLE person_ext (id BIGINT PRIMARY KEY, name VARCHAR(64), mobile VARCHAR(256))");
+        execute("CREATE TABLE person_sum (id BIGINT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(64), mobile VARCHAR(256), hmac VARCHAR(256))");
+        execute("CREATE TABLE t_data_signature (table_name VARCHAR(64) NOT NULL, row_key VARCHAR(64) NOT NULL, signature VARCHAR(256) NOT NULL, PRIMARY KEY (table_name, row_key))");
+        execute("CREATE TABLE t_integrity_bucket (table_name VARCHAR(64) NOT NULL, bucket_id BIGINT NOT NULL, delta_id VARCHAR(32) NOT NULL, digest VARCHAR(64) NOT NULL, row_count BIGINT NOT NULL, PRIMARY KEY (table_name, bucket_id, delta_id))");
+        execute("CREATE TABLE t_key_rotation_checkpoint (table_name VARCHAR(64) NOT NULL, key_id VARCHAR(32) NOT NULL, last_key VARCHAR(128) NOT NULL, PRIMARY KEY (table_name, key_id))");
+
+        MybatisConfiguration configuration = new MybatisConfiguration(new Environment("h2", new JdbcTransactionFactory(), dataSource));
+        configuration.setLocalCacheScope(LocalCacheScope.STATEMENT);
+        GlobalConfig globalConfig = GlobalConfigUtils.defaults();
+        globalConfig.setSqlInjector(new EnhanceSqlInjector());
+        GlobalConfigUtils.setGlobalConfig(configuration, globalConfig);
+
+        this.encryptedFieldHandler = encryptedFieldHandler;
+        DefaultDataEncryptionHandler dataEncryptionHandler = new DefaultDataEncryptionHandler(encryptedFieldHandler);
+        this.dataSignatureHandler = Objects.isNull(signatureProvider) ? new DefaultDataSignatureHandler(encryptedFieldHandler)
+                : new DefaultDataSignatureHandler(encryptedFieldHandler, signatureProvider.apply(dataSource));
+        this.dataSignatureInnerInterceptor = new DataSignatureInnerInterceptor(dataSignatureHandler, true, true, 0, null, failureHandler, sampler);
+        this.enhanceInterceptor = new MybatisPlusEnhanceInterceptor();
+        enhanceInterceptor.addInnerInterceptor(new DataEncryptionInnerInterceptor(dataEncryptionHandler));
+        enhanceInterceptor.addInnerInterceptor(dataSignatureInnerInterceptor);
+        enhanceInterceptor.addInnerInterceptor(new DataDecryptionInnerInterceptor(dataEncryptionHandler, true));
+        enhanceInterceptor.addInnerInterceptor(new PaginationInnerInterceptor(DbType.H2));
+        configuration.addInterceptor(enhanceInterceptor);
+        configuration.addMapper(PersonMapper.class);
+        configuration.addMapper(PersonV2Mapper.class);
+        configuration.addMapper(PersonV2StrictMapper.class);
+        configuration.addMapper(PersonExtMapper.class);
+        configuration.addMapper(PersonSumMapper.class);
+        this.sqlSessionFactory = new MybatisSqlSessionFactoryBuilder().build(configuration);
+    }
+
+    /**
+     * 使用 SM4/CBC 和固定偏移向量的字段加解密 Handler，加密结果是确定性的，可以按密文等值查询
+     */
+    public static DefaultEncryptedFieldHandler newEncryptedFieldHandler(String key, String iv) {
+        return new DefaultEncryptedFieldHandler(new ObjectMapper(), SymmetricAlgorithmType.SM4, HmacAlgorithm.HmacSM3,
+                Mode.CBC, Padding.PKCS5Padding, key, iv, true);
+    }
+
+    /**
+     * 绕过 MyBatis 直接执行 SQL，用于篡改数据
+     */
+    public int execute(String sql) {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            return statement.executeUpdate(sql);
+        } catch (SQLException e) {
+            throw new IllegalStateException(sql, e);
+        }
+    }
+
+    /**
+     * 绕过 MyBatis 直接查询第一行第一列的数值
+     */
+    public long queryForLong(String sql) {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            return resultSet.next() ? resultSet.getLong(1) : 0;
+        } catch (SQLException e) {
+            throw new IllegalStateException(sql, e);
+        }
+    }
+
+    /**
+     * 在异常链中查找指定类型的异常，未找到时返回 null
+     */
+    public static <E extends Throwable> E findCause(Throwable throwable, Class<E> type) {
+        for (Throwable cause = throwable; Objects.nonNull(cause); cause = cause.getCause()) {
+            if (type.isInstance(cause)) {
+                return type.cast(cause);
+            }
+        }
+        return null;
+    }
+
+}
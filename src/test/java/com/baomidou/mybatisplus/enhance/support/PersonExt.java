@@ -0,0 +1,25 @@
+package com.baomidou.mybatisplus.enhance.support;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.baomidou.mybatisplus.enhance.crypto.annotation.EncryptedField;
+import com.baomidou.mybatisplus.enhance.crypto.annotation.EncryptedTable;
+import com.baomidou.mybatisplus.enhance.crypto.annotation.TableSignature;
+import com.baomidou.mybatisplus.enhance.crypto.annotation.TableSignatureField;
+import lombok.Data;
+
+@Data
+@EncryptedTable
+@TableSignature
+@TableName("person_ext")
+public class PersonExt {
+
+    @TableId(value = "id", type = IdType.INPUT)
+    private Long id;
+    @TableSignatureField(order = 0)
+    private String name;
+    @EncryptedField
+    @TableSignatureField(order = 1)
+    private String mobile;
+}
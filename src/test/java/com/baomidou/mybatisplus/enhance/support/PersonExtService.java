@@ -0,0 +1,22 @@
+package com.baomidou.mybatisplus.enhance.support;
+
+import com.baomidou.mybatisplus.enhance.service.impl.EnhanceServiceImpl;
+import org.apache.ibatis.session.SqlSessionFactory;
+
+public class PersonExtService extends EnhanceServiceImpl<PersonExtMapper, PersonExt> {
+
+    private final SqlSessionFactory sqlSessionFactory;
+
+    public PersonExtService(H2TestEnvironment environment, PersonExtMapper mapper) {
+        this.sqlSessionFactory = environment.getSqlSessionFactory();
+        this.baseMapper = mapper;
+        this.enhanceMapper = mapper;
+        this.dataSignatureHandler = environment.getDataSignatureHandler();
+    }
+
+    @Override
+    public SqlSessionFactory getSqlSessionFactory() {
+        return sqlSessionFactory;
+    }
+
+}
@@ -0,0 +1,39 @@
+package com.baomidou.mybatisplus.enhance.support;
+
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.core.toolkit.Constants;
+import com.baomidou.mybatisplus.enhance.crypto.annotation.EncryptedParam;
+import com.baomidou.mybatisplus.enhance.crypto.annotation.IgnoreEncrypted;
+import com.baomidou.mybatisplus.enhance.mapper.EnhanceMapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.cursor.Cursor;
+
+import java.util.List;
+
+public interface PersonMapper extends EnhanceMapper<Person> {
+
+    @Select("SELECT * FROM person WHERE mobile_idx = #{mobile}")
+    List<Person> selectByMobile(@EncryptedParam(blindIndex = true) @Param("mobile") String mobile);
+
+    @Select("<script>SELECT * FROM person WHERE email IN <foreach collection='emails' item='e' open='(' separator=',' close=')'>#{e}</foreach></script>")
+    List<Person> selectByEmails(@EncryptedParam @Param("emails") List<String> emails);
+
+    @Select("SELECT * FROM person WHERE email = #{email}")
+    IPage<Person> selectPageByEmail(IPage<Person> page, @EncryptedParam @Param("email") String email);
+
+    @Select("SELECT * FROM person WHERE email = #{email}")
+    List<Person> selectByEmail(@Param("email") String email);
+
+    @Select("<script>SELECT * FROM person WHERE mobile_idx IN <foreach collection='mobile' item='m' open='(' separator=',' close=')'>#{m}</foreach></script>")
+    List<Person> selectByMobiles(@Param("mobile") List<String> mobiles);
+
+    @Select("SELECT * FROM person ${ew.customSqlSegment}")
+    Cursor<Person> selectCursorList(@Param(Constants.WRAPPER) Wrapper<Person> queryWrapper);
+
+    @IgnoreEncrypted
+    @Select("SELECT * FROM person WHERE id = #{id}")
+    Person selectRawById(@Param("id") Long id);
+
+}
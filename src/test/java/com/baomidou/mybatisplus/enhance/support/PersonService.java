@@ -0,0 +1,27 @@
+package com.baomidou.mybatisplus.enhance.support;
+
+import com.baomidou.mybatisplus.enhance.service.deferred.DeferredSignatureQueue;
+import com.baomidou.mybatisplus.enhance.service.impl.EnhanceServiceImpl;
+import org.apache.ibatis.session.SqlSessionFactory;
+
+public class PersonService extends EnhanceServiceImpl<PersonMapper, Person> {
+
+    private final SqlSessionFactory sqlSessionFactory;
+
+    public PersonService(H2TestEnvironment environment, PersonMapper mapper) {
+        this.sqlSessionFactory = environment.getSqlSessionFactory();
+        this.baseMapper = mapper;
+        this.enhanceMapper = mapper;
+        this.dataSignatureHandler = environment.getDataSignatureHandler();
+    }
+
+    public void setDeferredSignatureQueue(DeferredSignatureQueue deferredSignatureQueue) {
+        this.deferredSignatureQueue = deferredSignatureQueue;
+    }
+
+    @Override
+    public SqlSessionFactory getSqlSessionFactory() {
+        return sqlSessionFactory;
+    }
+
+}
@@ -0,0 +1,27 @@
+package com.baomidou.mybatisplus.enhance.support;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.baomidou.mybatisplus.enhance.crypto.annotation.EncryptedField;
+import com.baomidou.mybatisplus.enhance.crypto.annotation.EncryptedTable;
+import com.baomidou.mybatisplus.enhance.crypto.annotation.TableSignature;
+import com.baomidou.mybatisplus.enhance.crypto.annotation.TableSignatureField;
+import lombok.Data;
+
+@Data
+@EncryptedTable
+@TableSignature(integrityBucketSize = 10)
+@TableName("person_sum")
+public class PersonSum {
+
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id;
+    @TableSignatureField(order = 0)
+    private String name;
+    @EncryptedField
+    @TableSignatureField(order = 1)
+    private String mobile;
+    @TableSignatureField(stored = true)
+    private String hmac;
+}
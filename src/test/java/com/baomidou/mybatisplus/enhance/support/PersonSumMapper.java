@@ -0,0 +1,7 @@
+package com.baomidou.mybatisplus.enhance.support;
+
+import com.baomidou.mybatisplus.enhance.mapper.EnhanceMapper;
+
+public interface PersonSumMapper extends EnhanceMapper<PersonSum> {
+
+}
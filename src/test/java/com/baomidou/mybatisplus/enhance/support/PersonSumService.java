@@ -0,0 +1,26 @@
+package com.baomidou.mybatisplus.enhance.support;
+
+import com.baomidou.mybatisplus.enhance.crypto.integrity.JdbcIntegritySummaryStore;
+import com.baomidou.mybatisplus.enhance.crypto.integrity.TableIntegritySummary;
+import com.baomidou.mybatisplus.enhance.service.impl.EnhanceServiceImpl;
+import org.apache.ibatis.session.SqlSessionFactory;
+
+public class PersonSumService extends EnhanceServiceImpl<PersonSumMapper, PersonSum> {
+
+    private final SqlSessionFactory sqlSessionFactory;
+
+    public PersonSumService(H2TestEnvironment environment, PersonSumMapper mapper) {
+        this.sqlSessionFactory = environment.getSqlSessionFactory();
+        this.baseMapper = mapper;
+        this.enhanceMapper = mapper;
+        this.dataSignatureHandler = environment.getDataSignatureHandler();
+        this.tableIntegritySummary = new TableIntegritySummary(new JdbcIntegritySummaryStore(environment.getDataSource()),
+                environment.getEncryptedFieldHandler());
+    }
+
+    @Override
+    public SqlSessionFactory getSqlSessionFactory() {
+        return sqlSessionFactory;
+    }
+
+}
@@ -0,0 +1,31 @@
+package com.baomidou.mybatisplus.enhance.support;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.baomidou.mybatisplus.enhance.crypto.annotation.EncryptedField;
+import com.baomidou.mybatisplus.enhance.crypto.annotation.EncryptedTable;
+import com.baomidou.mybatisplus.enhance.crypto.annotation.TableSignature;
+import com.baomidou.mybatisplus.enhance.crypto.annotation.TableSignatureField;
+import com.baomidou.mybatisplus.enhance.crypto.enums.SignatureFormat;
+import lombok.Data;
+
+@Data
+@EncryptedTable
+@TableSignature(format = SignatureFormat.V2)
+@TableName("person")
+public class PersonV2 {
+
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id;
+    @TableSignatureField(order = 0)
+    private String name;
+    @EncryptedField(blindIndex = "mobileIdx")
+    @TableSignatureField(order = 1)
+    private String mobile;
+    private String mobileIdx;
+    @EncryptedField
+    private String email;
+    @TableSignatureField(stored = true)
+    private String hmac;
+}
@@ -0,0 +1,133 @@
+package com.baomidou.mybatisplus.enhance.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class CryptoPoolTest {
+
+    /**
+     * 模拟非线程安全的加密器：同一时刻被多个线程使用时记录冲突
+     */
+    static class Instance {
+
+        private final AtomicBoolean inUse = new AtomicBoolean();
+
+        int use(AtomicInteger conflicts) {
+            if (!inUse.compareAndSet(false, true)) {
+                conflicts.incrementAndGet();
+                return -1;
+            }
+            Thread.yield();
+            inUse.set(false);
+            return 1;
+        }
+
+    }
+
+    @Test
+    public void testConcurrentBorrowAndRelease() throws Exception {
+        AtomicInteger created = new AtomicInteger();
+        CryptoPool<Instance> pool = new CryptoPool<>(() -> {
+            created.incrementAndGet();
+            return new Instance();
+        }, 4);
+        AtomicInteger conflicts = new AtomicInteger();
+        int threads = 8;
+        int rounds = 2000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    int sum = 0;
+                    for (int i = 0; i < rounds; i++) {
+                        sum += pool.execute(instance -> instance.use(conflicts));
+                    }
+                    return sum;
+                }));
+            }
+            start.countDown();
+            for (Future<Integer> future : futures) {
+                assertEquals(rounds, (int) future.get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        // 每个实例同一时刻只被一个线程使用
+        assertEquals(0, conflicts.get());
+        CryptoPool.Metrics metrics = pool.getMetrics();
+        assertEquals(threads * rounds, metrics.getHits() + metrics.getMisses());
+        assertEquals(created.get(), metrics.getMisses());
+        assertTrue(metrics.getHits() > 0);
+        assertTrue(metrics.getIdle() <= 4);
+        assertEquals(metrics.getMisses(), metrics.getIdle() + metrics.getDiscards());
+    }
+
+    @Test
+    public void testDiscardBeyondMaxIdle() {
+        CryptoPool<Object> pool = new CryptoPool<>(Object::new, 2);
+        List<Object> borrowed = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            borrowed.add(pool.borrow());
+        }
+        borrowed.forEach(pool::release);
+        CryptoPool.Metrics metrics = pool.getMetrics();
+        assertEquals(0, metrics.getHits());
+        assertEquals(5, metrics.getMisses());
+        assertEquals(3, metrics.getDiscards());
+        assertEquals(2, metrics.getIdle());
+        // 空闲实例被复用
+        Set<Object> reused = ConcurrentHashMap.newKeySet();
+        reused.add(pool.borrow());
+        reused.add(pool.borrow());
+        assertTrue(borrowed.containsAll(reused));
+        assertEquals(2, pool.getMetrics().getHits());
+        assertEquals(0, pool.getMetrics().getIdle());
+    }
+
+    @Test
+    public void testDiscardAfterFailure() {
+        CryptoPool<Object> pool = new CryptoPool<>(Object::new, 2);
+        Object[] failed = new Object[1];
+        try {
+            pool.execute(instance -> {
+                failed[0] = instance;
+                throw new IllegalStateException("broken");
+            });
+            fail("exception swallowed");
+        } catch (IllegalStateException e) {
+            assertEquals("broken", e.getMessage());
+        }
+        CryptoPool.Metrics metrics = pool.getMetrics();
+        assertEquals(1, metrics.getMisses());
+        assertEquals(1, metrics.getDiscards());
+        assertEquals(0, metrics.getIdle());
+        // 抛出异常的实例不再归还，下次借出新建实例
+        Object next = pool.execute(instance -> instance);
+        assertNotSame(failed[0], next);
+        assertEquals(2, pool.getMetrics().getMisses());
+        assertEquals(1, pool.getMetrics().getIdle());
+        assertSame(next, pool.execute(instance -> instance));
+        assertEquals(1, pool.getMetrics().getHits());
+    }
+
+    @Test
+    public void testMetricsMerge() {
+        CryptoPool.Metrics merged = new CryptoPool.Metrics(1, 2, 3, 4).merge(new CryptoPool.Metrics(10, 20, 30, 40));
+        assertEquals(11, merged.getHits());
+        assertEquals(22, merged.getMisses());
+        assertEquals(33, merged.getDiscards());
+        assertEquals(44, merged.getIdle());
+    }
+
+}
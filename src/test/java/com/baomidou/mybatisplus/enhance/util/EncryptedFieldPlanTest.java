@@ -0,0 +1,108 @@
+package com.baomidou.mybatisplus.enhance.util;
+
+import com.baomidou.mybatisplus.core.metadata.TableFieldInfo;
+import com.baomidou.mybatisplus.core.metadata.TableInfo;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.baomidou.mybatisplus.enhance.crypto.handler.DefaultDataEncryptionHandler;
+import com.baomidou.mybatisplus.enhance.support.H2TestEnvironment;
+import com.baomidou.mybatisplus.enhance.support.Person;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class EncryptedFieldPlanTest {
+
+    private H2TestEnvironment environment;
+
+    @Before
+    public void setUp() {
+        environment = new H2TestEnvironment();
+    }
+
+    @Test
+    public void testPlanBuiltOncePerTableInfo() {
+        EncryptedFieldPlan plan = TableFieldHelper.getEncryptedFieldPlan(Person.class);
+        assertSame(plan, TableFieldHelper.getEncryptedFieldPlan(Person.class));
+        assertSame(TableInfoHelper.getTableInfo(Person.class), plan.getTableInfo());
+        // Mapper 重新加载（TableInfo 重新初始化）后重建
+        new H2TestEnvironment();
+        EncryptedFieldPlan rebuilt = TableFieldHelper.getEncryptedFieldPlan(Person.class);
+        assertNotSame(plan, rebuilt);
+        assertSame(TableInfoHelper.getTableInfo(Person.class), rebuilt.getTableInfo());
+    }
+
+    /**
+     * 与逐次注解查找的结果一致
+     */
+    @Test
+    public void testMatchesReflection() {
+        TableInfo tableInfo = TableInfoHelper.getTableInfo(Person.class);
+        EncryptedFieldPlan plan = TableFieldHelper.getEncryptedFieldPlan(Person.class);
+        assertTrue(plan.isEncryptable());
+        assertTrue(plan.isBlindIndex());
+        assertEquals(TableFieldHelper.getEncryptedFieldInfos(tableInfo), plan.getFieldInfos());
+        assertEquals(plan.getFieldInfos().stream().map(TableFieldInfo::getProperty).collect(Collectors.toList()),
+                Arrays.stream(plan.getFields()).map(EncryptedFieldPlan.EncryptedFieldItem::getProperty).collect(Collectors.toList()));
+
+        EncryptedFieldPlan.EncryptedFieldItem mobile = plan.getColumnItem("`MOBILE`");
+        assertNotNull(mobile);
+        assertEquals("mobile", mobile.getProperty());
+        assertEquals(String.class, mobile.getTargetType());
+        assertEquals("mobileIdx", mobile.getBlindIndexFieldInfo().getProperty());
+        assertFalse(plan.getColumnItem("email").hasBlindIndex());
+        assertNull(plan.getColumnItem("name"));
+
+        EncryptedFieldPlan plain = TableFieldHelper.getEncryptedFieldPlan(String.class);
+        assertFalse(plain.isEncryptable());
+        assertEquals(0, plain.getFields().length);
+    }
+
+    /**
+     * 通过加解密计划加解密实体，与逐个字段加密的结果一致
+     */
+    @Test
+    public void testEncryptAndDecryptWithPlan() {
+        DefaultDataEncryptionHandler handler = new DefaultDataEncryptionHandler(environment.getEncryptedFieldHandler());
+        Person person = new Person();
+        person.setName("dave");
+        person.setMobile("13800000000");
+        person.setEmail("dave@example.com");
+        handler.doEntityEncrypt(person);
+        assertEquals("dave", person.getName());
+        assertEquals(handler.doValueEncrypt("13800000000"), person.getMobile());
+        assertEquals(handler.doBlindIndex("13800000000"), person.getMobileIdx());
+        assertEquals(handler.doValueEncrypt("dave@example.com"), person.getEmail());
+
+        handler.doRawObjectDecrypt(person, Person.class);
+        assertEquals("13800000000", person.getMobile());
+        assertEquals("dave@example.com", person.getEmail());
+    }
+
+    @Test
+    public void testFieldAccessor() throws Exception {
+        Field field = Person.class.getDeclaredField("mobile");
+        FieldAccessor accessor = FieldAccessor.of(field);
+        assertSame(field, accessor.getField());
+        assertEquals("mobile", accessor.getName());
+        assertEquals(String.class, accessor.getType());
+
+        Person person = new Person();
+        accessor.set(person, "13900000000");
+        assertEquals("13900000000", person.getMobile());
+        assertEquals(field.get(person), accessor.get(person));
+        accessor.set(person, null);
+        assertNull(accessor.get(person));
+        try {
+            accessor.set(person, 1L);
+            fail("expected ClassCastException");
+        } catch (ClassCastException expected) {
+            assertNull(person.getMobile());
+        }
+    }
+
+}
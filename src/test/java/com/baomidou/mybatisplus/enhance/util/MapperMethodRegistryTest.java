@@ -0,0 +1,77 @@
+package com.baomidou.mybatisplus.enhance.util;
+
+import cn.hutool.core.util.ReflectUtil;
+import com.baomidou.mybatisplus.core.toolkit.AnnotationUtils;
+import com.baomidou.mybatisplus.enhance.crypto.annotation.IgnoreEncrypted;
+import com.baomidou.mybatisplus.enhance.datascope.annotation.DataScopePlus;
+import com.baomidou.mybatisplus.enhance.support.PersonMapper;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+
+import static org.junit.Assert.*;
+
+public class MapperMethodRegistryTest {
+
+    private static final String PERSON_MAPPER = PersonMapper.class.getName();
+
+    @Test
+    public void testResolvedOncePerStatement() {
+        String id = PERSON_MAPPER + ".selectIgnoreDecryptById";
+        MapperMethodRegistry.MapperMethod mapperMethod = MapperMethodRegistry.get(id);
+        assertSame(mapperMethod, MapperMethodRegistry.get(id));
+        IgnoreEncrypted annotation = mapperMethod.getMethodAnnotation(IgnoreEncrypted.class);
+        assertNotNull(annotation);
+        assertSame(annotation, mapperMethod.getMethodAnnotation(IgnoreEncrypted.class));
+        // 清空后重新解析
+        MapperMethodRegistry.clear();
+        assertNotSame(mapperMethod, MapperMethodRegistry.get(id));
+    }
+
+    /**
+     * 与逐次 Class.forName 和方法遍历的解析结果一致
+     */
+    @Test
+    public void testMatchesReflection() throws Exception {
+        for (String methodName : new String[]{"selectById", "selectIgnoreDecryptById", "selectIgnoreDecryptList", "updateSignatureById"}) {
+            MapperMethodRegistry.MapperMethod mapperMethod = MapperMethodRegistry.get(PERSON_MAPPER + "." + methodName);
+            Method method = ReflectUtil.getMethodByName(Class.forName(PERSON_MAPPER), methodName);
+            assertTrue(methodName, mapperMethod.isResolved());
+            assertEquals(PersonMapper.class, mapperMethod.getMapperClass());
+            assertEquals(methodName, method, mapperMethod.getMethod());
+            assertEquals(methodName, AnnotationUtils.findFirstAnnotation(IgnoreEncrypted.class, method) != null,
+                    mapperMethod.isMethodAnnotationPresent(IgnoreEncrypted.class));
+            assertEquals(PersonMapper.class.getAnnotation(DataScopePlus.class), mapperMethod.getClassAnnotation(DataScopePlus.class));
+        }
+    }
+
+    /**
+     * 分页插件的 count 语句沿用原方法上的注解
+     */
+    @Test
+    public void testCountStatement() {
+        MapperMethodRegistry.MapperMethod original = MapperMethodRegistry.get(PERSON_MAPPER + ".selectIgnoreDecryptList");
+        for (String suffix : new String[]{"_COUNT", "_count", "_mpCount"}) {
+            MapperMethodRegistry.MapperMethod count = MapperMethodRegistry.get(PERSON_MAPPER + ".selectIgnoreDecryptList" + suffix);
+            assertEquals(suffix, original.getMethod(), count.getMethod());
+            assertTrue(suffix, count.isMethodAnnotationPresent(IgnoreEncrypted.class));
+        }
+    }
+
+    /**
+     * 无法解析的 Id 同样缓存，不重复解析
+     */
+    @Test
+    public void testUnresolved() {
+        for (String id : new String[]{"noNamespace", "com.example.MissingMapper.selectById", PERSON_MAPPER + ".missingMethod"}) {
+            MapperMethodRegistry.MapperMethod mapperMethod = MapperMethodRegistry.get(id);
+            assertFalse(id, mapperMethod.isResolved());
+            assertNull(id, mapperMethod.getMethodAnnotation(IgnoreEncrypted.class));
+            assertNull(id, MapperMethodRegistry.getMethodAnnotation(id, IgnoreEncrypted.class));
+            assertSame(id, mapperMethod, MapperMethodRegistry.get(id));
+        }
+        assertNull(MapperMethodRegistry.get("com.example.MissingMapper.selectById").getMapperClass());
+        assertEquals(PersonMapper.class, MapperMethodRegistry.get(PERSON_MAPPER + ".missingMethod").getMapperClass());
+    }
+
+}
@@ -0,0 +1,129 @@
+package com.baomidou.mybatisplus.enhance.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ParallelUtilsTest {
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static List<AtomicInteger> counters(int size) {
+        List<AtomicInteger> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(new AtomicInteger());
+        }
+        return list;
+    }
+
+    @Test
+    public void testEachElementOnceInPlace() {
+        List<AtomicInteger> list = counters(1001);
+        List<AtomicInteger> original = new ArrayList<>(list);
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        ParallelUtils.forEach(list, executor, 4, counter -> {
+            threads.add(Thread.currentThread());
+            counter.incrementAndGet();
+        });
+        for (int i = 0; i < list.size(); i++) {
+            assertSame(original.get(i), list.get(i));
+            assertEquals(1, list.get(i).get());
+        }
+        // 第一个分片在调用线程上执行，其余分片提交到线程池
+        assertTrue(threads.contains(Thread.currentThread()));
+        assertTrue(threads.size() > 1);
+    }
+
+    @Test
+    public void testSerialWhenSingleChunk() {
+        List<AtomicInteger> list = counters(10);
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        ParallelUtils.forEach(list, executor, 1, counter -> {
+            threads.add(Thread.currentThread());
+            counter.incrementAndGet();
+        });
+        assertEquals(1, threads.size());
+        assertTrue(threads.contains(Thread.currentThread()));
+        assertTrue(list.stream().allMatch(counter -> counter.get() == 1));
+    }
+
+    /**
+     * 多个元素失败时，抛出下标最小的失败元素的异常，即使更大下标的元素先失败
+     */
+    @Test
+    public void testLowestIndexFailureWins() {
+        List<Integer> list = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            list.add(i);
+        }
+        CountDownLatch laterFailed = new CountDownLatch(1);
+        Set<Integer> processed = ConcurrentHashMap.newKeySet();
+        try {
+            ParallelUtils.forEach(list, executor, 4, i -> {
+                if (i == 3) {
+                    await(laterFailed);
+                    throw new IllegalStateException("row " + i);
+                }
+                if (i == 90) {
+                    laterFailed.countDown();
+                    throw new IllegalArgumentException("row " + i);
+                }
+                processed.add(i);
+            });
+            fail("expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            assertEquals("row 3", e.getMessage());
+        }
+        // 失败元素所在分片的后续元素不再处理
+        assertFalse(processed.contains(4));
+        assertFalse(processed.contains(91));
+        assertTrue(processed.contains(2));
+    }
+
+    @Test
+    public void testRejectedChunksRunOnCaller() {
+        List<AtomicInteger> list = counters(100);
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        ParallelUtils.forEach(list, task -> {
+            throw new RejectedExecutionException();
+        }, 4, counter -> {
+            threads.add(Thread.currentThread());
+            counter.incrementAndGet();
+        });
+        assertEquals(1, threads.size());
+        assertTrue(list.stream().allMatch(counter -> counter.get() == 1));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
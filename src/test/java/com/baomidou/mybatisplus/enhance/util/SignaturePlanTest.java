@@ -0,0 +1,94 @@
+package com.baomidou.mybatisplus.enhance.util;
+
+import com.baomidou.mybatisplus.core.metadata.TableFieldInfo;
+import com.baomidou.mybatisplus.core.metadata.TableInfo;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.baomidou.mybatisplus.core.toolkit.AnnotationUtils;
+import com.baomidou.mybatisplus.enhance.crypto.annotation.TableSignatureField;
+import com.baomidou.mybatisplus.enhance.crypto.enums.SignatureFormat;
+import com.baomidou.mybatisplus.enhance.support.H2TestEnvironment;
+import com.baomidou.mybatisplus.enhance.support.Person;
+import com.baomidou.mybatisplus.enhance.support.PersonV2Strict;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class SignaturePlanTest {
+
+    private H2TestEnvironment environment;
+
+    @Before
+    public void setUp() {
+        environment = new H2TestEnvironment();
+    }
+
+    @Test
+    public void testPlanBuiltOncePerTableInfo() {
+        SignaturePlan plan = TableFieldHelper.getSignaturePlan(Person.class);
+        assertSame(plan, TableFieldHelper.getSignaturePlan(Person.class));
+        assertSame(plan, TableFieldHelper.getSignaturePlan(TableInfoHelper.getTableInfo(Person.class)));
+        // 签名、验签不重新构建计划
+        Person person = new Person();
+        person.setName("a");
+        person.setMobile("1");
+        environment.getDataSignatureHandler().doEntitySignature(person);
+        environment.getDataSignatureHandler().doSignatureVerification(person, Person.class);
+        assertSame(plan, TableFieldHelper.getSignaturePlan(Person.class));
+        // Mapper 重新加载（TableInfo 重新初始化）后重建
+        new H2TestEnvironment();
+        SignaturePlan rebuilt = TableFieldHelper.getSignaturePlan(Person.class);
+        assertNotSame(plan, rebuilt);
+        assertSame(TableInfoHelper.getTableInfo(Person.class), rebuilt.getTableInfo());
+    }
+
+    /**
+     * 与逐次注解查找、排序的结果一致
+     */
+    @Test
+    public void testMatchesReflection() {
+        TableInfo tableInfo = TableInfoHelper.getTableInfo(Person.class);
+        List<TableFieldInfo> expected = tableInfo.getFieldList().stream()
+                .filter(fieldInfo -> {
+                    TableSignatureField annotation = AnnotationUtils.findFirstAnnotation(TableSignatureField.class, fieldInfo.getField());
+                    return Objects.nonNull(annotation) && !annotation.stored();
+                })
+                .sorted(Comparator.comparingInt((TableFieldInfo fieldInfo) -> AnnotationUtils.findFirstAnnotation(TableSignatureField.class, fieldInfo.getField()).order())
+                        .thenComparing(TableFieldInfo::getColumn))
+                .collect(Collectors.toList());
+        SignaturePlan plan = TableFieldHelper.getSignaturePlan(Person.class);
+        assertTrue(plan.isSignable());
+        assertFalse(plan.isIntegritySummaryEnabled());
+        assertEquals(expected, plan.getFieldInfos());
+        assertEquals(expected, TableFieldHelper.getSortedSignatureFieldInfos(tableInfo));
+        assertEquals("name,mobile", plan.getColumns());
+        assertEquals("hmac", plan.getStoreField().map(TableFieldInfo::getProperty).orElse(null));
+        assertEquals(SignatureFormat.V1, plan.getFormat());
+        assertEquals(SignatureFormat.V1, plan.getMinimumFormat());
+
+        // 字段读写器读取的值与 TableInfo 反射读取的值一致
+        Person person = new Person();
+        person.setName("a");
+        person.setMobile("1");
+        person.setHmac("s");
+        for (SignaturePlan.SignatureFieldItem item : plan.getFields()) {
+            assertEquals(tableInfo.getPropertyValue(person, item.getProperty()), item.getAccessor().get(person));
+        }
+        assertEquals("s", plan.getStoreAccessor().get(person));
+
+        SignaturePlan strict = TableFieldHelper.getSignaturePlan(PersonV2Strict.class);
+        assertEquals(SignatureFormat.V2, strict.getFormat());
+        assertEquals(SignatureFormat.V2, strict.getMinimumFormat());
+
+        SignaturePlan plain = TableFieldHelper.getSignaturePlan(String.class);
+        assertFalse(plain.isSignable());
+        assertEquals(0, plain.getFields().length);
+        assertFalse(plain.getStoreField().isPresent());
+    }
+
+}
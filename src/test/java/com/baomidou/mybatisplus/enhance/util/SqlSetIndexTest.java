@@ -0,0 +1,67 @@
+package com.baomidou.mybatisplus.enhance.util;
+
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
+import com.baomidou.mybatisplus.core.metadata.TableFieldInfo;
+import com.baomidou.mybatisplus.core.metadata.TableInfo;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.baomidou.mybatisplus.enhance.support.H2TestEnvironment;
+import com.baomidou.mybatisplus.enhance.support.Person;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SqlSetIndexTest {
+
+    private static TableInfo tableInfo;
+
+    @BeforeClass
+    public static void init() {
+        new H2TestEnvironment();
+        tableInfo = TableInfoHelper.getTableInfo(Person.class);
+    }
+
+    private static TableFieldInfo field(String property) {
+        return tableInfo.getFieldList().stream().filter(f -> f.getProperty().equals(property)).findFirst().orElseThrow(IllegalStateException::new);
+    }
+
+    @Test
+    public void testSetSqlWithCommaInLiteral() {
+        UpdateWrapper<Person> wrapper = new UpdateWrapper<Person>().setSql("name = 'a,b', email = concat('x', ',', 'y')").set("mobile", "13900000000");
+        SqlSetIndex index = SqlSetIndex.of(wrapper);
+        assertEquals("'a,b'", index.getSegments().get("name"));
+        assertEquals("concat('x', ',', 'y')", index.getSegments().get("email"));
+        assertTrue(index.containsParam(field("mobile")));
+        assertFalse(index.containsParam(field("name")));
+        assertEquals("'a,b'", index.getPropertySegments(tableInfo).get("name"));
+    }
+
+    @Test
+    public void testParamValue() {
+        LambdaUpdateWrapper<Person> wrapper = Wrappers.<Person>lambdaUpdate().set(Person::getMobileIdx, "idx").set(Person::getEmail, "a@x.com");
+        SqlSetIndex index = SqlSetIndex.of(wrapper);
+        String paramKey = index.getParamKey(field("email"));
+        assertNotNull(paramKey);
+        assertEquals("a@x.com", index.getValue(field("email")));
+        assertEquals("idx", index.getValue(field("mobileIdx")));
+        assertNull(index.getValue(field("name")));
+        assertTrue(index.setValue(field("email"), "cipher"));
+        assertEquals("cipher", wrapper.getParamNameValuePairs().get(paramKey));
+        assertFalse(index.setValue(field("name"), "x"));
+    }
+
+    @Test
+    public void testCache() {
+        UpdateWrapper<Person> wrapper = new UpdateWrapper<Person>().set("name", "a");
+        SqlSetIndex index = SqlSetIndex.of(wrapper);
+        assertSame(index, SqlSetIndex.of(wrapper));
+        wrapper.set("email", "b");
+        SqlSetIndex rebuilt = SqlSetIndex.of(wrapper);
+        assertNotSame(index, rebuilt);
+        assertTrue(rebuilt.containsParam(field("email")));
+        assertTrue(SqlSetIndex.of(Wrappers.<Person>query()).getSegments().isEmpty());
+    }
+
+}
@@ -0,0 +1,95 @@
+package com.baomidou.mybatisplus.enhance.util;
+
+import cn.hutool.crypto.Mode;
+import cn.hutool.crypto.Padding;
+import cn.hutool.crypto.digest.HmacAlgorithm;
+import cn.hutool.crypto.symmetric.SM4;
+import cn.hutool.crypto.symmetric.SymmetricCrypto;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class SymmetricCryptoUtilTest {
+
+    private static final String KEY = "1234567890abcdef";
+    private static final String IV = "abcdef1234567890";
+
+    @Test
+    public void testExecuteConcurrently() throws Exception {
+        String expected = SymmetricCryptoUtil.getSm4(Mode.CBC, Padding.PKCS5Padding, KEY, IV).encryptBase64("13800000000");
+        String expectedHmac = SymmetricCryptoUtil.getHmac(HmacAlgorithm.HmacSM3, KEY).digestHex("13800000000");
+        CryptoPool.Metrics before = SymmetricCryptoUtil.getSymmetricCryptoPoolMetrics();
+        CryptoPool.Metrics hmacBefore = SymmetricCryptoUtil.getHmacPoolMetrics();
+        int threads = 8;
+        int rounds = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < rounds; i++) {
+                        String cipherText = SymmetricCryptoUtil.execute(SM4.ALGORITHM_NAME, Mode.CBC, Padding.PKCS5Padding, KEY, IV,
+                                crypto -> crypto.encryptBase64("13800000000"));
+                        String plainText = SymmetricCryptoUtil.execute(SM4.ALGORITHM_NAME, Mode.CBC, Padding.PKCS5Padding, KEY, IV,
+                                crypto -> crypto.decryptStr(cipherText));
+                        String hmac = SymmetricCryptoUtil.executeHmac(HmacAlgorithm.HmacSM3, KEY, mac -> mac.digestHex("13800000000"));
+                        if (!expected.equals(cipherText) || !"13800000000".equals(plainText) || !expectedHmac.equals(hmac)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> future : futures) {
+                assertTrue(future.get(60, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        CryptoPool.Metrics after = SymmetricCryptoUtil.getSymmetricCryptoPoolMetrics();
+        assertEquals(2L * threads * rounds, after.getHits() + after.getMisses() - before.getHits() - before.getMisses());
+        CryptoPool.Metrics hmacAfter = SymmetricCryptoUtil.getHmacPoolMetrics();
+        assertEquals((long) threads * rounds, hmacAfter.getHits() + hmacAfter.getMisses() - hmacBefore.getHits() - hmacBefore.getMisses());
+    }
+
+    @Test
+    public void testPoolPerSpec() {
+        CryptoSpec spec = CryptoSpec.of(SM4.ALGORITHM_NAME, Mode.CBC, Padding.PKCS5Padding, KEY, IV);
+        assertSame(SymmetricCryptoUtil.getSymmetricCryptoPool(spec),
+                SymmetricCryptoUtil.getSymmetricCryptoPool(CryptoSpec.of(SM4.ALGORITHM_NAME, Mode.CBC, Padding.PKCS5Padding, KEY, IV)));
+        assertNotSame(SymmetricCryptoUtil.getSymmetricCryptoPool(spec),
+                SymmetricCryptoUtil.getSymmetricCryptoPool(CryptoSpec.of(SM4.ALGORITHM_NAME, Mode.CBC, Padding.PKCS5Padding, KEY, "0000000000000000")));
+        // 对象池中的实例与共享实例相互独立
+        CryptoPool<SymmetricCrypto> pool = SymmetricCryptoUtil.getSymmetricCryptoPool(spec);
+        SymmetricCrypto instance = pool.borrow();
+        try {
+            assertNotSame(SymmetricCryptoUtil.getSymmetricCrypto(spec), instance);
+        } finally {
+            pool.release(instance);
+        }
+    }
+
+    /**
+     * 历史格式签名的密钥只取第一个 "_" 之前的部分，其他签名使用完整密钥
+     */
+    @Test
+    public void testHmacSpec() {
+        String key = "abc_def";
+        assertArrayEquals(key.getBytes(StandardCharsets.UTF_8), SymmetricCryptoUtil.getHmacSpec(HmacAlgorithm.HmacSM3, key).getKey());
+        assertArrayEquals("abc".getBytes(StandardCharsets.UTF_8), SymmetricCryptoUtil.getLegacyHmacSpec(HmacAlgorithm.HmacSM3, key).getKey());
+        assertEquals(SymmetricCryptoUtil.getHmacSpec(HmacAlgorithm.HmacSM3, "abc"), SymmetricCryptoUtil.getLegacyHmacSpec(HmacAlgorithm.HmacSM3, key));
+        assertEquals(SymmetricCryptoUtil.getHmacSpec(HmacAlgorithm.HmacSM3, KEY), SymmetricCryptoUtil.getLegacyHmacSpec(HmacAlgorithm.HmacSM3, KEY));
+        // 只有 "_" 之后不同的两个密钥，完整密钥的签名不同
+        assertNotEquals(SymmetricCryptoUtil.executeHmac(HmacAlgorithm.HmacSM3, "abc_def", hMac -> hMac.digestHex("13800000000")),
+                SymmetricCryptoUtil.executeHmac(HmacAlgorithm.HmacSM3, "abc_xyz", hMac -> hMac.digestHex("13800000000")));
+    }
+
+}